@@ -0,0 +1,255 @@
+package bench.corpus;
+
+/**
+ * A small stack machine. {@link #run()} is deliberately one large method
+ * with a dense switch, nested loops and several traps, which gives large
+ * exceptional unit graphs.
+ */
+class Interpreter {
+	static final int HALT = 0;
+	static final int PUSH = 1;
+	static final int POP = 2;
+	static final int DUP = 3;
+	static final int SWAP = 4;
+	static final int ADD = 5;
+	static final int SUB = 6;
+	static final int MUL = 7;
+	static final int DIV = 8;
+	static final int REM = 9;
+	static final int NEG = 10;
+	static final int AND = 11;
+	static final int OR = 12;
+	static final int XOR = 13;
+	static final int SHL = 14;
+	static final int SHR = 15;
+	static final int LOAD = 16;
+	static final int STORE = 17;
+	static final int JMP = 18;
+	static final int JZ = 19;
+	static final int JNZ = 20;
+	static final int JLT = 21;
+	static final int CALL = 22;
+	static final int RET = 23;
+	static final int NEW = 24;
+	static final int GETF = 25;
+	static final int PUTF = 26;
+	static final int PRINT = 27;
+	static final int THROW = 28;
+	static final int CATCH = 29;
+
+	static class VmError extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		VmError(String message) {
+			super(message);
+		}
+	}
+
+	static class Obj {
+		final int[] fields;
+
+		Obj(int n) {
+			fields = new int[n];
+		}
+	}
+
+	private final int[] code;
+	private final int[] stack = new int[256];
+	private final int[] locals = new int[32];
+	private final int[] frames = new int[64];
+	private final Seq<Obj> heap = new ArraySeq<Obj>();
+	private final StringBuilder out = new StringBuilder();
+	private int steps;
+
+	Interpreter(int[] code) {
+		this.code = code;
+	}
+
+	int steps() {
+		return steps;
+	}
+
+	String output() {
+		return out.toString();
+	}
+
+	void run() {
+		int pc = 0;
+		int sp = 0;
+		int fp = 0;
+		int handler = -1;
+		int a;
+		int b;
+		boolean running = true;
+		while (running) {
+			try {
+				steps++;
+				int op = code[pc++];
+				switch (op) {
+				case HALT:
+					running = false;
+					break;
+				case PUSH:
+					stack[sp++] = code[pc++];
+					break;
+				case POP:
+					sp--;
+					break;
+				case DUP:
+					stack[sp] = stack[sp - 1];
+					sp++;
+					break;
+				case SWAP:
+					a = stack[sp - 1];
+					stack[sp - 1] = stack[sp - 2];
+					stack[sp - 2] = a;
+					break;
+				case ADD:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a + b;
+					break;
+				case SUB:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a - b;
+					break;
+				case MUL:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a * b;
+					break;
+				case DIV:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a / b;
+					break;
+				case REM:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a % b;
+					break;
+				case NEG:
+					stack[sp - 1] = -stack[sp - 1];
+					break;
+				case AND:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a & b;
+					break;
+				case OR:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a | b;
+					break;
+				case XOR:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a ^ b;
+					break;
+				case SHL:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a << b;
+					break;
+				case SHR:
+					b = stack[--sp];
+					a = stack[--sp];
+					stack[sp++] = a >> b;
+					break;
+				case LOAD:
+					stack[sp++] = locals[code[pc++]];
+					break;
+				case STORE:
+					locals[code[pc++]] = stack[--sp];
+					break;
+				case JMP:
+					pc = code[pc];
+					break;
+				case JZ:
+					if (stack[--sp] == 0)
+						pc = code[pc];
+					else
+						pc++;
+					break;
+				case JNZ:
+					if (stack[--sp] != 0)
+						pc = code[pc];
+					else
+						pc++;
+					break;
+				case JLT:
+					b = stack[--sp];
+					a = stack[--sp];
+					if (a < b)
+						pc = code[pc];
+					else
+						pc++;
+					break;
+				case CALL:
+					if (fp == frames.length)
+						throw new VmError("call stack overflow");
+					frames[fp++] = pc + 1;
+					pc = code[pc];
+					break;
+				case RET:
+					if (fp == 0)
+						throw new VmError("call stack underflow");
+					pc = frames[--fp];
+					break;
+				case NEW:
+					a = code[pc++];
+					heap.add(new Obj(a));
+					stack[sp++] = heap.size() - 1;
+					break;
+				case GETF:
+					a = stack[--sp];
+					stack[sp++] = heap.get(a).fields[code[pc++]];
+					break;
+				case PUTF:
+					b = stack[--sp];
+					a = stack[--sp];
+					heap.get(a).fields[code[pc++]] = b;
+					break;
+				case PRINT:
+					out.append(stack[--sp]).append('\n');
+					break;
+				case THROW:
+					throw new VmError("thrown " + stack[--sp]);
+				case CATCH:
+					handler = code[pc++];
+					break;
+				default:
+					throw new VmError("bad opcode " + op + " at " + (pc - 1));
+				}
+			} catch (ArithmeticException e) {
+				if (handler < 0)
+					throw new VmError("arithmetic: " + e.getMessage());
+				sp = 0;
+				stack[sp++] = 1;
+				pc = handler;
+			} catch (ArrayIndexOutOfBoundsException e) {
+				if (handler < 0)
+					throw new VmError("bounds: " + e.getMessage());
+				sp = 0;
+				stack[sp++] = 2;
+				pc = handler;
+			} catch (IndexOutOfBoundsException e) {
+				if (handler < 0)
+					throw new VmError("heap: " + e.getMessage());
+				sp = 0;
+				stack[sp++] = 3;
+				pc = handler;
+			} catch (VmError e) {
+				if (handler < 0)
+					throw e;
+				sp = 0;
+				stack[sp++] = 4;
+				pc = handler;
+			} finally {
+				if (steps > 1000000)
+					running = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package bench.corpus;
+
+/**
+ * Entry point of the benchmark corpus. The corpus is a small, fixed,
+ * self-contained program that exercises the parts of Soot the benchmarks
+ * measure: class hierarchies with interfaces and virtual dispatch for the
+ * call graph and points-to analysis, containers with field loads and stores,
+ * and large methods with many branches and traps for the flow analyses.
+ * <p>
+ * Do not change existing code in here lightly: every change invalidates the
+ * comparison with earlier benchmark results.
+ */
+public class Main {
+	public static void main(String[] args) {
+		Seq<Shape> shapes = new ArraySeq<Shape>();
+		for (int i = 0; i < 64; i++) {
+			shapes.add(makeShape(i));
+		}
+
+		Table<String, Shape> byName = new HashTable<String, Shape>();
+		Seq<Shape> copy = new LinkedSeq<Shape>();
+		for (Iter<Shape> it = shapes.iterator(); it.hasNext();) {
+			Shape s = it.next();
+			byName.put(s.name(), s);
+			copy.add(s);
+		}
+
+		AreaVisitor areas = new AreaVisitor();
+		PerimeterVisitor perimeters = new PerimeterVisitor();
+		for (Iter<Shape> it = copy.iterator(); it.hasNext();) {
+			Shape s = it.next();
+			s.accept(areas);
+			s.accept(perimeters);
+		}
+
+		Interpreter interpreter = new Interpreter(new int[] {
+				Interpreter.PUSH, 10, Interpreter.PUSH, 32, Interpreter.ADD,
+				Interpreter.DUP, Interpreter.MUL, Interpreter.PRINT,
+				Interpreter.HALT });
+		interpreter.run();
+
+		Shape found = byName.get("circle-4");
+		System.out.println(areas.total() + " " + perimeters.total() + " "
+				+ (found == null ? "none" : found.name()) + " "
+				+ interpreter.steps());
+	}
+
+	static Shape makeShape(int i) {
+		switch (i % 4) {
+		case 0:
+			return new Circle("circle-" + i, i);
+		case 1:
+			return new Rect("rect-" + i, i, i + 1);
+		case 2:
+			return new Square("square-" + i, i);
+		default:
+			Polygon p = new Polygon("polygon-" + i);
+			for (int k = 0; k < 3 + i % 5; k++) {
+				p.addPoint(new Point(k, k * i));
+			}
+			return p;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package bench.corpus;
+
+interface Iter<E> {
+	boolean hasNext();
+
+	E next();
+}
+
+interface Seq<E> {
+	void add(E e);
+
+	E get(int i);
+
+	int size();
+
+	Iter<E> iterator();
+}
+
+interface Table<K, V> {
+	V get(K key);
+
+	V put(K key, V value);
+}
+
+class ArraySeq<E> implements Seq<E> {
+	private Object[] elements = new Object[4];
+	private int size;
+
+	public void add(E e) {
+		if (size == elements.length) {
+			Object[] grown = new Object[size * 2];
+			System.arraycopy(elements, 0, grown, 0, size);
+			elements = grown;
+		}
+		elements[size++] = e;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		return (E) elements[i];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Iter<E> iterator() {
+		return new Iter<E>() {
+			private int next;
+
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			public E next() {
+				return get(next++);
+			}
+		};
+	}
+}
+
+class LinkedSeq<E> implements Seq<E> {
+	private static class Cell<E> {
+		final E elem;
+		Cell<E> next;
+
+		Cell(E elem) {
+			this.elem = elem;
+		}
+	}
+
+	private Cell<E> first;
+	private Cell<E> last;
+	private int size;
+
+	public void add(E e) {
+		Cell<E> c = new Cell<E>(e);
+		if (last == null)
+			first = c;
+		else
+			last.next = c;
+		last = c;
+		size++;
+	}
+
+	public E get(int i) {
+		Cell<E> c = first;
+		for (int k = 0; k < i && c != null; k++)
+			c = c.next;
+		if (c == null)
+			throw new IndexOutOfBoundsException(String.valueOf(i));
+		return c.elem;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public Iter<E> iterator() {
+		return new Iter<E>() {
+			private Cell<E> cur = first;
+
+			public boolean hasNext() {
+				return cur != null;
+			}
+
+			public E next() {
+				E ret = cur.elem;
+				cur = cur.next;
+				return ret;
+			}
+		};
+	}
+}
+
+class HashTable<K, V> implements Table<K, V> {
+	private static class Entry<K, V> {
+		final K key;
+		V value;
+		Entry<K, V> next;
+
+		Entry(K key, V value, Entry<K, V> next) {
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	private Entry<K, V>[] buckets = newBuckets(16);
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> Entry<K, V>[] newBuckets(int n) {
+		return new Entry[n];
+	}
+
+	private int indexOf(Object key, int length) {
+		return (key.hashCode() & 0x7fffffff) % length;
+	}
+
+	public V get(K key) {
+		for (Entry<K, V> e = buckets[indexOf(key, buckets.length)]; e != null; e = e.next) {
+			if (e.key.equals(key))
+				return e.value;
+		}
+		return null;
+	}
+
+	public V put(K key, V value) {
+		int i = indexOf(key, buckets.length);
+		for (Entry<K, V> e = buckets[i]; e != null; e = e.next) {
+			if (e.key.equals(key)) {
+				V old = e.value;
+				e.value = value;
+				return old;
+			}
+		}
+		buckets[i] = new Entry<K, V>(key, value, buckets[i]);
+		if (++size > buckets.length * 3 / 4)
+			rehash();
+		return null;
+	}
+
+	private void rehash() {
+		Entry<K, V>[] old = buckets;
+		buckets = newBuckets(old.length * 2);
+		for (Entry<K, V> head : old) {
+			for (Entry<K, V> e = head; e != null;) {
+				Entry<K, V> next = e.next;
+				int i = indexOf(e.key, buckets.length);
+				e.next = buckets[i];
+				buckets[i] = e;
+				e = next;
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package bench.corpus;
+
+interface Shape {
+	String name();
+
+	void accept(ShapeVisitor v);
+}
+
+interface ShapeVisitor {
+	void visitCircle(Circle c);
+
+	void visitRect(Rect r);
+
+	void visitPolygon(Polygon p);
+}
+
+abstract class AbstractShape implements Shape {
+	private final String name;
+
+	AbstractShape(String name) {
+		this.name = name;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String toString() {
+		return name;
+	}
+}
+
+class Circle extends AbstractShape {
+	final double radius;
+
+	Circle(String name, double radius) {
+		super(name);
+		this.radius = radius;
+	}
+
+	public void accept(ShapeVisitor v) {
+		v.visitCircle(this);
+	}
+}
+
+class Rect extends AbstractShape {
+	final double width;
+	final double height;
+
+	Rect(String name, double width, double height) {
+		super(name);
+		this.width = width;
+		this.height = height;
+	}
+
+	public void accept(ShapeVisitor v) {
+		v.visitRect(this);
+	}
+}
+
+class Square extends Rect {
+	Square(String name, double side) {
+		super(name, side, side);
+	}
+}
+
+class Point {
+	final double x;
+	final double y;
+
+	Point(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	double distance(Point o) {
+		double dx = x - o.x;
+		double dy = y - o.y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
+
+class Polygon extends AbstractShape {
+	final Seq<Point> points = new LinkedSeq<Point>();
+
+	Polygon(String name) {
+		super(name);
+	}
+
+	void addPoint(Point p) {
+		points.add(p);
+	}
+
+	public void accept(ShapeVisitor v) {
+		v.visitPolygon(this);
+	}
+}
+
+abstract class SumVisitor implements ShapeVisitor {
+	private double total;
+
+	void add(double d) {
+		total += d;
+	}
+
+	double total() {
+		return total;
+	}
+}
+
+class AreaVisitor extends SumVisitor {
+	public void visitCircle(Circle c) {
+		add(Math.PI * c.radius * c.radius);
+	}
+
+	public void visitRect(Rect r) {
+		add(r.width * r.height);
+	}
+
+	public void visitPolygon(Polygon p) {
+		double sum = 0;
+		Point first = null;
+		Point prev = null;
+		for (Iter<Point> it = p.points.iterator(); it.hasNext();) {
+			Point cur = it.next();
+			if (prev != null)
+				sum += prev.x * cur.y - cur.x * prev.y;
+			else
+				first = cur;
+			prev = cur;
+		}
+		if (prev != null)
+			sum += prev.x * first.y - first.x * prev.y;
+		add(Math.abs(sum) / 2);
+	}
+}
+
+class PerimeterVisitor extends SumVisitor {
+	public void visitCircle(Circle c) {
+		add(2 * Math.PI * c.radius);
+	}
+
+	public void visitRect(Rect r) {
+		add(2 * (r.width + r.height));
+	}
+
+	public void visitPolygon(Polygon p) {
+		Point first = null;
+		Point prev = null;
+		for (Iter<Point> it = p.points.iterator(); it.hasNext();) {
+			Point cur = it.next();
+			if (prev != null)
+				add(prev.distance(cur));
+			else
+				first = cur;
+			prev = cur;
+		}
+		if (prev != null)
+			add(prev.distance(first));
+	}
+}
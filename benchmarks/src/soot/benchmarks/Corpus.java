@@ -0,0 +1,84 @@
+package soot.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.options.Options;
+
+/**
+ * The fixed corpus of class files the benchmarks run on. The class files are
+ * compiled from benchmarks/corpus by the buildbenchmarks target. Their
+ * location can be overridden with the system property
+ * {@value #DIR_PROPERTY}.
+ * <p>
+ * The JDK classes are on the Soot class path, but excluded, so that results
+ * depend as little as possible on the JDK the benchmarks run on.
+ */
+final class Corpus {
+	static final String DIR_PROPERTY = "soot.benchmarks.corpus";
+	static final String MAIN_CLASS = "bench.corpus.Main";
+
+	private Corpus() {
+	}
+
+	static String dir() {
+		return System.getProperty(DIR_PROPERTY, "benchmarkclasses/corpus");
+	}
+
+	/**
+	 * Resets Soot, applies the options shared by all benchmarks and loads
+	 * the corpus. If wholeProgram is true, Soot is set up for whole-program
+	 * analysis starting at the main method of the corpus.
+	 */
+	static void load(boolean wholeProgram) {
+		G.reset();
+		Options o = Options.v();
+		File corpus = new File(dir());
+		if (!corpus.isDirectory())
+			throw new IllegalStateException("Benchmark corpus not found at "
+					+ corpus.getAbsolutePath() + ", run ant buildbenchmarks or set -D"
+					+ DIR_PROPERTY);
+		o.set_soot_classpath(corpus.getPath());
+		o.set_prepend_classpath(true);
+		o.set_process_dir(Collections.singletonList(corpus.getPath()));
+		o.set_allow_phantom_refs(true);
+		o.set_exclude(Arrays.asList("java.", "javax.", "sun.", "jdk."));
+		o.set_no_bodies_for_excluded(true);
+		o.set_output_format(Options.output_format_none);
+		o.set_whole_program(wholeProgram);
+		if (wholeProgram)
+			o.set_main_class(MAIN_CLASS);
+		Scene.v().loadNecessaryClasses();
+	}
+
+	/** Returns the classes of the corpus, ordered by name. */
+	static List<SootClass> classes() {
+		List<SootClass> ret = new ArrayList<SootClass>(Scene.v().getApplicationClasses());
+		Collections.sort(ret, new Comparator<SootClass>() {
+			public int compare(SootClass a, SootClass b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return ret;
+	}
+
+	/** Returns the concrete methods of the corpus, in a fixed order. */
+	static List<SootMethod> concreteMethods() {
+		List<SootMethod> ret = new ArrayList<SootMethod>();
+		for (SootClass c : classes()) {
+			for (SootMethod m : c.getMethods()) {
+				if (m.isConcrete())
+					ret.add(m);
+			}
+		}
+		return ret;
+	}
+}
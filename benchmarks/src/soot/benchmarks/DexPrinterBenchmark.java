@@ -0,0 +1,72 @@
+package soot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import soot.SootClass;
+import soot.SootMethod;
+import soot.options.Options;
+import soot.toDex.DexPrinter;
+
+/**
+ * Measures writing the corpus as a classes.dex file. The bodies are created
+ * beforehand. DexPrinter applies a few transformations to the bodies it
+ * prints, so the first invocation also includes those; later ones find the
+ * bodies already transformed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DexPrinterBenchmark {
+	private List<SootClass> classes;
+	private File outputDir;
+
+	@Setup(Level.Trial)
+	public void loadCorpus() throws IOException {
+		Corpus.load(false);
+		outputDir = File.createTempFile("soot-bench", "");
+		if (!outputDir.delete() || !outputDir.mkdir())
+			throw new IOException("Cannot create " + outputDir);
+		Options.v().set_output_dir(outputDir.getPath());
+		Options.v().set_output_format(Options.output_format_dex);
+
+		classes = Corpus.classes();
+		for (SootClass c : classes) {
+			for (SootMethod m : c.getMethods()) {
+				if (m.isConcrete())
+					m.retrieveActiveBody();
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteOutput() {
+		File[] files = outputDir.listFiles();
+		if (files != null) {
+			for (File f : files)
+				f.delete();
+		}
+		outputDir.delete();
+	}
+
+	@Benchmark
+	public DexPrinter print() {
+		DexPrinter p = new DexPrinter();
+		for (SootClass c : classes)
+			p.add(c);
+		p.print();
+		return p;
+	}
+}
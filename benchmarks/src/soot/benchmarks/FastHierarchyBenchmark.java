@@ -0,0 +1,95 @@
+package soot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soot.ArrayType;
+import soot.FastHierarchy;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+
+/**
+ * Measures building a {@link FastHierarchy} for the corpus and the JDK
+ * classes it references, subtype checks between all pairs of a fixed set of
+ * class, interface and array types, and virtual dispatch on all instance
+ * methods of the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FastHierarchyBenchmark {
+	private static final String[] JDK_TYPES = { "java.lang.Object",
+			"java.lang.String", "java.lang.CharSequence", "java.lang.Comparable",
+			"java.lang.Number", "java.lang.Integer", "java.lang.Throwable",
+			"java.lang.RuntimeException", "java.lang.IndexOutOfBoundsException",
+			"java.lang.ArrayIndexOutOfBoundsException", "java.io.Serializable",
+			"java.lang.Cloneable" };
+
+	private FastHierarchy fh;
+	private List<Type> types;
+	private List<SootClass> dispatchClasses;
+	private List<SootMethod> dispatchMethods;
+
+	@Setup(Level.Trial)
+	public void loadCorpus() {
+		Corpus.load(false);
+		fh = Scene.v().getOrMakeFastHierarchy();
+
+		types = new ArrayList<Type>();
+		List<Type> elementTypes = new ArrayList<Type>();
+		for (String name : JDK_TYPES)
+			elementTypes.add(RefType.v(name));
+		dispatchClasses = new ArrayList<SootClass>();
+		dispatchMethods = new ArrayList<SootMethod>();
+		for (SootClass c : Corpus.classes()) {
+			elementTypes.add(c.getType());
+			for (SootMethod m : c.getMethods()) {
+				if (!m.isStatic() && !m.isConstructor() && !m.isPrivate()) {
+					dispatchClasses.add(c);
+					dispatchMethods.add(m);
+				}
+			}
+		}
+		types.addAll(elementTypes);
+		for (Type t : elementTypes)
+			types.add(ArrayType.v(t, 1));
+		types.add(ArrayType.v(RefType.v("java.lang.Object"), 2));
+	}
+
+	@Benchmark
+	public FastHierarchy build() {
+		return new FastHierarchy();
+	}
+
+	@Benchmark
+	public int canStoreType() {
+		int ret = 0;
+		for (Type child : types) {
+			for (Type parent : types) {
+				if (fh.canStoreType(child, parent))
+					ret++;
+			}
+		}
+		return ret;
+	}
+
+	@Benchmark
+	public void resolveAbstractDispatch(Blackhole bh) {
+		for (int i = 0; i < dispatchMethods.size(); i++)
+			bh.consume(fh.resolveAbstractDispatch(dispatchClasses.get(i), dispatchMethods.get(i)));
+	}
+}
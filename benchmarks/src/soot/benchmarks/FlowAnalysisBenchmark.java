@@ -0,0 +1,62 @@
+package soot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.scalar.InitAnalysis;
+
+/**
+ * Measures the construction of exceptional unit graphs and a forward flow
+ * analysis over them, on the bodies of the corpus with at least
+ * {@link #MIN_UNITS} units. The largest of them is the interpreter loop of
+ * the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlowAnalysisBenchmark {
+	static final int MIN_UNITS = 50;
+
+	private List<Body> bodies;
+	private List<ExceptionalUnitGraph> graphs;
+
+	@Setup(Level.Trial)
+	public void buildGraphs() {
+		Corpus.load(false);
+		bodies = new ArrayList<Body>();
+		graphs = new ArrayList<ExceptionalUnitGraph>();
+		for (SootMethod m : Corpus.concreteMethods()) {
+			Body b = m.retrieveActiveBody();
+			if (b.getUnits().size() >= MIN_UNITS) {
+				bodies.add(b);
+				graphs.add(new ExceptionalUnitGraph(b));
+			}
+		}
+	}
+
+	@Benchmark
+	public void exceptionalUnitGraph(Blackhole bh) {
+		for (Body b : bodies)
+			bh.consume(new ExceptionalUnitGraph(b));
+	}
+
+	@Benchmark
+	public void forwardFlowAnalysis(Blackhole bh) {
+		for (ExceptionalUnitGraph g : graphs)
+			bh.consume(new InitAnalysis(g));
+	}
+}
@@ -0,0 +1,76 @@
+package soot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soot.Body;
+import soot.PackManager;
+import soot.PhaseOptions;
+import soot.SootMethod;
+
+/**
+ * Measures the creation of Jimple bodies from bytecode. asmGetBody converts
+ * all methods of the corpus with the jb pack disabled, jbPack runs the jb
+ * pack on freshly converted bodies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FrontEndBenchmark {
+	@State(Scope.Thread)
+	public static class Methods {
+		List<SootMethod> methods;
+
+		@Setup(Level.Trial)
+		public void loadCorpus() {
+			Corpus.load(false);
+			methods = Corpus.concreteMethods();
+		}
+
+		/** Converts all methods without running the jb pack. */
+		List<Body> convert() {
+			PhaseOptions.v().setPhaseOption("jb", "enabled:false");
+			try {
+				List<Body> ret = new ArrayList<Body>(methods.size());
+				for (SootMethod m : methods)
+					ret.add(m.getSource().getBody(m, "jb"));
+				return ret;
+			} finally {
+				PhaseOptions.v().setPhaseOption("jb", "enabled:true");
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class RawBodies extends Methods {
+		List<Body> bodies;
+
+		@Setup(Level.Invocation)
+		public void convertBodies() {
+			bodies = convert();
+		}
+	}
+
+	@Benchmark
+	public List<Body> asmGetBody(Methods s) {
+		return s.convert();
+	}
+
+	@Benchmark
+	public void jbPack(RawBodies s, Blackhole bh) {
+		for (Body b : s.bodies) {
+			PackManager.v().getPack("jb").apply(b);
+			bh.consume(b);
+		}
+	}
+}
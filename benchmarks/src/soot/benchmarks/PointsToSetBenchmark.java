@@ -0,0 +1,119 @@
+package soot.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import soot.PhaseOptions;
+import soot.RefType;
+import soot.SootClass;
+import soot.Type;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.sets.P2SetFactory;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.options.SparkOptions;
+
+/**
+ * Measures the basic operations of the points-to set implementations on
+ * synthetic alloc nodes whose types are the classes of the corpus. Sets are
+ * declared either as java.lang.Object, which needs no type filtering, or as
+ * an interface of the corpus, which does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PointsToSetBenchmark {
+	@Param({ "bit", "hybrid", "heintze", "roaring", "hashcons" })
+	public String setImpl;
+
+	@Param({ "8", "1024" })
+	public int size;
+
+	private PAG pag;
+	private P2SetFactory factory;
+	private AllocNode[] nodes;
+	private Type objectType;
+	private Type filterType;
+	private PointsToSetInternal full;
+
+	@Setup(Level.Trial)
+	public void createNodes() {
+		Corpus.load(false);
+		Map<String, String> options = new HashMap<String, String>(
+				PhaseOptions.v().getPhaseOptions("cg.spark"));
+		options.put("set-impl", setImpl);
+		pag = new PAG(new SparkOptions(options));
+		factory = pag.getSetFactory();
+
+		List<SootClass> classes = Corpus.classes();
+		nodes = new AllocNode[size];
+		for (int i = 0; i < size; i++) {
+			SootClass c = classes.get(i % classes.size());
+			nodes[i] = pag.makeAllocNode("site" + i, c.getType(), null);
+		}
+		pag.getTypeManager().makeTypeMask();
+
+		objectType = RefType.v("java.lang.Object");
+		filterType = RefType.v("bench.corpus.Shape");
+		full = factory.newSet(objectType, pag);
+		for (AllocNode n : nodes)
+			full.add(n);
+	}
+
+	@Benchmark
+	public PointsToSetInternal add() {
+		PointsToSetInternal s = factory.newSet(objectType, pag);
+		for (AllocNode n : nodes)
+			s.add(n);
+		return s;
+	}
+
+	@Benchmark
+	public PointsToSetInternal addAll() {
+		PointsToSetInternal s = factory.newSet(objectType, pag);
+		s.addAll(full, null);
+		return s;
+	}
+
+	@Benchmark
+	public PointsToSetInternal addAllFiltered() {
+		PointsToSetInternal s = factory.newSet(filterType, pag);
+		s.addAll(full, null);
+		return s;
+	}
+
+	@Benchmark
+	public int contains() {
+		int ret = 0;
+		for (AllocNode n : nodes) {
+			if (full.contains(n))
+				ret++;
+		}
+		return ret;
+	}
+
+	@Benchmark
+	public int forall() {
+		final int[] ret = new int[1];
+		full.forall(new P2SetVisitor() {
+			public void visit(Node n) {
+				ret[0] += n.getNumber();
+			}
+		});
+		return ret[0];
+	}
+}
@@ -0,0 +1,80 @@
+package soot.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import soot.PhaseOptions;
+import soot.jimple.spark.builder.ContextInsensitiveBuilder;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.solver.PropIter;
+import soot.jimple.spark.solver.PropParallel;
+import soot.jimple.spark.solver.PropWorklist;
+import soot.jimple.spark.solver.Propagator;
+import soot.options.SparkOptions;
+
+/**
+ * Measures the Spark propagators. The pointer assignment graph of the
+ * corpus is built before each invocation in the same way as the
+ * SparkTransformer does it, so only the propagation itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SparkBenchmark {
+	@Param({ "worklist", "iter", "parallel" })
+	public String propagator;
+
+	@Param({ "double", "hybrid", "bit" })
+	public String setImpl;
+
+	private SparkOptions opts;
+	private PAG pag;
+
+	@Setup(Level.Invocation)
+	public void buildPag() {
+		Corpus.load(true);
+		Map<String, String> options = new HashMap<String, String>(
+				PhaseOptions.v().getPhaseOptions("cg.spark"));
+		options.put("enabled", "true");
+		options.put("propagator", propagator);
+		options.put("set-impl", setImpl);
+		opts = new SparkOptions(options);
+
+		ContextInsensitiveBuilder b = new ContextInsensitiveBuilder();
+		pag = b.setup(opts);
+		b.build();
+		pag.getTypeManager().makeTypeMask();
+		pag.cleanUpMerges();
+	}
+
+	@Benchmark
+	public PAG propagate() {
+		Propagator p;
+		switch (opts.propagator()) {
+		case SparkOptions.propagator_iter:
+			p = new PropIter(pag);
+			break;
+		case SparkOptions.propagator_worklist:
+			p = new PropWorklist(pag);
+			break;
+		case SparkOptions.propagator_parallel:
+			p = new PropParallel(pag);
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported propagator " + propagator);
+		}
+		p.propagate();
+		return pag;
+	}
+}
@@ -2079,6 +2079,24 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 			getConfig().put(getGeneral_Optionsphase_help_widget().getAlias(), stringRes);
 		}
 		
+		stringRes = getGeneral_Optionsnum_threads_widget().getText().getText();
+		
+		defStringRes = "-1";
+		
+
+	        if ( (!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getGeneral_Optionsnum_threads_widget().getAlias(), stringRes);
+		}
+		
+		stringRes = getGeneral_Optionsbody_budget_widget().getText().getText();
+		
+		defStringRes = "0";
+		
+
+	        if ( (!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getGeneral_Optionsbody_budget_widget().getAlias(), stringRes);
+		}
+		
 		boolRes = getInput_Optionsprepend_classpath_widget().getButton().getSelection();
 		
 		
@@ -2139,6 +2157,16 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 			getConfig().put(getInput_Optionsfull_resolver_widget().getAlias(), new Boolean(boolRes));
 		}
 		
+		boolRes = getInput_Optionsparallel_resolver_widget().getButton().getSelection();
+		
+		
+		defBoolRes = false;
+		
+
+		if (boolRes != defBoolRes) {
+			getConfig().put(getInput_Optionsparallel_resolver_widget().getAlias(), new Boolean(boolRes));
+		}
+		
 		boolRes = getInput_Optionsallow_phantom_refs_widget().getButton().getSelection();
 		
 		
@@ -2233,6 +2261,15 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 	        if ( (!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
 			getConfig().put(getInput_Optionsmain_class_widget().getAlias(), stringRes);
 		}
+		
+		stringRes = getInput_Optionsbody_cache_dir_widget().getText().getText();
+		
+		defStringRes = "";
+		
+
+	        if ( (!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getInput_Optionsbody_cache_dir_widget().getAlias(), stringRes);
+		}
 		 
 		stringRes = getInput_Optionssrc_prec_widget().getSelectedAlias();
 
@@ -5515,6 +5552,15 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 			getConfig().put(getMiscellaneous_Optionsno_writeout_body_releasing_widget().getAlias(), new Boolean(boolRes));
 		}
 		
+		stringRes = getMiscellaneous_Optionsmetrics_file_widget().getText().getText();
+		
+		defStringRes = "";
+		
+
+	        if ( (!(stringRes.equals(defStringRes))) && (stringRes != null) && (stringRes.length() != 0)) {
+			getConfig().put(getMiscellaneous_Optionsmetrics_file_widget().getAlias(), stringRes);
+		}
+		
 		
 		setSootMainClass(getSootMainClassWidget().getText().getText());			
 		return setSootMainProject(getSootMainProjectWidget().getText().getText());
@@ -6819,6 +6865,30 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 	}	
 	
 	
+	
+	private StringOptionWidget General_Optionsnum_threads_widget;
+	
+	private void setGeneral_Optionsnum_threads_widget(StringOptionWidget widget) {
+		General_Optionsnum_threads_widget = widget;
+	}
+	
+	public StringOptionWidget getGeneral_Optionsnum_threads_widget() {
+		return General_Optionsnum_threads_widget;
+	}
+	
+	
+	
+	private StringOptionWidget General_Optionsbody_budget_widget;
+	
+	private void setGeneral_Optionsbody_budget_widget(StringOptionWidget widget) {
+		General_Optionsbody_budget_widget = widget;
+	}
+	
+	public StringOptionWidget getGeneral_Optionsbody_budget_widget() {
+		return General_Optionsbody_budget_widget;
+	}
+	
+	
 	private BooleanOptionWidget Input_Optionsprepend_classpath_widget;
 	
 	private void setInput_Optionsprepend_classpath_widget(BooleanOptionWidget widget) {
@@ -6879,6 +6949,16 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		return Input_Optionsfull_resolver_widget;
 	}	
 	
+	private BooleanOptionWidget Input_Optionsparallel_resolver_widget;
+	
+	private void setInput_Optionsparallel_resolver_widget(BooleanOptionWidget widget) {
+		Input_Optionsparallel_resolver_widget = widget;
+	}
+	
+	public BooleanOptionWidget getInput_Optionsparallel_resolver_widget() {
+		return Input_Optionsparallel_resolver_widget;
+	}	
+	
 	private BooleanOptionWidget Input_Optionsallow_phantom_refs_widget;
 	
 	private void setInput_Optionsallow_phantom_refs_widget(BooleanOptionWidget widget) {
@@ -6990,6 +7070,18 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 	
 	
 	
+	private StringOptionWidget Input_Optionsbody_cache_dir_widget;
+	
+	private void setInput_Optionsbody_cache_dir_widget(StringOptionWidget widget) {
+		Input_Optionsbody_cache_dir_widget = widget;
+	}
+	
+	public StringOptionWidget getInput_Optionsbody_cache_dir_widget() {
+		return Input_Optionsbody_cache_dir_widget;
+	}
+	
+	
+	
 	private MultiOptionWidget Input_Optionssrc_prec_widget;
 	
 	private void setInput_Optionssrc_prec_widget(MultiOptionWidget widget) {
@@ -10403,6 +10495,18 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		return Miscellaneous_Optionsno_writeout_body_releasing_widget;
 	}	
 	
+	
+	private StringOptionWidget Miscellaneous_Optionsmetrics_file_widget;
+	
+	private void setMiscellaneous_Optionsmetrics_file_widget(StringOptionWidget widget) {
+		Miscellaneous_Optionsmetrics_file_widget = widget;
+	}
+	
+	public StringOptionWidget getMiscellaneous_Optionsmetrics_file_widget() {
+		return Miscellaneous_Optionsmetrics_file_widget;
+	}
+	
+	
 
 	private Composite General_OptionsCreate(Composite parent) {
 		String defKey;
@@ -10682,6 +10786,36 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 
 		setGeneral_Optionsphase_help_widget(new ListOptionWidget(editGroupGeneral_Options, SWT.NONE, new OptionData("Phase Help",  "", "","ph", "\nPrint a help message about the phase or sub-phase named PHASE, \nthen exit. To see the help message of more than one phase, \nspecify multiple phase-help options. ", defaultString)));
 		
+		
+		defKey = ""+" "+""+" "+"num-threads";
+		defKey = defKey.trim();
+		
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		}
+		else {
+			
+			defaultString = "-1";
+			
+		}
+
+		setGeneral_Optionsnum_threads_widget(new StringOptionWidget(editGroupGeneral_Options, SWT.NONE, new OptionData("Number of Threads",  "", "","num-threads", "\nSets the number of worker threads Soot uses when retrieving \nbodies and running the body packs (jb, jtp, jop, jap, bb, ...). \nWork is scheduled per method, largest bodies first. A value of \nzero or less uses one thread per available processor. ", defaultString)));
+		
+		
+		defKey = ""+" "+""+" "+"body-budget";
+		defKey = defKey.trim();
+		
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		}
+		else {
+			
+			defaultString = "0";
+			
+		}
+
+		setGeneral_Optionsbody_budget_widget(new StringOptionWidget(editGroupGeneral_Options, SWT.NONE, new OptionData("Body Budget",  "", "","body-budget", "\nLimits the number of units held by the active Jimple bodies of \nall methods. When the limit is exceeded, the bodies that were \nused least recently are released and kept as compressed Jimple \ntext instead, and they are parsed back the next time they are \nasked for. Bodies that carry tags, such as line numbers, and \nbodies other than plain Jimple bodies are never released. \nNeither are bodies that code other than Soot's transformers and \npacks has asked for, since it may still change them. A value of \nzero or less keeps all bodies in memory. ", defaultString)));
+		
 
 		
 		return editGroupGeneral_Options;
@@ -10809,6 +10943,22 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		
 		
 		
+		defKey = ""+" "+""+" "+"parallel-resolver";
+		defKey = defKey.trim();
+
+		if (isInDefList(defKey)) {
+			defaultBool = getBoolDef(defKey);	
+		}
+		else {
+			
+			defaultBool = false;
+			
+		}
+
+		setInput_Optionsparallel_resolver_widget(new BooleanOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Resolve classes in parallel", "", "","parallel-resolver", "\nLets Soot read the classes on its resolver worklist \nconcurrently, using the number of threads given by the \nnum-threads option. All classes that are waiting to be resolved \nare brought to the hierarchy level in parallel, which is where \nclass files are read and parsed. Only classes read from class \nfiles are resolved concurrently; classes from other sources, \nsuch as Jimple or Java source files, are still resolved one \nafter the other. The set of resolved classes does not depend on \nthis option. ", defaultBool)));
+		
+		
+		
 		defKey = ""+" "+""+" "+"allow-phantom-refs";
 		defKey = defKey.trim();
 
@@ -11017,6 +11167,21 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 
 		setInput_Optionsmain_class_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Main Class",  "", "","main-class", "\nBy default, the first class encountered with a main method is \ntreated as the main class (entry point) in whole-program \nanalysis. This option overrides this default. ", defaultString)));
 		
+		
+		defKey = ""+" "+""+" "+"body-cache-dir";
+		defKey = defKey.trim();
+		
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		}
+		else {
+			
+			defaultString = "";
+			
+		}
+
+		setInput_Optionsbody_cache_dir_widget(new StringOptionWidget(editGroupInput_Options, SWT.NONE, new OptionData("Body Cache Directory",  "", "","body-cache-dir", "\nKeep a persistent cache of the Jimple bodies that the ASM front \nend and the jb pack create from class files in directory DIR. \nBodies are keyed by a hash of the contents of their class file, \nof the options that influence body creation and of the Soot \nversion, so the same directory can be shared between runs. Each \nbody is only used while the class files of the classes it refers \nto are unchanged, so changing one class does not invalidate the \nbodies of unrelated classes. On a cache hit, the body is parsed \nfrom the cache instead of being converted from bytecode again. The cache is not used when line numbers or \nbytecode offsets are kept, since these tags are not stored.", defaultString)));
+		
 
 		
 		return editGroupInput_Options;
@@ -14147,6 +14312,12 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		
 		false),
 		
+		new OptionData("Parallel",
+		"parallel",
+		"\nParallel propagates points-to sets in rounds, following the \nedges of the graph on as many threads as given by the \nnum-threads option. It computes the same points-to sets as \nWorklist. ",
+		
+		false),
+		
 		new OptionData("None",
 		"none",
 		"\nNone means that propagation is not done; the graph is only \nbuilt and simplified. This is useful if an external solver is \nbeing used to perform the propagation. ",
@@ -14195,6 +14366,18 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		
 		false),
 		
+		new OptionData("Roaring bitmap",
+		"roaring",
+		"\nRoaring is an implementation that splits the numbers of the \npointed-to objects into chunks of 65536, and keeps each chunk as \na sorted array while it is sparse and as a bit vector once it is \ndense. It stays small on large numberings of objects, while \ndense sets are still united a word at a time. ",
+		
+		false),
+		
+		new OptionData("Hash-consed",
+		"hashcons",
+		"\nHashcons keeps the elements of each points-to set in an \nimmutable sorted array that is interned, so that all sets with \nthe same elements share one array. Unions are memoized, and \nwhether a union changed a set is decided by comparing \nreferences. ",
+		
+		false),
+		
 		new OptionData("Heintze",
 		"heintze",
 		"\nHeintze's representation has elements represented by a \nbit-vector + a small 									'overflow' list of some maximum \nnumber of elements. The bit-vectors can be shared 									by \nmultiple points-to sets, while the overflow lists are not. \n								",
@@ -14255,6 +14438,18 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		
 		false),
 		
+		new OptionData("Roaring bitmap",
+		"roaring",
+		"\nRoaring is an implementation that splits the numbers of the \npointed-to objects into chunks of 65536, and keeps each chunk as \na sorted array while it is sparse and as a bit vector once it is \ndense. It stays small on large numberings of objects, while \ndense sets are still united a word at a time. ",
+		
+		false),
+		
+		new OptionData("Hash-consed",
+		"hashcons",
+		"\nHashcons keeps the elements of each points-to set in an \nimmutable sorted array that is interned, so that all sets with \nthe same elements share one array. Unions are memoized, and \nwhether a union changed a set is decided by comparing \nreferences. ",
+		
+		false),
+		
 		new OptionData("Heintze",
 		"heintze",
 		"\nHeintze's representation has elements represented by a \nbit-vector + a small 									'overflow' list of some maximum \nnumber of elements. The bit-vectors can be shared 									by \nmultiple points-to sets, while the overflow lists are not. \n								",
@@ -14309,6 +14504,18 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		
 		false),
 		
+		new OptionData("Roaring bitmap",
+		"roaring",
+		"\nRoaring is an implementation that splits the numbers of the \npointed-to objects into chunks of 65536, and keeps each chunk as \na sorted array while it is sparse and as a bit vector once it is \ndense. It stays small on large numberings of objects, while \ndense sets are still united a word at a time. ",
+		
+		false),
+		
+		new OptionData("Hash-consed",
+		"hashcons",
+		"\nHashcons keeps the elements of each points-to set in an \nimmutable sorted array that is interned, so that all sets with \nthe same elements share one array. Unions are memoized, and \nwhether a union changed a set is decided by comparing \nreferences. ",
+		
+		false),
+		
 		new OptionData("Heintze",
 		"heintze",
 		"\nHeintze's representation has elements represented by a \nbit-vector + a small 									'overflow' list of some maximum \nnumber of elements. The bit-vectors can be shared 									by \nmultiple points-to sets, while the overflow lists are not. \n								",
@@ -20902,6 +21109,21 @@ Composite dbdb_force_recompileChild = dbdb_force_recompileCreate(getPageContaine
 		setMiscellaneous_Optionsno_writeout_body_releasing_widget(new BooleanOptionWidget(editGroupMiscellaneous_Options, SWT.NONE, new OptionData("No body releasing after writeout", "", "","no-writeout-body-releasing", "\nBy default soot releases the method bodies of all reachable \nclasses after the final writeout. This option deactivates this \nbehaviour. This flag should not affect end users at all. ", defaultBool)));
 		
 		
+		
+		defKey = ""+" "+""+" "+"metrics-file";
+		defKey = defKey.trim();
+		
+		if (isInDefList(defKey)) {
+			defaultString = getStringDef(defKey);	
+		}
+		else {
+			
+			defaultString = "";
+			
+		}
+
+		setMiscellaneous_Optionsmetrics_file_widget(new StringOptionWidget(editGroupMiscellaneous_Options, SWT.NONE, new OptionData("Metrics File",  "", "","metrics-file", "\nRecord metrics about every phase that is applied, and write \nthem to FILE in JSON format at the end of the run. For each \nphase, the number of applications and of bodies processed, the \nwall time, the CPU time and the bytes allocated by the applying \nthread, and the number of units before and after the phase are \nreported. Some phases, such as cg.spark and cg.cha, report \nadditional counters like the size of the pointer assignment \ngraph or the number of reachable methods.", defaultString)));
+		
 
 		
 		return editGroupMiscellaneous_Options;
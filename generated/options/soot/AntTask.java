@@ -180,6 +180,16 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-debug-resolver");
         }
   
+        public void setnum_threads(String arg) {
+            addArg("-num-threads");
+            addArg(arg);
+        }
+  
+        public void setbody_budget(String arg) {
+            addArg("-body-budget");
+            addArg(arg);
+        }
+  
         public void setsoot_classpath(String arg) {
             addArg("-soot-classpath");
             addArg(arg);
@@ -251,6 +261,10 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-full-resolver");
         }
   
+        public void setparallel_resolver(boolean arg) {
+            if(arg) addArg("-parallel-resolver");
+        }
+  
         public void setallow_phantom_refs(boolean arg) {
             if(arg) addArg("-allow-phantom-refs");
         }
@@ -276,6 +290,11 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-permissive-resolving");
         }
   
+        public void setbody_cache_dir(String arg) {
+            addArg("-body-cache-dir");
+            addArg(arg);
+        }
+  
         public void setoutput_dir(String arg) {
             addArg("-output-dir");
             addArg(arg);
@@ -578,6 +597,11 @@ public class AntTask extends MatchingTask {
             if(arg) addArg("-subtract-gc");
         }
   
+        public void setmetrics_file(String arg) {
+            addArg("-metrics-file");
+            addArg(arg);
+        }
+  
         public void setno_writeout_body_releasing(boolean arg) {
             if(arg) addArg("-no-writeout-body-releasing");
         }
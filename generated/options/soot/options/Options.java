@@ -213,6 +213,40 @@ public class Options extends OptionsBase {
             )
                 debug_resolver = true;
   
+            else if( false
+            || option.equals( "num-threads" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                try {
+                    num_threads = Integer.parseInt( value );
+                } catch( NumberFormatException e ) {
+                    G.v().out.println( "Invalid integer "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
+            else if( false
+            || option.equals( "body-budget" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                try {
+                    body_budget = Integer.parseInt( value );
+                } catch( NumberFormatException e ) {
+                    G.v().out.println( "Invalid integer "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
             else if( false
             || option.equals( "cp" )
             || option.equals( "soot-class-path" )
@@ -401,6 +435,11 @@ public class Options extends OptionsBase {
             )
                 full_resolver = true;
   
+            else if( false 
+            || option.equals( "parallel-resolver" )
+            )
+                parallel_resolver = true;
+  
             else if( false 
             || option.equals( "allow-phantom-refs" )
             )
@@ -443,6 +482,23 @@ public class Options extends OptionsBase {
             )
                 permissive_resolving = true;
   
+            else if( false
+            || option.equals( "body-cache-dir" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                if( body_cache_dir.length() == 0 )
+                    body_cache_dir = value;
+                else {
+                    G.v().out.println( "Duplicate values "+body_cache_dir+" and "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
             else if( false
             || option.equals( "d" )
             || option.equals( "output-dir" )
@@ -1270,6 +1326,23 @@ public class Options extends OptionsBase {
             )
                 subtract_gc = true;
   
+            else if( false
+            || option.equals( "metrics-file" )
+            ) {
+                if( !hasMoreOptions() ) {
+                    G.v().out.println( "No value given for option -"+option );
+                    return false;
+                }
+                String value = nextOption();
+    
+                if( metrics_file.length() == 0 )
+                    metrics_file = value;
+                else {
+                    G.v().out.println( "Duplicate values "+metrics_file+" and "+value+" for option -"+option );
+                    return false;
+                }
+            }
+  
             else if( false 
             || option.equals( "no-writeout-body-releasing" )
             )
@@ -1367,6 +1440,12 @@ public class Options extends OptionsBase {
     private boolean debug_resolver = false;
     public void set_debug_resolver( boolean setting ) { debug_resolver = setting; }
   
+    public int num_threads() { return num_threads; }
+    public void set_num_threads( int setting ) { num_threads = setting; }
+    private int num_threads = -1;
+    public int body_budget() { return body_budget; }
+    public void set_body_budget( int setting ) { body_budget = setting; }
+    private int body_budget = 0;
     public String soot_classpath() { return soot_classpath; }
     public void set_soot_classpath( String setting ) { soot_classpath = setting; }
     private String soot_classpath = "";
@@ -1414,6 +1493,10 @@ public class Options extends OptionsBase {
     private boolean full_resolver = false;
     public void set_full_resolver( boolean setting ) { full_resolver = setting; }
   
+    public boolean parallel_resolver() { return parallel_resolver; }
+    private boolean parallel_resolver = false;
+    public void set_parallel_resolver( boolean setting ) { parallel_resolver = setting; }
+  
     public boolean allow_phantom_refs() { return allow_phantom_refs; }
     private boolean allow_phantom_refs = false;
     public void set_allow_phantom_refs( boolean setting ) { allow_phantom_refs = setting; }
@@ -1437,6 +1520,9 @@ public class Options extends OptionsBase {
     private boolean permissive_resolving = false;
     public void set_permissive_resolving( boolean setting ) { permissive_resolving = setting; }
   
+    public String body_cache_dir() { return body_cache_dir; }
+    public void set_body_cache_dir( String setting ) { body_cache_dir = setting; }
+    private String body_cache_dir = "";
     public String output_dir() { return output_dir; }
     public void set_output_dir( String setting ) { output_dir = setting; }
     private String output_dir = "";
@@ -1599,6 +1685,9 @@ public class Options extends OptionsBase {
     private boolean subtract_gc = false;
     public void set_subtract_gc( boolean setting ) { subtract_gc = setting; }
   
+    public String metrics_file() { return metrics_file; }
+    public void set_metrics_file( String setting ) { metrics_file = setting; }
+    private String metrics_file = "";
     public boolean no_writeout_body_releasing() { return no_writeout_body_releasing; }
     private boolean no_writeout_body_releasing = false;
     public void set_no_writeout_body_releasing( boolean setting ) { no_writeout_body_releasing = setting; }
@@ -1625,6 +1714,8 @@ public class Options extends OptionsBase {
 +padOpt(" -validate", "Run internal validation on bodies" )
 +padOpt(" -debug", "Print various Soot debugging info" )
 +padOpt(" -debug-resolver", "Print debugging info from SootResolver" )
++padOpt(" -num-threads NUM", "Use NUM worker threads for running body packs" )
++padOpt(" -body-budget NUM", "Keep at most NUM units in memory as active bodies" )
 +"\nInput Options:\n"
       
 +padOpt(" -cp PATH -soot-class-path PATH -soot-classpath PATH", "Use PATH as the classpath for finding classes." )
@@ -1644,12 +1735,14 @@ public class Options extends OptionsBase {
 +padVal(" apk", "Favour APK files as Soot source" )
 +padVal(" apk-class-jimple apk-c-j", "Favour APK files as Soot source, disregard Java files" )
 +padOpt(" -full-resolver", "Force transitive resolving of referenced classes" )
++padOpt(" -parallel-resolver", "Resolve classes on multiple threads" )
 +padOpt(" -allow-phantom-refs", "Allow unresolved classes; may cause errors" )
 +padOpt(" -no-bodies-for-excluded", "Do not load bodies for excluded classes" )
 +padOpt(" -j2me", "Use J2ME mode; changes assignment of types" )
 +padOpt(" -main-class CLASS", "Sets the main class for whole-program analysis." )
 +padOpt(" -polyglot", "Use Java 1.4 Polyglot frontend instead of JastAdd" )
 +padOpt(" -permissive-resolving", "Use alternative sources when classes cannot be found using the normal resolving strategy" )
++padOpt(" -body-cache-dir DIR", "Cache Jimple bodies created from class files in DIR" )
 +"\nOutput Options:\n"
       
 +padOpt(" -d DIR -output-dir DIR", "Store output files in DIR" )
@@ -1736,6 +1829,7 @@ public class Options extends OptionsBase {
       
 +padOpt(" -time", "Report time required for transformations" )
 +padOpt(" -subtract-gc", "Subtract gc from time" )
++padOpt(" -metrics-file FILE", "Write per-phase metrics as JSON to FILE" )
 +padOpt(" -no-writeout-body-releasing", "Disables the release of method bodies after writeout. This flag is used internally." );
     }
 
@@ -2117,6 +2211,8 @@ public class Options extends OptionsBase {
                 
                 +padVal( "alias", "Alias-edge based algorithm" )
                 
+                +padVal( "parallel", "Parallel, round-based algorithm" )
+                
                 +padVal( "none", "Disable propagation" )
                 
                 +padOpt( "set-impl", "Select points-to set implementation" )
@@ -2128,6 +2224,10 @@ public class Options extends OptionsBase {
                 
                 +padVal( "array", "Sorted array representation" )
                 
+                +padVal( "roaring", "Compressed bitmap representation" )
+                
+                +padVal( "hashcons", "Immutable sorted arrays shared by equal sets" )
+                
                 +padVal( "heintze", "Heintze's shared bit-vector and overflow list representation" )
                 
                 +padVal( "sharedlist", "Shared list representation" )
@@ -2143,6 +2243,10 @@ public class Options extends OptionsBase {
                 
                 +padVal( "array", "Sorted array representation" )
                 
+                +padVal( "roaring", "Compressed bitmap representation" )
+                
+                +padVal( "hashcons", "Immutable sorted arrays shared by equal sets" )
+                
                 +padVal( "heintze", "Heintze's shared bit-vector and overflow list representation" )
                 
                 +padVal( "sharedlist", "Shared list representation" )
@@ -2156,6 +2260,10 @@ public class Options extends OptionsBase {
                 
                 +padVal( "array", "Sorted array representation" )
                 
+                +padVal( "roaring", "Compressed bitmap representation" )
+                
+                +padVal( "hashcons", "Immutable sorted arrays shared by equal sets" )
+                
                 +padVal( "heintze", "Heintze's shared bit-vector and overflow list representation" )
                 
                 +padVal( "sharedlist", "Shared list representation" )
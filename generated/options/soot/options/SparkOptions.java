@@ -569,7 +569,8 @@ public class SparkOptions
     public static final int propagator_cycle = 3;
     public static final int propagator_merge = 4;
     public static final int propagator_alias = 5;
-    public static final int propagator_none = 6;
+    public static final int propagator_parallel = 6;
+    public static final int propagator_none = 7;
     /** Propagator --
     
      * Select propagation algorithm.
@@ -595,6 +596,9 @@ public class SparkOptions
         if( s.equalsIgnoreCase( "alias" ) )
             return propagator_alias;
         
+        if( s.equalsIgnoreCase( "parallel" ) )
+            return propagator_parallel;
+        
         if( s.equalsIgnoreCase( "none" ) )
             return propagator_none;
         
@@ -605,9 +609,11 @@ public class SparkOptions
     public static final int set_impl_bit = 2;
     public static final int set_impl_hybrid = 3;
     public static final int set_impl_array = 4;
-    public static final int set_impl_heintze = 5;
-    public static final int set_impl_sharedlist = 6;
-    public static final int set_impl_double = 7;
+    public static final int set_impl_roaring = 5;
+    public static final int set_impl_hashcons = 6;
+    public static final int set_impl_heintze = 7;
+    public static final int set_impl_sharedlist = 8;
+    public static final int set_impl_double = 9;
     /** Set Implementation --
     
      * Select points-to set implementation.
@@ -629,6 +635,12 @@ public class SparkOptions
         if( s.equalsIgnoreCase( "array" ) )
             return set_impl_array;
         
+        if( s.equalsIgnoreCase( "roaring" ) )
+            return set_impl_roaring;
+        
+        if( s.equalsIgnoreCase( "hashcons" ) )
+            return set_impl_hashcons;
+        
         if( s.equalsIgnoreCase( "heintze" ) )
             return set_impl_heintze;
         
@@ -645,8 +657,10 @@ public class SparkOptions
     public static final int double_set_old_bit = 2;
     public static final int double_set_old_hybrid = 3;
     public static final int double_set_old_array = 4;
-    public static final int double_set_old_heintze = 5;
-    public static final int double_set_old_sharedlist = 6;
+    public static final int double_set_old_roaring = 5;
+    public static final int double_set_old_hashcons = 6;
+    public static final int double_set_old_heintze = 7;
+    public static final int double_set_old_sharedlist = 8;
     /** Double Set Old --
     
      * Select implementation of points-to set for old part of double 
@@ -671,6 +685,12 @@ public class SparkOptions
         if( s.equalsIgnoreCase( "array" ) )
             return double_set_old_array;
         
+        if( s.equalsIgnoreCase( "roaring" ) )
+            return double_set_old_roaring;
+        
+        if( s.equalsIgnoreCase( "hashcons" ) )
+            return double_set_old_hashcons;
+        
         if( s.equalsIgnoreCase( "heintze" ) )
             return double_set_old_heintze;
         
@@ -684,8 +704,10 @@ public class SparkOptions
     public static final int double_set_new_bit = 2;
     public static final int double_set_new_hybrid = 3;
     public static final int double_set_new_array = 4;
-    public static final int double_set_new_heintze = 5;
-    public static final int double_set_new_sharedlist = 6;
+    public static final int double_set_new_roaring = 5;
+    public static final int double_set_new_hashcons = 6;
+    public static final int double_set_new_heintze = 7;
+    public static final int double_set_new_sharedlist = 8;
     /** Double Set New --
     
      * Select implementation of points-to set for new part of double 
@@ -710,6 +732,12 @@ public class SparkOptions
         if( s.equalsIgnoreCase( "array" ) )
             return double_set_new_array;
         
+        if( s.equalsIgnoreCase( "roaring" ) )
+            return double_set_new_roaring;
+        
+        if( s.equalsIgnoreCase( "hashcons" ) )
+            return double_set_new_hashcons;
+        
         if( s.equalsIgnoreCase( "heintze" ) )
             return double_set_new_heintze;
         
@@ -239,6 +239,34 @@ public class Singletons {
     	instance_soot_SourceLocator = null;
     }
 
+    private soot.BodyCache instance_soot_BodyCache;
+    public soot.BodyCache soot_BodyCache() {
+        if( instance_soot_BodyCache == null ) {
+	       	synchronized (this) {
+		        if( instance_soot_BodyCache == null )
+	        		instance_soot_BodyCache = new soot.BodyCache( g );
+	       	}
+       	}
+        return instance_soot_BodyCache;
+    }
+    protected void release_soot_BodyCache() {
+    	instance_soot_BodyCache = null;
+    }
+
+    private soot.BodyStore instance_soot_BodyStore;
+    public soot.BodyStore soot_BodyStore() {
+        if( instance_soot_BodyStore == null ) {
+	       	synchronized (this) {
+		        if( instance_soot_BodyStore == null )
+	        		instance_soot_BodyStore = new soot.BodyStore( g );
+	       	}
+       	}
+        return instance_soot_BodyStore;
+    }
+    protected void release_soot_BodyStore() {
+    	instance_soot_BodyStore = null;
+    }
+
     private soot.coffi.CONSTANT_Utf8_collector instance_soot_coffi_CONSTANT_Utf8_collector;
     public soot.coffi.CONSTANT_Utf8_collector soot_coffi_CONSTANT_Utf8_collector() {
         if( instance_soot_coffi_CONSTANT_Utf8_collector == null ) {
@@ -1345,6 +1373,20 @@ public class Singletons {
     	instance_soot_dava_toolkits_base_misc_ThrowNullConverter = null;
     }
 
+    private soot.PhaseMetrics instance_soot_PhaseMetrics;
+    public soot.PhaseMetrics soot_PhaseMetrics() {
+        if( instance_soot_PhaseMetrics == null ) {
+	       	synchronized (this) {
+		        if( instance_soot_PhaseMetrics == null )
+	        		instance_soot_PhaseMetrics = new soot.PhaseMetrics( g );
+	       	}
+       	}
+        return instance_soot_PhaseMetrics;
+    }
+    protected void release_soot_PhaseMetrics() {
+    	instance_soot_PhaseMetrics = null;
+    }
+
     private soot.Timers instance_soot_Timers;
     public soot.Timers soot_Timers() {
         if( instance_soot_Timers == null ) {
@@ -2003,6 +2045,20 @@ public class Singletons {
     	instance_soot_jimple_spark_sets_AllSharedHybridNodes = null;
     }
 
+    private soot.jimple.spark.sets.AllHashConsedSets instance_soot_jimple_spark_sets_AllHashConsedSets;
+    public soot.jimple.spark.sets.AllHashConsedSets soot_jimple_spark_sets_AllHashConsedSets() {
+        if( instance_soot_jimple_spark_sets_AllHashConsedSets == null ) {
+	       	synchronized (this) {
+		        if( instance_soot_jimple_spark_sets_AllHashConsedSets == null )
+	        		instance_soot_jimple_spark_sets_AllHashConsedSets = new soot.jimple.spark.sets.AllHashConsedSets( g );
+	       	}
+       	}
+        return instance_soot_jimple_spark_sets_AllHashConsedSets;
+    }
+    protected void release_soot_jimple_spark_sets_AllHashConsedSets() {
+    	instance_soot_jimple_spark_sets_AllHashConsedSets = null;
+    }
+
     private soot.jimple.toolkits.thread.synchronization.LockAllocator instance_soot_jimple_toolkits_thread_synchronization_LockAllocator;
     public soot.jimple.toolkits.thread.synchronization.LockAllocator soot_jimple_toolkits_thread_synchronization_LockAllocator() {
         if( instance_soot_jimple_toolkits_thread_synchronization_LockAllocator == null ) {
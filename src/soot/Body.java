@@ -45,6 +45,7 @@ import soot.tagkit.CodeAttribute;
 import soot.tagkit.Tag;
 import soot.util.Chain;
 import soot.util.EscapedWriter;
+import soot.util.ArrayChain;
 import soot.util.HashChain;
 import soot.validation.BodyValidator;
 import soot.validation.CheckEscapingValidator;
@@ -83,7 +84,10 @@ public abstract class Body extends AbstractHost implements Serializable
     protected Chain<Trap> trapChain = new HashChain<Trap>();
 
     /** The chain of units for this Body. */
-    protected PatchingChain<Unit> unitChain = new PatchingChain<Unit>(new HashChain<Unit>());
+    protected PatchingChain<Unit> unitChain = new PatchingChain<Unit>(new ArrayChain<Unit>());
+
+    /** The analyses cached for this Body, made when first needed. */
+    transient BodyAnalysisCache analysisCache = null;
     
 	private static BodyValidator[] validators;
 
@@ -597,6 +601,17 @@ public abstract class Body extends AbstractHost implements Serializable
     	return localChain.getModificationCount() + unitChain.getModificationCount() + trapChain.getModificationCount();
     }
 
+    /**
+     * Returns the cache of the analyses of this Body, such as its unit
+     * graph or its local definitions.
+     * @see BodyAnalysisCache
+     */
+    public BodyAnalysisCache getAnalysisCache() {
+    	if (analysisCache == null)
+    		analysisCache = new BodyAnalysisCache(this);
+    	return analysisCache;
+    }
+
 }
 
 
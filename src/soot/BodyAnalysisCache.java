@@ -0,0 +1,238 @@
+/* Soot - a J*va Optimization Framework
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA 02111-1307, USA.
+ */
+
+package soot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.DominatorTree;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.MHGDominatorsFinder;
+import soot.toolkits.scalar.LiveLocals;
+import soot.toolkits.scalar.LocalDefs;
+import soot.toolkits.scalar.LocalUses;
+import soot.toolkits.scalar.SimpleLiveLocals;
+import soot.toolkits.scalar.SmartLocalDefs;
+
+/**
+ * Caches the analyses of one {@link Body}, such as its unit graph, its local
+ * definitions and uses or its dominators, so that transformers that need the
+ * same analysis do not each compute it again. Use
+ * {@link Body#getAnalysisCache()} to get the cache of a body and
+ * {@link #get(Key)} to get an analysis, which is computed when first asked
+ * for.
+ * <p>
+ * The cached analyses are dropped automatically when units or traps of the
+ * body are added or removed. Adding, removing or renaming locals does not
+ * drop them, since the analyses only refer to the locals used by the units.
+ * Changes made within units, such as replacing the value of a box, cannot be
+ * seen this way. Therefore, after each {@link BodyTransformer} has run, all
+ * analyses it does not declare in {@link BodyTransformer#preservedAnalyses()}
+ * are dropped as well, together with all analyses computed from them, unless
+ * it declares {@link BodyTransformer#preservesAll()}. Code that changes a
+ * body outside of a body transformer must call {@link #invalidate()} itself.
+ * <p>
+ * The whole cache is dropped when the body is released from its method.
+ */
+public class BodyAnalysisCache {
+    /**
+     * Identifies an analysis and computes it. Keys are compared by identity,
+     * so each analysis should have a single key.
+     */
+    public static abstract class Key<T> {
+        private final String name;
+
+        public Key(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Computes the analysis for b. Analyses it needs should be taken from
+         * the cache, so that it is dropped together with them.
+         */
+        protected abstract T compute(Body b, BodyAnalysisCache cache);
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final Key<ExceptionalUnitGraph> EXCEPTIONAL_UNIT_GRAPH = new Key<ExceptionalUnitGraph>(
+            "ExceptionalUnitGraph") {
+        protected ExceptionalUnitGraph compute(Body b, BodyAnalysisCache cache) {
+            return new ExceptionalUnitGraph(b);
+        }
+    };
+
+    public static final Key<BriefUnitGraph> BRIEF_UNIT_GRAPH = new Key<BriefUnitGraph>(
+            "BriefUnitGraph") {
+        protected BriefUnitGraph compute(Body b, BodyAnalysisCache cache) {
+            return new BriefUnitGraph(b);
+        }
+    };
+
+    /** The local definitions, on the exceptional unit graph. */
+    public static final Key<LocalDefs> LOCAL_DEFS = new Key<LocalDefs>("LocalDefs") {
+        protected LocalDefs compute(Body b, BodyAnalysisCache cache) {
+            return LocalDefs.Factory.newLocalDefs(cache.get(EXCEPTIONAL_UNIT_GRAPH));
+        }
+    };
+
+    /** The local uses, for the local definitions of {@link #LOCAL_DEFS}. */
+    public static final Key<LocalUses> LOCAL_USES = new Key<LocalUses>("LocalUses") {
+        protected LocalUses compute(Body b, BodyAnalysisCache cache) {
+            return LocalUses.Factory.newLocalUses(b, cache.get(LOCAL_DEFS));
+        }
+    };
+
+    /** The live locals, on the exceptional unit graph. */
+    public static final Key<LiveLocals> LIVE_LOCALS = new Key<LiveLocals>("LiveLocals") {
+        protected LiveLocals compute(Body b, BodyAnalysisCache cache) {
+            return new SimpleLiveLocals(cache.get(EXCEPTIONAL_UNIT_GRAPH));
+        }
+    };
+
+    /** The local definitions of {@link SmartLocalDefs}, on the exceptional
+     * unit graph. */
+    public static final Key<SmartLocalDefs> SMART_LOCAL_DEFS = new Key<SmartLocalDefs>(
+            "SmartLocalDefs") {
+        protected SmartLocalDefs compute(Body b, BodyAnalysisCache cache) {
+            return new SmartLocalDefs(cache.get(EXCEPTIONAL_UNIT_GRAPH), cache.get(LIVE_LOCALS));
+        }
+    };
+
+    /** The dominators of the units, on the exceptional unit graph. */
+    public static final Key<MHGDominatorsFinder<Unit>> DOMINATORS = new Key<MHGDominatorsFinder<Unit>>(
+            "Dominators") {
+        protected MHGDominatorsFinder<Unit> compute(Body b, BodyAnalysisCache cache) {
+            return new MHGDominatorsFinder<Unit>(cache.get(EXCEPTIONAL_UNIT_GRAPH));
+        }
+    };
+
+    /** The dominator tree of {@link #DOMINATORS}. */
+    public static final Key<DominatorTree<Unit>> DOMINATOR_TREE = new Key<DominatorTree<Unit>>(
+            "DominatorTree") {
+        protected DominatorTree<Unit> compute(Body b, BodyAnalysisCache cache) {
+            return new DominatorTree<Unit>(cache.get(DOMINATORS));
+        }
+    };
+
+    /**
+     * The analyses that only depend on the control flow of a body, for
+     * transformers that replace the locals of units but keep their flow.
+     */
+    public static final Set<Key<?>> CONTROL_FLOW = Collections.unmodifiableSet(new HashSet<Key<?>>(
+            Arrays.<Key<?>> asList(EXCEPTIONAL_UNIT_GRAPH, BRIEF_UNIT_GRAPH, DOMINATORS, DOMINATOR_TREE)));
+
+    private final Body body;
+    /** The modification count of the units and traps when the analyses
+     * were computed. */
+    private long modificationCount;
+    private final Map<Key<?>, Object> analyses = new HashMap<Key<?>, Object>();
+    /** The analyses computed from each analysis. */
+    private final Map<Key<?>, Set<Key<?>>> dependents = new HashMap<Key<?>, Set<Key<?>>>();
+    /** The analysis being computed, if any. */
+    private Key<?> computing = null;
+
+    BodyAnalysisCache(Body body) {
+        this.body = body;
+        this.modificationCount = modificationCount();
+    }
+
+    /** Returns the modification count of the units and traps of the body. */
+    private long modificationCount() {
+        return body.getUnits().getModificationCount() + body.getTraps().getModificationCount();
+    }
+
+    /** Returns the analysis for key, computing it if it is not cached. */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key) {
+        if (modificationCount() != modificationCount)
+            invalidate();
+        if (computing != null) {
+            Set<Key<?>> s = dependents.get(key);
+            if (s == null)
+                dependents.put(key, s = new HashSet<Key<?>>());
+            s.add(computing);
+        }
+        T ret = (T) analyses.get(key);
+        if (ret == null) {
+            Key<?> outer = computing;
+            computing = key;
+            try {
+                ret = key.compute(body, this);
+            } finally {
+                computing = outer;
+            }
+            analyses.put(key, ret);
+        }
+        return ret;
+    }
+
+    /** Returns whether the analysis for key is cached and still valid. */
+    public boolean isCached(Key<?> key) {
+        return modificationCount() == modificationCount && analyses.containsKey(key);
+    }
+
+    /** Drops all cached analyses. */
+    public void invalidate() {
+        analyses.clear();
+        dependents.clear();
+        modificationCount = modificationCount();
+    }
+
+    /** Drops the analysis for key and all analyses computed from it. */
+    public void invalidate(Key<?> key) {
+        analyses.remove(key);
+        Set<Key<?>> s = dependents.remove(key);
+        if (s != null) {
+            for (Key<?> d : s)
+                invalidate(d);
+        }
+    }
+
+    /**
+     * Drops all analyses except those in preserved, and all analyses computed
+     * from the dropped ones.
+     */
+    public void retain(Set<Key<?>> preserved) {
+        if (preserved.isEmpty()) {
+            invalidate();
+            return;
+        }
+        Set<Key<?>> dropped = new HashSet<Key<?>>(analyses.keySet());
+        dropped.removeAll(preserved);
+        for (Key<?> key : dropped)
+            invalidate(key);
+        // The dependencies of dropped analyses are gone as well
+        for (Iterator<Set<Key<?>>> it = dependents.values().iterator(); it.hasNext();) {
+            Set<Key<?>> s = it.next();
+            s.retainAll(analyses.keySet());
+            if (s.isEmpty())
+                it.remove();
+        }
+    }
+}
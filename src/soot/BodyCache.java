@@ -0,0 +1,357 @@
+package soot;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.SourceLocator.FoundFile;
+import soot.jimple.ClassConstant;
+import soot.jimple.FieldRef;
+import soot.jimple.InstanceOfExpr;
+import soot.jimple.InvokeExpr;
+import soot.jimple.parser.JimpleAST;
+import soot.options.Options;
+
+/**
+ * A persistent, on-disk cache of the Jimple bodies created from class files.
+ * Creating a body means converting the bytecode and running the jb pack on
+ * it, which is the same work on every run for library classes such as
+ * rt.jar or android.jar. With the body-cache-dir option set, each body is
+ * stored as a small Jimple file once it has been created, and parsed back
+ * from there on later runs.
+ * <p>
+ * Entries are keyed by a SHA-1 hash of the contents of the class file, the
+ * subsignature of the method and a fingerprint of the Soot version, all
+ * options of the jb pack and the global options read while bodies are
+ * created. The typing in jb also depends on the classes a body refers to,
+ * so each entry records the hashes of the class files of these classes and
+ * of their supertypes, and is only used while they are unchanged. A change
+ * to one class thus only invalidates the bodies of that class and of the
+ * classes that depend on it, and no explicit invalidation is needed.
+ */
+public class BodyCache
+{
+    public BodyCache( Singletons.Global g ) {}
+    public static BodyCache v() { return G.v().soot_BodyCache(); }
+
+    /** Part of every key. Must be changed whenever the cached bodies would
+     * differ for reasons not covered by the option fingerprint. */
+    private static final String FORMAT_VERSION = "soot-body-cache-2";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Starts each line of an entry that records a dependency. The Jimple
+     * parser skips these lines as comments. */
+    private static final String DEPENDS = "// depends ";
+
+    private String fingerprint = null;
+
+    /** The hash of the class file of each class looked up, by class name. */
+    private final Map<String, String> classFileHashes = new ConcurrentHashMap<String, String>();
+
+    /** Returns true iff bodies should be looked up in and added to the
+     * cache. Line number and offset tags are not part of the cached Jimple,
+     * so the cache is not used when they are requested. */
+    public boolean isEnabled() {
+        return Options.v().body_cache_dir().length() > 0
+                && !Options.v().keep_line_number()
+                && !Options.v().keep_offset();
+    }
+
+    /** Returns a hex-encoded SHA-1 hash of the given data. */
+    public static String hash( byte[] data ) {
+        try {
+            return toHex( MessageDigest.getInstance( "SHA-1" ).digest( data ) );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new RuntimeException( "SHA-1 not available", e );
+        }
+    }
+
+    private static String hash( String data ) {
+        try {
+            return hash( data.getBytes( "UTF-8" ) );
+        } catch( IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private static String toHex( byte[] bytes ) {
+        char[] ret = new char[bytes.length * 2];
+        for( int i = 0; i < bytes.length; i++ ) {
+            ret[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            ret[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String( ret );
+    }
+
+    /** Returns a method source that consults the cache before asking
+     * <code>ms</code> for a body. <code>classHash</code> must be the hash of
+     * the contents of the class file declaring the method. */
+    public MethodSource cachingSource( MethodSource ms, String classHash ) {
+        return new CachingMethodSource( ms, classHash );
+    }
+
+    private class CachingMethodSource implements MethodSource {
+        private final MethodSource delegate;
+        private final String classHash;
+
+        CachingMethodSource( MethodSource delegate, String classHash ) {
+            this.delegate = delegate;
+            this.classHash = classHash;
+        }
+
+        @Override
+        public Body getBody( SootMethod m, String phaseName ) {
+            File file = fileFor( m, classHash );
+            Body b = load( m, file );
+            if( b != null )
+                return b;
+            b = delegate.getBody( m, phaseName );
+            if( b != null )
+                store( b, file );
+            return b;
+        }
+    }
+
+    /** Computes the fingerprint of the options that influence the bodies
+     * produced by the front end. */
+    private synchronized String getFingerprint() {
+        if( fingerprint == null ) {
+            StringBuilder sb = new StringBuilder( FORMAT_VERSION );
+            sb.append( ';' ).append( Main.versionString );
+            appendOptions( sb, "jb" );
+            for( Iterator<Transform> tIt = PackManager.v().getPack( "jb" ).iterator(); tIt.hasNext(); )
+                appendOptions( sb, tIt.next().getPhaseName() );
+            Options o = Options.v();
+            sb.append( ";src-prec=" ).append( o.src_prec() )
+                .append( ";java-version=" ).append( o.java_version() )
+                .append( ";allow-phantom-refs=" ).append( o.allow_phantom_refs() )
+                .append( ";ignore-resolution-errors=" ).append( o.ignore_resolution_errors() )
+                .append( ";no-bodies-for-excluded=" ).append( o.no_bodies_for_excluded() )
+                .append( ";j2me=" ).append( o.j2me() )
+                .append( ";throw-analysis=" ).append( o.throw_analysis() )
+                .append( ";check-init-throw-analysis=" ).append( o.check_init_throw_analysis() )
+                .append( ";omit-excepting-unit-edges=" ).append( o.omit_excepting_unit_edges() )
+                .append( ";include-all=" ).append( o.include_all() )
+                .append( ";include=" ).append( o.include() )
+                .append( ";exclude=" ).append( o.exclude() );
+            fingerprint = hash( sb.toString() );
+        }
+        return fingerprint;
+    }
+
+    private static void appendOptions( StringBuilder sb, String phaseName ) {
+        Map<String, String> options = new TreeMap<String, String>( PhaseOptions.v().getPhaseOptions( phaseName ) );
+        sb.append( ';' ).append( phaseName ).append( options );
+    }
+
+    private File fileFor( SootMethod m, String classHash ) {
+        String key = hash( getFingerprint() + ";" + classHash + ";" + m.getSubSignature() );
+        File dir = new File( Options.v().body_cache_dir(), key.substring( 0, 2 ) );
+        return new File( dir, key.substring( 2 ) + ".jimple" );
+    }
+
+    /** Returns the hash of the contents of the class file of the given
+     * class on the class path, or "none" if there is no such file. */
+    private String classFileHash( String className ) {
+        String ret = classFileHashes.get( className );
+        if( ret == null ) {
+            FoundFile f = SourceLocator.v().lookupInClassPath( className.replace( '.', '/' ) + ".class" );
+            if( f == null ) {
+                ret = "none";
+            } else {
+                InputStream in = f.inputStream();
+                try {
+                    ret = hash( readFully( in ) );
+                } catch( IOException e ) {
+                    throw new RuntimeException( "Cannot read class file of " + className, e );
+                } finally {
+                    try {
+                        in.close();
+                    } catch( IOException e ) {
+                        // ignore
+                    }
+                }
+            }
+            classFileHashes.put( className, ret );
+        }
+        return ret;
+    }
+
+    private static byte[] readFully( InputStream in ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while( ( n = in.read( buf ) ) != -1 )
+            out.write( buf, 0, n );
+        return out.toByteArray();
+    }
+
+    /** Returns the names of the classes the typing of b may depend on: those
+     * of the types b and its method refer to, and their supertypes. */
+    private static Set<String> dependencies( Body b ) {
+        Set<String> ret = new TreeSet<String>();
+        SootMethod m = b.getMethod();
+        addType( ret, m.getDeclaringClass().getType() );
+        addTypes( ret, m.makeRef() );
+        for( SootClass e : m.getExceptions() )
+            ret.add( e.getName() );
+        for( Local l : b.getLocals() )
+            addType( ret, l.getType() );
+        for( Unit u : b.getUnits() ) {
+            for( ValueBox vb : u.getUseAndDefBoxes() ) {
+                Value v = vb.getValue();
+                addType( ret, v.getType() );
+                if( v instanceof InvokeExpr )
+                    addTypes( ret, ( (InvokeExpr) v ).getMethodRef() );
+                else if( v instanceof FieldRef )
+                    ret.add( ( (FieldRef) v ).getFieldRef().declaringClass().getName() );
+                else if( v instanceof InstanceOfExpr )
+                    addType( ret, ( (InstanceOfExpr) v ).getCheckType() );
+                else if( v instanceof ClassConstant ) {
+                    String name = ( (ClassConstant) v ).getValue();
+                    if( !name.startsWith( "[" ) )
+                        ret.add( name.replace( '/', '.' ) );
+                }
+            }
+        }
+        for( Trap t : b.getTraps() )
+            ret.add( t.getException().getName() );
+
+        LinkedList<String> worklist = new LinkedList<String>( ret );
+        while( !worklist.isEmpty() ) {
+            SootClass c = Scene.v().getSootClassUnsafe( worklist.removeFirst() );
+            if( c == null || c.resolvingLevel() < SootClass.HIERARCHY )
+                continue;
+            if( c.hasSuperclass() && ret.add( c.getSuperclass().getName() ) )
+                worklist.add( c.getSuperclass().getName() );
+            for( SootClass i : c.getInterfaces() ) {
+                if( ret.add( i.getName() ) )
+                    worklist.add( i.getName() );
+            }
+        }
+        return ret;
+    }
+
+    private static void addTypes( Set<String> classes, SootMethodRef ref ) {
+        classes.add( ref.declaringClass().getName() );
+        for( Type t : ref.parameterTypes() )
+            addType( classes, t );
+        addType( classes, ref.returnType() );
+    }
+
+    private static void addType( Set<String> classes, Type t ) {
+        if( t instanceof ArrayType )
+            t = ( (ArrayType) t ).baseType;
+        if( t instanceof RefType )
+            classes.add( ( (RefType) t ).getClassName() );
+    }
+
+    /** Parses the cached body for m from the given file. Returns null if
+     * there is no such entry, one of the classes it depends on has changed,
+     * or it cannot be read. */
+    private Body load( SootMethod m, File file ) {
+        if( !file.isFile() )
+            return null;
+        InputStream in = null;
+        try {
+            in = new FileInputStream( file );
+            byte[] data = readFully( in );
+            BufferedReader r = new BufferedReader( new InputStreamReader( new ByteArrayInputStream( data ), "UTF-8" ) );
+            for( String line = r.readLine(); line != null && line.startsWith( DEPENDS ); line = r.readLine() ) {
+                String[] dep = line.substring( DEPENDS.length() ).split( " " );
+                if( !classFileHash( dep[0] ).equals( dep[1] ) ) {
+                    if( Options.v().verbose() )
+                        G.v().out.println( "[Body cache] " + dep[0] + " changed, missed " + m.getSignature() );
+                    return null;
+                }
+            }
+            Body b = new JimpleAST( new ByteArrayInputStream( data ) ).getBody( m );
+            if( Options.v().verbose() )
+                G.v().out.println( "[Body cache] hit for " + m.getSignature() );
+            return b;
+        } catch( Exception e ) {
+            // A broken entry is just a miss. It is overwritten once the
+            // body has been created again.
+            G.v().out.println( "Warning: ignoring unreadable body cache entry " + file + ": " + e.getMessage() );
+            return null;
+        } finally {
+            if( in != null ) {
+                try {
+                    in.close();
+                } catch( IOException e ) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /** Prints b as Jimple, wrapped in a class declaration so that it can be
+     * read back with {@link JimpleAST#getBody(SootMethod)}. */
+    static String toJimple( Body b ) {
+        StringWriter body = new StringWriter();
+        PrintWriter out = new PrintWriter( body );
+        out.println( "class " + Scene.v().quotedNameOf( b.getMethod().getDeclaringClass().getName() ) );
+        out.println( "{" );
+        synchronized( Printer.v() ) {
+            Printer.v().printTo( b, out );
+        }
+        out.println( "}" );
+        out.flush();
+        return body.toString();
+    }
+
+    /** Writes b to the given file, after the hashes of the class files it
+     * depends on. */
+    private void store( Body b, File file ) {
+        StringBuilder entry = new StringBuilder();
+        for( String c : dependencies( b ) )
+            entry.append( DEPENDS ).append( c ).append( ' ' ).append( classFileHash( c ) ).append( '\n' );
+        entry.append( toJimple( b ) );
+
+        File dir = file.getParentFile();
+        if( !dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory() ) {
+            G.v().out.println( "Warning: cannot create body cache directory " + dir );
+            return;
+        }
+
+        // Write to a temporary file first, so that concurrent runs never
+        // see partially written entries
+        File tmp = null;
+        try {
+            tmp = File.createTempFile( "body", ".tmp", dir );
+            PrintWriter out = new PrintWriter( new OutputStreamWriter( new FileOutputStream( tmp ), "UTF-8" ) );
+            try {
+                out.print( entry );
+            } finally {
+                out.close();
+            }
+            if( !tmp.renameTo( file ) ) {
+                // Another run may have stored the same entry in the meantime
+                tmp.delete();
+            }
+        } catch( IOException e ) {
+            G.v().out.println( "Warning: cannot write body cache entry " + file + ": " + e.getMessage() );
+            if( tmp != null )
+                tmp.delete();
+        }
+    }
+}
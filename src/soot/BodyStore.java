@@ -0,0 +1,307 @@
+package soot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import soot.jimple.JimpleBody;
+import soot.jimple.parser.JimpleAST;
+import soot.options.Options;
+import soot.util.MapNumberer;
+import soot.util.Numberer;
+
+/**
+ * Keeps the units held by active bodies within the limit given by the
+ * body-budget option. {@link SootMethod} reports to the store whenever an
+ * active body is set or asked for. Once the resident bodies hold more units
+ * than allowed, the bodies that were used least recently are released: they
+ * are printed as Jimple, compressed and dropped. The next
+ * {@link SootMethod#getActiveBody()} parses the body back, so that clients
+ * do not notice that it was released.
+ * <p>
+ * Changes made to a body after it was released would be lost, so bodies
+ * that have been handed out are not released. A body handed out within a
+ * scope, see {@link #enterScope()}, is kept until the scope ends; a body
+ * handed out outside of any scope is never released. Each
+ * {@link BodyTransformer} and {@link SceneTransformer} runs in a scope, and
+ * so do the per-class tasks of the {@link PackManager}. Clients that keep
+ * bodies beyond the scope they were handed out in must not use a budget.
+ * <p>
+ * A body that is parsed back consists of new units and locals. Numbers
+ * given to units by {@link Scene#getUnitNumberer()} are moved to the units
+ * at the same positions in the new body, so that unit numbers, such as
+ * those kept by {@link soot.jimple.toolkits.callgraph.CompactCallGraph},
+ * remain valid. Analyses that hold units or locals themselves, such as the
+ * edges of a regular call graph or the pointer assignment graph of Spark,
+ * still refer to the old objects and should not be combined with a budget.
+ * <p>
+ * Only plain Jimple bodies without tags are released, since tags are not
+ * part of the printed Jimple.
+ */
+public class BodyStore
+{
+    public BodyStore( Singletons.Global g ) {}
+    public static BodyStore v() { return G.v().soot_BodyStore(); }
+
+    /** A released body. */
+    private static class Released {
+        /** The body, printed as Jimple and deflated. */
+        final byte[] jimple;
+        /** The number of each unit by its position, 0 for units without a
+         * number, or null if no unit has a number. */
+        final long[] unitNumbers;
+
+        Released( byte[] jimple, long[] unitNumbers ) {
+            this.jimple = jimple;
+            this.unitNumbers = unitNumbers;
+        }
+    }
+
+    /** The bodies handed out within a scope of one thread. */
+    private static class Scope {
+        final Scope outer;
+        final Set<Body> bodies = Collections.newSetFromMap( new IdentityHashMap<Body, Boolean>() );
+
+        Scope( Scope outer ) {
+            this.outer = outer;
+        }
+    }
+
+    /** The methods whose active bodies may be released, least recently used
+     * first, with the number of units last counted for each. */
+    private final LinkedHashMap<SootMethod, Integer> resident = new LinkedHashMap<SootMethod, Integer>( 16, 0.75f, true );
+    private final Map<SootMethod, Released> released = new HashMap<SootMethod, Released>();
+    /** The number of times each body is being transformed. */
+    private final Map<Body, Integer> pinned = new IdentityHashMap<Body, Integer>();
+    /** The bodies handed out outside of any scope, which are never released. */
+    private final Set<Body> handedOut = Collections.newSetFromMap( new IdentityHashMap<Body, Boolean>() );
+    /** The innermost scope of each thread, if any. */
+    private final ThreadLocal<Scope> scope = new ThreadLocal<Scope>();
+    private long residentUnits = 0;
+    private int releaseCount = 0;
+    private int parseCount = 0;
+
+    /** Returns true iff the active bodies are limited by a budget. */
+    public boolean isEnabled() {
+        return Options.v().body_budget() > 0;
+    }
+
+    /** Sets the active body of m, replacing a released one. The caller
+     * still holds the body, so it is handed out. */
+    synchronized void setBody( SootMethod m, Body b ) {
+        released.remove( m );
+        Integer old = resident.remove( m );
+        if( old != null )
+            residentUnits -= old.intValue();
+        Body oldBody = m.getResidentBody();
+        if( oldBody != null && oldBody != b )
+            handedOut.remove( oldBody );
+        m.setResidentBody( b );
+        if( b != null )
+            handOut( b );
+        if( b != null && b.getClass() == JimpleBody.class ) {
+            int size = b.getUnits().size();
+            resident.put( m, new Integer( size ) );
+            residentUnits += size;
+            trim();
+        }
+    }
+
+    /** Returns the active body of m, parsing it back if it was released, or
+     * null if m has no active body. The body is handed out, see
+     * {@link #handOut(Body)}. */
+    synchronized Body getBody( SootMethod m ) {
+        Body b = m.getResidentBody();
+        if( b != null ) {
+            Integer old = resident.get( m );
+            if( old != null ) {
+                // Bodies grow and shrink while they are transformed
+                int size = b.getUnits().size();
+                if( size != old.intValue() ) {
+                    resident.put( m, new Integer( size ) );
+                    residentUnits += size - old.intValue();
+                    trim();
+                }
+            }
+            handOut( b );
+            return b;
+        }
+        Released r = released.remove( m );
+        if( r == null )
+            return null;
+        b = parse( m, r );
+        int size = b.getUnits().size();
+        m.setResidentBody( b );
+        resident.put( m, new Integer( size ) );
+        residentUnits += size;
+        handOut( b );
+        trim();
+        return b;
+    }
+
+    /** Keeps b from being released until the current scope of this thread
+     * ends, or for good if there is none. */
+    synchronized void handOut( Body b ) {
+        Scope s = scope.get();
+        if( s == null )
+            handedOut.add( b );
+        else if( s.bodies.add( b ) )
+            pin( b );
+    }
+
+    /** Starts a scope on the current thread. Bodies handed out until the
+     * matching {@link #exitScope()} may be released once it is called. */
+    public void enterScope() {
+        if( isEnabled() )
+            scope.set( new Scope( scope.get() ) );
+    }
+
+    public void exitScope() {
+        Scope s = scope.get();
+        if( s == null )
+            return;
+        scope.set( s.outer );
+        synchronized( this ) {
+            for( Body b : s.bodies )
+                unpin( b );
+        }
+    }
+
+    /** Returns true iff the active body of m has been released. */
+    synchronized boolean isReleased( SootMethod m ) {
+        return released.containsKey( m );
+    }
+
+    /** Keeps b from being released until {@link #unpin(Body)} is called. */
+    public synchronized void pin( Body b ) {
+        Integer n = pinned.get( b );
+        pinned.put( b, new Integer( n == null ? 1 : n.intValue() + 1 ) );
+    }
+
+    public synchronized void unpin( Body b ) {
+        Integer n = pinned.get( b );
+        if( n == null )
+            throw new RuntimeException( "body is not pinned: " + b.getMethod() );
+        if( n.intValue() == 1 )
+            pinned.remove( b );
+        else
+            pinned.put( b, new Integer( n.intValue() - 1 ) );
+    }
+
+    /** Returns the number of units held by the bodies that may be released. */
+    public synchronized long getResidentUnits() {
+        return residentUnits;
+    }
+
+    /** Returns how often a body has been released. */
+    public synchronized int getReleaseCount() {
+        return releaseCount;
+    }
+
+    /** Returns how often a released body had to be parsed back. */
+    public synchronized int getParseCount() {
+        return parseCount;
+    }
+
+    /** Releases the least recently used bodies until the budget is met.
+     * The most recently used body is always kept. */
+    private void trim() {
+        long budget = Options.v().body_budget();
+        if( budget <= 0 )
+            return;
+        for( Iterator<Map.Entry<SootMethod, Integer>> it = resident.entrySet().iterator();
+                residentUnits > budget && it.hasNext(); ) {
+            Map.Entry<SootMethod, Integer> e = it.next();
+            if( !it.hasNext() )
+                break;
+            SootMethod m = e.getKey();
+            Body b = m.getResidentBody();
+            if( pinned.containsKey( b ) )
+                continue;
+            it.remove();
+            residentUnits -= e.getValue().intValue();
+            // Bodies that cannot be released stay resident without being
+            // counted
+            if( b != null && !handedOut.contains( b ) && canRelease( b ) ) {
+                released.put( m, release( b ) );
+                m.setResidentBody( null );
+                releaseCount++;
+            }
+        }
+    }
+
+    private static boolean canRelease( Body b ) {
+        if( Options.v().keep_line_number() || Options.v().keep_offset() )
+            return false;
+        if( !b.getTags().isEmpty() )
+            return false;
+        for( Unit u : b.getUnits() ) {
+            if( !u.getTags().isEmpty() )
+                return false;
+        }
+        return true;
+    }
+
+    private static Released release( Body b ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            Writer out = new OutputStreamWriter( new DeflaterOutputStream( bytes ), "UTF-8" );
+            out.write( BodyCache.toJimple( b ) );
+            out.close();
+        } catch( IOException e ) {
+            throw new RuntimeException( e );
+        }
+
+        long[] unitNumbers = null;
+        Numberer<Unit> numberer = Scene.v().getUnitNumberer();
+        if( numberer instanceof MapNumberer && numberer.size() > 0 ) {
+            MapNumberer<Unit> mn = (MapNumberer<Unit>) numberer;
+            int pos = 0;
+            for( Unit u : b.getUnits() ) {
+                if( mn.contains( u ) ) {
+                    if( unitNumbers == null )
+                        unitNumbers = new long[b.getUnits().size()];
+                    unitNumbers[pos] = mn.get( u );
+                }
+                pos++;
+            }
+        }
+        return new Released( bytes.toByteArray(), unitNumbers );
+    }
+
+    private Body parse( SootMethod m, Released r ) {
+        Body b;
+        try {
+            b = new JimpleAST( new InflaterInputStream( new ByteArrayInputStream( r.jimple ) ) ).getBody( m );
+        } catch( Exception e ) {
+            throw new RuntimeException( "cannot parse released body of " + m.getSignature(), e );
+        }
+        if( b == null )
+            throw new RuntimeException( "cannot parse released body of " + m.getSignature() );
+        parseCount++;
+        if( Options.v().verbose() )
+            G.v().out.println( "[Body store] parsed " + m.getSignature() );
+
+        if( r.unitNumbers != null ) {
+            MapNumberer<Unit> mn = (MapNumberer<Unit>) Scene.v().getUnitNumberer();
+            int pos = 0;
+            for( Unit u : b.getUnits() ) {
+                if( pos < r.unitNumbers.length && r.unitNumbers[pos] != 0 )
+                    mn.replace( r.unitNumbers[pos], u );
+                pos++;
+            }
+        }
+        return b;
+    }
+}
@@ -51,12 +51,12 @@ public abstract class BodyTransformer extends Transformer
         if(!PhaseOptions.getBoolean(options, "enabled"))
             return;
 
-        internalTransform(b, phaseName, options);
+        run(b, phaseName, options);
     }
 
     public final void transform(Body b, String phaseName)
     {
-        internalTransform(b, phaseName, enabledOnlyMap);
+        run(b, phaseName, enabledOnlyMap);
     }
 
     public final void transform(Body b)
@@ -64,6 +64,26 @@ public abstract class BodyTransformer extends Transformer
     	transform(b, "");
     }
 
+    /** Transforms b, keeping the {@link BodyStore} from releasing it, and
+     * the bodies handed out meanwhile, until done. */
+    private void run(Body b, String phaseName, Map<String, String> options)
+    {
+        boolean pin = BodyStore.v().isEnabled();
+        if (pin) {
+            BodyStore.v().pin(b);
+            BodyStore.v().enterScope();
+        }
+        try {
+            internalTransform(b, phaseName, options);
+        } finally {
+            if (pin) {
+                BodyStore.v().exitScope();
+                BodyStore.v().unpin(b);
+            }
+        }
+        dropAnalyses(b);
+    }
+
     /**
      *  This method is called to perform the transformation itself. It is declared
      *  abstract; subclasses must implement this method by making it the entry point
@@ -74,6 +94,36 @@ public abstract class BodyTransformer extends Transformer
      */
     protected abstract void internalTransform(Body b, String phaseName, Map<String, String> options);
 
+    /**
+     *  Returns the analyses in the {@link BodyAnalysisCache} of a body that are
+     *  still valid after this transformer has run on it. All other cached
+     *  analyses are dropped, unless {@link #preservesAll()} holds. By default,
+     *  none are preserved.
+     */
+    protected Set<BodyAnalysisCache.Key<?>> preservedAnalyses()
+    {
+        return Collections.emptySet();
+    }
+
+    /**
+     *  Returns whether all analyses in the {@link BodyAnalysisCache} of a body
+     *  are still valid after this transformer has run on it. This holds for
+     *  transformers that never change bodies, and for those that only add or
+     *  remove units, traps or locals, or rename locals, which the cache
+     *  notices itself. By default, false.
+     */
+    protected boolean preservesAll()
+    {
+        return false;
+    }
+
+    private void dropAnalyses(Body b)
+    {
+        // Do not make a cache for bodies that have none
+        if(b.analysisCache != null && !preservesAll())
+            b.analysisCache.retain(preservedAnalyses());
+    }
+
 }
 
 
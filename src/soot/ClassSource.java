@@ -32,6 +32,11 @@ public abstract class ClassSource
     /** Resolve the class into the SootClass sc. Returns a list of Strings
      * or Types referenced by the class. */
     public abstract Dependencies resolve( SootClass sc );
+    /** Returns true iff this source may resolve its class while other
+     * sources resolve other classes on different threads. */
+    public boolean isThreadSafe() {
+        return false;
+    }
     protected String className;
     
     public void close() {
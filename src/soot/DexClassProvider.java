@@ -23,21 +23,20 @@ package soot;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.jf.dexlib2.DexFileFactory;
 import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.ClassDef;
 
+import soot.dexpler.DexResolver;
 import soot.dexpler.Util;
-import soot.options.Options;
 
 /**
  * Looks for a dex file which includes the definition of a class.
@@ -54,11 +53,14 @@ public class DexClassProvider implements ClassProvider {
 	 * @return a DexClassSource that defines the className named class.
 	 */
 	public ClassSource find(String className) {
-		Map<String, File> index = SourceLocator.v().dexClassIndex();
-		if (index == null) {
-			index = new HashMap<String, File>();
-			buildDexIndex(index, SourceLocator.v().classPath());
-			SourceLocator.v().setDexClassIndex(index);
+		Map<String, File> index;
+		synchronized (SourceLocator.v()) {
+			index = SourceLocator.v().dexClassIndex();
+			if (index == null) {
+				index = new HashMap<String, File>();
+				buildDexIndex(index, SourceLocator.v().classPath());
+				SourceLocator.v().setDexClassIndex(index);
+			}
 		}
 
 		File file = index.get(className);
@@ -70,7 +72,9 @@ public class DexClassProvider implements ClassProvider {
 
 
 	/**
-	 * Build index of ClassName-to-File mappings.
+	 * Build index of ClassName-to-File mappings. All dex and apk files are
+	 * read up front through the {@link DexResolver}, concurrently, which
+	 * also keeps them for resolving their classes later on.
 	 *
 	 * @param index
 	 *            map to insert mappings into
@@ -78,6 +82,7 @@ public class DexClassProvider implements ClassProvider {
 	 *            paths to index
 	 */
 	private void buildDexIndex(Map<String, File> index, List<String> classPath) {
+		List<File> files = new ArrayList<File>();
 		for (String path : classPath) {
 			File dir = new File(path);
             File[] dexs = dir.listFiles(new FilenameFilter() {
@@ -86,68 +91,28 @@ public class DexClassProvider implements ClassProvider {
                 }
             });
             if (dexs != null)
-                for (File dex : dexs)
-                    readDexFile(index, dex);
-            if(Options.v().process_multiple_dex()){
-                if(path.endsWith(".apk")){
-                	try{
-	                	ZipFile archive = new ZipFile(path);
-	    				for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
-	    					ZipEntry entry = entries.nextElement();
-	    					String entryName = entry.getName();
-	    					// We are dealing with an apk file
-	    					if (entryName.endsWith(".dex")){
-	    						readDexFile(index, dir, entryName);
-	    					}
-	    				}
-	    				archive.close();
-                	}
-                	catch(Exception ex){
-                		ex.printStackTrace();
-                	}
-                }
-            }
-    		else if (path.endsWith(".apk") || path.endsWith(".dex")){
-    			readDexFile(index, dir);
-    		}           
+                files.addAll(Arrays.asList(dexs));
+            if (path.endsWith(".apk") || path.endsWith(".dex"))
+                files.add(dir);
         }
-	}
-
-    /**
-     * Read dex file  into index.
-     */
-    private void readDexFile(Map<String, File> index, File dex) {
-        try {
-            for (String className : classesOfDex(dex)) {
-                index.put(className, dex);
-            }
-        } catch (IOException e) { 
-          G.v().out.println("Warning: IO error while processing dex file '"+ dex +"'");
-          G.v().out.println("Exception: "+ e);
-        } catch (Exception e) {
-          G.v().out.println("Warning: exception while processing dex file '"+ dex +"'");
-          G.v().out.println("Exception: "+ e);
-        }
-    }
-    
-    /**
-     * Read dex files into index.
-     */
-    private void readDexFile(Map<String, File> index, File dex, String dexName) {
-        try {
-            for (String className : classesOfDex(dex, dexName)) {
-                index.put(className, dex);
-            }
-        } catch (IOException e) { 
-          G.v().out.println("Warning: IO error while processing dex file '"+ dex +"'");
-          G.v().out.println("Exception: "+ e);
-        } catch (Exception e) {
-          G.v().out.println("Warning: exception while processing dex file '"+ dex +"'");
-          G.v().out.println("Exception: "+ e);
-        }
-    }
-    
 
+		IOException[] failures = DexResolver.v().read(files);
+		for (int i = 0; i < files.size(); i++) {
+			File dex = files.get(i);
+			if (failures[i] != null) {
+				G.v().out.println("Warning: IO error while processing dex file '"+ dex +"'");
+				G.v().out.println("Exception: "+ failures[i]);
+				continue;
+			}
+			try {
+				for (String className : DexResolver.v().classesOf(dex))
+					index.put(className, dex);
+			} catch (IOException e) {
+				// Not reached, the file has been read above
+				throw new RuntimeException(e);
+			}
+		}
+	}
 
 	/**
 	 * Return names of classes in dex/apk file.
@@ -19,6 +19,7 @@
 
 package soot;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -79,8 +80,24 @@ public class FastHierarchy
      * in the inheritance tree. */
     protected Map<SootClass, Interval> classToInterval = new HashMap<SootClass, Interval>();
 
+    /** For each interface, indexed by class number, a dense number starting
+     * from 0, and -1 for all other classes. */
+    protected int[] interfaceNumber;
+
+    /** For each class and interface, indexed by class number, a bit vector
+     * over interfaceNumber of all interfaces it can be stored in: those it or
+     * its superclasses implement, their superinterfaces, and itself for
+     * interfaces. A class that implements no interface of its own shares the
+     * row of its superclass. Null for classes that are not resolved to
+     * HIERARCHY. */
+    protected long[][] interfaceRows;
+
     protected Scene sc;
 
+    private final RefType objectType;
+    private final RefType serializableType;
+    private final RefType cloneableType;
+
     protected class Interval {
         int lower;
         int upper;
@@ -143,6 +160,76 @@ public class FastHierarchy
         	if(!phantomClass.isInterface())
         		dfsVisit( 0, phantomClass );
         }
+
+        /* Finally record the interfaces each class can be stored in, so that
+         * canStoreClass does not have to search the implementers of an
+         * interface. */
+        int numClasses = sc.getClassNumberer().size() + 1;
+        interfaceNumber = new int[numClasses];
+        Arrays.fill( interfaceNumber, -1 );
+        int numInterfaces = 0;
+        for (SootClass cl : sc.getClasses().getElementsUnsorted()) {
+            if( cl.resolvingLevel() >= SootClass.HIERARCHY && cl.isInterface() )
+                interfaceNumber[cl.getNumber()] = numInterfaces++;
+        }
+        interfaceRows = new long[numClasses][];
+        long[] noInterfaces = new long[(numInterfaces + 63) >>> 6];
+        for (SootClass cl : sc.getClasses().getElementsUnsorted()) {
+            if( cl.resolvingLevel() >= SootClass.HIERARCHY )
+                makeInterfaceRow( cl, noInterfaces );
+        }
+
+        objectType = sc.getObjectType();
+        serializableType = RefType.v( "java.io.Serializable" );
+        cloneableType = RefType.v( "java.lang.Cloneable" );
+    }
+
+    private long[] makeInterfaceRow( SootClass c, long[] noInterfaces ) {
+        int n = c.getNumber();
+        if( n == 0 || n >= interfaceRows.length
+                || c.resolvingLevel() < SootClass.HIERARCHY )
+            return noInterfaces;
+        long[] row = interfaceRows[n];
+        if( row != null ) return row;
+        if( c.isInterface() ) {
+            row = noInterfaces.clone();
+            int i = interfaceNumber[n];
+            row[i >>> 6] |= 1L << i;
+        } else if( c.hasSuperclass() ) {
+            row = makeInterfaceRow( c.getSuperclass(), noInterfaces );
+        } else {
+            row = noInterfaces;
+        }
+        // Set before the superinterfaces are visited, in case of cycles
+        interfaceRows[n] = row;
+        boolean shared = !c.isInterface();
+        for( SootClass i : c.getInterfaces() ) {
+            long[] other = makeInterfaceRow( i, noInterfaces );
+            if( other == row || other == noInterfaces ) continue;
+            if( shared ) {
+                row = row.clone();
+                interfaceRows[n] = row;
+                shared = false;
+            }
+            for( int w = 0; w < row.length; w++ )
+                row[w] |= other[w];
+        }
+        return row;
+    }
+
+    /** Returns whether class or interface child can be stored in interface
+     * parent, by looking it up in interfaceRows, or null if they are not in
+     * there. */
+    private Boolean implementsInterface( SootClass child, SootClass parent ) {
+        int pn = parent.getNumber();
+        int cn = child.getNumber();
+        if( pn >= interfaceNumber.length || cn >= interfaceRows.length )
+            return null;
+        int i = interfaceNumber[pn];
+        long[] row = interfaceRows[cn];
+        if( i < 0 || row == null )
+            return null;
+        return ( row[i >>> 6] & ( 1L << i ) ) != 0;
     }
 
     /** Return true if class child is a subclass of class parent, neither of
@@ -157,7 +244,7 @@ public class FastHierarchy
 
     /** For an interface parent (MUST be an interface), returns set of all
      * implementers of it but NOT their subclasses. */
-    public Set<SootClass> getAllImplementersOfInterface( SootClass parent ) {
+    public synchronized Set<SootClass> getAllImplementersOfInterface( SootClass parent ) {
         parent.checkLevel(SootClass.HIERARCHY);
         if( !interfaceToAllImplementers.containsKey( parent ) ) {
             for(SootClass subinterface : getAllSubinterfaces( parent )) {
@@ -176,7 +263,7 @@ public class FastHierarchy
      * @param parent the parent interface.
      * @return an set, possibly empty
      * */
-    public Set<SootClass> getAllSubinterfaces( SootClass parent ) {
+    public synchronized Set<SootClass> getAllSubinterfaces( SootClass parent ) {
         parent.checkLevel(SootClass.HIERARCHY);
         if (!parent.isInterface()) return Collections.<SootClass>emptySet();
         if( !interfaceToAllSubinterfaces.containsKey( parent ) ) {
@@ -202,7 +289,7 @@ public class FastHierarchy
         	return parent instanceof RefLikeType;
         }
         if( child instanceof RefType ) {
-        	if (parent.equals(Scene.v().getObjectType()))
+        	if (parent.equals(objectType))
         		return true;
             if( parent instanceof RefType) {
                 return canStoreClass( ((RefType) child).getSootClass(),
@@ -216,9 +303,9 @@ public class FastHierarchy
             } else if(parent instanceof ArrayType) {
                 Type base = ((AnySubType)child).getBase();
                 // From Java Language Spec 2nd ed., Chapter 10, Arrays
-                return base.equals( RefType.v( "java.lang.Object" ) )
-                || base.equals( RefType.v( "java.io.Serializable" ) )
-                || base.equals( RefType.v( "java.lang.Cloneable" ) );
+                return base.equals( objectType )
+                || base.equals( serializableType )
+                || base.equals( cloneableType );
             } else {
                 SootClass base = ((AnySubType)child).getBase().getSootClass();
                 SootClass parentClass = ((RefType) parent).getSootClass();
@@ -239,9 +326,9 @@ public class FastHierarchy
             ArrayType achild = (ArrayType) child;
             if( parent instanceof RefType ) {
                 // From Java Language Spec 2nd ed., Chapter 10, Arrays
-                return parent.equals( RefType.v( "java.lang.Object" ) )
-                || parent.equals( RefType.v( "java.io.Serializable" ) )
-                || parent.equals( RefType.v( "java.lang.Cloneable" ) );
+                return parent.equals( objectType )
+                || parent.equals( serializableType )
+                || parent.equals( cloneableType );
             }
             if (!(parent instanceof ArrayType))
             	return false;
@@ -255,11 +342,11 @@ public class FastHierarchy
                 if( !(aparent.baseType instanceof RefType ) ) return false;
                 return canStoreType( achild.baseType, aparent.baseType );
             } else if( achild.numDimensions > aparent.numDimensions ) {
-                if( aparent.baseType.equals( RefType.v( "java.lang.Object" ) ) )
+                if( aparent.baseType.equals( objectType ) )
                     return true;
-                if( aparent.baseType.equals( RefType.v( "java.io.Serializable" ) ) )
+                if( aparent.baseType.equals( serializableType ) )
                     return true;
-                if( aparent.baseType.equals( RefType.v( "java.lang.Cloneable" ) ) )
+                if( aparent.baseType.equals( cloneableType ) )
                     return true;
                 return false;
             } else return false;
@@ -280,9 +367,13 @@ public class FastHierarchy
         if( parentInterval != null && childInterval != null ) {
             return parentInterval.isSubrange( childInterval );
         }
+        if( parentInterval == null ) { // parent is interface
+            Boolean ret = implementsInterface( child, parent );
+            if( ret != null ) return ret;
+        }
         if( childInterval == null ) { // child is interface
             if( parentInterval != null ) { // parent is not interface
-                return parent.equals( Scene.v().getObjectType().getSootClass());
+                return parent.equals( objectType.getSootClass());
             } else {
                 return getAllSubinterfaces( parent ).contains( child );
             }
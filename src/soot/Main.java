@@ -277,6 +277,7 @@ public class Main {
 			// Print out time stats.
 			if (Options.v().time())
 				Timers.v().printProfilingInformation();
+			PhaseMetrics.v().writeMetricsFile();
 
 		} catch (CompilationDeathException e) {
 			Timers.v().totalTimer.end();
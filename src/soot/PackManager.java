@@ -406,6 +406,10 @@ public class PackManager {
         }
 
 		setupJAR();
+		// Dex files are written as the classes come in, so that converting
+		// them overlaps with processing the remaining classes
+		if (writesDex())
+			dexPrinter = new DexPrinter();
         for( String path: (Collection<String>)Options.v().process_dir()) {
             // hack1: resolve to signatures only
             for (String cl : SourceLocator.v().getClassesUnder(path)) {
@@ -432,17 +436,22 @@ public class PackManager {
                 		source.close();
                 }
                 
-            	// Create tags from all values we only have in code assingments now
-                for (SootClass sc : Scene.v().getApplicationClasses()) {
-                    if( Options.v().validate() )
-                    	sc.validate();
-                	if (!sc.isPhantom)
-                		ConstantInitializerToTagTransformer.v().transformClass(sc, true);
+                BodyStore.v().enterScope();
+                try {
+	            	// Create tags from all values we only have in code assingments now
+	                for (SootClass sc : Scene.v().getApplicationClasses()) {
+	                    if( Options.v().validate() )
+	                    	sc.validate();
+	                	if (!sc.isPhantom)
+	                		ConstantInitializerToTagTransformer.v().transformClass(sc, true);
+	                }
+	                
+					runBodyPacks(clazz);
+					//generate output
+					writeClass(clazz);
+                } finally {
+                	BodyStore.v().exitScope();
                 }
-                
-				runBodyPacks(clazz);
-				//generate output
-				writeClass(clazz);
 
 				if (!Options.v().no_writeout_body_releasing())
 					releaseBodies(clazz);
@@ -454,6 +463,10 @@ public class PackManager {
 //				Scene.v().removeClass(clazz);
 //            }
         }
+        if (dexPrinter != null) {
+        	dexPrinter.print();
+        	dexPrinter = null;
+        }
         tearDownJAR();
 
         handleInnerClasses();
@@ -471,11 +484,16 @@ public class PackManager {
         retrieveAllBodies();
         
     	// Create tags from all values we only have in code assignments now
-        for (SootClass sc : Scene.v().getApplicationClasses()) {
-            if( Options.v().validate() )
-            	sc.validate();
-        	if (!sc.isPhantom)
-        		ConstantInitializerToTagTransformer.v().transformClass(sc, true);
+        BodyStore.v().enterScope();
+        try {
+	        for (SootClass sc : Scene.v().getApplicationClasses()) {
+	            if( Options.v().validate() )
+	            	sc.validate();
+	        	if (!sc.isPhantom)
+	        		ConstantInitializerToTagTransformer.v().transformClass(sc, true);
+	        }
+        } finally {
+        	BodyStore.v().exitScope();
         }
         
         // if running coffi cfg metrics, print out results and exit
@@ -533,10 +551,16 @@ public class PackManager {
         if( Options.v().output_format() == Options.output_format_dava ) {
             postProcessDAVA();
         }
-        else if (Options.v().output_format() == Options.output_format_dex
-        		|| Options.v().output_format() == Options.output_format_force_dex) {
+        else if (writesDex()) {
         	dexPrinter = new DexPrinter();
-        	writeOutput(reachableClasses());
+        	for (Iterator<SootClass> classes = reachableClasses(); classes.hasNext();) {
+        		SootClass c = classes.next();
+        		writeClass(c);
+        		// The dex printer is done with the bodies of c, so there is
+        		// no need to keep them until all classes have been written
+        		if (!Options.v().no_writeout_body_releasing())
+        			releaseBodies(c);
+        	}
         	dexPrinter.print();
         	dexPrinter = null;
         } else {
@@ -553,6 +577,11 @@ public class PackManager {
 
     private DexPrinter dexPrinter = null;
 
+    private static boolean writesDex() {
+        return Options.v().output_format() == Options.output_format_dex
+        		|| Options.v().output_format() == Options.output_format_force_dex;
+    }
+
     private void setupJAR() {
         if (Options.v().output_jar()) {
             String outFileName = SourceLocator.v().getOutputJarName();
@@ -618,23 +647,79 @@ public class PackManager {
         }
     }
 
+    /**
+     * Returns the number of worker threads to use for running body packs,
+     * retrieving bodies and writing class files, as configured through the
+     * num-threads option.
+     */
+    public int getNumThreads() {
+        int threadNum = Options.v().num_threads();
+        return threadNum > 0 ? threadNum : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * The body pack work of one class. Tasks are ordered by decreasing total
+     * body size so that the largest classes are started first and no single
+     * huge class is left to run alone at the end.
+     */
+    private static abstract class BodyPackTask implements Runnable, Comparable<BodyPackTask> {
+        private final int size;
+
+        BodyPackTask(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(BodyPackTask other) {
+            return size > other.size ? -1 : (size == other.size ? 0 : 1);
+        }
+    }
+
+    private static int bodySize(SootMethod m) {
+        if (!m.hasActiveBody())
+            return 0;
+        BodyStore.v().enterScope();
+        try {
+            return m.getActiveBody().getUnits().size();
+        } finally {
+            BodyStore.v().exitScope();
+        }
+    }
+
     private void runBodyPacks( final Iterator<SootClass> classes ) {
-    	int threadNum = Runtime.getRuntime().availableProcessors();
+    	int threadNum = getNumThreads();
         CountingThreadPoolExecutor executor =  new CountingThreadPoolExecutor(threadNum,
         		threadNum, 30, TimeUnit.SECONDS,
         		new LinkedBlockingQueue<Runnable>());
-    	
+
+        // The methods of a class stay in one task, since transformers may
+        // add methods, fields and tags to their class
+        List<BodyPackTask> tasks = new ArrayList<BodyPackTask>();
     	while( classes.hasNext() ) {
     		final SootClass c = classes.next();
-           	executor.execute(new Runnable() {
+    		int size = 0;
+    		for (SootMethod m : c.getMethods())
+    			size += bodySize(m);
+    		tasks.add(new BodyPackTask(size) {
 				
 				@Override
 				public void run() {
-					runBodyPacks(c);
+					BodyStore.v().enterScope();
+					try {
+						runBodyPacks(c);
+					} finally {
+						BodyStore.v().exitScope();
+					}
 				}
 				
-           	});
+    		});
         }
+
+    	// Largest classes first. The sort is stable, so classes of unknown
+    	// size keep the order in which they were handed to us.
+    	Collections.sort(tasks);
+    	for (BodyPackTask task : tasks)
+    		executor.execute(task);
     	
         // Wait till all packs have been executed
         try {
@@ -661,7 +746,7 @@ public class PackManager {
     	// concurrently. Otherwise, we need to synchronize for not destroying
     	// the shared output stream.
     	int threadNum = Options.v().output_format() == Options.output_format_class
-    			&& jarFile == null ? Runtime.getRuntime().availableProcessors() : 1;
+    			&& jarFile == null ? getNumThreads() : 1;
         CountingThreadPoolExecutor executor =  new CountingThreadPoolExecutor(threadNum,
         		threadNum, 30, TimeUnit.SECONDS,
         		new LinkedBlockingQueue<Runnable>());
@@ -672,7 +757,12 @@ public class PackManager {
 				
 				@Override
 				public void run() {
-					writeClass( c );
+					BodyStore.v().enterScope();
+					try {
+						writeClass( c );
+					} finally {
+						BodyStore.v().exitScope();
+					}
 				}
 				
            	});
@@ -879,20 +969,85 @@ public class PackManager {
         }
     }
     
-    @SuppressWarnings("fallthrough")
+    private void printTransforming(SootClass c) {
+        if (Options.v().output_format() == Options.output_format_dava)
+            G.v().out.print("Decompiling ");
+        else
+            G.v().out.print("Transforming ");
+        G.v().out.println(c.getName() + "... ");
+    }
+
     private void runBodyPacks(SootClass c) {
         final int format = Options.v().output_format();
         if (format == Options.output_format_dava) {
-            G.v().out.print("Decompiling ");
-
 	     //January 13th, 2006  SootMethodAddedByDava is set to false for SuperFirstStmtHandler
 	    G.v().SootMethodAddedByDava=false;
-        } else {
-            G.v().out.print("Transforming ");
         }
-        G.v().out.println(c.getName() + "... ");
+        printTransforming(c);
+
+        boolean produceDava = format == Options.output_format_dava;
+        boolean collectTags = Options.v().xml_attributes() && format != Options.output_format_jimple;
+
+        soot.xml.TagCollector tc = collectTags ? new soot.xml.TagCollector() : null;
+
+        //here we create a copy of the methods so that transformers are able
+        //to add method bodies during the following iteration;
+        //such adding of methods happens in rare occasions: for instance when
+        //resolving a method reference to a non-existing method, then this
+        //method is created as a phantom method when phantom-refs are enabled
+        LinkedList<SootMethod> methodsCopy = new LinkedList<SootMethod>(c.getMethods());
+        for (SootMethod m : methodsCopy) {
+            if(DEBUG){
+            	if(m.getExceptions().size()!=0)
+            		System.out.println("PackManager printing out jimple body exceptions for method "+m.toString()+" " + m.getExceptions().toString());
+            }
+
+            if (!m.isConcrete()) continue;
+
+            runBodyPacks(m, tc);
+        }
+
+        if (collectTags) {
+            processXMLForClass(c, tc);
+            //System.out.println("processed xml for class");
+        }
+
+        if (produceDava) {
+            for (SootMethod m : c.getMethods()) {
+                if (!m.isConcrete())
+                	continue;
+                //all the work done in decompilation is done in DavaBody which is invoked from within newBody
+                m.setActiveBody(Dava.v().newBody(m.getActiveBody()));
+            }
+
+            /*
+             * January 13th, 2006
+             * SuperFirstStmtHandler might have set SootMethodAddedByDava if it needs to create a new
+             * method.
+             */
+            //could use G to add new method...................
+            if(G.v().SootMethodAddedByDava){
+            	//System.out.println("PACKMANAGER SAYS:----------------Have to add the new method(s)");
+            	ArrayList<SootMethod> sootMethodsAdded = G.v().SootMethodsAdded;
+            	Iterator<SootMethod> it = sootMethodsAdded.iterator();
+            	while(it.hasNext()){
+            		c.addMethod((SootMethod)it.next());
+            	}
+            	G.v().SootMethodsAdded = new ArrayList<SootMethod>();
+            	G.v().SootMethodAddedByDava=false;
+            }
 
-        boolean produceBaf = false, produceGrimp = false, produceDava = false,
+        }//end if produceDava
+    }
+
+    /**
+     * Runs the body packs for a single concrete method. If <code>tc</code>
+     * is non-null, the tags of the resulting Jimple body are collected into
+     * it.
+     */
+    private void runBodyPacks(SootMethod m, soot.xml.TagCollector tc) {
+        final int format = Options.v().output_format();
+        boolean produceBaf = false, produceGrimp = false,
             produceJimple = true, produceShimple = false;
 
         switch (format) {
@@ -911,8 +1066,6 @@ public class PackManager {
                 produceJimple = false;
                 break;
             case Options.output_format_dava :
-                produceDava = true;
-                // FALL THROUGH
             case Options.output_format_grimp :
             case Options.output_format_grimple :
                 produceGrimp = true;
@@ -931,111 +1084,62 @@ public class PackManager {
                 throw new RuntimeException();
         }
 
-        soot.xml.TagCollector tc = new soot.xml.TagCollector();
-
         boolean wholeShimple = Options.v().whole_shimple();
         if( Options.v().via_shimple() ) produceShimple = true;
 
-        //here we create a copy of the methods so that transformers are able
-        //to add method bodies during the following iteration;
-        //such adding of methods happens in rare occasions: for instance when
-        //resolving a method reference to a non-existing method, then this
-        //method is created as a phantom method when phantom-refs are enabled
-        LinkedList<SootMethod> methodsCopy = new LinkedList<SootMethod>(c.getMethods());
-        for (SootMethod m : methodsCopy) {
-            if(DEBUG){
-            	if(m.getExceptions().size()!=0)
-            		System.out.println("PackManager printing out jimple body exceptions for method "+m.toString()+" " + m.getExceptions().toString());
-            }
-
-            if (!m.isConcrete()) continue;
-
-            if (produceShimple || wholeShimple) {
-                ShimpleBody sBody = null;
-
-                // whole shimple or not?
-                {
-                    Body body = m.retrieveActiveBody();
-
-                    if(body instanceof ShimpleBody){
-                        sBody = (ShimpleBody) body;
-                        if(!sBody.isSSA())
-                            sBody.rebuild();
-                    }
-                    else{
-                        sBody = Shimple.v().newBody(body);
-                    }
-                }
-
-                m.setActiveBody(sBody);
-                PackManager.v().getPack("stp").apply(sBody);
-                PackManager.v().getPack("sop").apply(sBody);
+        if (produceShimple || wholeShimple) {
+            ShimpleBody sBody = null;
 
-                if( produceJimple || (wholeShimple && !produceShimple) )
-                    m.setActiveBody(sBody.toJimpleBody());
-            }
-
-            if (produceJimple) {
+            // whole shimple or not?
+            {
                 Body body = m.retrieveActiveBody();
-                //Change
-                CopyPropagator.v().transform(body);
-                ConditionalBranchFolder.v().transform(body);
-                UnreachableCodeEliminator.v().transform(body);
-                DeadAssignmentEliminator.v().transform(body);
-                UnusedLocalEliminator.v().transform(body);
-                PackManager.v().getPack("jtp").apply(body);
-                if( Options.v().validate() ) {
-                    body.validate();
+
+                if(body instanceof ShimpleBody){
+                    sBody = (ShimpleBody) body;
+                    if(!sBody.isSSA())
+                        sBody.rebuild();
                 }
-                PackManager.v().getPack("jop").apply(body);
-                PackManager.v().getPack("jap").apply(body);
-                if (Options.v().xml_attributes() && Options.v().output_format() != Options.output_format_jimple) {
-                    //System.out.println("collecting body tags");
-                    tc.collectBodyTags(body);
+                else{
+                    sBody = Shimple.v().newBody(body);
                 }
             }
 
-            //PackManager.v().getPack("cfg").apply(m.retrieveActiveBody());
+            m.setActiveBody(sBody);
+            PackManager.v().getPack("stp").apply(sBody);
+            PackManager.v().getPack("sop").apply(sBody);
 
-            if (produceGrimp) {
-                m.setActiveBody(Grimp.v().newBody(m.getActiveBody(), "gb"));
-                PackManager.v().getPack("gop").apply(m.getActiveBody());
-            } else if (produceBaf) {
-        		m.setActiveBody(convertJimpleBodyToBaf(m));
-            }
-        }
-
-        if (Options.v().xml_attributes() && Options.v().output_format() != Options.output_format_jimple) {
-            processXMLForClass(c, tc);
-            //System.out.println("processed xml for class");
+            if( produceJimple || (wholeShimple && !produceShimple) )
+                m.setActiveBody(sBody.toJimpleBody());
         }
 
-        if (produceDava) {
-            for (SootMethod m : c.getMethods()) {
-                if (!m.isConcrete())
-                	continue;
-                //all the work done in decompilation is done in DavaBody which is invoked from within newBody
-                m.setActiveBody(Dava.v().newBody(m.getActiveBody()));
+        if (produceJimple) {
+            Body body = m.retrieveActiveBody();
+            //Change
+            CopyPropagator.v().transform(body);
+            ConditionalBranchFolder.v().transform(body);
+            UnreachableCodeEliminator.v().transform(body);
+            DeadAssignmentEliminator.v().transform(body);
+            UnusedLocalEliminator.v().transform(body);
+            PackManager.v().getPack("jtp").apply(body);
+            if( Options.v().validate() ) {
+                body.validate();
             }
-
-            /*
-             * January 13th, 2006
-             * SuperFirstStmtHandler might have set SootMethodAddedByDava if it needs to create a new
-             * method.
-             */
-            //could use G to add new method...................
-            if(G.v().SootMethodAddedByDava){
-            	//System.out.println("PACKMANAGER SAYS:----------------Have to add the new method(s)");
-            	ArrayList<SootMethod> sootMethodsAdded = G.v().SootMethodsAdded;
-            	Iterator<SootMethod> it = sootMethodsAdded.iterator();
-            	while(it.hasNext()){
-            		c.addMethod((SootMethod)it.next());
-            	}
-            	G.v().SootMethodsAdded = new ArrayList<SootMethod>();
-            	G.v().SootMethodAddedByDava=false;
+            PackManager.v().getPack("jop").apply(body);
+            PackManager.v().getPack("jap").apply(body);
+            if (tc != null) {
+                //System.out.println("collecting body tags");
+                tc.collectBodyTags(body);
             }
+        }
 
-        }//end if produceDava
+        //PackManager.v().getPack("cfg").apply(m.retrieveActiveBody());
+
+        if (produceGrimp) {
+            m.setActiveBody(Grimp.v().newBody(m.getActiveBody(), "gb"));
+            PackManager.v().getPack("gop").apply(m.getActiveBody());
+        } else if (produceBaf) {
+    		m.setActiveBody(convertJimpleBodyToBaf(m));
+        }
     }
 
 	public BafBody convertJimpleBodyToBaf(SootMethod m) {
@@ -1063,9 +1167,9 @@ public class PackManager {
         final int format = Options.v().output_format();
         if( format == Options.output_format_none ) return;
         if( format == Options.output_format_dava ) return;
-        if (format == Options.output_format_dex
-        		|| format == Options.output_format_force_dex) {
-        	// just add the class to the dex printer, writing is done after adding all classes
+        if (writesDex()) {
+        	// just add the class to the dex printer, which writes a dex file
+        	// whenever one is full and the rest after all classes were added
         	dexPrinter.add(c);
         	return;
         }
@@ -1209,7 +1313,7 @@ public class PackManager {
 
     private void retrieveAllBodies() {
     	// The old coffi front-end is not thread-safe
-    	int threadNum = Options.v().coffi() ? 1 : Runtime.getRuntime().availableProcessors();
+    	int threadNum = Options.v().coffi() ? 1 : getNumThreads();
         CountingThreadPoolExecutor executor =  new CountingThreadPoolExecutor(threadNum,
         		threadNum, 30, TimeUnit.SECONDS,
         		new LinkedBlockingQueue<Runnable>());
@@ -1228,7 +1332,12 @@ public class PackManager {
 						
 						@Override
 						public void run() {
-		                    m.retrieveActiveBody();
+							BodyStore.v().enterScope();
+							try {
+								m.retrieveActiveBody();
+							} finally {
+								BodyStore.v().exitScope();
+							}
 						}
 						
 					});
@@ -0,0 +1,317 @@
+package soot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import soot.options.Options;
+
+/**
+ * Collects metrics about every phase that is applied, either to the scene or
+ * to a body: the number of applications and of bodies processed, wall time,
+ * CPU time, allocated bytes and the number of units of the bodies before and
+ * after the phase. Phases can report additional counters of their own, such
+ * as the size of the pointer assignment graph or the number of reachable
+ * methods, through {@link #setCounter(String, String, long)}.
+ * <p>
+ * Metrics are collected if the metrics-file option is set, in which case
+ * they are written to that file as JSON at the end of the run, or if a
+ * {@link PhaseMetricsListener} is registered.
+ * <p>
+ * CPU time and allocated bytes are measured for the thread that applies the
+ * phase. Work that a phase hands to other threads is not included; it is
+ * -1 if the JVM cannot measure it.
+ */
+public class PhaseMetrics
+{
+    public PhaseMetrics( Singletons.Global g ) {}
+    public static PhaseMetrics v() { return G.v().soot_PhaseMetrics(); }
+
+    private final Map<String, PhaseRecord> records = new LinkedHashMap<String, PhaseRecord>();
+    private final List<PhaseMetricsListener> listeners = new CopyOnWriteArrayList<PhaseMetricsListener>();
+
+    public void addListener( PhaseMetricsListener l ) {
+        listeners.add( l );
+    }
+
+    public void removeListener( PhaseMetricsListener l ) {
+        listeners.remove( l );
+    }
+
+    /** Returns true iff metrics are being collected. */
+    public boolean isEnabled() {
+        return Options.v().metrics_file().length() > 0 || !listeners.isEmpty();
+    }
+
+    /** The measurements of one application of a phase. */
+    public static class Sample {
+        private final String phaseName;
+        private final Body body;
+        private final long startWall;
+        private final long startCpu;
+        private final long startAllocated;
+        private final int unitsBefore;
+        private long wallNanos;
+        private long cpuNanos = -1;
+        private long allocatedBytes = -1;
+        private int unitsAfter = -1;
+
+        Sample( String phaseName, Body body ) {
+            this.phaseName = phaseName;
+            this.body = body;
+            this.unitsBefore = body == null ? -1 : body.getUnits().size();
+            this.startCpu = ThreadMeter.cpuTime();
+            this.startAllocated = ThreadMeter.allocatedBytes();
+            this.startWall = System.nanoTime();
+        }
+
+        void finish() {
+            wallNanos = System.nanoTime() - startWall;
+            if( startCpu >= 0 )
+                cpuNanos = ThreadMeter.cpuTime() - startCpu;
+            if( startAllocated >= 0 )
+                allocatedBytes = ThreadMeter.allocatedBytes() - startAllocated;
+            if( body != null )
+                unitsAfter = body.getUnits().size();
+        }
+
+        public String getPhaseName() { return phaseName; }
+        /** Returns the body the phase was applied to, or null for phases
+         * applied to the scene. */
+        public Body getBody() { return body; }
+        public long getWallNanos() { return wallNanos; }
+        /** Returns the CPU time of the applying thread, or -1. */
+        public long getCpuNanos() { return cpuNanos; }
+        /** Returns the bytes allocated by the applying thread, or -1. */
+        public long getAllocatedBytes() { return allocatedBytes; }
+        /** Returns the number of units of the body before the phase, or -1
+         * for phases applied to the scene. */
+        public int getUnitsBefore() { return unitsBefore; }
+        /** Returns the number of units of the body after the phase, or -1
+         * for phases applied to the scene. */
+        public int getUnitsAfter() { return unitsAfter; }
+    }
+
+    /** The metrics of a phase, summed up over all of its applications. */
+    public static class PhaseRecord {
+        private final String phaseName;
+        private long applications;
+        private long bodies;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+        private long unitsBefore;
+        private long unitsAfter;
+        private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+
+        PhaseRecord( String phaseName ) {
+            this.phaseName = phaseName;
+        }
+
+        synchronized void add( Sample s ) {
+            applications++;
+            wallNanos += s.wallNanos;
+            cpuNanos = add( cpuNanos, s.cpuNanos );
+            allocatedBytes = add( allocatedBytes, s.allocatedBytes );
+            if( s.body != null ) {
+                bodies++;
+                unitsBefore += s.unitsBefore;
+                unitsAfter += s.unitsAfter;
+            }
+        }
+
+        /** Adds b to a, where -1 in either means not available. */
+        private static long add( long a, long b ) {
+            return a < 0 || b < 0 ? -1 : a + b;
+        }
+
+        public String getPhaseName() { return phaseName; }
+        public synchronized long getApplications() { return applications; }
+        public synchronized long getBodies() { return bodies; }
+        public synchronized long getWallNanos() { return wallNanos; }
+        public synchronized long getCpuNanos() { return cpuNanos; }
+        public synchronized long getAllocatedBytes() { return allocatedBytes; }
+        public synchronized long getUnitsBefore() { return unitsBefore; }
+        public synchronized long getUnitsAfter() { return unitsAfter; }
+        public synchronized Map<String, Long> getCounters() {
+            return new LinkedHashMap<String, Long>( counters );
+        }
+
+        synchronized void setCounter( String name, long value ) {
+            counters.put( name, value );
+        }
+
+        synchronized void addToCounter( String name, long delta ) {
+            Long old = counters.get( name );
+            counters.put( name, old == null ? delta : old + delta );
+        }
+
+        synchronized void writeJson( PrintWriter out ) {
+            out.print( "    { \"phase\": " + quote( phaseName ) );
+            out.print( ", \"applications\": " + applications );
+            out.print( ", \"bodies\": " + bodies );
+            out.print( ", \"wallNanos\": " + wallNanos );
+            out.print( ", \"cpuNanos\": " + cpuNanos );
+            out.print( ", \"allocatedBytes\": " + allocatedBytes );
+            out.print( ", \"unitsBefore\": " + unitsBefore );
+            out.print( ", \"unitsAfter\": " + unitsAfter );
+            out.print( ", \"counters\": {" );
+            boolean first = true;
+            for( Map.Entry<String, Long> e : counters.entrySet() ) {
+                out.print( first ? " " : ", " );
+                out.print( quote( e.getKey() ) + ": " + e.getValue() );
+                first = false;
+            }
+            out.print( first ? "} }" : " } }" );
+        }
+    }
+
+    /** Starts measuring an application of the given phase to b, or to the
+     * scene if b is null. Returns null if metrics are not being collected. */
+    public Sample start( String phaseName, Body b ) {
+        if( !isEnabled() )
+            return null;
+        return new Sample( phaseName, b );
+    }
+
+    /** Finishes the given measurement, adds it to the record of its phase
+     * and notifies the listeners. Does nothing if s is null. */
+    public void finish( Sample s ) {
+        if( s == null )
+            return;
+        s.finish();
+        getRecord( s.phaseName ).add( s );
+        for( PhaseMetricsListener l : listeners )
+            l.phaseApplied( s );
+    }
+
+    /** Sets a counter reported by the given phase. */
+    public void setCounter( String phaseName, String counter, long value ) {
+        if( isEnabled() )
+            getRecord( phaseName ).setCounter( counter, value );
+    }
+
+    /** Adds delta to a counter reported by the given phase. */
+    public void addToCounter( String phaseName, String counter, long delta ) {
+        if( isEnabled() )
+            getRecord( phaseName ).addToCounter( counter, delta );
+    }
+
+    /** Returns the record of the given phase, creating it if necessary. */
+    public PhaseRecord getRecord( String phaseName ) {
+        synchronized( records ) {
+            PhaseRecord ret = records.get( phaseName );
+            if( ret == null ) {
+                ret = new PhaseRecord( phaseName );
+                records.put( phaseName, ret );
+            }
+            return ret;
+        }
+    }
+
+    /** Returns the records of all phases, in the order in which they were
+     * first applied. */
+    public List<PhaseRecord> getRecords() {
+        synchronized( records ) {
+            return Collections.unmodifiableList( new ArrayList<PhaseRecord>( records.values() ) );
+        }
+    }
+
+    /** Writes the records of all phases as JSON. */
+    public void writeJson( Writer w ) {
+        PrintWriter out = new PrintWriter( w );
+        out.println( "{" );
+        out.println( "  \"phases\": [" );
+        List<PhaseRecord> recs = getRecords();
+        for( int i = 0; i < recs.size(); i++ ) {
+            recs.get( i ).writeJson( out );
+            out.println( i + 1 < recs.size() ? "," : "" );
+        }
+        out.println( "  ]" );
+        out.println( "}" );
+        out.flush();
+    }
+
+    /** Writes the records of all phases as JSON to the file given by the
+     * metrics-file option, if it is set. */
+    public void writeMetricsFile() {
+        String fileName = Options.v().metrics_file();
+        if( fileName.length() == 0 )
+            return;
+        try {
+            Writer w = new OutputStreamWriter( new FileOutputStream( new File( fileName ) ), "UTF-8" );
+            try {
+                writeJson( w );
+            } finally {
+                w.close();
+            }
+        } catch( IOException e ) {
+            throw new CompilationDeathException( "Cannot write metrics to " + fileName, e );
+        }
+        G.v().out.println( "Wrote phase metrics to " + fileName );
+    }
+
+    private static String quote( String s ) {
+        StringBuilder sb = new StringBuilder( "\"" );
+        for( int i = 0; i < s.length(); i++ ) {
+            char c = s.charAt( i );
+            if( c == '"' || c == '\\' )
+                sb.append( '\\' ).append( c );
+            else if( c < 0x20 )
+                sb.append( String.format( "\\u%04x", (int) c ) );
+            else
+                sb.append( c );
+        }
+        return sb.append( '"' ).toString();
+    }
+
+    /** Measures the CPU time and allocations of the current thread, where
+     * the JVM supports it. */
+    private static class ThreadMeter {
+        private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private static final boolean cpuSupported;
+        private static final boolean allocationSupported;
+        static {
+            boolean cpu = false;
+            try {
+                cpu = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+            } catch( UnsupportedOperationException e ) {
+                // not supported
+            }
+            cpuSupported = cpu;
+            boolean allocation = false;
+            try {
+                allocation = threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+            } catch( LinkageError e ) {
+                // not a HotSpot JVM
+            } catch( UnsupportedOperationException e ) {
+                // not supported
+            }
+            allocationSupported = allocation;
+        }
+
+        static long cpuTime() {
+            return cpuSupported ? threads.getCurrentThreadCpuTime() : -1;
+        }
+
+        static long allocatedBytes() {
+            if( !allocationSupported )
+                return -1;
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+                    Thread.currentThread().getId() );
+        }
+    }
+}
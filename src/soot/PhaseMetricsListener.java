@@ -0,0 +1,13 @@
+package soot;
+
+/**
+ * Receives a {@link PhaseMetrics.Sample} each time a phase has been applied
+ * to the scene or to a body. Listeners are registered with
+ * {@link PhaseMetrics#addListener(PhaseMetricsListener)}. When bodies are
+ * processed on several threads, samples are delivered on the thread that
+ * applied the phase, so implementations must be thread-safe.
+ */
+public interface PhaseMetricsListener
+{
+    public void phaseApplied( PhaseMetrics.Sample sample );
+}
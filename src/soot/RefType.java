@@ -52,7 +52,7 @@ public class RefType extends RefLikeType implements Comparable<RefType> {
 		return className;
 	}
 
-	private SootClass sootClass;
+	private volatile SootClass sootClass;
 	private AnySubType anySubType;
 
 	private RefType(String className) {
@@ -79,8 +79,13 @@ public class RefType extends RefLikeType implements Comparable<RefType> {
 	public static RefType v(String className) {
 		RefType rt = Scene.v().getRefTypeUnsafe(className);
 		if (rt == null) {
-			rt = new RefType(className);
-			Scene.v().addRefType(rt);
+			synchronized (Scene.v()) {
+				rt = Scene.v().getRefTypeUnsafe(className);
+				if (rt == null) {
+					rt = new RefType(className);
+					Scene.v().addRefType(rt);
+				}
+			}
 		}
 		return rt;
 	}
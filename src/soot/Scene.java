@@ -44,6 +44,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -134,7 +135,10 @@ public class Scene  //extends AbstractHost
     Chain<SootClass> libraryClasses = new HashChain<SootClass>();
     Chain<SootClass> phantomClasses = new HashChain<SootClass>();
     
-    private final Map<String,RefType> nameToClass = new HashMap<String,RefType>();
+    /** Read without locking, so that the resolver threads can look up types
+     * concurrently. Changes to the class chains and to this map are guarded
+     * by the Scene itself. */
+    private final Map<String,RefType> nameToClass = new ConcurrentHashMap<String,RefType>();
 
     final ArrayNumberer<Kind> kindNumberer;
     ArrayNumberer<Type> typeNumberer = new ArrayNumberer<Type>();
@@ -629,7 +633,7 @@ public class Scene  //extends AbstractHost
         activePointsToAnalysis = null;
     }
 
-    public void addClass(SootClass c) 
+    public synchronized void addClass(SootClass c) 
     {
         if(c.isInScene())
             throw new RuntimeException("already managed: "+c.getName());
@@ -650,7 +654,7 @@ public class Scene  //extends AbstractHost
         	modifyHierarchy();
     }
 
-    public void removeClass(SootClass c)
+    public synchronized void removeClass(SootClass c)
     {
         if(!c.isInScene())
             throw new RuntimeException();
@@ -909,10 +913,16 @@ public class Scene  //extends AbstractHost
 		
 		if (allowsPhantomRefs() ||
 				   className.equals(SootClass.INVOKEDYNAMIC_DUMMY_CLASS_NAME)) {
-			SootClass c = new SootClass(className);
-			addClass(c);
-            c.setPhantom(true);
-			return c;
+			synchronized (this) {
+				// Another thread may have created the class in the meantime
+				type = nameToClass.get(className);
+				if (type != null)
+					return type.getSootClass();
+				SootClass c = new SootClass(className);
+				addClass(c);
+				c.setPhantom(true);
+				return c;
+			}
 		}
 		
 		return null;
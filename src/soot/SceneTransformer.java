@@ -36,7 +36,13 @@ public abstract class SceneTransformer extends Transformer
         if (!PhaseOptions.getBoolean(options, "enabled"))
             return;
 
-        internalTransform(phaseName, options);
+        // Keeps the bodies handed out meanwhile from being released
+        BodyStore.v().enterScope();
+        try {
+            internalTransform(phaseName, options);
+        } finally {
+            BodyStore.v().exitScope();
+        }
     }
     public final void transform(String phaseName)
     {
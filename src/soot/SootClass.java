@@ -114,7 +114,7 @@ public class SootClass extends AbstractHost implements Numberable {
 	public final static int HIERARCHY = 1;
 	public final static int SIGNATURES = 2;
 	public final static int BODIES = 3;
-	private int resolvingLevel = DANGLING;
+	private volatile int resolvingLevel = DANGLING;
 
 	private String levelToString(int level) {
 		switch (level) {
@@ -997,14 +997,16 @@ public class SootClass extends AbstractHost implements Numberable {
 
 	/** Makes this class an application class. */
 	public void setApplicationClass() {
-		if (isApplicationClass())
-			return;
-		Chain<SootClass> c = Scene.v().getContainingChain(this);
-		if (c != null)
-			c.remove(this);
-		Scene.v().getApplicationClasses().add(this);
+		synchronized (Scene.v()) {
+			if (isApplicationClass())
+				return;
+			Chain<SootClass> c = Scene.v().getContainingChain(this);
+			if (c != null)
+				c.remove(this);
+			Scene.v().getApplicationClasses().add(this);
 
-		isPhantom = false;
+			isPhantom = false;
+		}
 	}
 
 	/**
@@ -1018,14 +1020,16 @@ public class SootClass extends AbstractHost implements Numberable {
 
 	/** Makes this class a library class. */
 	public void setLibraryClass() {
-		if (isLibraryClass())
-			return;
-		Chain<SootClass> c = Scene.v().getContainingChain(this);
-		if (c != null)
-			c.remove(this);
-		Scene.v().getLibraryClasses().add(this);
+		synchronized (Scene.v()) {
+			if (isLibraryClass())
+				return;
+			Chain<SootClass> c = Scene.v().getContainingChain(this);
+			if (c != null)
+				c.remove(this);
+			Scene.v().getLibraryClasses().add(this);
 
-		isPhantom = false;
+			isPhantom = false;
+		}
 	}
 
 	/**
@@ -1056,11 +1060,13 @@ public class SootClass extends AbstractHost implements Numberable {
 
 	/** Makes this class a phantom class. */
 	public void setPhantomClass() {
-		Chain<SootClass> c = Scene.v().getContainingChain(this);
-		if (c != null)
-			c.remove(this);
-		Scene.v().getPhantomClasses().add(this);
-		isPhantom = true;
+		synchronized (Scene.v()) {
+			Chain<SootClass> c = Scene.v().getContainingChain(this);
+			if (c != null)
+				c.remove(this);
+			Scene.v().getPhantomClasses().add(this);
+			isPhantom = true;
+		}
 	}
 
 	/** Convenience method returning true if this class is phantom. */
@@ -294,12 +294,16 @@ public class SootMethod
             throw new RuntimeException(
                 "cannot get active body for phantom class: " + getSignature());
 
+        Body b = activeBody;
+        if (BodyStore.v().isEnabled())
+            b = BodyStore.v().getBody(this);
+
 		// ignore empty body exceptions if we are just computing coffi metrics
-        if (!soot.jbco.Main.metrics && !hasActiveBody())
+        if (!soot.jbco.Main.metrics && b == null)
             throw new RuntimeException(
                 "no active body present for method " + getSignature());
 
-        return activeBody;
+        return b;
     }
 
     /**
@@ -348,17 +352,38 @@ public class SootMethod
         if (body!= null && body.getMethod() != this)
             body.setMethod(this);
 
-        activeBody = body;
+        if (BodyStore.v().isEnabled())
+            BodyStore.v().setBody(this, body);
+        else
+            activeBody = body;
     }
 
     /** Returns true if this method has an active body. */
     public boolean hasActiveBody() {
-        return activeBody != null;
+        return activeBody != null
+            || (BodyStore.v().isEnabled() && BodyStore.v().isReleased(this));
     }
 
     /** Releases the active body associated with this method. */
     public void releaseActiveBody() {
-        activeBody = null;
+        // The body may still be referenced elsewhere
+        if (activeBody != null)
+            activeBody.analysisCache = null;
+        if (BodyStore.v().isEnabled())
+            BodyStore.v().setBody(this, null);
+        else
+            activeBody = null;
+    }
+
+    /** Returns the active body if it is held in memory, without asking the
+     * {@link BodyStore}. */
+    Body getResidentBody() {
+        return activeBody;
+    }
+
+    /** Sets the active body without informing the {@link BodyStore}. */
+    void setResidentBody(Body body) {
+        activeBody = body;
     }
 
     /** Adds the given exception to the list of exceptions thrown by this method
@@ -26,15 +26,24 @@
 
 package soot;
 
+import heros.solver.CountingThreadPoolExecutor;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import soot.JastAddJ.BytecodeParser;
 import soot.JastAddJ.CompilationUnit;
@@ -47,12 +56,13 @@ import soot.options.Options;
 /** Loads symbols for SootClasses from either class files or jimple files. */
 public class SootResolver {
 	/** Maps each resolved class to a list of all references in it. */
-	private final Map<SootClass, Collection<Type>> classToTypesSignature = new HashMap<SootClass, Collection<Type>>();
+	private final Map<SootClass, Collection<Type>> classToTypesSignature = new ConcurrentHashMap<SootClass, Collection<Type>>();
 
 	/** Maps each resolved class to a list of all references in it. */
-	private final Map<SootClass, Collection<Type>> classToTypesHierarchy = new HashMap<SootClass, Collection<Type>>();
+	private final Map<SootClass, Collection<Type>> classToTypesHierarchy = new ConcurrentHashMap<SootClass, Collection<Type>>();
 
-	/** SootClasses waiting to be resolved. */
+	/** SootClasses waiting to be resolved. Guarded by the array itself, since
+	 * classes may be added by several threads in parallel resolution mode. */
 	@SuppressWarnings("unchecked")
 	private final Deque<SootClass>[] worklist = new Deque[4];
 
@@ -110,15 +120,17 @@ public class SootResolver {
 		// If this class name is escaped, we need to un-escape it
 		className = Scene.v().unescapeName(className);
 		
-		if (Scene.v().containsClass(className))
-			return Scene.v().getSootClass(className);
-
-		SootClass newClass;
-		newClass = new SootClass(className);
-		newClass.setResolvingLevel(SootClass.DANGLING);
-		Scene.v().addClass(newClass);
-
-		return newClass;
+		synchronized (Scene.v()) {
+			if (Scene.v().containsClass(className))
+				return Scene.v().getSootClass(className);
+	
+			SootClass newClass;
+			newClass = new SootClass(className);
+			newClass.setResolvingLevel(SootClass.DANGLING);
+			Scene.v().addClass(newClass);
+	
+			return newClass;
+		}
 	}
 
 	/**
@@ -145,39 +157,141 @@ public class SootResolver {
 
 	/** Resolve all classes on toResolveWorklist. */
 	private void processResolveWorklist() {
+		if (Options.v().parallel_resolver()) {
+			processResolveWorklistInParallel();
+			return;
+		}
 		for (int i = SootClass.BODIES; i >= SootClass.HIERARCHY; i--) {
 			while (!worklist[i].isEmpty()) {
 				SootClass sc = worklist[i].pop();
-				if (resolveEverything()) { // Whole program mode
-					boolean onlySignatures = sc.isPhantom()
-							|| (Options.v().no_bodies_for_excluded()
-									&& Scene.v().isExcluded(sc) && !Scene.v()
-									.getBasicClasses().contains(sc.getName()));
-					if (onlySignatures) {
-						bringToSignatures(sc);
-						sc.setPhantomClass();
-						for (SootMethod m : sc.getMethods()) {
-							m.setPhantom(true);
-						}
-						for (SootField f : sc.getFields()) {
-							f.setPhantom(true);
-						}
-					} else
-						bringToBodies(sc);
-				} else { // No transitive
-					switch (i) {
-					case SootClass.BODIES:
-						bringToBodies(sc);
-						break;
-					case SootClass.SIGNATURES:
-						bringToSignatures(sc);
-						break;
-					case SootClass.HIERARCHY:
-						bringToHierarchy(sc);
-						break;
+				resolve(sc, i);
+			}
+		}
+	}
+
+	/**
+	 * Resolves all classes on the worklist in rounds. Each round takes all
+	 * classes off the worklist, brings those that have not been read yet to
+	 * HIERARCHY on a pool of threads, and then raises all of them to their
+	 * desired levels in the calling thread. Reading the class sources is the
+	 * expensive part; the rest only queues further classes for the next
+	 * round.
+	 */
+	private void processResolveWorklistInParallel() {
+		while (true) {
+			List<List<SootClass>> round = new ArrayList<List<SootClass>>();
+			Set<SootClass> unread = new LinkedHashSet<SootClass>();
+			boolean empty = true;
+			synchronized (worklist) {
+				for (int i = SootClass.HIERARCHY; i <= SootClass.BODIES; i++) {
+					List<SootClass> classes = new ArrayList<SootClass>(worklist[i]);
+					worklist[i].clear();
+					round.add(classes);
+					for (SootClass sc : classes) {
+						empty = false;
+						if (sc.resolvingLevel() < SootClass.HIERARCHY)
+							unread.add(sc);
 					}
 				}
 			}
+			if (empty)
+				return;
+
+			bringToHierarchyInParallel(unread);
+			for (int i = SootClass.BODIES; i >= SootClass.HIERARCHY; i--) {
+				for (SootClass sc : round.get(i - SootClass.HIERARCHY))
+					resolve(sc, i);
+			}
+		}
+	}
+
+	/**
+	 * Brings the given classes to HIERARCHY, reading all class sources that
+	 * support it concurrently. Classes whose source is not thread-safe, and
+	 * classes for which no source can be found, are done afterwards in the
+	 * calling thread and in the given order.
+	 */
+	private void bringToHierarchyInParallel(Collection<SootClass> classes) {
+		if (classes.size() <= 1) {
+			for (SootClass sc : classes)
+				bringToHierarchy(sc);
+			return;
+		}
+
+		final Set<SootClass> deferred = Collections
+				.newSetFromMap(new ConcurrentHashMap<SootClass, Boolean>());
+		int threadNum = Math.min(PackManager.v().getNumThreads(), classes.size());
+		CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor(
+				threadNum, threadNum, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		for (final SootClass sc : classes) {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					ClassSource is = SourceLocator.v().getClassSource(sc.getName());
+					if (is == null || !is.isThreadSafe()) {
+						if (is != null)
+							is.close();
+						deferred.add(sc);
+						return;
+					}
+					bringToHierarchy(sc, is);
+				}
+
+			});
+		}
+
+		// Wait till all classes have been read
+		try {
+			executor.awaitCompletion();
+			executor.shutdown();
+		} catch (InterruptedException e) {
+			// Something went horribly wrong
+			throw new RuntimeException("Could not wait for resolver threads to "
+					+ "finish: " + e.getMessage(), e);
+		}
+
+		// If something went wrong, we tell the world
+		if (executor.getException() != null)
+			throw (RuntimeException) executor.getException();
+
+		for (SootClass sc : classes) {
+			if (deferred.contains(sc))
+				bringToHierarchy(sc);
+		}
+	}
+
+	/** Brings sc to the given level, or further in whole-program mode. */
+	private void resolve(SootClass sc, int level) {
+		if (resolveEverything()) { // Whole program mode
+			boolean onlySignatures = sc.isPhantom()
+					|| (Options.v().no_bodies_for_excluded()
+							&& Scene.v().isExcluded(sc) && !Scene.v()
+							.getBasicClasses().contains(sc.getName()));
+			if (onlySignatures) {
+				bringToSignatures(sc);
+				sc.setPhantomClass();
+				for (SootMethod m : sc.getMethods()) {
+					m.setPhantom(true);
+				}
+				for (SootField f : sc.getFields()) {
+					f.setPhantom(true);
+				}
+			} else
+				bringToBodies(sc);
+		} else { // No transitive
+			switch (level) {
+			case SootClass.BODIES:
+				bringToBodies(sc);
+				break;
+			case SootClass.SIGNATURES:
+				bringToSignatures(sc);
+				break;
+			case SootClass.HIERARCHY:
+				bringToHierarchy(sc);
+				break;
+			}
 		}
 	}
 
@@ -194,7 +308,9 @@ public class SootResolver {
 	private void addToResolveWorklist(SootClass sc, int desiredLevel) {
 		if (sc.resolvingLevel() >= desiredLevel)
 			return;
-		worklist[desiredLevel].add(sc);
+		synchronized (worklist) {
+			worklist[desiredLevel].add(sc);
+		}
 	}
 
 	/**
@@ -204,12 +320,22 @@ public class SootResolver {
 	private void bringToHierarchy(SootClass sc) {
 		if (sc.resolvingLevel() >= SootClass.HIERARCHY)
 			return;
+		bringToHierarchy(sc, SourceLocator.v().getClassSource(sc.getName()));
+	}
+
+	/** Brings sc to HIERARCHY using the given source, which may be null if
+	 * there is none. Closes the source when done. */
+	private void bringToHierarchy(SootClass sc, ClassSource is) {
+		if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+			if (is != null)
+				is.close();
+			return;
+		}
 		if (Options.v().debug_resolver())
 			G.v().out.println("bringing to HIERARCHY: " + sc);
 		sc.setResolvingLevel(SootClass.HIERARCHY);
 
 		String className = sc.getName();
-		ClassSource is = SourceLocator.v().getClassSource(className);
 		try {
 			boolean modelAsPhantomRef = is == null;
 			// || (
@@ -356,6 +482,87 @@ public class SootResolver {
 		reResolve(cl, SootClass.HIERARCHY);
 	}
 
+	/**
+	 * Reads the given classes again from the soot-class-path and gives their
+	 * methods the new method sources, releasing their active bodies, so that
+	 * the next call to {@link SootMethod#retrieveActiveBody()} returns the new
+	 * body. Only changes to method bodies are supported: if the modifiers,
+	 * supertypes, fields or methods of any of the classes have changed, a
+	 * RuntimeException is thrown and none of the classes is changed. Types
+	 * that are only referred to by the new bodies are brought to the level
+	 * they would have been brought to by resolving the classes to BODIES.
+	 *
+	 * @return the methods whose sources were replaced
+	 */
+	public List<SootMethod> reloadMethodSources(Collection<SootClass> classes) {
+		List<SootClass> copies = new ArrayList<SootClass>(classes.size());
+		List<Dependencies> dependencies = new ArrayList<Dependencies>(classes.size());
+		for (SootClass sc : classes) {
+			if (sc.isPhantom() || sc.resolvingLevel() < SootClass.BODIES)
+				throw new RuntimeException("Cannot reload " + sc
+						+ " since it has not been resolved to BODIES");
+			ClassSource is = SourceLocator.v().getClassSource(sc.getName());
+			if (is == null)
+				throw new SootClassNotFoundException("couldn't find class: " + sc.getName());
+			// The copy is never added to the Scene, but its constructor makes
+			// it the class of the type
+			SootClass copy = new SootClass(sc.getName());
+			try {
+				dependencies.add(is.resolve(copy));
+			} finally {
+				is.close();
+				sc.getType().setSootClass(sc);
+			}
+			if (!membersOf(sc).equals(membersOf(copy)))
+				throw new RuntimeException("The members of " + sc
+						+ " have changed; it cannot be reloaded");
+			copies.add(copy);
+		}
+
+		List<SootMethod> ret = new ArrayList<SootMethod>();
+		int i = 0;
+		for (SootClass sc : classes) {
+			SootClass copy = copies.get(i);
+			Dependencies deps = dependencies.get(i++);
+			for (SootMethod m : sc.getMethods()) {
+				MethodSource ms = copy.getMethod(m.getSubSignature()).getSource();
+				if (ms == null)
+					continue;
+				if (m.hasActiveBody())
+					m.releaseActiveBody();
+				m.setSource(ms);
+				ret.add(m);
+			}
+			for (Type t : deps.typesToHierarchy)
+				forceResolve(t, SootClass.HIERARCHY);
+			for (Type t : deps.typesToSignature)
+				forceResolve(t, SootClass.SIGNATURES);
+		}
+		return ret;
+	}
+
+	private void forceResolve(Type t, int level) {
+		if (t instanceof ArrayType)
+			t = ((ArrayType) t).baseType;
+		if (t instanceof RefType && ((RefType) t).getSootClass().resolvingLevel() < level)
+			Scene.v().forceResolve(((RefType) t).getClassName(), level);
+	}
+
+	/** Returns a description of the modifiers, supertypes and members of sc. */
+	private static Set<String> membersOf(SootClass sc) {
+		Set<String> ret = new HashSet<String>();
+		ret.add("class " + sc.getModifiers());
+		if (sc.hasSuperclass())
+			ret.add("extends " + sc.getSuperclass().getName());
+		for (SootClass iface : sc.getInterfaces())
+			ret.add("implements " + iface.getName());
+		for (SootField f : sc.getFields())
+			ret.add(f.getModifiers() + " " + f.getSignature());
+		for (SootMethod m : sc.getMethods())
+			ret.add(m.getModifiers() + " " + m.getSignature());
+		return ret;
+	}
+
 	public Program getProgram() {
 		return program;
 	}
@@ -38,6 +38,7 @@ import java.util.zip.ZipFile;
 
 import soot.JavaClassProvider.JarException;
 import soot.asm.AsmClassProvider;
+import soot.dexpler.DexResolver;
 import soot.options.Options;
 
 /** Provides utility methods to retrieve an input stream for a class name, given
@@ -55,20 +56,25 @@ public class SourceLocator
     /** Given a class name, uses the soot-class-path to return a ClassSource for the given class. */
 	public ClassSource getClassSource(String className) 
     {
-		if(classesToLoad==null) {
-			classesToLoad = new HashSet<String>();
-			classesToLoad.addAll(Scene.v().getBasicClasses());
-			for(SootClass c: Scene.v().getApplicationClasses()) {
-				classesToLoad.add(c.getName());
+		List<ClassProvider> classProviders;
+		// The resolver may look up classes from several threads at once
+		synchronized(this) {
+			if(classesToLoad==null) {
+				classesToLoad = new HashSet<String>();
+				classesToLoad.addAll(Scene.v().getBasicClasses());
+				for(SootClass c: Scene.v().getApplicationClasses()) {
+					classesToLoad.add(c.getName());
+				}
 			}
+	    	
+	        if( classPath == null ) {
+	            classPath = explodeClassPath(Scene.v().getSootClassPath());
+	        }
+	        if( this.classProviders == null ) {
+	            setupClassProviders();
+	        }
+	        classProviders = this.classProviders;
 		}
-    	
-        if( classPath == null ) {
-            classPath = explodeClassPath(Scene.v().getSootClassPath());
-        }
-        if( classProviders == null ) {
-            setupClassProviders();
-        }
         JarException ex = null;
         for (ClassProvider cp : classProviders) {
             try {
@@ -153,15 +159,19 @@ public class SourceLocator
     }
 
 	private List<ClassProvider> classProviders;
-    public void setClassProviders( List<ClassProvider> classProviders ) {
+    public synchronized void setClassProviders( List<ClassProvider> classProviders ) {
         this.classProviders = classProviders;
     }
 
     private List<String> classPath;
     public List<String> classPath() { return classPath; }
-    public void invalidateClassPath() {
+    public synchronized void invalidateClassPath() {
         classPath = null;
         dexClassIndex = null;
+        if( classPathIndex != null ) {
+            classPathIndex.close();
+            classPathIndex = null;
+        }
     }
 
     private List<String> sourcePath;
@@ -205,15 +215,7 @@ public class SourceLocator
 		// Get the dex file from an apk
 		if (cst == ClassSourceType.apk) {
 			try {
-				ZipFile archive = new ZipFile(aPath);
-				for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
-					ZipEntry entry = entries.nextElement();
-					String entryName = entry.getName();
-					// We are dealing with an apk file
-					if (entryName.endsWith(".dex"))
-						classes.addAll(DexClassProvider.classesOfDex(new File(aPath)));
-				}
-				archive.close();			
+				classes.addAll(DexResolver.v().classesOf(new File(aPath)));
 			} catch (IOException e) {
 				G.v().out.println("Error reading " + aPath + ": " + e.toString());
 				throw new CompilationDeathException(CompilationDeathException.COMPILATION_ABORTED);
@@ -222,7 +224,7 @@ public class SourceLocator
 		// Directly load a dex file
 		else if (cst == ClassSourceType.dex) {
 			try {
-				classes.addAll(DexClassProvider.classesOfDex(new File(aPath)));
+				classes.addAll(DexResolver.v().classesOf(new File(aPath)));
 			} catch (IOException e) {
 				G.v().out.println("Error reading " + aPath + ": " + e.toString());
 				throw new CompilationDeathException(CompilationDeathException.COMPILATION_ABORTED);
@@ -291,7 +293,7 @@ public class SourceLocator
 					}
 					if (fileName.endsWith(".dex")) {
 						try {
-							classes.addAll(DexClassProvider.classesOfDex(element));
+							classes.addAll(DexResolver.v().classesOf(element));
 						} catch (IOException e) { /* Ignore unreadable files */
 						}
 					}
@@ -544,19 +546,83 @@ public class SourceLocator
 
     /** Searches for a file with the given name in the exploded classPath. */
     public FoundFile lookupInClassPath( String fileName ) {
-        for (String dir : classPath) {
-            FoundFile ret = null;
+        ClassPathIndex index = classPathIndex();
+        // Archives are looked up in the index. Directories are not indexed,
+        // since they may change, so we only have to check those that come
+        // before the first archive containing the file.
+        Integer archive = index.fileToArchive.get(fileName);
+        int end = archive == null ? index.archives.length : archive.intValue();
+        for (int i = 0; i < end; i++) {
+            if( !index.isDirectory[i] ) continue;
+            FoundFile ret = lookupInDir(classPath.get(i), fileName);
+            if( ret != null )
+                return ret;
+        }
+        if( archive == null )
+            return null;
+        ZipFile zipFile = index.archives[end];
+        return new FoundFile(zipFile, zipFile.getEntry(fileName));
+    }
+
+    /** An index of the archives on the class path, mapping the name of each
+     * file in them to the position of the first archive that contains it.
+     * The archives are opened once and kept open. */
+    private static class ClassPathIndex {
+        final Map<String, Integer> fileToArchive = new HashMap<String, Integer>();
+        /** The open archive at each position of the class path, or null if
+         * the entry is not an archive. */
+        final ZipFile[] archives;
+        final boolean[] isDirectory;
+
+        ClassPathIndex( int size ) {
+            archives = new ZipFile[size];
+            isDirectory = new boolean[size];
+        }
+
+        void close() {
+            for (ZipFile archive : archives) {
+                if( archive == null ) continue;
+                try {
+                    archive.close();
+                } catch( IOException e ) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private ClassPathIndex classPathIndex;
+
+    private synchronized ClassPathIndex classPathIndex() {
+        if( classPathIndex != null )
+            return classPathIndex;
+        ClassPathIndex index = new ClassPathIndex(classPath.size());
+        for (int i = 0; i < classPath.size(); i++) {
+            String dir = classPath.get(i);
             ClassSourceType cst = getClassSourceType(dir);
             if(cst == ClassSourceType.zip || cst == ClassSourceType.jar) {
-                ret = lookupInArchive(dir, fileName);
+                ZipFile archive;
+                try {
+                    archive = new ZipFile(dir);
+                } catch( IOException e ) {
+                    index.close();
+                    throw new RuntimeException("Caught IOException " + e + " opening archive file " + dir);
+                }
+                index.archives[i] = archive;
+                Integer pos = Integer.valueOf(i);
+                for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
+                    ZipEntry entry = entries.nextElement();
+                    if( entry.isDirectory() || index.fileToArchive.containsKey(entry.getName()) )
+                        continue;
+                    index.fileToArchive.put(entry.getName(), pos);
+                }
             }
             else if (cst == ClassSourceType.directory) {
-                ret = lookupInDir(dir, fileName);
+                index.isDirectory[i] = true;
             }
-            if( ret != null )
-            	return ret;
         }
-        return null;
+        classPathIndex = index;
+        return index;
     }
     private FoundFile lookupInDir(String dir, String fileName) {
         File f = new File( dir+File.separatorChar+fileName );
@@ -565,19 +631,6 @@ public class SourceLocator
         }
         return null;
     }
-    private FoundFile lookupInArchive(String archivePath, String fileName) {
-        try {
-            ZipFile archive = new ZipFile(archivePath);
-            ZipEntry entry = archive.getEntry(fileName);
-            if( entry == null ) {
-            	archive.close();
-            	return null;
-            }
-            return new FoundFile(archive, entry);
-        } catch( IOException e ) {
-            throw new RuntimeException("Caught IOException " + e + " looking in archive file " + archivePath + " for file " + fileName);
-        }
-    }
     private HashMap<String, String> sourceToClassMap;
 
     public HashMap<String, String> getSourceToClassMap(){
@@ -79,30 +79,36 @@ public class Transform implements HasPhaseOptions
 
     public void apply() {
         Map<String, String> options = PhaseOptions.v().getPhaseOptions( phaseName );
+        PhaseMetrics.Sample sample = null;
         if( PhaseOptions.getBoolean( options, "enabled" ) ) {
             if( Options.v().verbose()  ) {
                 G.v().out.println( "Applying phase "+phaseName+" to the scene." );
             }
+            sample = PhaseMetrics.v().start( phaseName, null );
         }
 	if (DEBUG)
 	    PhaseDumper.v().dumpBefore(getPhaseName());
 
         ((SceneTransformer) t).transform( phaseName, options );
+        PhaseMetrics.v().finish( sample );
 
 	if (DEBUG)
 	    PhaseDumper.v().dumpAfter(getPhaseName());
     }
     public void apply(Body b) {
         Map<String, String> options = PhaseOptions.v().getPhaseOptions( phaseName );
+        PhaseMetrics.Sample sample = null;
         if( PhaseOptions.getBoolean( options, "enabled" ) ) {
             if( Options.v().verbose() ) {
                 G.v().out.println( "Applying phase "+phaseName+" to "+b.getMethod()+"." );
             }
+            sample = PhaseMetrics.v().start( phaseName, b );
         }
 	if (DEBUG)
 	    PhaseDumper.v().dumpBefore(b, getPhaseName());
 
         ((BodyTransformer) t).transform( b, phaseName, options );
+        PhaseMetrics.v().finish( sample );
 
 	if (DEBUG)
 	    PhaseDumper.v().dumpAfter(b, getPhaseName());
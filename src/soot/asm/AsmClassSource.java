@@ -23,8 +23,10 @@ import java.io.InputStream;
 
 import org.objectweb.asm.ClassReader;
 
+import soot.BodyCache;
 import soot.ClassSource;
 import soot.SootClass;
+import soot.SootMethod;
 import soot.javaToJimple.IInitialResolver.Dependencies;
 
 /**
@@ -68,11 +70,23 @@ class AsmClassSource extends ClassSource {
 		}
 		SootClassBuilder scb = new SootClassBuilder(sc);
 		clsr.accept(scb, ClassReader.SKIP_FRAMES);
+		if (BodyCache.v().isEnabled()) {
+			String hash = BodyCache.hash(clsr.b);
+			for (SootMethod m : sc.getMethods()) {
+				if (m.getSource() != null)
+					m.setSource(BodyCache.v().cachingSource(m.getSource(), hash));
+			}
+		}
 		Dependencies deps = new Dependencies();
 		deps.typesToSignature.addAll(scb.deps);
 		return deps;
 	}
 
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 	@Override
 	public void close() {
 		try {
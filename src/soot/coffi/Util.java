@@ -446,8 +446,6 @@ public class Util
         return types[types.length - 1];
     }
 
-    private final ArrayList<Type> conversionTypes = new ArrayList<Type>();
-    
     /*
     private Map cache = new HashMap();
     public Type[] jimpleTypesOfFieldOrMethodDescriptor(String descriptor)
@@ -557,14 +555,16 @@ public class Util
 */
 
 
-    private final Map<String, Type[]> cache = new HashMap<String, Type[]>();
+    /** Also used by the ASM front end, which may convert several bodies
+     * concurrently. */
+    private final Map<String, Type[]> cache = new java.util.concurrent.ConcurrentHashMap<String, Type[]>();
     public Type[] jimpleTypesOfFieldOrMethodDescriptor(String descriptor)
     {
         Type[] ret = cache.get(descriptor);
         if( ret != null ) return ret;
         char[] d = descriptor.toCharArray();
         int p = 0;
-        conversionTypes.clear();
+        List<Type> conversionTypes = new ArrayList<Type>();
 
 outer:
         while(p<d.length)
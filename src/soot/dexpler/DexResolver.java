@@ -24,18 +24,34 @@
 
 package soot.dexpler;
 
+import heros.solver.CountingThreadPoolExecutor;
+
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
+import org.jf.dexlib2.iface.ClassDef;
 
 import soot.G;
+import soot.PackManager;
 import soot.Singletons;
 import soot.SootClass;
 import soot.javaToJimple.IInitialResolver.Dependencies;
 
 public class DexResolver {
 
-	private Map<File,DexlibWrapper> cache = new TreeMap<File, DexlibWrapper>();
+	/** The dex and apk files read so far. Each file is read only once and
+	 * shared by the class index of the {@link soot.DexClassProvider} and
+	 * the resolution of its classes. */
+	private final Map<File,DexlibWrapper> cache = new TreeMap<File, DexlibWrapper>();
 
     public DexResolver(Singletons.Global g) {}
 
@@ -50,12 +66,15 @@ public class DexResolver {
      * @return the dependencies of this class.
      */
     public Dependencies resolveFromFile(File file, String className, SootClass sc) {
-    	DexlibWrapper wrapper = cache.get(file);
-    	if(wrapper==null) {
-    		wrapper = new DexlibWrapper(file);
-    		cache.put(file, wrapper);
-    		wrapper.initialize();
+    	DexlibWrapper wrapper;
+    	synchronized (this) {
+	    	wrapper = cache.get(file);
+	    	if(wrapper==null) {
+	    		wrapper = new DexlibWrapper(file);
+	    		cache.put(file, wrapper);
+	    	}
     	}
+    	wrapper.initialize();
 
         Dependencies deps = wrapper.makeSootClass(sc, className);
         addSourceFileTag(sc, "dalvik_source_" + file.getName());
@@ -63,6 +82,133 @@ public class DexResolver {
         return deps;
     }
 
+    /**
+     * Returns the names of the classes defined in the given dex or apk
+     * file, reading it if it has not been read yet.
+     */
+    public Set<String> classesOf(File file) throws IOException {
+    	IOException failure = read(Collections.singletonList(file))[0];
+    	if (failure != null)
+    		throw failure;
+    	synchronized (this) {
+    		return cache.get(file).getClassNames();
+    	}
+    }
+
+    /**
+     * Reads all given dex and apk files that have not been read yet, using
+     * the number of threads given by the num-threads option. The dex files
+     * of a multidex apk are read and indexed concurrently as well. Only the
+     * dex files are parsed and their classes indexed; classes are still resolved one
+     * at a time when {@link #resolveFromFile(File, String, SootClass)} is
+     * called. Returns the exception that occurred while reading each file,
+     * or null for the files that could be read.
+     */
+    public IOException[] read(List<File> files) {
+    	final IOException[] failures = new IOException[files.size()];
+    	final List<File> containers = new ArrayList<File>();
+    	final List<String> entries = new ArrayList<String>();
+    	final List<Integer> owners = new ArrayList<Integer>();
+    	boolean[] known = new boolean[files.size()];
+    	for (int i = 0; i < files.size(); i++) {
+    		File file = files.get(i);
+    		synchronized (this) {
+    			known[i] = cache.containsKey(file);
+    		}
+    		if (known[i])
+    			continue;
+    		try {
+    			for (String entryName : DexlibWrapper.dexEntries(file)) {
+    				containers.add(file);
+    				entries.add(entryName);
+    				owners.add(i);
+    			}
+    		} catch (IOException e) {
+    			failures[i] = e;
+    		}
+    	}
+
+    	final DexBackedDexFile[] dexFiles = new DexBackedDexFile[containers.size()];
+    	@SuppressWarnings("unchecked")
+    	final Map<String, ClassDef>[] classes = new Map[containers.size()];
+    	final IOException[] entryFailures = new IOException[containers.size()];
+    	int threadNum = Math.min(PackManager.v().getNumThreads(), dexFiles.length);
+    	if (threadNum <= 1) {
+    		for (int i = 0; i < dexFiles.length; i++) {
+    			entryFailures[i] = readEntry(containers, entries, dexFiles, classes, i);
+    		}
+    	} else {
+    		CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor(threadNum,
+    				threadNum, 30, TimeUnit.SECONDS,
+    				new LinkedBlockingQueue<Runnable>());
+    		try {
+    			for (int i = 0; i < dexFiles.length; i++) {
+    				final int index = i;
+    				executor.execute(new Runnable() {
+    					@Override
+    					public void run() {
+    						entryFailures[index] = readEntry(containers, entries, dexFiles, classes, index);
+    					}
+    				});
+    			}
+    			executor.awaitCompletion();
+    			if (executor.getException() != null)
+    				throw (RuntimeException) executor.getException();
+    		} catch (InterruptedException e) {
+    			throw new RuntimeException("Could not wait for dex reader threads to "
+    					+ "finish: " + e.getMessage(), e);
+    		} finally {
+    			executor.shutdown();
+    		}
+    	}
+
+    	// Group the dex files by container, keeping the order of the entries
+    	List<List<DexBackedDexFile>> read = new ArrayList<List<DexBackedDexFile>>();
+    	List<List<Map<String, ClassDef>>> indexed = new ArrayList<List<Map<String, ClassDef>>>();
+    	for (int i = 0; i < files.size(); i++) {
+    		read.add(new ArrayList<DexBackedDexFile>());
+    		indexed.add(new ArrayList<Map<String, ClassDef>>());
+    	}
+    	for (int i = 0; i < dexFiles.length; i++) {
+    		int owner = owners.get(i);
+    		if (entryFailures[i] != null)
+    			failures[owner] = entryFailures[i];
+    		else {
+    			read.get(owner).add(dexFiles[i]);
+    			indexed.get(owner).add(classes[i]);
+    		}
+    	}
+    	// The indexes are merged outside of the lock
+    	Map<File, DexlibWrapper> wrappers = new TreeMap<File, DexlibWrapper>();
+    	for (int i = 0; i < files.size(); i++) {
+    		if (failures[i] == null && !known[i])
+    			wrappers.put(files.get(i), new DexlibWrapper(files.get(i), read.get(i), indexed.get(i)));
+    	}
+    	synchronized (this) {
+    		for (Map.Entry<File, DexlibWrapper> e : wrappers.entrySet()) {
+    			if (!cache.containsKey(e.getKey()))
+    				cache.put(e.getKey(), e.getValue());
+    		}
+    	}
+    	return failures;
+    }
+
+    /** Reads the i-th dex file into dexFiles and its classes into classes.
+     * Returns the exception that occurred, if any. */
+    private static IOException readEntry(List<File> containers, List<String> entries,
+    		DexBackedDexFile[] dexFiles, Map<String, ClassDef>[] classes, int i) {
+    	try {
+    		dexFiles[i] = DexlibWrapper.readDexFile(containers.get(i), entries.get(i));
+    		classes[i] = DexlibWrapper.indexClasses(dexFiles[i]);
+    		return null;
+    	} catch (IOException e) {
+    		return e;
+    	} catch (RuntimeException e) {
+    		// Broken dex files are reported like unreadable ones
+    		return new IOException(e);
+    	}
+    }
+
     /**
      *  adds source file tag to each sootclass
      */
@@ -25,6 +25,7 @@
 package soot.dexpler;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -76,9 +77,14 @@ public class DexlibWrapper {
 				.unmodifiableSet(systemAnnotationNamesModifiable);
 	}
 
-	private List<DexFile> dexFiles;
+	private final List<DexBackedDexFile> dexFiles;
 	private final DexClassLoader dexLoader = new DexClassLoader();
 	private final Map<String, ClassDef> classesToDefItems = new HashMap<String, ClassDef>();
+	/** The dex file defining each class, which matters for multidex apks. */
+	private final Map<String, DexFile> classesToDexFiles = new HashMap<String, DexFile>();
+	/** Whether the dex files have been read and their classes indexed. */
+	private boolean read = false;
+	private boolean initialized = false;
 	
 	private final static Set<String> systemAnnotationNames;
 
@@ -94,39 +100,106 @@ public class DexlibWrapper {
 
 	public DexlibWrapper(File inputDexFile) {
 		this.inputDexFile = inputDexFile;
-		this.dexFiles = new ArrayList<DexFile>();
+		this.dexFiles = new ArrayList<DexBackedDexFile>();
 	}
 
-	public void initialize() {
-		try {
-			int api = 1; // TODO:
-			if(Options.v().process_multiple_dex() && inputDexFile.getName().endsWith(".apk")){
-	            ZipFile archive = new ZipFile(inputDexFile);
+	/**
+	 * Construct a DexlibWrapper for dex files that have already been read
+	 * from the given file, in the order of {@link #dexEntries(File)}, with
+	 * the classes of each as returned by {@link #indexClasses(DexFile)}.
+	 */
+	DexlibWrapper(File inputDexFile, List<DexBackedDexFile> dexFiles, List<Map<String, ClassDef>> classes) {
+		this.inputDexFile = inputDexFile;
+		this.dexFiles = new ArrayList<DexBackedDexFile>(dexFiles);
+		for (int i = 0; i < dexFiles.size(); i++)
+			addClasses(dexFiles.get(i), classes.get(i));
+		read = true;
+	}
+
+	/**
+	 * Returns the names of the dex files to read from the given file: all
+	 * dex entries of an apk if multiple dex files are processed, or a list
+	 * holding only null if the file is read as a single dex file.
+	 */
+	static List<String> dexEntries(File file) throws IOException {
+		List<String> ret = new ArrayList<String>();
+		if (Options.v().process_multiple_dex() && file.getName().endsWith(".apk")) {
+			ZipFile archive = new ZipFile(file);
+			try {
 				for (Enumeration<? extends ZipEntry> entries = archive.entries(); entries.hasMoreElements();) {
-					ZipEntry entry = entries.nextElement();
-					String entryName = entry.getName();
+					String entryName = entries.nextElement().getName();
 					// We are dealing with an apk file
-					if (entryName.endsWith(".dex")){
-						this.dexFiles.add(DexFileFactory.loadDexFile(inputDexFile, entryName, api, false));
-					}
+					if (entryName.endsWith(".dex"))
+						ret.add(entryName);
 				}
+			} finally {
 				archive.close();
-        	}
-        	else{
-        		this.dexFiles.add(DexFileFactory.loadDexFile(inputDexFile, api, false));
-        	}
-		} catch (Exception e) {
-			throw new RuntimeException(e.toString());
+			}
+		} else {
+			ret.add(null);
 		}
+		return ret;
+	}
 
-		for(DexFile dexFile: this.dexFiles){
-			for (ClassDef defItem : dexFile.getClasses()) {
-				String forClassName = Util.dottedClassName(defItem.getType());
-				classesToDefItems.put(forClassName, defItem);
+	/**
+	 * Reads the dex file with the given entry name from file, or file
+	 * itself if the entry name is null. Does not touch the Scene, so dex
+	 * files may be read concurrently.
+	 */
+	static DexBackedDexFile readDexFile(File file, String entryName) throws IOException {
+		int api = 1; // TODO:
+		if (entryName == null)
+			return DexFileFactory.loadDexFile(file, api, false);
+		return DexFileFactory.loadDexFile(file, entryName, api, false);
+	}
+
+	/** Returns the names of all classes defined in the dex files. */
+	public Set<String> getClassNames() {
+		return Collections.unmodifiableSet(classesToDefItems.keySet());
+	}
+
+	/**
+	 * Returns the classes defined in the given dex file by their names. Does
+	 * not touch the Scene, so dex files may be indexed concurrently.
+	 */
+	static Map<String, ClassDef> indexClasses(DexFile dexFile) {
+		Map<String, ClassDef> ret = new HashMap<String, ClassDef>();
+		for (ClassDef defItem : dexFile.getClasses())
+			ret.put(Util.dottedClassName(defItem.getType()), defItem);
+		return ret;
+	}
+
+	/** Adds the given classes of dexFile. Classes defined by an earlier dex
+	 * file are replaced. */
+	private void addClasses(DexFile dexFile, Map<String, ClassDef> classes) {
+		classesToDefItems.putAll(classes);
+		for (String className : classes.keySet())
+			classesToDexFiles.put(className, dexFile);
+	}
+
+	/**
+	 * Reads the dex files if they have not been read yet, and makes the types
+	 * they refer to known to the Scene. Only the first call does anything;
+	 * other threads wait for it to finish.
+	 */
+	public synchronized void initialize() {
+		// Resolving the types below may come back here
+		if (initialized)
+			return;
+		initialized = true;
+		if (!read) {
+			try {
+				for (String entryName : dexEntries(inputDexFile)) {
+					DexBackedDexFile dexFile = readDexFile(inputDexFile, entryName);
+					this.dexFiles.add(dexFile);
+					addClasses(dexFile, indexClasses(dexFile));
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e.toString());
 			}
+			read = true;
 		}
-		
-		
+
 		for(DexFile dexFile: this.dexFiles){
 			if (dexFile instanceof DexBackedDexFile) {
 				DexBackedDexFile dbdf = (DexBackedDexFile) dexFile;
@@ -172,13 +245,11 @@ public class DexlibWrapper {
 			className = Util.dottedClassName(className);
 		}
 
-		for(DexFile dexFile: this.dexFiles){
-			ClassDef defItem = classesToDefItems.get(className);			
-			return dexLoader.makeSootClass(sc, defItem, dexFile);
-		}
-		
-		throw new RuntimeException("Error: class not found in DEX files: "
+		ClassDef defItem = classesToDefItems.get(className);
+		if (defItem == null)
+			throw new RuntimeException("Error: class not found in DEX files: "
 					+ className);
+		return dexLoader.makeSootClass(sc, defItem, classesToDexFiles.get(className));
 	}
 
 }
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 
 import soot.Body;
+import soot.BodyAnalysisCache;
 import soot.BodyTransformer;
 import soot.G;
 import soot.Local;
@@ -50,11 +51,7 @@ import soot.jimple.NewExpr;
 import soot.jimple.SpecialInvokeExpr;
 import soot.jimple.Stmt;
 import soot.options.Options;
-import soot.toolkits.graph.UnitGraph;
 import soot.toolkits.scalar.LocalUses;
-import soot.toolkits.scalar.SimpleLocalUses;
-import soot.toolkits.scalar.SmartLocalDefs;
-import soot.toolkits.scalar.SmartLocalDefsPool;
 import soot.toolkits.scalar.UnitValueBoxPair;
 import soot.util.Chain;
 
@@ -78,7 +75,7 @@ public class ConstructorFolder extends BodyTransformer
 
       Iterator<Unit> it = stmtList.iterator();
       
-      LocalUses localUses = LocalUses.Factory.newLocalUses(b);
+      LocalUses localUses = b.getAnalysisCache().get(BodyAnalysisCache.LOCAL_USES);
 
       /* fold in NewExpr's with specialinvoke's */
       while (it.hasNext())
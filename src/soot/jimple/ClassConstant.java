@@ -32,6 +32,9 @@ package soot.jimple;
 import soot.*;
 import soot.util.*;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 public class ClassConstant extends Constant
 {
     public final String value;
@@ -41,10 +44,13 @@ public class ClassConstant extends Constant
         this.value = s;
     }
 
+    /** Shared instances, dropped once no longer referenced. */
+    private static final Interner<ClassConstant> interner = Interners.newWeakInterner();
+
     public static ClassConstant v(String value)
     {
     	if(value.contains(".")) throw new RuntimeException("ClassConstants must use class names separated by '/', not '.'!");
-        return new ClassConstant(value);
+        return interner.intern(new ClassConstant(value));
     }
 
     // In this case, equals should be structural equality.
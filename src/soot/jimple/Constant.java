@@ -58,10 +58,12 @@ public abstract class Constant implements Value, ConvertToBaf, Immediate
     }
 
     /** Returns true if this object is structurally equivalent to c. 
-     * For Constants, equality is structural equality, so we just call equals(). */
+     * For Constants, equality is structural equality, so we just call equals().
+     * Most constants are interned, so equal constants are usually the same
+     * object, which is checked first. */
     public boolean equivTo(Object c)
     {
-        return equals(c);
+        return this == c || equals(c);
     }
 
     /** Returns a hash code consistent with structural equality for this object.
@@ -32,18 +32,38 @@ package soot.jimple;
 import soot.*;
 import soot.util.*;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 public class IntConstant extends ArithmeticConstant
 {
     public final int value;
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    /** The constants from CACHE_LOW to CACHE_HIGH - 1, which cover most
+     * occurrences in real code. */
+    private static final IntConstant[] cache = new IntConstant[CACHE_HIGH - CACHE_LOW];
+    static {
+        for (int i = 0; i < cache.length; i++)
+            cache[i] = new IntConstant(i + CACHE_LOW);
+    }
+    /** All other constants that are still in use, so that equal constants
+     * are represented by a single object. */
+    private static final Interner<IntConstant> interner = Interners.newWeakInterner();
+
     protected IntConstant(int value)
     {
         this.value = value;
     }
 
+    /** Returns the constant for value. Constants are immutable, so the same
+     * object is returned for the same value. */
     public static IntConstant v(int value)
     {
-        return new IntConstant(value);
+        if (value >= CACHE_LOW && value < CACHE_HIGH)
+            return cache[value - CACHE_LOW];
+        return interner.intern(new IntConstant(value));
     }
 
     public boolean equals(Object c)
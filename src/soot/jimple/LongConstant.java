@@ -32,6 +32,9 @@ package soot.jimple;
 import soot.*;
 import soot.util.*;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 public class LongConstant extends ArithmeticConstant
 {
     public final long value;
@@ -41,9 +44,12 @@ public class LongConstant extends ArithmeticConstant
         this.value = value;
     }
 
+    /** Weakly interned, like the int constants outside of their cache. */
+    private static final Interner<LongConstant> interner = Interners.newWeakInterner();
+
     public static LongConstant v(long value)
     {
-        return new LongConstant(value);
+        return interner.intern(new LongConstant(value));
     }
 
     public boolean equals(Object c)
@@ -32,6 +32,9 @@ package soot.jimple;
 import soot.*;
 import soot.util.*;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 public class StringConstant extends Constant
 {
     public final String value;
@@ -41,9 +44,13 @@ public class StringConstant extends Constant
         this.value = s;
     }
 
+    /** String literals tend to repeat across a program, so each one is
+     * held only once for as long as some body uses it. */
+    private static final Interner<StringConstant> interner = Interners.newWeakInterner();
+
     public static StringConstant v(String value)
     {
-        return new StringConstant(value);
+        return interner.intern(new StringConstant(value));
     }
 
     // In this case, equals should be structural equality.
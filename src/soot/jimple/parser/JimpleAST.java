@@ -121,11 +121,10 @@ public class JimpleAST
 
         Walker w = new BodyExtractorWalker(sc, SootResolver.v(), methodToBodyMap);
 
-        boolean oldPhantomValue = Scene.v().getPhantomRefs();
-
-        Scene.v().setPhantomRefs(true);
+        // Phantom references are allowed as configured by the options;
+        // bodies may be parsed on several threads, so no global state is
+        // switched here
         mTree.apply(w);
-        Scene.v().setPhantomRefs(oldPhantomValue);
         
         methodToParsedBodyMap = methodToBodyMap;
     }    
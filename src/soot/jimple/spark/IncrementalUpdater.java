@@ -0,0 +1,328 @@
+package soot.jimple.spark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.G;
+import soot.MethodOrMethodContext;
+import soot.PhaseOptions;
+import soot.PointsToAnalysis;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.SootResolver;
+import soot.SourceLocator;
+import soot.jimple.spark.internal.TypeManager;
+import soot.jimple.spark.pag.AllocDotField;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.FieldRefNode;
+import soot.jimple.spark.pag.LocalVarNode;
+import soot.jimple.spark.pag.MethodPAG;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.Parm;
+import soot.jimple.spark.pag.SparkField;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.jimple.spark.solver.OnFlyCallGraph;
+import soot.jimple.spark.solver.PropWorklist;
+import soot.jimple.toolkits.callgraph.CallGraph;
+import soot.jimple.toolkits.callgraph.ClinitElimTransformer;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.jimple.toolkits.callgraph.ReachableMethods;
+import soot.options.CGOptions;
+import soot.toolkits.scalar.Pair;
+import soot.util.queue.QueueReader;
+
+/**
+ * Updates the results of Spark after the bodies of some classes have
+ * changed, without building the pointer assignment graph and the call graph
+ * again from scratch. Spark must have been run with an on-the-fly call
+ * graph, and its results must still be in the Scene.
+ * <p>
+ * The changed classes are read again from the soot-class-path. Only changes
+ * to method bodies are supported; if any other part of a class has changed,
+ * {@link SootResolver#reloadMethodSources(Collection)} throws an exception
+ * and a full run is needed. For each method of the changed classes that has
+ * been analyzed:
+ * <ul>
+ * <li>the nodes of its old body are removed from the pointer assignment
+ * graph together with all their edges, including those of its call
+ * sites;</li>
+ * <li>the edges out of it are removed from the call graph;</li>
+ * <li>the points-to sets of all nodes that may have depended on the old body
+ * are cleared;</li>
+ * <li>the new body is added, and the cleared points-to sets are computed
+ * again from the rest of the graph with {@link PropWorklist}, discovering new
+ * call edges on the fly as usual.</li>
+ * </ul>
+ * As in a full run, redundant edges to static initializers are then trimmed
+ * from the methods that got new call edges, if the trim-clinit option is on.
+ * The points-to sets of all other nodes are kept. Changed methods that have
+ * not been analyzed just get their new bodies.
+ * <p>
+ * The result is sound but may be less precise than that of a full run: call
+ * edges found for points-to information that is no longer there are kept, and
+ * so are the parts of the graph of methods that are no longer reachable.
+ * The reachable methods of the Scene are computed again from the entry
+ * points. A full run from time to time restores full precision.
+ */
+public class IncrementalUpdater {
+	private final PAG pag;
+	private final OnFlyCallGraph ofcg;
+	/** The load edge sources for each field, made when first needed. */
+	private Map<SparkField, List<FieldRefNode>> loadsByField;
+
+	public IncrementalUpdater(PAG pag) {
+		if (pag.getOnFlyCallGraph() == null || pag.getOpts().rta()
+				|| pag.getOpts().vta())
+			throw new RuntimeException(
+					"Incremental updates need Spark with an on-the-fly call graph");
+		this.pag = pag;
+		this.ofcg = pag.getOnFlyCallGraph();
+	}
+
+	/**
+	 * Reloads the given classes and updates the points-to sets, the call
+	 * graph and the reachable methods for their new method bodies. Returns
+	 * the methods that were analyzed again.
+	 */
+	public Set<SootMethod> update(Collection<SootClass> changedClasses) {
+		// Archives may have been replaced as well
+		SourceLocator.v().invalidateClassPath();
+		int hierarchyState = Scene.v().getState();
+		PointsToAnalysis pa = Scene.v().getPointsToAnalysis();
+		Set<SootMethod> changed = new HashSet<SootMethod>();
+		for (SootMethod m : SootResolver.v().reloadMethodSources(changedClasses)) {
+			if (G.v().MethodPAG_methodToPag.containsKey(m))
+				changed.add(m);
+		}
+		if (Scene.v().getState() != hierarchyState) {
+			// The new bodies refer to classes that were not in the Scene. They
+			// do not change the relations between the old types, so only the
+			// new types need type masks.
+			TypeManager tm = pag.getTypeManager();
+			tm.setFastHierarchy(Scene.v().getOrMakeFastHierarchy());
+			tm.addTypeMasks();
+			Scene.v().setPointsToAnalysis(pa);
+		}
+		if (changed.isEmpty())
+			return changed;
+		loadsByField = null;
+
+		Set<Node> oldNodes = oldNodesOf(changed);
+		Set<Node> dirty = new HashSet<Node>();
+		for (Node n : oldNodes)
+			addSuccessors(n, dirty);
+		for (Node n : oldNodes) {
+			pag.removeEdgesOf(n);
+			n.discardP2Set();
+		}
+		dirty.removeAll(oldNodes);
+		closeDirty(dirty, oldNodes);
+		for (Node n : dirty)
+			n.discardP2Set();
+
+		CallGraph cg = ofcg.callGraph();
+		QueueReader<Edge> newCallEdges = cg.newListener();
+		QueueReader<Node> newEdges = pag.edgeReader();
+		for (SootMethod m : changed) {
+			G.v().MethodPAG_methodToPag.remove(m);
+			List<Edge> oldEdges = new ArrayList<Edge>();
+			for (Iterator<Edge> it = cg.edgesOutOf(m); it.hasNext();)
+				oldEdges.add(it.next());
+			for (Edge e : oldEdges)
+				cg.removeEdge(e);
+			MethodPAG mpag = MethodPAG.v(pag, m);
+			mpag.build();
+			mpag.addToPAG(null);
+			ofcg.ofcgb().reprocessMethod(m);
+		}
+		ofcg.build();
+
+		// All nodes whose points-to sets have to be computed again: those that
+		// were cleared and those of the new bodies, which are the targets of
+		// the new edges
+		Set<VarNode> refresh = new HashSet<VarNode>();
+		for (Node n : dirty) {
+			if (n instanceof VarNode)
+				refresh.add((VarNode) n);
+		}
+		while (newEdges.hasNext()) {
+			newEdges.next();
+			Node tgt = newEdges.next();
+			if (tgt instanceof VarNode)
+				refresh.add((VarNode) tgt);
+		}
+		// Only new points-to information is propagated, so the nodes get the
+		// complete sets of their predecessors first. Cleared field nodes get
+		// theirs from the stores, which the propagator always propagates in
+		// full.
+		PropWorklist propagator = new PropWorklist(pag);
+		for (VarNode vn : refresh) {
+			pullPredecessors(vn);
+			propagator.addToWorklist(vn);
+		}
+		propagator.propagate();
+		if (new CGOptions(PhaseOptions.v().getPhaseOptions("cg")).trim_clinit())
+			trimClinits(newCallEdges);
+
+		ReachableMethods rm = new ReachableMethods(cg,
+				new ArrayList<MethodOrMethodContext>(Scene.v().getEntryPoints()));
+		rm.update();
+		Scene.v().setReachableMethods(rm);
+		return changed;
+	}
+
+	/** Removes the redundant static initializer edges out of the sources of
+	 * the given edges, as CallGraphPack does for all methods. */
+	private void trimClinits(QueueReader<Edge> edges) {
+		Set<SootMethod> sources = new HashSet<SootMethod>();
+		while (edges.hasNext()) {
+			SootMethod src = edges.next().src();
+			if (src != null)
+				sources.add(src);
+		}
+		ClinitElimTransformer trimmer = new ClinitElimTransformer();
+		for (SootMethod m : sources) {
+			if (m.isConcrete() && m.hasActiveBody())
+				trimmer.transform(m.getActiveBody());
+		}
+	}
+
+	/**
+	 * Returns the nodes of the old bodies of the given methods, that is all
+	 * their local variable nodes except for this, the parameters and the
+	 * return value, and the field reference nodes based on them.
+	 */
+	private Set<Node> oldNodesOf(Set<SootMethod> methods) {
+		Set<Node> ret = new HashSet<Node>();
+		for (VarNode vn : pag.getVarNodeNumberer()) {
+			if (!(vn instanceof LocalVarNode))
+				continue;
+			LocalVarNode lvn = (LocalVarNode) vn;
+			if (!methods.contains(lvn.getMethod()) || isInterfaceNode(lvn))
+				continue;
+			ret.add(lvn);
+			ret.addAll(lvn.getAllFieldRefs());
+		}
+		return ret;
+	}
+
+	/** Returns true for the this, parameter and return nodes of a method,
+	 * which are kept when its body changes. */
+	private static boolean isInterfaceNode(LocalVarNode vn) {
+		Object v = vn.getVariable();
+		if (v instanceof Parm)
+			return true;
+		return v instanceof Pair && ((Pair<?, ?>) v).getO1() == vn.getMethod();
+	}
+
+	/**
+	 * Transitively adds to dirty all nodes whose points-to sets may depend on
+	 * those of the nodes in it, without going through the removed nodes.
+	 */
+	private void closeDirty(Set<Node> dirty, Set<Node> removed) {
+		LinkedList<Node> worklist = new LinkedList<Node>(dirty);
+		Set<Node> successors = new HashSet<Node>();
+		while (!worklist.isEmpty()) {
+			addSuccessors(worklist.removeFirst(), successors);
+			for (Node s : successors) {
+				if (!removed.contains(s) && dirty.add(s))
+					worklist.add(s);
+			}
+			successors.clear();
+		}
+	}
+
+	/**
+	 * Adds the nodes whose points-to sets may depend on the points-to set of
+	 * n, or on its edges, to ret.
+	 */
+	private void addSuccessors(Node n, Set<Node> ret) {
+		if (n instanceof VarNode) {
+			VarNode vn = (VarNode) n;
+			addAll(ret, pag.simpleLookup(vn));
+			for (Node fr : pag.storeLookup(vn))
+				addAllocDotFields((FieldRefNode) fr, ret);
+			// The objects n points to decide where loads and stores through it
+			// go
+			for (FieldRefNode fr : vn.getAllFieldRefs()) {
+				addAll(ret, pag.loadLookup(fr));
+				if (pag.storeInvLookup(fr).length > 0)
+					addAllocDotFields(fr, ret);
+			}
+		} else if (n instanceof FieldRefNode) {
+			FieldRefNode fr = (FieldRefNode) n;
+			addAll(ret, pag.loadLookup(fr));
+			if (pag.storeInvLookup(fr).length > 0)
+				addAllocDotFields(fr, ret);
+		} else if (n instanceof AllocDotField) {
+			AllocDotField adf = (AllocDotField) n;
+			for (FieldRefNode fr : loadsOf(adf.getField())) {
+				if (fr.getBase().getP2Set().contains(adf.getBase()))
+					addAll(ret, pag.loadLookup(fr));
+			}
+		}
+	}
+
+	/** Adds the field nodes that stores into fr may write to ret. */
+	private void addAllocDotFields(final FieldRefNode fr, final Set<Node> ret) {
+		fr.getBase().getP2Set().forall(new P2SetVisitor() {
+			public final void visit(Node n) {
+				AllocDotField adf = pag.findAllocDotField((AllocNode) n, fr.getField());
+				if (adf != null)
+					ret.add(adf);
+			}
+		});
+	}
+
+	private List<FieldRefNode> loadsOf(SparkField f) {
+		if (loadsByField == null) {
+			loadsByField = new HashMap<SparkField, List<FieldRefNode>>();
+			for (FieldRefNode fr : pag.loadSources()) {
+				List<FieldRefNode> l = loadsByField.get(fr.getField());
+				if (l == null)
+					loadsByField.put(fr.getField(), l = new ArrayList<FieldRefNode>());
+				l.add(fr);
+			}
+		}
+		List<FieldRefNode> ret = loadsByField.get(f);
+		if (ret == null)
+			return new ArrayList<FieldRefNode>();
+		return ret;
+	}
+
+	/** Adds the complete points-to sets of all predecessors of vn to its
+	 * points-to set. */
+	private void pullPredecessors(VarNode vn) {
+		final PointsToSetInternal p2set = vn.makeP2Set();
+		for (Node n : pag.simpleInvLookup(vn))
+			p2set.addAll(n.getP2Set(), null);
+		for (Node n : pag.allocInvLookup(vn))
+			p2set.add(n);
+		for (Node n : pag.loadInvLookup(vn)) {
+			final FieldRefNode fr = (FieldRefNode) n;
+			fr.getBase().getP2Set().forall(new P2SetVisitor() {
+				public final void visit(Node a) {
+					AllocDotField adf = pag.findAllocDotField((AllocNode) a, fr.getField());
+					if (adf != null)
+						p2set.addAll(adf.getP2Set(), null);
+				}
+			});
+		}
+	}
+
+	private static void addAll(Set<Node> s, Node[] nodes) {
+		for (Node n : nodes)
+			s.add(n);
+	}
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import soot.G;
 import soot.Local;
+import soot.PhaseMetrics;
 import soot.PointsToAnalysis;
 import soot.Scene;
 import soot.SceneTransformer;
@@ -53,6 +54,7 @@ import soot.jimple.spark.solver.PropAlias;
 import soot.jimple.spark.solver.PropCycle;
 import soot.jimple.spark.solver.PropIter;
 import soot.jimple.spark.solver.PropMerge;
+import soot.jimple.spark.solver.PropParallel;
 import soot.jimple.spark.solver.PropWorklist;
 import soot.jimple.spark.solver.Propagator;
 import soot.jimple.spark.solver.SCCCollapser;
@@ -144,6 +146,9 @@ public class SparkTransformer extends SceneTransformer
             case SparkOptions.propagator_alias:
                 propagator[0] = new PropAlias( pag );
                 break;
+            case SparkOptions.propagator_parallel:
+                propagator[0] = new PropParallel( pag );
+                break;
             case SparkOptions.propagator_none:
                 break;
             default:
@@ -165,6 +170,7 @@ public class SparkTransformer extends SceneTransformer
             G.v().out.println( "[Spark] Number of reachable methods: "
                     +Scene.v().getReachableMethods().size() );
         }
+        reportMetrics( phaseName, pag, propagator[0] );
 
         if( opts.set_mass() ) findSetMass( pag );
 
@@ -199,6 +205,26 @@ public class SparkTransformer extends SceneTransformer
         }
     }
     
+    /** Reports the size of the PAG and of the call graph to the phase
+     * metrics. */
+    protected void reportMetrics( String phaseName, PAG pag, Propagator propagator ) {
+        PhaseMetrics metrics = PhaseMetrics.v();
+        if( !metrics.isEnabled() ) return;
+        metrics.setCounter( phaseName, "var-nodes", pag.getVarNodeNumberer().size() );
+        metrics.setCounter( phaseName, "field-ref-nodes", pag.getFieldRefNodeNumberer().size() );
+        metrics.setCounter( phaseName, "alloc-nodes", pag.getAllocNodeNumberer().size() );
+        metrics.setCounter( phaseName, "alloc-dot-field-nodes", pag.getAllocDotFieldNodeNumberer().size() );
+        metrics.setCounter( phaseName, "simple-edges", pag.getNumSimpleEdges() );
+        metrics.setCounter( phaseName, "alloc-edges", pag.getNumAllocEdges() );
+        metrics.setCounter( phaseName, "load-edges", pag.getNumLoadEdges() );
+        metrics.setCounter( phaseName, "store-edges", pag.getNumStoreEdges() );
+        if( propagator != null )
+            metrics.setCounter( phaseName, "propagation-iterations", propagator.getIterations() );
+        metrics.setCounter( phaseName, "reachable-methods", Scene.v().getReachableMethods().size() );
+        if( Scene.v().hasCallGraph() )
+            metrics.setCounter( phaseName, "call-graph-edges", Scene.v().getCallGraph().size() );
+    }
+
     protected void addTags( PAG pag ) {
         final Tag unknown = new StringTag( "Untagged Spark node" );
         final Map<Node, Tag> nodeToTag = pag.getNodeTags();
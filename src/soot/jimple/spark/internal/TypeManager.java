@@ -78,6 +78,24 @@ public final class TypeManager {
     }
     final public BitVector get( Type type ) {
         if( type == null ) return null;
+        update();
+        BitVector ret = (BitVector) typeMask.get( type );
+        if( ret == null && fh != null )
+        	// If we have a phantom class and have no type mask, we assume that
+        	// it is not cast-compatible to anything
+        	if (type instanceof RefType && ((RefType) type).getSootClass().isPhantom())
+        		return new BitVector();
+        	else
+        		throw new RuntimeException( "Type mask not found for type "+type );
+        return ret;
+    }
+    /** Adds the alloc nodes created since the last call to the type masks.
+     * {@link #get(Type)} does this implicitly. After an explicit call, and
+     * as long as no alloc nodes are created, get only reads the masks and
+     * may be called from multiple threads. */
+    final public void update() {
+        // Without a hierarchy, types are ignored and there are no masks
+        if( allocNodeListener == null ) return;
         while(allocNodeListener.hasNext()) {
             AllocNode n = allocNodeListener.next();
             for( final Type t : Scene.v().getTypeNumberer()) {
@@ -99,15 +117,25 @@ public final class TypeManager {
                 }
             }
         }
-        BitVector ret = (BitVector) typeMask.get( type );
-        if( ret == null && fh != null )
-        	// If we have a phantom class and have no type mask, we assume that
-        	// it is not cast-compatible to anything
-        	if (type instanceof RefType && ((RefType) type).getSootClass().isPhantom())
-        		return new BitVector();
-        	else
-        		throw new RuntimeException( "Type mask not found for type "+type );
-        return ret;
+    }
+    /** Makes the masks of the types that have been added to the Scene since
+     * {@link #makeTypeMask()}, keeping all other masks. The new types must
+     * not change the relations between the old ones. */
+    final public void addTypeMasks() {
+        update();
+        for( final Type t : Scene.v().getTypeNumberer()) {
+            if( !(t instanceof RefLikeType) ) continue;
+            if( t instanceof AnySubType ) continue;
+            if( isUnresolved(t) ) continue;
+            if( typeMask.get( t ) != null ) continue;
+            BitVector mask = new BitVector();
+            for( final AllocNode an : pag.getAllocNodeNumberer()) {
+                if( castNeverFails( an.getType(), t ) ) {
+                    mask.set( an.getNumber() );
+                }
+            }
+            typeMask.put( t, mask );
+        }
     }
     final public void clearTypeMask() {
         typeMask = null;
@@ -27,12 +27,25 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import heros.solver.CountingThreadPoolExecutor;
 import soot.AnySubType;
 import soot.ArrayType;
 import soot.Context;
 import soot.G;
 import soot.Local;
+import soot.PackManager;
 import soot.PointsToAnalysis;
 import soot.PointsToSet;
 import soot.RefType;
@@ -73,6 +86,10 @@ import soot.util.NumberedString;
 /**
  * Tries to find imprecision in points-to sets from a previously run analysis.
  * Requires that all sub-results of previous analysis were cached.
+ * <p>
+ * Queries may be issued from several threads at once: each thread answers
+ * them on its own copy of the per-query state, and the results are shared
+ * through a concurrent cache.
  * 
  * @author Manu Sridharan
  * 
@@ -246,7 +263,11 @@ public final class DemandCSPointsTo implements PointsToAnalysis {
 	
 	protected FieldToEdgesMap fieldToLoads;
 
-	protected FieldToEdgesMap fieldToStores;
+	/**
+	 * set last by {@link #init()}, so that a non-null value means that the
+	 * field and match maps can be read by any thread
+	 */
+	protected volatile FieldToEdgesMap fieldToStores;
 
 	protected final int maxNodesPerPass;
 
@@ -274,12 +295,24 @@ public final class DemandCSPointsTo implements PointsToAnalysis {
 
 	protected ValidMatches vMatches;
 	
-	protected Map<Local,PointsToSet> reachingObjectsCache, reachingObjectsCacheNoCGRefinement;
+	protected volatile Cache<Local,PointsToSet> reachingObjectsCache, reachingObjectsCacheNoCGRefinement;
 
     protected boolean useCache;
 
 	private final boolean lazy;
 
+	/**
+	 * the analysis of each querying thread; all per-query state and budgets
+	 * live there, while the field and match maps are shared with this
+	 * analysis. Kept here rather than in a ThreadLocal, so that threads do
+	 * not keep this analysis and its PAG alive, and by weak keys, so that
+	 * the workers of threads that have ended are dropped.
+	 */
+	private final Map<Thread, DemandCSPointsTo> workers = Collections.synchronizedMap(new WeakHashMap<Thread, DemandCSPointsTo>());
+
+	/** the threads answering batches of queries, made by the first batch */
+	private CountingThreadPoolExecutor executor;
+
 	public DemandCSPointsTo(ContextSensitiveInfo csInfo, PAG pag) {
 		this(csInfo, pag, DEFAULT_MAX_TRAVERSAL, DEFAULT_MAX_PASSES, DEFAULT_LAZY);
 	}
@@ -292,15 +325,61 @@ public final class DemandCSPointsTo implements PointsToAnalysis {
 		this.lazy = lazy;
 		this.maxNodesPerPass = maxTraversal / maxPasses;
 		this.heuristicType = HeuristicType.INCR;
-		this.reachingObjectsCache = new HashMap<Local, PointsToSet>();
-		this.reachingObjectsCacheNoCGRefinement = new HashMap<Local, PointsToSet>();
+		this.reachingObjectsCache = makeCache(-1, -1);
+		this.reachingObjectsCacheNoCGRefinement = makeCache(-1, -1);
         this.useCache = true;
 	}
 
-	private void init() {
-		this.fieldToStores = SootUtil.storesOnField(pag);
+	/**
+	 * Makes a worker for one querying thread that shares everything but the
+	 * per-query state with the given, initialized analysis.
+	 */
+	private DemandCSPointsTo(DemandCSPointsTo shared) {
+		this.csInfo = shared.csInfo;
+		this.pag = shared.pag;
+		this.maxPasses = shared.maxPasses;
+		this.lazy = shared.lazy;
+		this.maxNodesPerPass = shared.maxNodesPerPass;
+		this.heuristicType = shared.heuristicType;
+		this.useCache = shared.useCache;
+		this.fieldToLoads = shared.fieldToLoads;
+		this.vMatches = shared.vMatches;
+		this.fieldToStores = shared.fieldToStores;
+	}
+
+	private synchronized void init() {
+		if(fieldToStores!=null) {
+			return;
+		}
+		// resolves merged nodes in all edge arrays now, so that later
+		// lookups in the PAG only read it
+		pag.cleanUpMerges();
+		FieldToEdgesMap stores = SootUtil.storesOnField(pag);
         this.fieldToLoads = SootUtil.loadsOnField(pag);
-        this.vMatches = new ValidMatches(pag, fieldToStores);
+        this.vMatches = new ValidMatches(pag, stores);
+        this.fieldToStores = stores;
+	}
+
+	/**
+	 * Returns the analysis of the current thread, set up to answer queries
+	 * with the current settings of this analysis.
+	 */
+	private DemandCSPointsTo worker() {
+		DemandCSPointsTo worker = workers.get(Thread.currentThread());
+		if (worker == null) {
+			worker = new DemandCSPointsTo(this);
+			workers.put(Thread.currentThread(), worker);
+		}
+		worker.heuristicType = heuristicType;
+		worker.refineCallGraph = refineCallGraph;
+		return worker;
+	}
+
+	/** Returns the threads that currently have a worker. */
+	Set<Thread> getWorkerThreads() {
+		synchronized (workers) {
+			return new HashSet<Thread>(workers.keySet());
+		}
 	}
 
 	public PointsToSet reachingObjects(Local l) {
@@ -321,29 +400,98 @@ public final class DemandCSPointsTo implements PointsToAnalysis {
 	        init();
 		}
 		PointsToSet result;
-        Map<Local, PointsToSet> cache;
+        Cache<Local, PointsToSet> cache;
 	    if(refineCallGraph) {  //we use different caches for different settings  
             cache = reachingObjectsCache;
 	    } else {
             cache = reachingObjectsCacheNoCGRefinement;
 	    }
-        result = cache.get(l);           
+        result = cache.getIfPresent(l);           
 	    if(result==null) {
-    		result = computeReachingObjects(l);
+    		result = worker().computeReachingObjects(l);
     		if(useCache) {
-	            cache.put(l, result);
+    			// another thread may have answered the same query meanwhile
+	            PointsToSet other = cache.asMap().putIfAbsent(l, result);
+	            if(other!=null) {
+	            	result = other;
+	            }
     		}
 	    } 	    
 	    assert consistentResult(l,result);
 	    return result;
 	}
 
+	/**
+	 * Computes the possibly refined sets of reaching objects of the given
+	 * locals, answering the queries in parallel on
+	 * {@link PackManager#getNumThreads()} threads. Each query gets the full
+	 * traversal budget of this analysis, and the results are cached as by
+	 * {@link #doReachingObjects(Local)}. Later batches reuse the threads,
+	 * which end after being idle for 30 seconds. Batches from several
+	 * threads are answered one after the other.
+	 * 
+	 * @return the reaching objects of each of the locals
+	 */
+	public synchronized Map<Local, PointsToSet> doReachingObjects(Collection<Local> locals) {
+		init();
+		final Map<Local, PointsToSet> ret = new ConcurrentHashMap<Local, PointsToSet>();
+		final Set<Thread> poolThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		// a failed batch shuts the threads down
+		if (executor == null || executor.isShutdown()) {
+			int numThreads = Math.max(1, PackManager.v().getNumThreads());
+			executor = new CountingThreadPoolExecutor(
+					numThreads, numThreads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>());
+			executor.allowCoreThreadTimeOut(true);
+			executor.setThreadFactory(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					// idle threads must not keep the VM running
+					Thread t = Executors.defaultThreadFactory().newThread(r);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		for (final Local l : new HashSet<Local>(locals)) {
+			executor.execute(new Runnable() {
+				public void run() {
+					poolThreads.add(Thread.currentThread());
+					ret.put(l, doReachingObjects(l));
+				}
+			});
+		}
+
+		// Wait till all queries have been answered
+		try {
+			executor.awaitCompletion();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Could not wait for query threads to "
+					+ "finish: " + e.getMessage(), e);
+		} finally {
+			// the workers of the pool threads are only needed during the
+			// batch; those of other threads are still in use
+			for (Thread t : poolThreads)
+				workers.remove(t);
+		}
+
+		Throwable failure = executor.getException();
+		if (failure != null) {
+			executor = null;
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			throw new RuntimeException(failure);
+		}
+		return ret;
+	}
+
     /**
      * Returns <code>false</code> if an inconsistent computation occurred, i.e. if result
      * differs from the result computed by {@link #computeReachingObjects(Local)} on l.
      */
     private boolean consistentResult(Local l, PointsToSet result) {
-        PointsToSet result2 = computeReachingObjects(l);
+        PointsToSet result2 = worker().computeReachingObjects(l);
         if(!(result instanceof EqualsSupportingPointsToSet) || !(result2 instanceof EqualsSupportingPointsToSet)) {
             //cannot compare, assume everything is fine
             return true;
@@ -2177,8 +2325,64 @@ public final class DemandCSPointsTo implements PointsToAnalysis {
 	 * clears the cache
 	 */
 	public void clearCache() {
-	    reachingObjectsCache.clear();
-        reachingObjectsCacheNoCGRefinement.clear();
+	    reachingObjectsCache.invalidateAll();
+        reachingObjectsCacheNoCGRefinement.invalidateAll();
+	}
+
+	/**
+	 * bounds the cache to the given number of entries per setting of
+	 * {@link #setRefineCallGraph(boolean)}, evicting the least recently used
+	 * ones first; a negative bound makes it unbounded again. Clears the cache
+	 * and its statistics.
+	 */
+	public void setCacheMaximumSize(long maxEntries) {
+		reachingObjectsCache = makeCache(maxEntries, -1);
+		reachingObjectsCacheNoCGRefinement = makeCache(maxEntries, -1);
+	}
+
+	/**
+	 * bounds the cache like {@link #setCacheMaximumSize(long)}, but by the
+	 * total weight of its entries, where a context-sensitive result weighs the
+	 * number of its allocation sites and contexts. Clears the cache and its
+	 * statistics.
+	 */
+	public void setCacheMaximumWeight(long maxWeight) {
+		reachingObjectsCache = makeCache(-1, maxWeight);
+		reachingObjectsCacheNoCGRefinement = makeCache(-1, maxWeight);
+	}
+
+	/**
+	 * @return the hits, misses and evictions of the cache since it was last
+	 *         bounded
+	 */
+	public CacheStats getCacheStats() {
+		return reachingObjectsCache.stats().plus(
+				reachingObjectsCacheNoCGRefinement.stats());
+	}
+
+	/**
+	 * Makes a cache of reaching objects that keeps at most maxSize entries,
+	 * or entries of at most maxWeight in total, or is unbounded if both are
+	 * negative.
+	 */
+	private static Cache<Local, PointsToSet> makeCache(long maxSize, long maxWeight) {
+		if (maxWeight >= 0) {
+			return CacheBuilder.newBuilder().recordStats()
+					.maximumWeight(maxWeight)
+					.weigher(new Weigher<Local, PointsToSet>() {
+						public int weigh(Local l, PointsToSet result) {
+							if (result instanceof AllocAndContextSet) {
+								return Math.max(1, ((AllocAndContextSet) result).size());
+							}
+							return 1;
+						}
+					}).build();
+		}
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+		if (maxSize >= 0) {
+			builder.maximumSize(maxSize);
+		}
+		return builder.build();
 	}
 
     public boolean isRefineCallGraph() {
@@ -21,10 +21,10 @@ import soot.jimple.spark.sets.EqualsSupportingPointsToSet;
  */
 public class LazyContextSensitivePointsToSet implements EqualsSupportingPointsToSet {
 
-	private EqualsSupportingPointsToSet delegate;
+	private volatile EqualsSupportingPointsToSet delegate;
 	private final DemandCSPointsTo demandCSPointsTo;
 	private final Local local;
-	private boolean isContextSensitive;
+	private volatile boolean isContextSensitive;
 
 	public boolean isContextSensitive() {
 		return isContextSensitive;
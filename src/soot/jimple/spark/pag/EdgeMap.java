@@ -0,0 +1,231 @@
+package soot.jimple.spark.pag;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import soot.util.ArrayNumberer;
+
+/** Stores one kind of edges of the pointer assignment graph, such as the
+ * simple edges or the inverse load edges. The targets of a node are kept in
+ * an array indexed by the number of the node, so that no map entry or set
+ * is needed per node. All targets of a map are of one kind of node; a node
+ * with many targets additionally gets an open-addressing table of the
+ * numbers of its targets, so that adding an edge stays cheap.
+ * <p>
+ * {@link #lookup(Node)} returns the array the targets are kept in, trimmed
+ * to their number, so that repeated lookups do not copy. The array must not
+ * be modified by the caller; this map does not modify it either once it
+ * has been returned.
+ */
+public final class EdgeMap<K extends Node> {
+    public EdgeMap( ArrayNumberer<? extends K> keys ) {
+        this.keys = keys;
+    }
+
+    /** Adds an edge from key to target, returns true if it is new. */
+    public boolean add( Node key, Node target ) {
+        int k = key.getNumber();
+        ensureCapacity( k );
+        Node[] a = targets[k];
+        int count = counts[k];
+        if( count < INDEX_THRESHOLD ) {
+            for( int i = 0; i < count; i++ ) {
+                if( a[i] == target ) return false;
+            }
+        } else if( !addToIndex( k, target.getNumber() ) ) {
+            return false;
+        }
+        if( a == null ) {
+            a = targets[k] = new Node[ 2 ];
+        } else if( count == a.length ) {
+            a = targets[k] = Arrays.copyOf( a, Math.max( 4, count * 2 ) );
+        }
+        a[count] = target;
+        counts[k] = ++count;
+        if( count == 1 ) size++;
+        if( count == INDEX_THRESHOLD ) buildIndex( k );
+        return true;
+    }
+
+    /** Returns the targets of key. */
+    public Node[] lookup( Node key ) {
+        int k = key.getNumber();
+        if( k >= targets.length || counts[k] == 0 ) return PAG.EMPTY_NODE_ARRAY;
+        Node[] a = targets[k];
+        if( a.length != counts[k] ) {
+            a = targets[k] = Arrays.copyOf( a, counts[k] );
+        }
+        return a;
+    }
+
+    /** Replaces the targets of key by the distinct nodes in newTargets. */
+    public void set( Node key, Node[] newTargets ) {
+        remove( key );
+        if( newTargets.length == 0 ) return;
+        int k = key.getNumber();
+        ensureCapacity( k );
+        targets[k] = newTargets;
+        counts[k] = newTargets.length;
+        size++;
+        if( newTargets.length >= INDEX_THRESHOLD ) buildIndex( k );
+    }
+
+    /** Removes all edges from key, and returns their targets. */
+    public Node[] remove( Node key ) {
+        Node[] ret = lookup( key );
+        if( ret.length == 0 ) return ret;
+        int k = key.getNumber();
+        targets[k] = null;
+        counts[k] = 0;
+        if( indexes != null ) indexes[k] = null;
+        size--;
+        return ret;
+    }
+
+    /** Removes the edge from key to target, returns true if it existed. */
+    public boolean remove( Node key, Node target ) {
+        int k = key.getNumber();
+        if( k >= targets.length ) return false;
+        Node[] a = targets[k];
+        int count = counts[k];
+        for( int i = 0; i < count; i++ ) {
+            if( a[i] != target ) continue;
+            // Copies, since a may have been handed out by lookup
+            if( --count == 0 ) {
+                targets[k] = null;
+                size--;
+            } else {
+                Node[] b = new Node[ count ];
+                System.arraycopy( a, 0, b, 0, i );
+                System.arraycopy( a, i + 1, b, i, count - i );
+                targets[k] = b;
+            }
+            counts[k] = count;
+            if( indexes != null && indexes[k] != null ) {
+                indexes[k] = null;
+                if( count >= INDEX_THRESHOLD ) buildIndex( k );
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public boolean containsKey( Node key ) {
+        int k = key.getNumber();
+        return k < targets.length && counts[k] > 0 && keys.get( k ) == key;
+    }
+
+    /** Returns the number of edges. */
+    public int countEdges() {
+        int ret = 0;
+        for( int count : counts ) ret += count;
+        return ret;
+    }
+
+    public void clear() {
+        targets = new Node[0][];
+        counts = new int[0];
+        indexes = null;
+        size = 0;
+    }
+
+    /** Returns the nodes that have edges, in the order of their numbers.
+     * The set reflects later changes to this map. */
+    public java.util.Set<K> keySet() {
+        return new AbstractSet<K>() {
+            public int size() {
+                return size;
+            }
+            public boolean contains( Object o ) {
+                return o instanceof Node && containsKey( (Node) o );
+            }
+            public Iterator<K> iterator() {
+                return new Iterator<K>() {
+                    private int next = advance( 1 );
+                    private int advance( int k ) {
+                        while( k < counts.length && counts[k] == 0 ) k++;
+                        return k;
+                    }
+                    public boolean hasNext() {
+                        return next < counts.length;
+                    }
+                    public K next() {
+                        if( !hasNext() ) throw new NoSuchElementException();
+                        K ret = keys.get( next );
+                        next = advance( next + 1 );
+                        return ret;
+                    }
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /* End of public methods. */
+
+    private void ensureCapacity( int k ) {
+        if( k < targets.length ) return;
+        int newLength = Math.max( k + 1, targets.length * 2 );
+        targets = Arrays.copyOf( targets, newLength );
+        counts = Arrays.copyOf( counts, newLength );
+        if( indexes != null ) indexes = Arrays.copyOf( indexes, newLength );
+    }
+
+    /** Builds the table of the target numbers of key k. */
+    private void buildIndex( int k ) {
+        if( indexes == null ) indexes = new int[ targets.length ][];
+        int count = counts[k];
+        int capacity = Integer.highestOneBit( count ) * 4;
+        int[] table = new int[ capacity ];
+        Node[] a = targets[k];
+        for( int i = 0; i < count; i++ ) insert( table, a[i].getNumber() );
+        indexes[k] = table;
+    }
+
+    /** Adds num to the table of key k, returns false if it was present. */
+    private boolean addToIndex( int k, int num ) {
+        int[] table = indexes[k];
+        if( !insert( table, num ) ) return false;
+        // Keeps the table at most half full
+        if( ( counts[k] + 1 ) * 2 > table.length ) {
+            int[] bigger = new int[ table.length * 2 ];
+            for( int n : table ) {
+                if( n != 0 ) insert( bigger, n );
+            }
+            indexes[k] = bigger;
+        }
+        return true;
+    }
+
+    /** Adds num to an open-addressing table whose length is a power of two,
+     * returns false if it was present. Node numbers start at 1, so 0 marks
+     * a free slot. */
+    private static boolean insert( int[] table, int num ) {
+        int mask = table.length - 1;
+        int h = num * 0x9E3779B9;
+        int i = ( h ^ ( h >>> 16 ) ) & mask;
+        while( table[i] != 0 ) {
+            if( table[i] == num ) return false;
+            i = ( i + 1 ) & mask;
+        }
+        table[i] = num;
+        return true;
+    }
+
+    /** Nodes with at least this many targets get a table of their numbers. */
+    private static final int INDEX_THRESHOLD = 16;
+
+    private final ArrayNumberer<? extends K> keys;
+    /** The targets of each node by its number; only the first counts[k]
+     * entries are used. */
+    private Node[][] targets = new Node[0][];
+    private int[] counts = new int[0];
+    /** The table of target numbers of each node with many targets, or null
+     * while there is none. */
+    private int[][] indexes = null;
+    /** The number of nodes that have targets. */
+    private int size = 0;
+}
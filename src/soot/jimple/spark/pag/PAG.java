@@ -56,11 +56,13 @@ import soot.jimple.spark.internal.TypeManager;
 import soot.jimple.spark.sets.BitPointsToSet;
 import soot.jimple.spark.sets.DoublePointsToSet;
 import soot.jimple.spark.sets.EmptyPointsToSet;
+import soot.jimple.spark.sets.HashConsedPointsToSet;
 import soot.jimple.spark.sets.HashPointsToSet;
 import soot.jimple.spark.sets.HybridPointsToSet;
 import soot.jimple.spark.sets.P2SetFactory;
 import soot.jimple.spark.sets.P2SetVisitor;
 import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.jimple.spark.sets.RoaringPointsToSet;
 import soot.jimple.spark.sets.SharedHybridSet;
 import soot.jimple.spark.sets.SharedListSet;
 import soot.jimple.spark.sets.SortedArraySet;
@@ -116,6 +118,12 @@ public class PAG implements PointsToAnalysis {
             case SparkOptions.set_impl_bit:
                 setFactory = BitPointsToSet.getFactory();
                 break;
+            case SparkOptions.set_impl_roaring:
+                setFactory = RoaringPointsToSet.getFactory();
+                break;
+            case SparkOptions.set_impl_hashcons:
+                setFactory = HashConsedPointsToSet.getFactory();
+                break;
             case SparkOptions.set_impl_double:
                 P2SetFactory oldF;
                 P2SetFactory newF;
@@ -138,6 +146,12 @@ public class PAG implements PointsToAnalysis {
                     case SparkOptions.double_set_old_bit:
                         oldF = BitPointsToSet.getFactory();
                         break;
+                    case SparkOptions.double_set_old_roaring:
+                        oldF = RoaringPointsToSet.getFactory();
+                        break;
+                    case SparkOptions.double_set_old_hashcons:
+                        oldF = HashConsedPointsToSet.getFactory();
+                        break;
                     default:
                         throw new RuntimeException();
                 }
@@ -160,6 +174,12 @@ public class PAG implements PointsToAnalysis {
                     case SparkOptions.double_set_new_bit:
                         newF = BitPointsToSet.getFactory();
                         break;
+                    case SparkOptions.double_set_new_roaring:
+                        newF = RoaringPointsToSet.getFactory();
+                        break;
+                    case SparkOptions.double_set_new_hashcons:
+                        newF = HashConsedPointsToSet.getFactory();
+                        break;
                     default:
                         throw new RuntimeException();
                 }
@@ -242,7 +262,7 @@ public class PAG implements PointsToAnalysis {
         return setFactory;
     }
     
-    private <K extends Node> void lookupInMap(Map<K, Object> map) {
+    private <K extends Node> void lookupInMap(EdgeMap<K> map) {
         for (K object : map.keySet()) {
             lookup( map, object );
         }
@@ -267,19 +287,19 @@ public class PAG implements PointsToAnalysis {
         }
     }
     public boolean doAddSimpleEdge( VarNode from, VarNode to ) {
-        return addToMap( simple, from, to ) | addToMap( simpleInv, to, from );
+        return simple.add( from, to ) | simpleInv.add( to, from );
     }
 
     public boolean doAddStoreEdge( VarNode from, FieldRefNode to ) {
-        return addToMap( store, from, to ) | addToMap( storeInv, to, from );
+        return store.add( from, to ) | storeInv.add( to, from );
     }
 
     public boolean doAddLoadEdge( FieldRefNode from, VarNode to ) {
-        return addToMap( load, from, to ) | addToMap( loadInv, to, from );
+        return load.add( from, to ) | loadInv.add( to, from );
     }
 
     public boolean doAddAllocEdge( AllocNode from, VarNode to ) {
-        return addToMap( alloc, from, to ) | addToMap( allocInv, to, from );
+        return alloc.add( from, to ) | allocInv.add( to, from );
     }
 
     /** Node uses this to notify PAG that n2 has been merged into n1. */
@@ -289,82 +309,19 @@ public class PAG implements PointsToAnalysis {
         somethingMerged = true;
         if( ofcg() != null ) ofcg().mergedWith( n1, n2 );
 
-        Map[] maps = { simple, alloc, store, load,
+        EdgeMap[] maps = { simple, alloc, store, load,
             simpleInv, allocInv, storeInv, loadInv };
-        for (Map<Node, Object> m : maps) {
-            if( !m.keySet().contains( n2 ) ) continue;
-
-            Object[] os = { m.get( n1 ), m.get( n2 ) };
-            int size1 = getSize(os[0]); int size2 = getSize(os[1]);
-            if( size1 == 0 ) {
-                if( os[1] != null ) m.put( n1, os[1] );
-            } else if( size2 == 0 ) {
-                // nothing needed
-            } else if( os[0] instanceof HashSet ) {
-                if( os[1] instanceof HashSet ) {
-                    ((HashSet) os[0]).addAll( (HashSet) os[1] );
-                } else {
-                    Node[] ar = (Node[]) os[1];
-                    for (Node element0 : ar) {
-                        ( (HashSet<Node>) os[0] ).add( element0 );
-                    }
-                }
-            } else if( os[1] instanceof HashSet ) {
-                Node[] ar = (Node[]) os[0];
-                for (Node element0 : ar) {
-                    ((HashSet<Node>) os[1]).add( element0 );
-                }
-                m.put( n1, os[1] );
-            } else if( size1*size2 < 1000 ) {
-                Node[] a1 = (Node[]) os[0];
-                Node[] a2 = (Node[]) os[1];
-                Node[] ret = new Node[size1+size2];
-                System.arraycopy( a1, 0, ret, 0, a1.length ); 
-                int j = a1.length;
-                outer: for (Node rep : a2) {
-                    for( int k = 0; k < j; k++ )
-                        if( rep == ret[k] ) continue outer;
-                    ret[j++] = rep;
-                }
-                Node[] newArray = new Node[j];
-                System.arraycopy( ret, 0, newArray, 0, j );
-                m.put( n1, ret = newArray );
-            } else {
-                HashSet<Node> s = new HashSet<Node>( size1+size2 );
-                for (Object o : os) {
-                    if( o == null ) continue;
-                    if( o instanceof Set ) {
-                        s.addAll( (Set<Node>) o );
-                    } else {
-                        Node[] ar = (Node[]) o;
-                        for (Node element1 : ar) {
-                            s.add( element1 );
-                        }
-                    }
-                }
-                m.put( n1, s );
+        for (EdgeMap m : maps) {
+            // The maps are indexed by the numbers of one kind of node
+            if( !m.containsKey( n2 ) ) continue;
+            for (Node n : m.remove( n2 )) {
+                m.add( n1, n );
             }
-            m.remove( n2 );
         }
     }
     protected final static Node[] EMPTY_NODE_ARRAY = new Node[0];
-    protected <K extends Node> Node[] lookup( Map<K, Object> m, K key ) {
-	Object valueList = m.get( key );
-	if( valueList == null ) {
-	    return EMPTY_NODE_ARRAY;
-	}
-	if( valueList instanceof Set ) {
-            try {
-	    m.put( key, valueList = 
-		    ( (Set) valueList ).toArray( EMPTY_NODE_ARRAY ) );
-            } catch( Exception e ) {
-                for( Iterator it = ((Set)valueList).iterator(); it.hasNext(); ) {
-                    G.v().out.println( ""+it.next() );
-                }
-                throw new RuntimeException( ""+valueList+e );
-            }
-	}
-	Node[] ret = (Node[]) valueList;
+    protected <K extends Node> Node[] lookup( EdgeMap<K> m, K key ) {
+        Node[] ret = m.lookup( key );
         if( somethingMerged ) {
             for( int i = 0; i < ret.length; i++ ) {
                 Node reti = ret[i];
@@ -372,18 +329,19 @@ public class PAG implements PointsToAnalysis {
                 if( rep != reti || rep == key ) {
                     Set<Node> s;
                     if( ret.length <= 75 ) {
+                        Node[] newArray = new Node[ret.length];
+                        System.arraycopy( ret, 0, newArray, 0, i );
                         int j = i;
                         outer: for( ; i < ret.length; i++ ) {
                             reti = ret[i];
                             rep = reti.getReplacement();
                             if( rep == key ) continue;
                             for( int k = 0; k < j; k++ )
-                                if( rep == ret[k] ) continue outer;
-                            ret[j++] = rep;
+                                if( rep == newArray[k] ) continue outer;
+                            newArray[j++] = rep;
                         }
-                        Node[] newArray = new Node[j];
-                        System.arraycopy( ret, 0, newArray, 0, j );
-                        m.put( key, ret = newArray );
+                        ret = new Node[j];
+                        System.arraycopy( newArray, 0, ret, 0, j );
                     } else {
                         s = new HashSet<Node>( ret.length * 2 );
                         for( int j = 0; j < i; j++ ) s.add( ret[j] );
@@ -393,13 +351,14 @@ public class PAG implements PointsToAnalysis {
                                 s.add( rep );
                             }
                         }
-                        m.put( key, ret = s.toArray( EMPTY_NODE_ARRAY ) );
+                        ret = s.toArray( EMPTY_NODE_ARRAY );
                     }
+                    m.set( key, ret );
                     break;
                 }
             }
         }
-	return ret;
+        return ret;
     }
 
     public Node[] simpleLookup( VarNode key ) 
@@ -436,12 +395,6 @@ public class PAG implements PointsToAnalysis {
     public Iterator<FieldRefNode> storeInvSourcesIterator() { return storeInv.keySet().iterator(); }
     public Iterator<VarNode> loadInvSourcesIterator() { return loadInv.keySet().iterator(); }
 
-    static private int getSize( Object set ) {
-        if( set instanceof Set ) return ((Set<?>) set).size();
-        else if( set == null ) return 0;
-        else return ((Object[]) set).length;
-    }
-
 
     protected P2SetFactory setFactory;
     protected boolean somethingMerged = false;
@@ -753,12 +706,41 @@ public class PAG implements PointsToAnalysis {
 		}
     }
 
+    /** Removes all edges from and to n, for incremental updates. Points-to
+     * sets are left unchanged. */
+    public void removeEdgesOf( Node n ) {
+        if( n instanceof VarNode ) {
+            removeFromMaps( simple, simpleInv, n );
+            removeFromMaps( simpleInv, simple, n );
+            removeFromMaps( store, storeInv, n );
+            removeFromMaps( loadInv, load, n );
+            removeFromMaps( allocInv, alloc, n );
+        } else if( n instanceof FieldRefNode ) {
+            removeFromMaps( load, loadInv, n );
+            removeFromMaps( storeInv, store, n );
+        } else if( n instanceof AllocNode ) {
+            removeFromMaps( alloc, allocInv, n );
+        }
+    }
+
+    /** Removes key from m, and removes it from the entries of the inverse
+     * map inv of all nodes it was mapped to. */
+    private static void removeFromMaps( EdgeMap<?> m, EdgeMap<?> inv, Node key ) {
+        for( Node n : m.remove( key ) ) {
+            inv.remove( n, key );
+        }
+    }
+
     protected ChunkedQueue<Node> edgeQueue = new ChunkedQueue<Node>();
     public QueueReader<Node> edgeReader() { return edgeQueue.reader(); }
 
     public int getNumAllocNodes() {
         return allocNodeNumberer.size();
     }
+    public int getNumSimpleEdges() { return simple.countEdges(); }
+    public int getNumAllocEdges() { return alloc.countEdges(); }
+    public int getNumLoadEdges() { return load.countEdges(); }
+    public int getNumStoreEdges() { return store.countEdges(); }
     public TypeManager getTypeManager() {
         return typeManager;
     }
@@ -1161,32 +1143,16 @@ public class PAG implements PointsToAnalysis {
     protected CGOptions cgOpts;
     protected ClientAccessibilityOracle accessibilityOracle = Scene.v().getClientAccessibilityOracle();
 
-    protected Map<VarNode, Object> simple = new HashMap<VarNode, Object>();
-    protected Map<FieldRefNode, Object> load = new HashMap<FieldRefNode, Object>();
-    protected Map<VarNode, Object> store = new HashMap<VarNode, Object>();
-    protected Map<AllocNode, Object> alloc = new HashMap<AllocNode, Object>();
-
-    protected Map<VarNode, Object> simpleInv = new HashMap<VarNode, Object>();
-    protected Map<VarNode, Object> loadInv = new HashMap<VarNode, Object>();
-    protected Map<FieldRefNode, Object> storeInv = new HashMap<FieldRefNode, Object>();
-    protected Map<VarNode, Object> allocInv = new HashMap<VarNode, Object>();
-
-    protected <K extends Node> boolean addToMap( Map<K, Object> m, K key, Node value ) {
-	Object valueList = m.get( key );
-
-	if( valueList == null ) {
-	    m.put( key, valueList = new HashSet(4) );
-	} else if( !(valueList instanceof Set) ) {
-	    Node[] ar = (Node[]) valueList;
-            HashSet<Node> vl = new HashSet<Node>(ar.length+4);
-            m.put( key, vl );
-            for (Node element : ar)
-				vl.add( element );
-            return vl.add( value );
-	}
-	return ((Set<Node>) valueList).add( value );
-    }
-	
+    protected EdgeMap<VarNode> simple = new EdgeMap<VarNode>( varNodeNumberer );
+    protected EdgeMap<FieldRefNode> load = new EdgeMap<FieldRefNode>( fieldRefNodeNumberer );
+    protected EdgeMap<VarNode> store = new EdgeMap<VarNode>( varNodeNumberer );
+    protected EdgeMap<AllocNode> alloc = new EdgeMap<AllocNode>( allocNodeNumberer );
+
+    protected EdgeMap<VarNode> simpleInv = new EdgeMap<VarNode>( varNodeNumberer );
+    protected EdgeMap<VarNode> loadInv = new EdgeMap<VarNode>( varNodeNumberer );
+    protected EdgeMap<FieldRefNode> storeInv = new EdgeMap<FieldRefNode>( fieldRefNodeNumberer );
+    protected EdgeMap<VarNode> allocInv = new EdgeMap<VarNode>( varNodeNumberer );
+
     private boolean runGeomPTA = false;
     protected Map<Pair<Node, Node>, Set<Edge>> assign2edges = new HashMap<Pair<Node, Node>, Set<Edge>>();
     private final Map<Object, LocalVarNode> valToLocalVarNode = new HashMap<Object, LocalVarNode>(1000);
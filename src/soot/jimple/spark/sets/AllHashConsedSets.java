@@ -0,0 +1,78 @@
+package soot.jimple.spark.sets;
+
+import soot.G;
+import soot.Singletons;
+import soot.jimple.spark.sets.HashConsedPointsToSet.Contents;
+import soot.util.BitVector;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/** A singleton to hold the intern table and the memoized unions for
+ * HashConsedPointsToSet. Both may be used by several threads at once. */
+
+public class AllHashConsedSets {
+    public AllHashConsedSets( Singletons.Global g ) {}
+    public static AllHashConsedSets v() { return G.v().soot_jimple_spark_sets_AllHashConsedSets(); }
+
+    /** The number of unions that are remembered. */
+    private static final int UNION_CACHE_SIZE = 1 << 16;
+
+    /** The key of a memoized union. All parts are compared by identity,
+     * which is enough since contents are interned. */
+    private static final class Union {
+        final Contents set;
+        final Contents other;
+        final Contents exclude;
+        final BitVector mask;
+
+        Union( Contents set, Contents other, Contents exclude, BitVector mask ) {
+            this.set = set;
+            this.other = other;
+            this.exclude = exclude;
+            this.mask = mask;
+        }
+        public int hashCode() {
+            int ret = set.hashCode();
+            ret = 31 * ret + other.hashCode();
+            ret = 31 * ret + ( exclude == null ? 0 : exclude.hashCode() );
+            return 31 * ret + System.identityHashCode( mask );
+        }
+        public boolean equals( Object o ) {
+            if( !(o instanceof Union) ) return false;
+            Union u = (Union) o;
+            return set == u.set && other == u.other
+                && exclude == u.exclude && mask == u.mask;
+        }
+    }
+
+    private final Interner<Contents> sets = Interners.newWeakInterner();
+    private final Cache<Union, Contents> unions = CacheBuilder.newBuilder()
+        .maximumSize( UNION_CACHE_SIZE ).<Union, Contents>build();
+
+    /** The contents of all empty sets. */
+    final Contents EMPTY = sets.intern( new Contents( new int[0] ) );
+
+    /** Returns the single instance of the contents holding the given sorted
+     * node numbers. */
+    Contents intern( int[] numbers ) {
+        if( numbers.length == 0 ) return EMPTY;
+        return sets.intern( new Contents( numbers ) );
+    }
+
+    /** Returns the contents of set united with the nodes of other that pass
+     * the mask and are not in exclude; mask and exclude may be null. */
+    Contents union( Contents set, Contents other, Contents exclude, BitVector mask ) {
+        Union key = new Union( set, other, exclude, mask );
+        Contents ret = unions.getIfPresent( key );
+        if( ret == null ) {
+            int[] numbers = HashConsedPointsToSet.union( set.numbers, other.numbers,
+                    exclude == null ? null : exclude.numbers, mask );
+            ret = numbers == set.numbers ? set : intern( numbers );
+            unions.put( key, ret );
+        }
+        return ret;
+    }
+}
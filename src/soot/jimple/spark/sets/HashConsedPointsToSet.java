@@ -0,0 +1,156 @@
+package soot.jimple.spark.sets;
+import java.util.Arrays;
+
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.util.*;
+import soot.PointsToSet;
+import soot.Type;
+
+/** Implementation of points-to set whose contents are immutable and
+ * hash-consed. A set only refers to a sorted array of node numbers, which is
+ * interned in {@link AllHashConsedSets}, so that all sets with the same
+ * nodes share one array and two sets are equal iff they refer to the same
+ * contents. Adding to a set replaces its contents by the interned result.
+ * Unions of whole sets are memoized, so that uniting the same contents again
+ * costs a lookup and reports no change by comparing references.
+ */
+public final class HashConsedPointsToSet extends PointsToSetInternal {
+    public HashConsedPointsToSet( Type type, PAG pag ) {
+        super( type );
+        this.pag = pag;
+        this.contents = AllHashConsedSets.v().EMPTY;
+    }
+    /** Returns true if this set contains no run-time objects. */
+    public final boolean isEmpty() {
+        return contents.numbers.length == 0;
+    }
+    public final int size() {
+        return contents.numbers.length;
+    }
+    /** Adds contents of other into this set, returns true if this set
+     * changed. */
+    public final boolean addAll( PointsToSetInternal other,
+            PointsToSetInternal exclude ) {
+        if( other != null && !(other instanceof HashConsedPointsToSet) )
+            return super.addAll( other, exclude );
+        if( exclude != null && !(exclude instanceof HashConsedPointsToSet) )
+            return super.addAll( other, exclude );
+        if( other == null ) return false;
+        Contents o = ((HashConsedPointsToSet) other).contents;
+        Contents e = exclude == null ? null : ((HashConsedPointsToSet) exclude).contents;
+        if( o == contents || o.numbers.length == 0 ) return false;
+        if( e != null && e.numbers.length == 0 ) e = null;
+        Contents result = AllHashConsedSets.v().union( contents, o, e, getBitMask( other, pag ) );
+        if( result == contents ) return false;
+        contents = result;
+        return true;
+    }
+    /** Calls v's visit method on all nodes in this set. */
+    public final boolean forall( P2SetVisitor v ) {
+        ArrayNumberer<?> numberer = pag.getAllocNodeNumberer();
+        for( int num : contents.numbers ) {
+            v.visit( (Node) numberer.get( num ) );
+        }
+        return v.getReturnValue();
+    }
+    /** Adds n to this set, returns true if n was not already in this set. */
+    public final boolean add( Node n ) {
+        if( !pag.getTypeManager().castNeverFails( n.getType(), type ) ) return false;
+        int[] a = contents.numbers;
+        int pos = Arrays.binarySearch( a, n.getNumber() );
+        if( pos >= 0 ) return false;
+        pos = -pos - 1;
+        int[] na = new int[ a.length + 1 ];
+        System.arraycopy( a, 0, na, 0, pos );
+        na[pos] = n.getNumber();
+        System.arraycopy( a, pos, na, pos + 1, a.length - pos );
+        contents = AllHashConsedSets.v().intern( na );
+        return true;
+    }
+    /** Returns true iff the set contains n. */
+    public final boolean contains( Node n ) {
+        return Arrays.binarySearch( contents.numbers, n.getNumber() ) >= 0;
+    }
+    public final boolean hasNonEmptyIntersection( PointsToSet other ) {
+        if( !(other instanceof HashConsedPointsToSet) )
+            return super.hasNonEmptyIntersection( other );
+        Contents o = ((HashConsedPointsToSet) other).contents;
+        if( o == contents ) return !isEmpty();
+        int[] a = contents.numbers;
+        int[] b = o.numbers;
+        int i = 0;
+        int j = 0;
+        while( i < a.length && j < b.length ) {
+            if( a[i] < b[j] ) i++;
+            else if( a[i] > b[j] ) j++;
+            else return true;
+        }
+        return false;
+    }
+    public boolean pointsToSetEquals( Object other ) {
+        if( other instanceof HashConsedPointsToSet )
+            return contents == ((HashConsedPointsToSet) other).contents;
+        return super.pointsToSetEquals( other );
+    }
+    public static P2SetFactory getFactory() {
+        return new P2SetFactory() {
+            public PointsToSetInternal newSet( Type type, PAG pag ) {
+                return new HashConsedPointsToSet( type, pag );
+            }
+        };
+    }
+
+    /* End of public methods. */
+
+    /** The immutable, sorted node numbers of a set. */
+    static final class Contents {
+        final int[] numbers;
+        private final int hashCode;
+
+        Contents( int[] numbers ) {
+            this.numbers = numbers;
+            this.hashCode = Arrays.hashCode( numbers );
+        }
+        public int hashCode() {
+            return hashCode;
+        }
+        public boolean equals( Object o ) {
+            if( this == o ) return true;
+            if( !(o instanceof Contents) ) return false;
+            Contents c = (Contents) o;
+            return hashCode == c.hashCode && Arrays.equals( numbers, c.numbers );
+        }
+    }
+
+    /** Returns a united with the numbers of b that are in mask and not in
+     * exclude, or a itself if that adds nothing. */
+    static int[] union( int[] a, int[] b, int[] exclude, BitVector mask ) {
+        int[] ret = new int[ a.length + b.length ];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        boolean added = false;
+        while( j < b.length ) {
+            int num = b[j++];
+            if( mask != null && !mask.get( num ) ) continue;
+            if( exclude != null ) {
+                while( k < exclude.length && exclude[k] < num ) k++;
+                if( k < exclude.length && exclude[k] == num ) continue;
+            }
+            while( i < a.length && a[i] < num ) ret[ n++ ] = a[ i++ ];
+            if( i < a.length && a[i] == num ) continue;
+            ret[ n++ ] = num;
+            added = true;
+        }
+        if( !added ) return a;
+        while( i < a.length ) ret[ n++ ] = a[ i++ ];
+        return n == ret.length ? ret : Arrays.copyOf( ret, n );
+    }
+
+    /* End of package methods. */
+
+    private Contents contents;
+    private PAG pag = null;
+}
@@ -0,0 +1,451 @@
+package soot.jimple.spark.sets;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.internal.*;
+import soot.util.*;
+import soot.PointsToSet;
+import soot.Type;
+
+/** Implementation of points-to set using a compressed bitmap in the style
+ * of Roaring bitmaps. The numbers of the nodes are split into chunks of
+ * 65536 by their upper 16 bits. Each chunk that is not empty is stored in a
+ * container: a sorted array of the lower 16 bits while the chunk holds at
+ * most 4096 nodes, and a bitmap of 1024 words once it holds more. Sparse
+ * sets thus stay small however many allocation nodes there are, and dense
+ * sets are united a word at a time.
+ */
+public final class RoaringPointsToSet extends PointsToSetInternal {
+    public RoaringPointsToSet( Type type, PAG pag ) {
+        super( type );
+        this.pag = pag;
+    }
+    /** Returns true if this set contains no run-time objects. */
+    public final boolean isEmpty() {
+        return size == 0;
+    }
+    public final int size() {
+        return size;
+    }
+    /** Adds contents of other into this set, returns true if this set
+     * changed. */
+    public final boolean addAll( PointsToSetInternal other,
+            PointsToSetInternal exclude ) {
+        if( other != null && !(other instanceof RoaringPointsToSet) )
+            return super.addAll( other, exclude );
+        if( exclude != null && !(exclude instanceof RoaringPointsToSet) )
+            return super.addAll( other, exclude );
+        return nativeAddAll( (RoaringPointsToSet) other, (RoaringPointsToSet) exclude );
+    }
+    /** Calls v's visit method on all nodes in this set. */
+    public final boolean forall( P2SetVisitor v ) {
+        ArrayNumberer<?> numberer = pag.getAllocNodeNumberer();
+        for( int i = 0; i < count; i++ ) {
+            int high = keys[i] << 16;
+            Object c = containers[i];
+            if( c instanceof char[] ) {
+                char[] a = (char[]) c;
+                for( int j = 0; j < cards[i]; j++ ) {
+                    v.visit( (Node) numberer.get( high | a[j] ) );
+                }
+            } else {
+                long[] b = (long[]) c;
+                for( int w = 0; w < BITMAP_WORDS; w++ ) {
+                    long word = b[w];
+                    while( word != 0 ) {
+                        int bit = Long.numberOfTrailingZeros( word );
+                        v.visit( (Node) numberer.get( high | (w << 6) | bit ) );
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return v.getReturnValue();
+    }
+    /** Adds n to this set, returns true if n was not already in this set. */
+    public final boolean add( Node n ) {
+        if( pag.getTypeManager().castNeverFails( n.getType(), type ) ) {
+            return fastAdd( n.getNumber() );
+        }
+        return false;
+    }
+    /** Returns true iff the set contains n. */
+    public final boolean contains( Node n ) {
+        int num = n.getNumber();
+        int i = find( num >>> 16 );
+        return i >= 0 && containerContains( i, (char) num );
+    }
+    public final boolean hasNonEmptyIntersection( PointsToSet other ) {
+        if( !(other instanceof RoaringPointsToSet) )
+            return super.hasNonEmptyIntersection( other );
+        RoaringPointsToSet o = (RoaringPointsToSet) other;
+        int i = 0;
+        int j = 0;
+        while( i < count && j < o.count ) {
+            if( keys[i] < o.keys[j] ) {
+                i++;
+            } else if( keys[i] > o.keys[j] ) {
+                j++;
+            } else {
+                if( intersects( containers[i], cards[i], o.containers[j], o.cards[j] ) )
+                    return true;
+                i++;
+                j++;
+            }
+        }
+        return false;
+    }
+    public static P2SetFactory getFactory() {
+        return new P2SetFactory() {
+            public PointsToSetInternal newSet( Type type, PAG pag ) {
+                return new RoaringPointsToSet( type, pag );
+            }
+        };
+    }
+
+    /* End of public methods. */
+    /* End of package methods. */
+
+    private boolean fastAdd( int num ) {
+        int key = num >>> 16;
+        char low = (char) num;
+        int i = find( key );
+        if( i < 0 ) {
+            insertContainer( -i - 1, key, new char[] { low }, 1 );
+            size++;
+            return true;
+        }
+        Object c = containers[i];
+        if( c instanceof long[] ) {
+            long[] b = (long[]) c;
+            long bit = 1L << low;
+            if( (b[low >>> 6] & bit) != 0 ) return false;
+            b[low >>> 6] |= bit;
+        } else {
+            char[] a = (char[]) c;
+            int card = cards[i];
+            int pos = binarySearch( a, card, low );
+            if( pos >= 0 ) return false;
+            pos = -pos - 1;
+            if( card == ARRAY_LIMIT ) {
+                long[] b = toBitmap( a, card );
+                b[low >>> 6] |= 1L << low;
+                containers[i] = b;
+            } else {
+                if( card == a.length ) {
+                    char[] na = new char[ Math.min( ARRAY_LIMIT, card * 2 ) ];
+                    System.arraycopy( a, 0, na, 0, pos );
+                    System.arraycopy( a, pos, na, pos + 1, card - pos );
+                    a = na;
+                    containers[i] = a;
+                } else {
+                    System.arraycopy( a, pos, a, pos + 1, card - pos );
+                }
+                a[pos] = low;
+            }
+        }
+        cards[i]++;
+        size++;
+        return true;
+    }
+
+    private boolean nativeAddAll( RoaringPointsToSet other, RoaringPointsToSet exclude ) {
+        if( other == null || other == this || other == exclude ) return false;
+        BitVector mask = null;
+        TypeManager typeManager = pag.getTypeManager();
+        if( !typeManager.castNeverFails( other.getType(), this.getType() ) ) {
+            mask = typeManager.get( this.getType() );
+        }
+        boolean ret = false;
+        for( int oi = 0; oi < other.count; oi++ ) {
+            int key = other.keys[oi];
+            Object ec = null;
+            int ecard = 0;
+            if( exclude != null ) {
+                int ei = exclude.find( key );
+                if( ei >= 0 ) {
+                    ec = exclude.containers[ei];
+                    ecard = exclude.cards[ei];
+                }
+            }
+            Object oc = other.containers[oi];
+            if( oc instanceof char[] ) {
+                char[] in = filter( key, (char[]) oc, other.cards[oi], mask, ec, ecard );
+                if( in.length > 0 ) ret = mergeArray( key, in ) | ret;
+            } else {
+                long[] in = filter( key, (long[]) oc, mask, ec, ecard );
+                if( in != null ) ret = mergeBitmap( key, in ) | ret;
+            }
+        }
+        return ret;
+    }
+
+    /** Returns the nodes of the array container a of chunk key that pass the
+     * mask and are not in the exclude container ec. */
+    private static char[] filter( int key, char[] a, int card, BitVector mask,
+            Object ec, int ecard ) {
+        char[] ret = new char[ card ];
+        int n = 0;
+        int high = key << 16;
+        for( int j = 0; j < card; j++ ) {
+            char low = a[j];
+            if( mask != null && !mask.get( high | low ) ) continue;
+            if( ec != null && containerContains( ec, ecard, low ) ) continue;
+            ret[ n++ ] = low;
+        }
+        if( n < card ) {
+            char[] trimmed = new char[ n ];
+            System.arraycopy( ret, 0, trimmed, 0, n );
+            ret = trimmed;
+        }
+        return ret;
+    }
+
+    /** Returns the nodes of the bitmap container b of chunk key that pass the
+     * mask and are not in the exclude container ec, or null if there are
+     * none. */
+    private static long[] filter( int key, long[] b, BitVector mask,
+            Object ec, int ecard ) {
+        long[] ret = new long[ BITMAP_WORDS ];
+        int base = key * BITMAP_WORDS;
+        long any = 0;
+        for( int w = 0; w < BITMAP_WORDS; w++ ) {
+            long word = b[w];
+            if( word == 0 ) continue;
+            if( mask != null ) word &= mask.getWord( base + w );
+            if( ec instanceof long[] ) word &= ~((long[]) ec)[w];
+            ret[w] = word;
+            any |= word;
+        }
+        if( ec instanceof char[] ) {
+            char[] ea = (char[]) ec;
+            for( int j = 0; j < ecard; j++ ) {
+                ret[ ea[j] >>> 6 ] &= ~(1L << ea[j]);
+            }
+            any = 0;
+            for( int w = 0; w < BITMAP_WORDS; w++ ) any |= ret[w];
+        }
+        return any == 0 ? null : ret;
+    }
+
+    /** Adds the sorted nodes in to chunk key, returns true if it changed. */
+    private boolean mergeArray( int key, char[] in ) {
+        int i = find( key );
+        if( i < 0 ) {
+            insertContainer( -i - 1, key, in, in.length );
+            size += in.length;
+            return true;
+        }
+        Object c = containers[i];
+        int card = cards[i];
+        if( c instanceof long[] ) {
+            long[] b = (long[]) c;
+            int added = 0;
+            for( char low : in ) {
+                long bit = 1L << low;
+                if( (b[low >>> 6] & bit) == 0 ) {
+                    b[low >>> 6] |= bit;
+                    added++;
+                }
+            }
+            cards[i] += added;
+            size += added;
+            return added > 0;
+        }
+        char[] a = (char[]) c;
+        char[] merged = new char[ card + in.length ];
+        int n = 0;
+        int ai = 0;
+        int ii = 0;
+        while( ai < card && ii < in.length ) {
+            if( a[ai] < in[ii] ) {
+                merged[ n++ ] = a[ ai++ ];
+            } else if( a[ai] > in[ii] ) {
+                merged[ n++ ] = in[ ii++ ];
+            } else {
+                merged[ n++ ] = a[ ai++ ];
+                ii++;
+            }
+        }
+        while( ai < card ) merged[ n++ ] = a[ ai++ ];
+        while( ii < in.length ) merged[ n++ ] = in[ ii++ ];
+        if( n == card ) return false;
+        containers[i] = n > ARRAY_LIMIT ? toBitmap( merged, n ) : merged;
+        cards[i] = n;
+        size += n - card;
+        return true;
+    }
+
+    /** Adds the nodes in the bitmap in to chunk key, returns true if it
+     * changed. The bitmap may be kept by this set. */
+    private boolean mergeBitmap( int key, long[] in ) {
+        int i = find( key );
+        if( i < 0 ) {
+            int n = cardinality( in );
+            insertContainer( -i - 1, key, n > ARRAY_LIMIT ? in : toArray( in, n ), n );
+            size += n;
+            return true;
+        }
+        Object c = containers[i];
+        int card = cards[i];
+        if( c instanceof char[] ) {
+            char[] a = (char[]) c;
+            for( int j = 0; j < card; j++ ) {
+                in[ a[j] >>> 6 ] |= 1L << a[j];
+            }
+            int n = cardinality( in );
+            if( n == card ) return false;
+            containers[i] = n > ARRAY_LIMIT ? in : toArray( in, n );
+            cards[i] = n;
+            size += n - card;
+            return true;
+        }
+        long[] b = (long[]) c;
+        int added = 0;
+        for( int w = 0; w < BITMAP_WORDS; w++ ) {
+            long fresh = in[w] & ~b[w];
+            if( fresh != 0 ) {
+                b[w] |= fresh;
+                added += Long.bitCount( fresh );
+            }
+        }
+        cards[i] += added;
+        size += added;
+        return added > 0;
+    }
+
+    private static boolean intersects( Object c1, int card1, Object c2, int card2 ) {
+        if( c1 instanceof long[] && c2 instanceof long[] ) {
+            long[] b1 = (long[]) c1;
+            long[] b2 = (long[]) c2;
+            for( int w = 0; w < BITMAP_WORDS; w++ ) {
+                if( (b1[w] & b2[w]) != 0 ) return true;
+            }
+            return false;
+        }
+        if( c1 instanceof long[] ) {
+            return intersects( c2, card2, c1, card1 );
+        }
+        char[] a1 = (char[]) c1;
+        if( c2 instanceof long[] ) {
+            long[] b2 = (long[]) c2;
+            for( int j = 0; j < card1; j++ ) {
+                if( (b2[ a1[j] >>> 6 ] & (1L << a1[j])) != 0 ) return true;
+            }
+            return false;
+        }
+        char[] a2 = (char[]) c2;
+        int i = 0;
+        int j = 0;
+        while( i < card1 && j < card2 ) {
+            if( a1[i] < a2[j] ) i++;
+            else if( a1[i] > a2[j] ) j++;
+            else return true;
+        }
+        return false;
+    }
+
+    private boolean containerContains( int i, char low ) {
+        return containerContains( containers[i], cards[i], low );
+    }
+
+    private static boolean containerContains( Object c, int card, char low ) {
+        if( c instanceof long[] ) {
+            return ( ((long[]) c)[ low >>> 6 ] & (1L << low) ) != 0;
+        }
+        return binarySearch( (char[]) c, card, low ) >= 0;
+    }
+
+    /** Returns the index of the container of chunk key, or -(insertion
+     * point)-1 if there is none. */
+    private int find( int key ) {
+        int lo = 0;
+        int hi = count - 1;
+        while( lo <= hi ) {
+            int mid = (lo + hi) >>> 1;
+            int k = keys[mid];
+            if( k < key ) lo = mid + 1;
+            else if( k > key ) hi = mid - 1;
+            else return mid;
+        }
+        return -lo - 1;
+    }
+
+    private void insertContainer( int pos, int key, Object c, int card ) {
+        if( count == keys.length ) {
+            int newLength = count == 0 ? 2 : count * 2;
+            char[] nkeys = new char[ newLength ];
+            Object[] ncontainers = new Object[ newLength ];
+            int[] ncards = new int[ newLength ];
+            System.arraycopy( keys, 0, nkeys, 0, count );
+            System.arraycopy( containers, 0, ncontainers, 0, count );
+            System.arraycopy( cards, 0, ncards, 0, count );
+            keys = nkeys;
+            containers = ncontainers;
+            cards = ncards;
+        }
+        System.arraycopy( keys, pos, keys, pos + 1, count - pos );
+        System.arraycopy( containers, pos, containers, pos + 1, count - pos );
+        System.arraycopy( cards, pos, cards, pos + 1, count - pos );
+        keys[pos] = (char) key;
+        containers[pos] = c;
+        cards[pos] = card;
+        count++;
+    }
+
+    private static int binarySearch( char[] a, int card, char low ) {
+        int lo = 0;
+        int hi = card - 1;
+        while( lo <= hi ) {
+            int mid = (lo + hi) >>> 1;
+            char v = a[mid];
+            if( v < low ) lo = mid + 1;
+            else if( v > low ) hi = mid - 1;
+            else return mid;
+        }
+        return -lo - 1;
+    }
+
+    private static long[] toBitmap( char[] a, int card ) {
+        long[] ret = new long[ BITMAP_WORDS ];
+        for( int j = 0; j < card; j++ ) {
+            ret[ a[j] >>> 6 ] |= 1L << a[j];
+        }
+        return ret;
+    }
+
+    private static char[] toArray( long[] b, int card ) {
+        char[] ret = new char[ card ];
+        int n = 0;
+        for( int w = 0; w < BITMAP_WORDS; w++ ) {
+            long word = b[w];
+            while( word != 0 ) {
+                ret[ n++ ] = (char) ( (w << 6) | Long.numberOfTrailingZeros( word ) );
+                word &= word - 1;
+            }
+        }
+        return ret;
+    }
+
+    private static int cardinality( long[] b ) {
+        int ret = 0;
+        for( long word : b ) ret += Long.bitCount( word );
+        return ret;
+    }
+
+    /** The largest number of nodes kept in an array container. */
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final char[] NO_KEYS = new char[0];
+    private static final Object[] NO_CONTAINERS = new Object[0];
+    private static final int[] NO_CARDS = new int[0];
+
+    /** The upper 16 bits of the node numbers in each chunk, sorted. */
+    private char[] keys = NO_KEYS;
+    /** The container of each chunk, a char[] or a long[]. */
+    private Object[] containers = NO_CONTAINERS;
+    /** The number of nodes in each chunk. */
+    private int[] cards = NO_CARDS;
+    private int count = 0;
+    private int size = 0;
+    private PAG pag = null;
+}
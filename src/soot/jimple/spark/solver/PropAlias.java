@@ -59,6 +59,7 @@ public final class PropAlias extends Propagator {
 
         boolean verbose = pag.getOpts().verbose();
 	do {
+            countIteration();
             if( verbose ) {
                 G.v().out.println( "Worklist has "+varNodeWorkList.size()+
                         " nodes." );
@@ -48,6 +48,7 @@ public final class PropCycle extends Propagator {
         boolean changed;
         boolean finalIter = false;
 	do {
+            countIteration();
             changed = false;
             iteration++;
             currentIteration = new Integer( iteration );
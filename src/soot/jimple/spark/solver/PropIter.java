@@ -40,6 +40,7 @@ public final class PropIter extends Propagator {
         int iteration = 1;
 	boolean change;
 	do {
+            countIteration();
 	    change = false;
             TreeSet<Object> simpleSources = new TreeSet<Object>( pag.simpleSources() );
             if( pag.getOpts().verbose() ) {
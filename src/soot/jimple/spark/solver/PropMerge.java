@@ -41,6 +41,7 @@ public final class PropMerge extends Propagator {
 
         boolean verbose = pag.getOpts().verbose();
 	do {
+            countIteration();
             if( verbose ) {
                 G.v().out.println( "Worklist has "+varNodeWorkList.size()+
                         " nodes." );
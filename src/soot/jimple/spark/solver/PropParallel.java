@@ -0,0 +1,372 @@
+package soot.jimple.spark.solver;
+
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import soot.G;
+import soot.PackManager;
+import soot.jimple.spark.pag.AllocDotField;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.FieldRefNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.SparkField;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.BitPointsToSet;
+import soot.jimple.spark.sets.HybridPointsToSet;
+import soot.jimple.spark.sets.P2SetFactory;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.spark.sets.PointsToSetInternal;
+import soot.jimple.spark.sets.RoaringPointsToSet;
+import soot.options.SparkOptions;
+import soot.util.queue.QueueReader;
+
+/**
+ * Propagates points-to sets along the pointer assignment graph on multiple
+ * threads, in bulk-synchronous rounds. Each round has two parallel phases:
+ * <ol>
+ * <li>All edges are followed and the points-to information flowing into
+ * each node is collected in a private delta set for that node. The
+ * points-to sets of the nodes themselves are only read.</li>
+ * <li>Each delta is added to the points-to set of its node. Every node is
+ * written by exactly one thread, and no other sets are read.</li>
+ * </ol>
+ * Simple edges only carry the points-to information that is new since the
+ * previous round; loads and stores always carry complete sets. Between the
+ * rounds, the on-the-fly call graph is updated in the calling thread. The
+ * propagation stops when a round does not change any set, which yields the
+ * same least solution as {@link PropWorklist}, independent of the number of
+ * threads and of their scheduling.
+ * <p>
+ * The number of threads is taken from the num-threads option. The shared
+ * set implementations keep global state, so with them the second phase runs
+ * in the calling thread.
+ */
+public final class PropParallel extends Propagator {
+	/** The number of units of work per thread each phase is split into. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final PAG pag;
+	private final int numThreads;
+	private final boolean parallelWrites;
+	/** Creates the delta sets, matching the set implementation of the PAG
+	 * where that has a fast addAll. */
+	private final P2SetFactory deltaFactory;
+	private OnFlyCallGraph ofcg;
+	/** Runs the chunks of all phases of one propagation, or null if there is
+	 * only one thread. */
+	private CountingThreadPoolExecutor executor;
+
+	/** The points-to information collected for each node in the current
+	 * round. */
+	private final ConcurrentMap<Node, PointsToSetInternal> deltas = new ConcurrentHashMap<Node, PointsToSetInternal>();
+
+	public PropParallel(PAG pag) {
+		this.pag = pag;
+		this.numThreads = PackManager.v().getNumThreads();
+		SparkOptions opts = pag.getOpts();
+		this.parallelWrites = !isShared(opts.set_impl())
+				&& !(opts.set_impl() == SparkOptions.set_impl_double
+						&& (opts.double_set_old() == SparkOptions.double_set_old_heintze
+						|| opts.double_set_old() == SparkOptions.double_set_old_sharedlist
+						|| opts.double_set_new() == SparkOptions.double_set_new_heintze
+						|| opts.double_set_new() == SparkOptions.double_set_new_sharedlist));
+		if (opts.set_impl() == SparkOptions.set_impl_bit)
+			this.deltaFactory = BitPointsToSet.getFactory();
+		else if (opts.set_impl() == SparkOptions.set_impl_roaring)
+			this.deltaFactory = RoaringPointsToSet.getFactory();
+		else
+			this.deltaFactory = HybridPointsToSet.getFactory();
+	}
+
+	private static boolean isShared(int setImpl) {
+		return setImpl == SparkOptions.set_impl_heintze
+				|| setImpl == SparkOptions.set_impl_sharedlist;
+	}
+
+	/** Actually does the propagation. */
+	public final void propagate() {
+		ofcg = pag.getOnFlyCallGraph();
+		new TopoSorter(pag, false).sort();
+
+		Set<VarNode> changed = new TreeSet<VarNode>();
+		for (AllocNode src : pag.allocSources()) {
+			for (Node target : pag.allocLookup(src)) {
+				if (target.makeP2Set().add(src))
+					changed.add((VarNode) target);
+			}
+		}
+
+		if (numThreads > 1) {
+			executor = new CountingThreadPoolExecutor(numThreads, numThreads,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		}
+		try {
+			propagateRounds(changed);
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
+
+	/** Runs rounds until nothing changes, starting from the nodes whose
+	 * points-to sets were changed by the allocation edges. */
+	private void propagateRounds(Set<VarNode> changed) {
+		boolean verbose = pag.getOpts().verbose();
+		int round = 1;
+		boolean change = true;
+		while (change) {
+			countIteration();
+			if (verbose) {
+				G.v().out.println("Round " + (round++) + ", " + changed.size()
+						+ " changed nodes");
+			}
+			change = updateCallGraph(changed);
+			prepare();
+
+			// Phase 1: collect the deltas
+			final List<VarNode> simpleSources = new ArrayList<VarNode>(changed);
+			final List<VarNode> storeSources = new ArrayList<VarNode>(pag.storeSources());
+			final List<FieldRefNode> loadSources = new ArrayList<FieldRefNode>(pag.loadSources());
+			run(simpleSources.size(), new Chunk() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++)
+						handleSimples(simpleSources.get(i));
+				}
+			});
+			run(storeSources.size(), new Chunk() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++)
+						handleStores(storeSources.get(i));
+				}
+			});
+			run(loadSources.size(), new Chunk() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++)
+						handleLoads(loadSources.get(i));
+				}
+			});
+
+			// The new points-to information of the simple sources has been
+			// followed, everything added from now on is new
+			for (VarNode src : changed)
+				src.getP2Set().flushNew();
+
+			// Phase 2: apply the deltas
+			final List<Map.Entry<Node, PointsToSetInternal>> updates =
+					new ArrayList<Map.Entry<Node, PointsToSetInternal>>(deltas.entrySet());
+			final Set<VarNode> updated = Collections.synchronizedSet(new HashSet<VarNode>());
+			final AtomicBoolean fieldsUpdated = new AtomicBoolean(false);
+			Chunk apply = new Chunk() {
+				public void run(int from, int to) {
+					for (int i = from; i < to; i++) {
+						Map.Entry<Node, PointsToSetInternal> update = updates.get(i);
+						Node node = update.getKey();
+						if (!node.makeP2Set().addAll(update.getValue(), null))
+							continue;
+						if (node instanceof VarNode)
+							updated.add((VarNode) node);
+						else
+							fieldsUpdated.set(true);
+					}
+				}
+			};
+			if (parallelWrites)
+				run(updates.size(), apply);
+			else
+				apply.run(0, updates.size());
+			deltas.clear();
+
+			changed = new TreeSet<VarNode>(updated);
+			change |= !changed.isEmpty() || fieldsUpdated.get();
+		}
+	}
+
+	/* End of public methods. */
+	/* End of package methods. */
+
+	/** Lets the on-the-fly call graph see the new points-to information of
+	 * the given nodes, and adds the points-to information flowing along the
+	 * edges it creates. Nodes whose points-to sets grow in the process are
+	 * added to changed and shown to the call graph as well. Returns true if
+	 * any edges were added. */
+	private boolean updateCallGraph(Set<VarNode> changed) {
+		if (ofcg == null)
+			return false;
+		boolean ret = false;
+		QueueReader<Node> addedEdges = pag.edgeReader();
+		List<VarNode> updatedNodes = new ArrayList<VarNode>(changed);
+		while (!updatedNodes.isEmpty()) {
+			for (VarNode src : updatedNodes) {
+				ofcg.updatedNode(src);
+			}
+			updatedNodes.clear();
+			ofcg.build();
+
+			while (addedEdges.hasNext()) {
+				Node addedSrc = addedEdges.next();
+				Node addedTgt = addedEdges.next();
+				ret = true;
+				VarNode edgeTgt = null;
+				boolean grown = false;
+				if (addedSrc instanceof VarNode) {
+					if (addedTgt instanceof VarNode) {
+						VarNode edgeSrc = (VarNode) addedSrc.getReplacement();
+						edgeTgt = (VarNode) addedTgt.getReplacement();
+						// The old points-to information of the source has
+						// never been propagated along the new edge
+						grown = edgeTgt.makeP2Set().addAll(edgeSrc.getP2Set(), null);
+					}
+				} else if (addedSrc instanceof AllocNode) {
+					edgeTgt = (VarNode) addedTgt.getReplacement();
+					grown = edgeTgt.makeP2Set().add((AllocNode) addedSrc);
+				}
+				if (grown) {
+					changed.add(edgeTgt);
+					updatedNodes.add(edgeTgt);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Brings all shared state that the first phase reads into a form in
+	 * which it is only read: creates the field nodes the stores write to,
+	 * updates the type masks, and lets the PAG convert its edge sets to
+	 * arrays.
+	 */
+	private void prepare() {
+		for (VarNode src : pag.storeSources()) {
+			for (Node element : pag.storeLookup(src)) {
+				final FieldRefNode fr = (FieldRefNode) element;
+				final SparkField f = fr.getField();
+				fr.getBase().getP2Set().forall(new P2SetVisitor() {
+					public final void visit(Node n) {
+						pag.makeAllocDotField((AllocNode) n, f);
+					}
+				});
+			}
+		}
+		for (VarNode src : pag.simpleSources())
+			pag.simpleLookup(src);
+		for (FieldRefNode src : pag.loadSources())
+			pag.loadLookup(src);
+		pag.getTypeManager().update();
+	}
+
+	/** Returns the delta of the given node, creating it if necessary. */
+	private PointsToSetInternal delta(Node node) {
+		PointsToSetInternal ret = deltas.get(node);
+		if (ret == null) {
+			ret = deltaFactory.newSet(node.getType(), pag);
+			PointsToSetInternal old = deltas.putIfAbsent(node, ret);
+			if (old != null)
+				ret = old;
+		}
+		return ret;
+	}
+
+	private void addToDelta(Node node, PointsToSetInternal set) {
+		if (set.isEmpty())
+			return;
+		PointsToSetInternal delta = delta(node);
+		synchronized (delta) {
+			delta.addAll(set, null);
+		}
+	}
+
+	private void handleSimples(VarNode src) {
+		PointsToSetInternal newP2Set = src.getP2Set().getNewSet();
+		if (newP2Set.isEmpty())
+			return;
+		for (Node target : pag.simpleLookup(src))
+			addToDelta(target, newP2Set);
+	}
+
+	private void handleStores(VarNode src) {
+		final PointsToSetInternal srcSet = src.getP2Set();
+		if (srcSet.isEmpty())
+			return;
+		for (Node element : pag.storeLookup(src)) {
+			final FieldRefNode fr = (FieldRefNode) element;
+			final SparkField f = fr.getField();
+			fr.getBase().getP2Set().forall(new P2SetVisitor() {
+				public final void visit(Node n) {
+					addToDelta(((AllocNode) n).dot(f), srcSet);
+				}
+			});
+		}
+	}
+
+	private void handleLoads(FieldRefNode src) {
+		final Node[] loadTargets = pag.loadLookup(src);
+		if (loadTargets.length == 0)
+			return;
+		final SparkField f = src.getField();
+		src.getBase().getP2Set().forall(new P2SetVisitor() {
+			public final void visit(Node n) {
+				AllocDotField nDotF = ((AllocNode) n).dot(f);
+				if (nDotF == null)
+					return;
+				PointsToSetInternal set = nDotF.getP2Set();
+				for (Node target : loadTargets)
+					addToDelta(target, set);
+			}
+		});
+	}
+
+	/** A range of work items of a phase. */
+	private interface Chunk {
+		void run(int from, int to);
+	}
+
+	/** Splits the work items 0 to size-1 into chunks, runs them on the
+	 * worker threads and waits for all of them to finish. */
+	private void run(int size, final Chunk chunk) {
+		if (size == 0)
+			return;
+		int numChunks = Math.min(size, numThreads * CHUNKS_PER_THREAD);
+		if (executor == null || numChunks == 1) {
+			chunk.run(0, size);
+			return;
+		}
+
+		for (int c = 0; c < numChunks; c++) {
+			final int from = (int) ((long) size * c / numChunks);
+			final int to = (int) ((long) size * (c + 1) / numChunks);
+			executor.execute(new Runnable() {
+				public void run() {
+					chunk.run(from, to);
+				}
+			});
+		}
+
+		// Wait till all chunks have been processed
+		try {
+			executor.awaitCompletion();
+		} catch (InterruptedException e) {
+			// Something went horribly wrong
+			throw new RuntimeException("Could not wait for propagator threads to "
+					+ "finish: " + e.getMessage(), e);
+		}
+
+		// If something went wrong, we tell the world
+		if (executor.getException() != null)
+			throw (RuntimeException) executor.getException();
+	}
+}
@@ -33,21 +33,35 @@ import java.util.*;
 
 public final class PropWorklist extends Propagator {
 	protected final Set<VarNode> varNodeWorkList = new TreeSet<VarNode>();
+	private final List<VarNode> initialWorkList = new ArrayList<VarNode>();
 
 	public PropWorklist(PAG pag) {
 		this.pag = pag;
 	}
 
+	/**
+	 * Adds a node whose points-to set has new elements that have not been
+	 * propagated yet, for incremental updates. Must be called before
+	 * propagate().
+	 */
+	public void addToWorklist(VarNode n) {
+		initialWorkList.add(n);
+	}
+
 	/** Actually does the propagation. */
 	public final void propagate() {
 		ofcg = pag.getOnFlyCallGraph();
 		new TopoSorter(pag, false).sort();
+		// Only now, since sorting changes the order of the work list
+		varNodeWorkList.addAll(initialWorkList);
+		initialWorkList.clear();
 		for (AllocNode object : pag.allocSources()) {
 			handleAllocNode(object);
 		}
 
 		boolean verbose = pag.getOpts().verbose();
 		do {
+			countIteration();
 			if (verbose) {
 				G.v().out.println("Worklist has " + varNodeWorkList.size()
 						+ " nodes.");
@@ -25,8 +25,17 @@ package soot.jimple.spark.solver;
  */
 
 public abstract class Propagator {
+    private int iterations;
+
     /** Actually does the propagation. */
     public abstract void propagate();
+
+    /** Returns the number of iterations of its main loop the propagation
+     * took. What an iteration is depends on the algorithm. */
+    public int getIterations() { return iterations; }
+
+    /** Called by subclasses at the start of each iteration. */
+    protected void countIteration() { iterations++; }
 }
 
 
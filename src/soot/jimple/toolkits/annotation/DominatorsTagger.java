@@ -23,12 +23,12 @@ import java.util.List;
 import java.util.Map;
 
 import soot.Body;
+import soot.BodyAnalysisCache;
 import soot.BodyTransformer;
 import soot.G;
 import soot.Singletons;
 import soot.jimple.Stmt;
 import soot.tagkit.LinkTag;
-import soot.toolkits.graph.ExceptionalUnitGraph;
 import soot.toolkits.graph.MHGDominatorsFinder;
 
 /** A body transformer that records avail expression 
@@ -38,12 +38,17 @@ public class DominatorsTagger extends BodyTransformer
 	public DominatorsTagger( Singletons.Global g ) {}
     public static DominatorsTagger v() { return G.v().soot_jimple_toolkits_annotation_DominatorsTagger(); }
 
+    @Override
+    protected boolean preservesAll() {
+        return true;
+    }
+
     protected void internalTransform(
             Body b, String phaseName, Map opts)
     {
 
        
-        MHGDominatorsFinder analysis = new MHGDominatorsFinder(new ExceptionalUnitGraph(b));
+        MHGDominatorsFinder analysis = b.getAnalysisCache().get(BodyAnalysisCache.DOMINATORS);
         Iterator it = b.getUnits().iterator();
         while (it.hasNext()){
             Stmt s = (Stmt)it.next();
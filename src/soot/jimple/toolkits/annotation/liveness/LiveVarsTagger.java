@@ -32,9 +32,14 @@ public class LiveVarsTagger extends BodyTransformer {
     public LiveVarsTagger(Singletons.Global g) {}
     public static LiveVarsTagger v() { return G.v().soot_jimple_toolkits_annotation_liveness_LiveVarsTagger();}
 
+    @Override
+    protected boolean preservesAll() {
+        return true;
+    }
+
     protected void internalTransform(Body b, String phaseName, Map options){
     
-        LiveLocals sll = new SimpleLiveLocals(new ExceptionalUnitGraph(b));
+        LiveLocals sll = b.getAnalysisCache().get(BodyAnalysisCache.LIVE_LOCALS);
 
         Iterator it = b.getUnits().iterator();
         while (it.hasNext()){
@@ -35,12 +35,17 @@ public class LoopInvariantFinder extends BodyTransformer {
     public LoopInvariantFinder(Singletons.Global g){}
     public static LoopInvariantFinder v() { return G.v().soot_jimple_toolkits_annotation_logic_LoopInvariantFinder();}
 
+    @Override
+    protected boolean preservesAll() {
+        return true;
+    }
+
     /**
      *  this one uses the side effect tester
      */
     protected void internalTransform (Body b, String phaseName, Map options){
    
-        SmartLocalDefs sld = SmartLocalDefsPool.v().getSmartLocalDefsFor(b);
+        SmartLocalDefs sld = b.getAnalysisCache().get(BodyAnalysisCache.SMART_LOCAL_DEFS);
         UnitGraph g = sld.getGraph();
         NaiveSideEffectTester nset = new NaiveSideEffectTester();
         
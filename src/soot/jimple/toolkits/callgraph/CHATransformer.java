@@ -48,6 +48,11 @@ public class CHATransformer extends SceneTransformer
             G.v().out.println( "Number of reachable methods: "
                     +Scene.v().getReachableMethods().size() );
         }
+        PhaseMetrics metrics = PhaseMetrics.v();
+        if( metrics.isEnabled() ) {
+            metrics.setCounter( phaseName, "reachable-methods", Scene.v().getReachableMethods().size() );
+            metrics.setCounter( phaseName, "call-graph-edges", Scene.v().getCallGraph().size() );
+        }
     }
 }
 
@@ -39,14 +39,30 @@ import soot.util.queue.QueueReader;
  */
 public class CallGraph implements Iterable<Edge>
 { 
-    protected Set<Edge> edges = new HashSet<Edge>();
+    protected Set<Edge> edges;
     protected ChunkedQueue<Edge> stream = new ChunkedQueue<Edge>();
     protected QueueReader<Edge> reader = stream.reader();
-    protected Map<MethodOrMethodContext,Edge> srcMethodToEdge = new HashMap<MethodOrMethodContext, Edge>();
-    protected Map<Unit, Edge> srcUnitToEdge = new HashMap<Unit, Edge>();
-    protected Map<MethodOrMethodContext, Edge> tgtToEdge = new HashMap<MethodOrMethodContext, Edge>();
+    protected Map<MethodOrMethodContext,Edge> srcMethodToEdge;
+    protected Map<Unit, Edge> srcUnitToEdge;
+    protected Map<MethodOrMethodContext, Edge> tgtToEdge;
     protected Edge dummy = new Edge( null, null, null, Kind.INVALID );
 
+    public CallGraph() {
+        this( true );
+    }
+
+    /** Makes a call graph that keeps its edges in the edge set and maps of
+     * this class only if indexed is true; subclasses that store the edges
+     * themselves pass false and must override all methods using them. */
+    protected CallGraph( boolean indexed ) {
+        if( indexed ) {
+            edges = new HashSet<Edge>();
+            srcMethodToEdge = new HashMap<MethodOrMethodContext, Edge>();
+            srcUnitToEdge = new HashMap<Unit, Edge>();
+            tgtToEdge = new HashMap<MethodOrMethodContext, Edge>();
+        }
+    }
+
     /** Used to add an edge to the call graph. Returns true iff the edge was
      * not already present. */
     public boolean addEdge( Edge e ) {
@@ -286,6 +302,11 @@ public class CallGraph implements Iterable<Edge>
         }
         return out.toString();
     }
+    /** Returns true iff e has been added to the call graph and not removed
+     * since. */
+    public boolean containsEdge( Edge e ) {
+        return edges.contains( e );
+    }
     /** Returns the number of edges in the call graph. */
     public int size() {
         return edges.size();
@@ -19,19 +19,27 @@
 
 package soot.jimple.toolkits.callgraph;
 
+import heros.solver.CountingThreadPoolExecutor;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import soot.EntryPoints;
 import soot.G;
 import soot.Local;
 import soot.MethodOrMethodContext;
+import soot.PackManager;
 import soot.PointsToAnalysis;
 import soot.PointsToSet;
 import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
 import soot.Type;
+import soot.options.Options;
 import soot.util.queue.QueueReader;
 
 /**
@@ -44,6 +52,7 @@ public final class CallGraphBuilder {
 	private final ReachableMethods reachables;
 	private final OnFlyCallGraphBuilder ofcgb;
 	private final CallGraph cg;
+	private final boolean appOnly;
 
 	public CallGraph getCallGraph() {
 		return cg;
@@ -68,6 +77,7 @@ public final class CallGraphBuilder {
 		reachables = Scene.v().getReachableMethods();
 		ContextManager cm = makeContextManager(cg);
 		ofcgb = new OnFlyCallGraphBuilder(cm, reachables);
+		appOnly = false;
 	}
 
 	/**
@@ -88,51 +98,117 @@ public final class CallGraphBuilder {
 		reachables = new ReachableMethods(cg, entryPoints);
 		ContextManager cm = new ContextInsensitiveContextManager(cg);
 		ofcgb = new OnFlyCallGraphBuilder(cm, reachables, true);
+		appOnly = true;
 	}
 
+	/**
+	 * Builds the call graph. With more than one thread in the num-threads
+	 * option, the reachable methods are processed in waves: the bodies of all
+	 * methods that have become reachable are first retrieved in parallel,
+	 * and then scanned for calls in the calling thread, which makes the next
+	 * wave reachable. Since the edges of a method only depend on its body
+	 * and, through the points-to analysis, on its receivers, the result is
+	 * the same as when building sequentially.
+	 */
 	public void build() {
+		int threadNum = Options.v().coffi() ? 1 : PackManager.v().getNumThreads();
+		if (threadNum > 1) {
+			buildInWaves(threadNum);
+			return;
+		}
 		QueueReader<MethodOrMethodContext> worklist = reachables.listener();
 		while (true) {
 			ofcgb.processReachables();
 			reachables.update();
 			if (!worklist.hasNext())
 				break;
-			MethodOrMethodContext momc = (MethodOrMethodContext) worklist
-					.next();
-			List<Local> receivers = ofcgb.methodToReceivers()
-					.get(momc.method());
-			if (receivers != null)
-				for (Iterator<Local> receiverIt = receivers.iterator(); receiverIt
-						.hasNext();) {
-					final Local receiver = receiverIt.next();
-					final PointsToSet p2set = pa.reachingObjects(receiver);
-					for (Iterator<Type> typeIt = p2set.possibleTypes()
-							.iterator(); typeIt.hasNext();) {
-						final Type type = typeIt.next();
-						ofcgb.addType(receiver, momc.context(), type, null);
-					}
-				}
-			List<Local> stringConstants = ofcgb.methodToStringConstants().get(
-					momc.method());
-			if (stringConstants != null)
-				for (Iterator<Local> stringConstantIt = stringConstants
-						.iterator(); stringConstantIt.hasNext();) {
-					final Local stringConstant = stringConstantIt.next();
-					PointsToSet p2set = pa.reachingObjects(stringConstant);
-					Collection<String> possibleStringConstants = p2set
-							.possibleStringConstants();
-					if (possibleStringConstants == null) {
-						ofcgb.addStringConstant(stringConstant, momc.context(),
-								null);
-					} else {
-						for (Iterator<String> constantIt = possibleStringConstants
-								.iterator(); constantIt.hasNext();) {
-							final String constant = constantIt.next();
-							ofcgb.addStringConstant(stringConstant,
-									momc.context(), constant);
+			processReceivers(worklist.next());
+		}
+	}
+
+	private void buildInWaves(int threadNum) {
+		CountingThreadPoolExecutor executor = new CountingThreadPoolExecutor(threadNum,
+				threadNum, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		QueueReader<MethodOrMethodContext> worklist = reachables.listener();
+		QueueReader<MethodOrMethodContext> frontier = reachables.listener();
+		try {
+			while (true) {
+				reachables.update();
+				if (!frontier.hasNext())
+					break;
+				while (frontier.hasNext()) {
+					final SootMethod m = frontier.next().method();
+					if (!needsBody(m))
+						continue;
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							m.retrieveActiveBody();
 						}
-					}
+					});
 				}
+				executor.awaitCompletion();
+				if (executor.getException() != null)
+					throw (RuntimeException) executor.getException();
+				ofcgb.processReachablesSoFar();
+				while (worklist.hasNext())
+					processReceivers(worklist.next());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Could not wait for loader threads to "
+					+ "finish: " + e.getMessage(), e);
+		} finally {
+			executor.shutdown();
 		}
 	}
+
+	/** Returns whether the on-the-fly call graph builder will ask for the
+	 * body of m. */
+	private boolean needsBody(SootMethod m) {
+		SootClass c = m.getDeclaringClass();
+		if (appOnly && !c.isApplicationClass())
+			return false;
+		return m.isConcrete() && !m.isPhantom() && !m.hasActiveBody()
+				&& !c.isPhantomClass() && c.resolvingLevel() >= SootClass.BODIES;
+	}
+
+	/** Adds the types the points-to analysis finds for the receivers and the
+	 * string constants of momc to the on-the-fly call graph builder. */
+	private void processReceivers(MethodOrMethodContext momc) {
+		List<Local> receivers = ofcgb.methodToReceivers()
+				.get(momc.method());
+		if (receivers != null)
+			for (Iterator<Local> receiverIt = receivers.iterator(); receiverIt
+					.hasNext();) {
+				final Local receiver = receiverIt.next();
+				final PointsToSet p2set = pa.reachingObjects(receiver);
+				for (Iterator<Type> typeIt = p2set.possibleTypes()
+						.iterator(); typeIt.hasNext();) {
+					final Type type = typeIt.next();
+					ofcgb.addType(receiver, momc.context(), type, null);
+				}
+			}
+		List<Local> stringConstants = ofcgb.methodToStringConstants().get(
+				momc.method());
+		if (stringConstants != null)
+			for (Iterator<Local> stringConstantIt = stringConstants
+					.iterator(); stringConstantIt.hasNext();) {
+				final Local stringConstant = stringConstantIt.next();
+				PointsToSet p2set = pa.reachingObjects(stringConstant);
+				Collection<String> possibleStringConstants = p2set
+						.possibleStringConstants();
+				if (possibleStringConstants == null) {
+					ofcgb.addStringConstant(stringConstant, momc.context(),
+							null);
+				} else {
+					for (Iterator<String> constantIt = possibleStringConstants
+							.iterator(); constantIt.hasNext();) {
+						final String constant = constantIt.next();
+						ofcgb.addStringConstant(stringConstant,
+								momc.context(), constant);
+					}
+				}
+			}
+	}
 }
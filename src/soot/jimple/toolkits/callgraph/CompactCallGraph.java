@@ -0,0 +1,330 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.util.ArrayNumberer;
+import soot.util.MapNumberer;
+import soot.util.Numberer;
+import soot.util.queue.ChunkedQueue;
+import soot.util.queue.QueueReader;
+
+/**
+ * A frozen, read-only call graph that stores its edges in compressed sparse
+ * row form instead of as {@link Edge} objects. Each edge costs a handful of
+ * ints: the numbers of its source and target methods, the number of its
+ * source unit and the index of its kind. Methods are identified through
+ * {@link SootMethod#getNumber()} and units through the unit numberer of the
+ * {@link Scene}.
+ * <p>
+ * The graph is built once from an existing, context-insensitive
+ * {@link CallGraph} and answers the same queries. The {@link Edge} objects
+ * returned by its iterators are created on demand; they are equal to, but
+ * not identical with, the edges of the original call graph. All methods
+ * that would modify the graph throw an
+ * {@link UnsupportedOperationException}. The graph itself never changes
+ * after construction, but queries by unit read the unit numberer of the
+ * {@link Scene}, which is not synchronized. The graph can therefore only be
+ * queried from multiple threads while no units are numbered and no bodies
+ * are released by {@link soot.BodyStore}.
+ */
+public class CompactCallGraph extends CallGraph
+{
+    /** The methods of this graph by their numbers, copied from the method
+     * numberer of the Scene when the graph was built. */
+    private final SootMethod[] methodTable;
+    private final Numberer<Unit> unitNumberer;
+
+    /** The distinct kinds of edges in this graph, indexed by kind. */
+    private final Kind[] kinds;
+
+    /** The edge columns, sorted by source method and then by source unit. */
+    private final int[] srcs;
+    private final int[] units;
+    private final int[] tgts;
+    private final byte[] kindIndices;
+
+    /** The edges out of the method with number m are the ones at positions
+     * srcStart[m] to srcStart[m+1]-1. */
+    private final int[] srcStart;
+    /** The edges out of the unit with number u are the ones whose positions
+     * are listed in unitEdges[unitStart[u]] to unitEdges[unitStart[u+1]-1]. */
+    private final int[] unitStart;
+    private final int[] unitEdges;
+    /** The edges into the method with number m are the ones whose positions
+     * are listed in tgtEdges[tgtStart[m]] to tgtEdges[tgtStart[m+1]-1]. */
+    private final int[] tgtStart;
+    private final int[] tgtEdges;
+
+    /** Builds a compact copy of the given call graph. Edges whose source or
+     * target carry a context are not supported. */
+    public CompactCallGraph( CallGraph cg ) {
+        super( false );
+        ArrayNumberer<SootMethod> methodNumberer = Scene.v().getMethodNumberer();
+        unitNumberer = Scene.v().getUnitNumberer();
+
+        final int n = cg.size();
+        int[] src = new int[n];
+        int[] unit = new int[n];
+        int[] tgt = new int[n];
+        byte[] kind = new byte[n];
+        List<Kind> kindList = new ArrayList<Kind>();
+
+        int maxMethod = 0;
+        int maxUnit = 0;
+        int i = 0;
+        for( Edge e : cg ) {
+            src[i] = methodNumber( methodNumberer, e.getSrc() );
+            tgt[i] = methodNumber( methodNumberer, e.getTgt() );
+            unit[i] = unitNumber( e.srcUnit() );
+            int k = kindList.indexOf( e.kind() );
+            if( k < 0 ) {
+                k = kindList.size();
+                kindList.add( e.kind() );
+            }
+            kind[i] = (byte) k;
+            maxMethod = Math.max( maxMethod, Math.max( src[i], tgt[i] ) );
+            maxUnit = Math.max( maxUnit, unit[i] );
+            i++;
+        }
+        if( i != n )
+            throw new RuntimeException( "call graph changed while it was being compacted" );
+        kinds = kindList.toArray( new Kind[kindList.size()] );
+        methodTable = new SootMethod[maxMethod + 1];
+        for( int m = 1; m <= maxMethod; m++ )
+            methodTable[m] = methodNumberer.get( m );
+
+        // Counting sort by source unit, then a stable counting sort by
+        // source method yields the primary order
+        int[] byUnit = countingSort( unit, identity( n ), maxUnit + 1, null );
+        srcStart = new int[maxMethod + 2];
+        int[] order = countingSort( src, byUnit, maxMethod + 1, srcStart );
+
+        srcs = new int[n];
+        units = new int[n];
+        tgts = new int[n];
+        kindIndices = new byte[n];
+        for( int pos = 0; pos < n; pos++ ) {
+            int e = order[pos];
+            srcs[pos] = src[e];
+            units[pos] = unit[e];
+            tgts[pos] = tgt[e];
+            kindIndices[pos] = kind[e];
+        }
+
+        unitStart = new int[maxUnit + 2];
+        unitEdges = countingSort( units, identity( n ), maxUnit + 1, unitStart );
+        tgtStart = new int[maxMethod + 2];
+        tgtEdges = countingSort( tgts, identity( n ), maxMethod + 1, tgtStart );
+    }
+
+    private static int methodNumber( ArrayNumberer<SootMethod> methodNumberer,
+            MethodOrMethodContext m ) {
+        if( m == null ) return 0;
+        if( m.context() != null )
+            throw new RuntimeException( "context-sensitive edges cannot be compacted: "+m );
+        SootMethod sm = m.method();
+        if( sm.getNumber() == 0 ) methodNumberer.add( sm );
+        return sm.getNumber();
+    }
+
+    private int unitNumber( Unit u ) {
+        if( u == null ) return 0;
+        unitNumberer.add( u );
+        return (int) unitNumberer.get( u );
+    }
+
+    /** Returns the number of u, or -1 if u is not the source unit of any
+     * edge. */
+    private int lookupUnit( Unit u ) {
+        if( u == null ) return 0;
+        if( unitNumberer instanceof MapNumberer
+                && !((MapNumberer<Unit>) unitNumberer).contains( u ) )
+            return -1;
+        int num = (int) unitNumberer.get( u );
+        return num + 1 < unitStart.length ? num : -1;
+    }
+
+    private static int[] identity( int n ) {
+        int[] ret = new int[n];
+        for( int i = 0; i < n; i++ ) ret[i] = i;
+        return ret;
+    }
+
+    /** Stably sorts the given positions by their keys, which lie in the
+     * range 0 to numKeys-1. If start is non-null, it receives the offset of
+     * the first position of every key, followed by the total count. */
+    private static int[] countingSort( int[] keys, int[] positions, int numKeys, int[] start ) {
+        if( start == null ) start = new int[numKeys + 1];
+        for( int p : positions ) start[keys[p] + 1]++;
+        for( int k = 0; k < numKeys; k++ ) start[k + 1] += start[k];
+        int[] next = new int[numKeys];
+        System.arraycopy( start, 0, next, 0, numKeys );
+        int[] ret = new int[positions.length];
+        for( int p : positions ) ret[next[keys[p]]++] = p;
+        return ret;
+    }
+
+    /** Materializes the edge at the given position. */
+    private Edge edgeAt( int pos ) {
+        return new Edge( methodTable[srcs[pos]],
+                unitNumberer.get( units[pos] ),
+                methodTable[tgts[pos]],
+                kinds[kindIndices[pos]] );
+    }
+
+    /** Iterates over the edges at positions from to to-1, either directly or
+     * through the given indirection array. */
+    private class EdgeIterator implements Iterator<Edge> {
+        private final int[] indirection;
+        private int cur;
+        private final int end;
+        EdgeIterator( int[] indirection, int from, int to ) {
+            this.indirection = indirection;
+            this.cur = from;
+            this.end = to;
+        }
+        public boolean hasNext() {
+            return cur < end;
+        }
+        public Edge next() {
+            if( cur >= end ) throw new NoSuchElementException();
+            int pos = indirection == null ? cur : indirection[cur];
+            cur++;
+            return edgeAt( pos );
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static Iterator<Edge> emptyIterator() {
+        return Collections.<Edge>emptyList().iterator();
+    }
+
+    @Override
+    public boolean addEdge( Edge e ) {
+        throw new UnsupportedOperationException( "compact call graphs are read-only" );
+    }
+
+    @Override
+    public boolean removeEdge( Edge e ) {
+        throw new UnsupportedOperationException( "compact call graphs are read-only" );
+    }
+
+    @Override
+    public boolean removeAllEdgesOutOf( Unit u ) {
+        throw new UnsupportedOperationException( "compact call graphs are read-only" );
+    }
+
+    @Override
+    public boolean swapEdgesOutOf( Stmt out, Stmt in ) {
+        throw new UnsupportedOperationException( "compact call graphs are read-only" );
+    }
+
+    @Override
+    public boolean isEntryMethod( SootMethod method ) {
+        int m = method.getNumber();
+        return m == 0 || m + 1 >= tgtStart.length || tgtStart[m] == tgtStart[m + 1];
+    }
+
+    @Override
+    public Edge findEdge( Unit u, SootMethod callee ) {
+        int num = lookupUnit( u );
+        if( num < 0 ) return null;
+        for( int i = unitStart[num]; i < unitStart[num + 1]; i++ ) {
+            int pos = unitEdges[i];
+            if( tgts[pos] == callee.getNumber() )
+                return edgeAt( pos );
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsEdge( Edge e ) {
+        int num = lookupUnit( e.srcUnit() );
+        if( num < 0 ) return false;
+        for( int i = unitStart[num]; i < unitStart[num + 1]; i++ ) {
+            int pos = unitEdges[i];
+            if( methodTable[srcs[pos]] == e.getSrc()
+                    && methodTable[tgts[pos]] == e.getTgt()
+                    && kinds[kindIndices[pos]] == e.kind() )
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<MethodOrMethodContext> sourceMethods() {
+        List<MethodOrMethodContext> ret = new ArrayList<MethodOrMethodContext>();
+        for( int m = 0; m + 1 < srcStart.length; m++ ) {
+            if( srcStart[m] != srcStart[m + 1] )
+                ret.add( methodTable[m] );
+        }
+        return ret.iterator();
+    }
+
+    @Override
+    public Iterator<Edge> edgesOutOf( Unit u ) {
+        if( u == null ) throw new RuntimeException();
+        int num = lookupUnit( u );
+        if( num < 0 ) return emptyIterator();
+        return new EdgeIterator( unitEdges, unitStart[num], unitStart[num + 1] );
+    }
+
+    @Override
+    public Iterator<Edge> edgesOutOf( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        int num = m.method().getNumber();
+        if( m.context() != null || num == 0 || num + 1 >= srcStart.length )
+            return emptyIterator();
+        return new EdgeIterator( null, srcStart[num], srcStart[num + 1] );
+    }
+
+    @Override
+    public Iterator<Edge> edgesInto( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        int num = m.method().getNumber();
+        if( m.context() != null || num == 0 || num + 1 >= tgtStart.length )
+            return emptyIterator();
+        return new EdgeIterator( tgtEdges, tgtStart[num], tgtStart[num + 1] );
+    }
+
+    /** Returns a QueueReader containing all edges of the graph. Since the
+     * graph is frozen, no further edges will ever arrive. Note that this
+     * materializes all edges, use {@link #iterator()} where possible. */
+    @Override
+    public QueueReader<Edge> listener() {
+        ChunkedQueue<Edge> queue = new ChunkedQueue<Edge>();
+        QueueReader<Edge> ret = queue.reader();
+        for( int pos = 0; pos < srcs.length; pos++ )
+            queue.add( edgeAt( pos ) );
+        return ret;
+    }
+
+    /** Returns an empty QueueReader, since a frozen graph never receives new
+     * edges. */
+    @Override
+    public QueueReader<Edge> newListener() {
+        return new ChunkedQueue<Edge>().reader();
+    }
+
+    @Override
+    public int size() {
+        return srcs.length;
+    }
+
+    @Override
+    public Iterator<Edge> iterator() {
+        return new EdgeIterator( null, 0, srcs.length );
+    }
+}
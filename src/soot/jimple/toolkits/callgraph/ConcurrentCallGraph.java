@@ -0,0 +1,252 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.MethodOrMethodContext;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.util.queue.QueueReader;
+
+/**
+ * A thread-safe call graph with the same API as {@link CallGraph}. Edges
+ * can be added and removed from multiple threads at the same time.
+ * <p>
+ * Instead of threading the edges through linked lists, the edges of each
+ * source unit, source method and target method are kept in small arrays
+ * that are replaced on every change. Updates are serialized per key using
+ * lock striping, while readers never block: the iterators returned by
+ * {@link #edgesOutOf(Unit)}, {@link #edgesOutOf(MethodOrMethodContext)}
+ * and {@link #edgesInto(MethodOrMethodContext)} work on a snapshot of the
+ * edges present when they were created, and are not affected by concurrent
+ * modifications.
+ * <p>
+ * All edges are published through the same stream as in
+ * {@link CallGraph}, so readers obtained from {@link #listener()} see the
+ * edges of all producing threads. Each individual reader must still be
+ * used by a single thread only.
+ */
+public class ConcurrentCallGraph extends CallGraph
+{
+    private static final int NUM_STRIPES = 64;
+    private static final Edge[] NO_EDGES = new Edge[0];
+
+    /** Stands in for null source units and methods, which the concurrent
+     * maps cannot hold as keys. */
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentMap<Edge, Edge> edgeSet = new ConcurrentHashMap<Edge, Edge>();
+    private final ConcurrentMap<Object, Edge[]> unitToEdges = new ConcurrentHashMap<Object, Edge[]>();
+    private final ConcurrentMap<Object, Edge[]> srcToEdges = new ConcurrentHashMap<Object, Edge[]>();
+    private final ConcurrentMap<Object, Edge[]> tgtToEdges = new ConcurrentHashMap<Object, Edge[]>();
+
+    /** Serialize all changes concerning a single edge. */
+    private final Object[] edgeLocks = newLocks();
+    /** Serialize all changes to the edge array of a single key. Always
+     * acquired after the edge lock, and never nested in one another. */
+    private final Object[] keyLocks = newLocks();
+
+    public ConcurrentCallGraph() {
+        super( false );
+    }
+
+    private static Object[] newLocks() {
+        Object[] locks = new Object[NUM_STRIPES];
+        for( int i = 0; i < locks.length; i++ )
+            locks[i] = new Object();
+        return locks;
+    }
+
+    private static Object stripe( Object[] locks, Object o ) {
+        int h = o.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return locks[h & (NUM_STRIPES - 1)];
+    }
+
+    private static Object key( Object o ) {
+        return o == null ? NULL_KEY : o;
+    }
+
+    /** Used to add an edge to the call graph. Returns true iff the edge was
+     * not already present. */
+    @Override
+    public boolean addEdge( Edge e ) {
+        synchronized( stripe( edgeLocks, e ) ) {
+            if( edgeSet.putIfAbsent( e, e ) != null ) return false;
+            addToIndex( unitToEdges, e.srcUnit(), e );
+            addToIndex( srcToEdges, e.getSrc(), e );
+            addToIndex( tgtToEdges, e.getTgt(), e );
+        }
+        synchronized( stream ) {
+            stream.add( e );
+        }
+        return true;
+    }
+
+    /** Removes the edge e from the call graph. Returns true iff the edge
+     * was originally present in the call graph. */
+    @Override
+    public boolean removeEdge( Edge e ) {
+        synchronized( stripe( edgeLocks, e ) ) {
+            // e may only equal the stored edge, which is the one indexed
+            Edge stored = edgeSet.remove( e );
+            if( stored == null ) return false;
+            removeFromIndex( unitToEdges, stored.srcUnit(), stored );
+            removeFromIndex( srcToEdges, stored.getSrc(), stored );
+            removeFromIndex( tgtToEdges, stored.getTgt(), stored );
+        }
+        return true;
+    }
+
+    private void addToIndex( ConcurrentMap<Object, Edge[]> index, Object k, Edge e ) {
+        k = key( k );
+        synchronized( stripe( keyLocks, k ) ) {
+            Edge[] old = index.get( k );
+            if( old == null ) {
+                index.put( k, new Edge[] { e } );
+            } else {
+                Edge[] edges = Arrays.copyOf( old, old.length + 1 );
+                edges[old.length] = e;
+                index.put( k, edges );
+            }
+        }
+    }
+
+    private void removeFromIndex( ConcurrentMap<Object, Edge[]> index, Object k, Edge e ) {
+        k = key( k );
+        synchronized( stripe( keyLocks, k ) ) {
+            Edge[] old = index.get( k );
+            if( old == null ) return;
+            for( int i = 0; i < old.length; i++ ) {
+                if( old[i] != e ) continue;
+                if( old.length == 1 ) {
+                    index.remove( k );
+                } else {
+                    Edge[] edges = new Edge[old.length - 1];
+                    System.arraycopy( old, 0, edges, 0, i );
+                    System.arraycopy( old, i + 1, edges, i, old.length - i - 1 );
+                    index.put( k, edges );
+                }
+                return;
+            }
+        }
+    }
+
+    private static Edge[] lookup( Map<Object, Edge[]> index, Object k ) {
+        Edge[] edges = index.get( key( k ) );
+        return edges == null ? NO_EDGES : edges;
+    }
+
+    @Override
+    public boolean removeAllEdgesOutOf( Unit u ) {
+        boolean hasRemoved = false;
+        for( Edge e : lookup( unitToEdges, u ) )
+            hasRemoved |= removeEdge( e );
+        return hasRemoved;
+    }
+
+    @Override
+    public boolean swapEdgesOutOf( Stmt out, Stmt in ) {
+        boolean hasSwapped = false;
+        for( Edge e : lookup( unitToEdges, out ) ) {
+            if( removeEdge( e ) ) {
+                addEdge( new Edge( e.getSrc(), in, e.getTgt() ) );
+                hasSwapped = true;
+            }
+        }
+        return hasSwapped;
+    }
+
+    @Override
+    public boolean isEntryMethod( SootMethod method ) {
+        return !tgtToEdges.containsKey( key( method ) );
+    }
+
+    @Override
+    public Edge findEdge( Unit u, SootMethod callee ) {
+        for( Edge e : lookup( unitToEdges, u ) ) {
+            if( e.tgt() == callee )
+                return e;
+        }
+        return null;
+    }
+
+    /** Returns an iterator over all methods that are the sources of at least
+     * one edge. */
+    @Override
+    public Iterator<MethodOrMethodContext> sourceMethods() {
+        List<MethodOrMethodContext> methods = new ArrayList<MethodOrMethodContext>( srcToEdges.size() );
+        for( Object k : srcToEdges.keySet() )
+            methods.add( k == NULL_KEY ? null : (MethodOrMethodContext) k );
+        return methods.iterator();
+    }
+
+    /** Returns an iterator over a snapshot of all edges that have u as their
+     * source unit. */
+    @Override
+    public Iterator<Edge> edgesOutOf( Unit u ) {
+        if( u == null ) throw new RuntimeException();
+        return snapshotIterator( lookup( unitToEdges, u ) );
+    }
+
+    /** Returns an iterator over a snapshot of all edges that have m as their
+     * source method. */
+    @Override
+    public Iterator<Edge> edgesOutOf( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        return snapshotIterator( lookup( srcToEdges, m ) );
+    }
+
+    /** Returns an iterator over a snapshot of all edges that have m as their
+     * target method. */
+    @Override
+    public Iterator<Edge> edgesInto( MethodOrMethodContext m ) {
+        if( m == null ) throw new RuntimeException();
+        return snapshotIterator( lookup( tgtToEdges, m ) );
+    }
+
+    private static Iterator<Edge> snapshotIterator( Edge[] edges ) {
+        if( edges.length == 0 ) return Collections.<Edge>emptyList().iterator();
+        // The arrays are never modified once published, and the list
+        // iterator does not support removal
+        return Arrays.asList( edges ).iterator();
+    }
+
+    /** Returns a QueueReader object which will contain ONLY NEW edges
+     * which will be added to the graph.
+     */
+    @Override
+    public QueueReader<Edge> newListener() {
+        synchronized( stream ) {
+            return stream.reader();
+        }
+    }
+
+    /** Returns true iff e has been added to the call graph and not removed
+     * since. */
+    @Override
+    public boolean containsEdge( Edge e ) {
+        return edgeSet.containsKey( e );
+    }
+
+    /** Returns the number of edges in the call graph. */
+    @Override
+    public int size() {
+        return edgeSet.size();
+    }
+
+    /** Returns a weakly consistent iterator over all edges in the call
+     * graph. */
+    @Override
+    public Iterator<Edge> iterator() {
+        return Collections.unmodifiableSet( edgeSet.keySet() ).iterator();
+    }
+}
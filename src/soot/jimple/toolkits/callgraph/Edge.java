@@ -29,7 +29,7 @@ public final class Edge
     /** The method in which the call occurs; may be null for calls not
      * occurring in a specific method (eg. implicit calls by the VM)
      */
-    private MethodOrMethodContext src;
+    private final MethodOrMethodContext src;
     public SootMethod src() {
         if( src == null ) return null; else return src.method();
     }
@@ -41,12 +41,12 @@ public final class Edge
     /** The unit at which the call occurs; may be null for calls not
      * occurring at a specific statement (eg. calls in native code)
      */
-    private Unit srcUnit;
+    private final Unit srcUnit;
     public Unit srcUnit() { return srcUnit; }
     public Stmt srcStmt() { return (Stmt) srcUnit; }
     
     /** The target method of the call edge. */
-    private MethodOrMethodContext tgt;
+    private final MethodOrMethodContext tgt;
     public SootMethod tgt() { return tgt.method(); }
     public Context tgtCtxt() { return tgt.context(); }
     public MethodOrMethodContext getTgt() { return tgt; }
@@ -54,7 +54,7 @@ public final class Edge
     /** The kind of edge. Note: kind should not be tested by other classes;
      *  instead, accessors such as isExplicit() should be added.
      **/
-    private Kind kind;
+    private final Kind kind;
     public Kind kind() { return kind; }
 
     public Edge( MethodOrMethodContext src, Unit srcUnit, MethodOrMethodContext tgt, Kind kind ) {
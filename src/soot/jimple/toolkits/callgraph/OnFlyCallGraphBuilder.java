@@ -414,13 +414,44 @@ public final class OnFlyCallGraphBuilder
                 rm.update();
                 if( !worklist.hasNext() ) break;
             }
-            MethodOrMethodContext momc = (MethodOrMethodContext) worklist.next();
-            SootMethod m = momc.method();
-            if( appOnly && !m.getDeclaringClass().isApplicationClass() ) continue;
-            if( analyzedMethods.add( m ) ) processNewMethod( m );
-            processNewMethodContext( momc );
+            processNext();
         }
     }
+    /** Processes the methods that are reachable so far, without adding the
+     * targets of the edges it finds to the reachable methods. */
+    public void processReachablesSoFar() {
+        while( worklist.hasNext() ) processNext();
+    }
+    private void processNext() {
+        MethodOrMethodContext momc = (MethodOrMethodContext) worklist.next();
+        SootMethod m = momc.method();
+        if( appOnly && !m.getDeclaringClass().isApplicationClass() ) return;
+        if( analyzedMethods.add( m ) ) processNewMethod( m );
+        processNewMethodContext( momc );
+    }
+    /** Forgets the call sites found in the old body of m and finds those
+     * in its current body, for incremental updates after the body of m has
+     * changed. The edges out of m must have been removed from the call graph
+     * before. Methods that have not been analyzed yet are left to
+     * processReachables(). */
+    public void reprocessMethod( SootMethod m ) {
+        List<Local> receivers = methodToReceivers.get( m );
+        if( receivers != null ) {
+            for( Local receiver : receivers ) receiverToSites.put( receiver, null );
+            methodToReceivers.put( m, null );
+        }
+        List<Local> stringConstants = methodToStringConstants.get( m );
+        if( stringConstants != null ) {
+            for( Local l : stringConstants ) stringConstToSites.put( l, null );
+            methodToStringConstants.put( m, null );
+        }
+        List<Edge> oldEdges = new ArrayList<Edge>();
+        for( Iterator<Edge> it = cicg.edgesOutOf( m ); it.hasNext(); ) oldEdges.add( it.next() );
+        for( Edge e : oldEdges ) cicg.removeEdge( e );
+        if( !analyzedMethods.contains( m ) ) return;
+        processNewMethod( m );
+        processNewMethodContext( m );
+    }
     public boolean wantTypes( Local receiver ) {
         return receiverToSites.get(receiver) != null;
     }
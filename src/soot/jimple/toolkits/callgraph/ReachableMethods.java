@@ -64,7 +64,10 @@ public class ReachableMethods
     public void update() {
         while(edgeSource.hasNext()) {
             Edge e = edgeSource.next();
-            if( set.contains( e.getSrc() ) ) addMethod( e.getTgt() );
+            // The listener also returns edges that have been removed since.
+            // Only edges that would add a method are looked up in the graph.
+            if( set.contains( e.getSrc() ) && !set.contains( e.getTgt() )
+                    && cg.containsEdge( e ) ) addMethod( e.getTgt() );
         }
         while(unprocessedMethods.hasNext()) {
             MethodOrMethodContext m = unprocessedMethods.next();
@@ -99,6 +99,11 @@ public class SlowCallGraph extends CallGraph
         }
         return out.toString();
     }
+    /** Returns true iff e has been added to the call graph and not removed
+     * since. */
+    public boolean containsEdge( Edge e ) {
+        return edges.contains( e );
+    }
     /** Returns the number of edges in the call graph. */
     public int size() {
         return edges.size();
@@ -19,12 +19,13 @@
 
 package soot.jimple.toolkits.callgraph;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import soot.AnySubType;
 import soot.ArrayType;
@@ -42,9 +43,7 @@ import soot.jimple.SpecialInvokeExpr;
 import soot.options.CGOptions;
 import soot.toolkits.scalar.Pair;
 import soot.util.Chain;
-import soot.util.LargeNumberedMap;
 import soot.util.NumberedString;
-import soot.util.SmallNumberedMap;
 import soot.util.queue.ChunkedQueue;
 
 /** Resolves virtual calls.
@@ -58,8 +57,117 @@ public final class VirtualCalls
     }
     public static VirtualCalls v() { return G.v().soot_jimple_toolkits_callgraph_VirtualCalls(); }
 
-    private final LargeNumberedMap<Type, SmallNumberedMap<SootMethod>> typeToVtbl =
-        new LargeNumberedMap<Type, SmallNumberedMap<SootMethod>>( Scene.v().getTypeNumberer() );
+    /**
+     * The dispatch table of one class: for each subsignature, the method
+     * that a virtual call on an object of exactly that class invokes, or null
+     * if the class inherits or declares an abstract method with that
+     * subsignature. It is an open-addressing hash table from the numbers of
+     * the subsignatures to the methods. Tables are never changed once
+     * built, so they can be shared freely between threads.
+     */
+    private static final class DispatchTable {
+        /** The superclass and the number of methods of the class when the
+         * table was built. */
+        final SootClass superclass;
+        final int methodCount;
+        /** The subsignature numbers, 0 for empty slots. */
+        final int[] keys;
+        final SootMethod[] targets;
+
+        DispatchTable( SootClass cls, DispatchTable parent ) {
+            superclass = cls.hasSuperclass() ? cls.getSuperclass() : null;
+            methodCount = cls.getMethods().size();
+            int size = methodCount + ( parent == null ? 0 : parent.size() );
+            int capacity = 4;
+            while( capacity < size * 2 ) capacity <<= 1;
+            keys = new int[capacity];
+            targets = new SootMethod[capacity];
+            if( parent != null ) {
+                for( int i = 0; i < parent.keys.length; i++ ) {
+                    if( parent.keys[i] != 0 )
+                        put( parent.keys[i], parent.targets[i] );
+                }
+            }
+            for( SootMethod m : cls.getMethods() ) {
+                put( m.getNumberedSubSignature().getNumber(),
+                        m.isConcrete() || m.isNative() || m.isPhantom() ? m : null );
+            }
+        }
+
+        private int size() {
+            int ret = 0;
+            for( int k : keys ) if( k != 0 ) ret++;
+            return ret;
+        }
+
+        private void put( int key, SootMethod target ) {
+            int mask = keys.length - 1;
+            int i = ( key * 0x9E3779B9 ) & mask;
+            while( keys[i] != 0 && keys[i] != key ) i = ( i + 1 ) & mask;
+            keys[i] = key;
+            targets[i] = target;
+        }
+
+        /** Returns the slot of key, or -1 if the class has no method with
+         * that subsignature. */
+        int find( int key ) {
+            int mask = keys.length - 1;
+            int i = ( key * 0x9E3779B9 ) & mask;
+            while( keys[i] != 0 ) {
+                if( keys[i] == key ) return i;
+                i = ( i + 1 ) & mask;
+            }
+            return -1;
+        }
+
+        boolean isValidFor( SootClass cls ) {
+            return methodCount == cls.getMethods().size()
+                && superclass == ( cls.hasSuperclass() ? cls.getSuperclass() : null );
+        }
+    }
+
+    /** The dispatch tables, indexed by class number. Reads do not lock;
+     * tables are added under the lock of this object. */
+    private volatile DispatchTable[] dispatchTables = new DispatchTable[0];
+
+    private DispatchTable dispatchTable( SootClass cls ) {
+        int n = cls.getNumber();
+        DispatchTable[] tables = dispatchTables;
+        DispatchTable ret = n < tables.length ? tables[n] : null;
+        if( ret != null && ret.isValidFor( cls ) ) return ret;
+        ret = new DispatchTable( cls,
+                cls.hasSuperclass() ? dispatchTable( cls.getSuperclass() ) : null );
+        if( n != 0 ) {
+            synchronized( this ) {
+                tables = dispatchTables;
+                if( n >= tables.length ) {
+                    tables = Arrays.copyOf( tables,
+                            Math.max( n + 1, Scene.v().getClassNumberer().size() + 1 ) );
+                }
+                tables[n] = ret;
+                dispatchTables = tables;
+            }
+        }
+        return ret;
+    }
+
+    /** Drops the dispatch tables of cls and its superclasses below
+     * upTo. */
+    private synchronized void dropDispatchTables( SootClass cls, SootClass upTo ) {
+        DispatchTable[] tables = dispatchTables;
+        for( SootClass c = cls; c != upTo; c = c.getSuperclass() ) {
+            if( c.getNumber() < tables.length )
+                tables[c.getNumber()] = null;
+        }
+    }
+
+    /** Drops all dispatch tables, so that they are built again from the
+     * current classes. Tables notice changes to the methods and the
+     * superclass of their own class, but not changes to the methods
+     * of its superclasses. */
+    public synchronized void clearDispatchTables() {
+        dispatchTables = new DispatchTable[0];
+    }
 
     public SootMethod resolveSpecial( SpecialInvokeExpr iie, NumberedString subSig, SootMethod container ) {
     	return resolveSpecial(iie, subSig, container, false);
@@ -92,33 +200,32 @@ public final class VirtualCalls
     
     public SootMethod resolveNonSpecial( RefType t, NumberedString subSig,
     		boolean appOnly) {
-        SmallNumberedMap<SootMethod> vtbl = typeToVtbl.get( t );
-        if( vtbl == null ) {
-            typeToVtbl.put( t, vtbl =
-                    new SmallNumberedMap<SootMethod>( Scene.v().getMethodNumberer() ) );
-        }
-        SootMethod ret = vtbl.get( subSig );
-        if( ret != null ) return ret;
         SootClass cls = t.getSootClass();
         if (appOnly && cls.isLibraryClass())
         	return null;
-        
-        SootMethod m = cls.getMethodUnsafe( subSig );
-        if( m != null ) {
-            if( m.isConcrete() || m.isNative() || m.isPhantom() ) {
-                ret = m;
-            }
-        } else {
-            if( cls.hasSuperclass() ) {
-                ret = resolveNonSpecial( cls.getSuperclass().getType(), subSig );
+
+        DispatchTable vtbl = dispatchTable( cls );
+        int i = vtbl.find( subSig.getNumber() );
+        if( i >= 0 ) return vtbl.targets[i];
+
+        // Not in the table. Phantom methods may have been added to a
+        // superclass after it was built, so look again the slow way.
+        for( SootClass c = cls; ; c = c.getSuperclass() ) {
+            SootMethod m = c.getMethodUnsafe( subSig );
+            if( m != null ) {
+                if( m.isConcrete() || m.isNative() || m.isPhantom() ) {
+                    // The tables of the classes below c copied an older one
+                    dropDispatchTables( cls, c );
+                    return m;
+                }
+                return null;
             }
+            if( !c.hasSuperclass() ) return null;
         }
-        vtbl.put( subSig, ret );
-        return ret;
     }
 
-    private final Map<Type,List<Type>> baseToSubTypes = new HashMap<Type,List<Type>>();
-    private final Map<Pair<Type, NumberedString>, List<Pair<Type,NumberedString>>> baseToPossibleSubTypes = new HashMap<Pair<Type,NumberedString>, List<Pair<Type,NumberedString>>>();
+    private final Map<Type,List<Type>> baseToSubTypes = new ConcurrentHashMap<Type,List<Type>>();
+    private final Map<Pair<Type, NumberedString>, List<Pair<Type,NumberedString>>> baseToPossibleSubTypes = new ConcurrentHashMap<Pair<Type,NumberedString>, List<Pair<Type,NumberedString>>>();
 
     public void resolve( Type t, Type declaredType, NumberedString subSig,
     		SootMethod container, ChunkedQueue<SootMethod> targets ) {
@@ -182,7 +289,7 @@ public final class VirtualCalls
             		return;
             	}
             	
-            	baseToPossibleSubTypes.put(pair, types = new ArrayList<Pair<Type, NumberedString>>());
+            	types = new ArrayList<Pair<Type, NumberedString>>();
             	
             	// get return type; method name; parameter types
             	String[] split = subSig.getString().replaceAll("(.*) (.*)\\((.*)\\)", "$1;$2;$3").split(";");
@@ -237,6 +344,8 @@ public final class VirtualCalls
         				}
             		}
             	}
+            	// only published once complete, other threads may read it
+            	baseToPossibleSubTypes.put(pair, types);
         	} else {
 	            List<Type> subTypes = baseToSubTypes.get(base);
 	            if( subTypes != null ) {
@@ -247,9 +356,8 @@ public final class VirtualCalls
 	                return;
 	            }
 	
-	            baseToSubTypes.put(base, subTypes = new ArrayList<Type>() );
-	
-	            subTypes.add(base);
+	            // the concrete subtypes, including base itself if it is concrete
+	            subTypes = new ArrayList<Type>();
 	
 	            LinkedList<SootClass> worklist = new LinkedList<SootClass>();
 	            HashSet<SootClass> workset = new HashSet<SootClass>();
@@ -275,6 +383,7 @@ public final class VirtualCalls
 	                    }
 	                }
 	            }
+	            baseToSubTypes.put(base, subTypes);
 	        }
         } else if( t instanceof NullType ) {
         } else {
@@ -39,6 +39,13 @@ public class ConditionalBranchFolder  extends BodyTransformer
     public ConditionalBranchFolder ( Singletons.Global g ) {}
     public static ConditionalBranchFolder  v() { return G.v().soot_jimple_toolkits_scalar_ConditionalBranchFolder (); }
 
+    // Folded branches are replaced, not changed, which the cache notices
+    @Override
+    protected boolean preservesAll()
+    {
+        return true;
+    }
+
     protected void internalTransform(Body body, String phaseName, Map<String,String> options)
     {
         StmtBody stmtBody = (StmtBody)body;
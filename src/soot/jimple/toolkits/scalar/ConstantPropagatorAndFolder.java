@@ -52,8 +52,8 @@ public class ConstantPropagatorAndFolder extends BodyTransformer
             G.v().out.println("[" + b.getMethod().getName() +
                                "] Propagating and folding constants...");
 
-        UnitGraph g = new ExceptionalUnitGraph(b);
-        LocalDefs localDefs = LocalDefs.Factory.newLocalDefs(g);
+        UnitGraph g = b.getAnalysisCache().get(BodyAnalysisCache.EXCEPTIONAL_UNIT_GRAPH);
+        LocalDefs localDefs = b.getAnalysisCache().get(BodyAnalysisCache.LOCAL_DEFS);
 
         // Perform a constant/local propagation pass.
         Orderer<Unit> orderer = new PseudoTopologicalOrderer<Unit>();
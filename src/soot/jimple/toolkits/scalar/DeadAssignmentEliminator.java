@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.Set;
 
 import soot.Body;
+import soot.BodyAnalysisCache;
 import soot.BodyTransformer;
 import soot.G;
 import soot.IntType;
@@ -85,6 +86,13 @@ public class DeadAssignmentEliminator extends BodyTransformer
 	public DeadAssignmentEliminator( Singletons.Global g ) {}
 	public static DeadAssignmentEliminator v() { return G.v().soot_jimple_toolkits_scalar_DeadAssignmentEliminator(); }
 
+	// Units are only removed or swapped, so the cache drops its analyses itself
+	@Override
+	protected boolean preservesAll()
+	{
+		return true;
+	}
+
 	/**
 	 * Eliminates dead code in a linear fashion.  Complexity is linear 
 	 * with respect to the statements.
@@ -245,7 +253,7 @@ public class DeadAssignmentEliminator extends BodyTransformer
 			// Add all the statements which are used to compute values
 			// for the essential statements, recursively 
 			
-	        final LocalDefs localDefs = LocalDefs.Factory.newLocalDefs(b);	        
+	        final LocalDefs localDefs = b.getAnalysisCache().get(BodyAnalysisCache.LOCAL_DEFS);	        
 			
 			if ( !allEssential ) {		
 				Set<Unit> essential = new HashSet<Unit>(b.getUnits().size());
@@ -268,7 +276,7 @@ public class DeadAssignmentEliminator extends BodyTransformer
 			}
 		
 			if ( checkInvoke ) {
-				final LocalUses localUses = LocalUses.Factory.newLocalUses(b, localDefs);
+				final LocalUses localUses = b.getAnalysisCache().get(BodyAnalysisCache.LOCAL_USES);
 				// Eliminate dead assignments from invokes such as x = f(), where
 				//	x is no longer used
 		 
@@ -40,6 +40,13 @@ public class LocalNameStandardizer extends BodyTransformer
     public LocalNameStandardizer( Singletons.Global g ) {}
     public static LocalNameStandardizer v() { return G.v().soot_jimple_toolkits_scalar_LocalNameStandardizer(); }
 
+    // The cached analyses do not depend on the names or order of locals
+    @Override
+    protected boolean preservesAll()
+    {
+        return true;
+    }
+
     protected void internalTransform(Body body, String phaseName, Map<String,String> options)
     {
         boolean onlyStackName = PhaseOptions.getBoolean(options, "only-stack-locals");
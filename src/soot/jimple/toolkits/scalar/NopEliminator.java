@@ -49,6 +49,13 @@ public class NopEliminator extends BodyTransformer
         with respect to the statements.
     */
     
+    // Removing units drops the cached analyses anyway
+    @Override
+    protected boolean preservesAll()
+    {
+        return true;
+    }
+
     protected void internalTransform(Body b, String phaseName, Map<String, String> options)
     {
         JimpleBody body = (JimpleBody)b;
@@ -62,6 +62,13 @@ public class UnreachableCodeEliminator extends BodyTransformer
 		this.throwAnalysis = ta;
 	}
 
+	// Only removes units and traps, which the cache notices itself
+	@Override
+	protected boolean preservesAll()
+	{
+		return true;
+	}
+
 	protected void internalTransform(Body body, String phaseName, Map<String,String> options) 
 	{		
 		if (Options.v().verbose()) {
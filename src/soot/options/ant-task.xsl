@@ -105,7 +105,7 @@ public class AntTask extends MatchingTask {
 <!--*************************************************************************-->
 
   <xsl:template mode="parse" match="section">
-      <xsl:apply-templates mode="parse" select="boolopt|multiopt|listopt|phaseopt|stropt|macroopt"/>
+      <xsl:apply-templates mode="parse" select="boolopt|multiopt|listopt|phaseopt|stropt|intopt|macroopt"/>
   </xsl:template>
 
 <!--* BOOLEAN_OPTION *******************************************************-->
@@ -148,6 +148,14 @@ public class AntTask extends MatchingTask {
         }
   </xsl:template>
 
+<!--* INT_OPTION *******************************************************-->
+  <xsl:template mode="parse" match="intopt">
+        public void set<xsl:value-of select="translate(alias[last()],'-. ','___')"/>(String arg) {
+            addArg("-<xsl:value-of select="alias[last()]"/>");
+            addArg(arg);
+        }
+  </xsl:template>
+
 <!--* PHASE_OPTION *******************************************************-->
   <xsl:template mode="parse" match="phaseopt">
             else if( false<xsl:text/>
@@ -188,7 +196,7 @@ public class AntTask extends MatchingTask {
 <!--*************************************************************************-->
 
   <xsl:template mode="vars" match="section">
-      <xsl:apply-templates mode="vars" select="boolopt|multiopt|listopt|phaseopt|stropt|macroopt"/>
+      <xsl:apply-templates mode="vars" select="boolopt|multiopt|listopt|phaseopt|stropt|intopt|macroopt"/>
   </xsl:template>
 
 <!--* BOOLEAN_OPTION *******************************************************-->
@@ -236,6 +244,10 @@ public class AntTask extends MatchingTask {
     private String <xsl:value-of select="translate(alias[last()],'-. ','___')"/> = "";<xsl:text/>
   </xsl:template>
 
+<!--* INT_OPTION *******************************************************-->
+  <xsl:template mode="vars" match="intopt">
+  </xsl:template>
+
 <!--* MACRO_OPTION *******************************************************-->
   <xsl:template mode="vars" match="macroopt">
   </xsl:template>
@@ -265,7 +277,7 @@ public class AntTask extends MatchingTask {
 
   <xsl:template mode="usage" match="section">
 +"\n<xsl:value-of select="name"/>:\n"
-      <xsl:apply-templates mode="usage" select="boolopt|multiopt|listopt|phaseopt|stropt|macroopt"/>
+      <xsl:apply-templates mode="usage" select="boolopt|multiopt|listopt|phaseopt|stropt|intopt|macroopt"/>
   </xsl:template>
 
 <!--* BOOLEAN_OPTION *******************************************************-->
@@ -296,6 +308,10 @@ public class AntTask extends MatchingTask {
 +padOpt("<xsl:for-each select="alias"> -<xsl:value-of select="."/><xsl:text> </xsl:text><xsl:call-template name="arg-label"/></xsl:for-each>", "<xsl:apply-templates select="short_desc"/>" )<xsl:text/>
   </xsl:template>
 
+<!--* INT_OPTION *******************************************************-->
+  <xsl:template mode="usage" match="intopt">
+  </xsl:template>
+
 <!--* MACRO_OPTION *******************************************************-->
   <xsl:template mode="usage" match="macroopt">
 +padOpt("<xsl:for-each select="alias"> -<xsl:value-of select="."/></xsl:for-each>", "<xsl:apply-templates select="short_desc"/>" )<xsl:text/>
@@ -65,7 +65,7 @@ public class ShimpleBody extends StmtBody
         setSSA(true);
         isExtendedSSA = this.options.extended();
         
-        unitChain = new SPatchingChain(this, new HashChain());
+        unitChain = new SPatchingChain(this, new ArrayChain());
         sbb = new ShimpleBodyBuilder(this);
     }
 
@@ -90,7 +90,7 @@ public class ShimpleBody extends StmtBody
         // must happen before SPatchingChain gets created
         this.options = new ShimpleOptions(options);
 
-        unitChain = new SPatchingChain(this, new HashChain());
+        unitChain = new SPatchingChain(this, new ArrayChain());
         importBodyContentsFrom(body);
 
         /* Shimplise body */
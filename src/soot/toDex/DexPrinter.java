@@ -5,6 +5,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -67,6 +68,7 @@ import org.jf.dexlib2.writer.builder.BuilderTypeReference;
 import org.jf.dexlib2.writer.builder.DexBuilder;
 import org.jf.dexlib2.writer.io.FileDataStore;
 
+import soot.ArrayType;
 import soot.Body;
 import soot.BooleanType;
 import soot.ByteType;
@@ -76,19 +78,26 @@ import soot.G;
 import soot.IntType;
 import soot.Local;
 import soot.PackManager;
+import soot.PrimType;
+import soot.RefType;
 import soot.ShortType;
 import soot.SootClass;
 import soot.SootField;
+import soot.SootFieldRef;
 import soot.SootMethod;
 import soot.SootMethodRef;
 import soot.SourceLocator;
 import soot.Trap;
 import soot.Type;
 import soot.Unit;
+import soot.Value;
+import soot.ValueBox;
+import soot.VoidType;
 import soot.dexpler.DexType;
 import soot.dexpler.Util;
 import soot.jimple.ClassConstant;
 import soot.jimple.IdentityStmt;
+import soot.jimple.InstanceOfExpr;
 import soot.jimple.Jimple;
 import soot.jimple.MonitorStmt;
 import soot.jimple.NopStmt;
@@ -147,7 +156,23 @@ public class DexPrinter {
 	
 	private static final String CLASSES_DEX = "classes.dex";
 	
+	/** The number of method, field and type references a dex file can
+	 * hold. */
+	private static final int MAX_REFERENCES = 65536;
+	/** Room left in each dex file for the references made by annotations,
+	 * which are not counted. */
+	private static final int RESERVED_REFERENCES = 512;
+	
+	/** The dex file the classes are currently added to. */
 	private DexBuilder dexFile;
+	/** The method and field references of the classes in dexFile, by
+	 * signature, and their type references, by descriptor. */
+	private final Set<String> methodRefs = new HashSet<String>();
+	private final Set<String> fieldRefs = new HashSet<String>();
+	private final Set<String> typeRefs = new HashSet<String>();
+	private int classCount = 0;
+	/** The dex files that have been completed, in temporary files. */
+	private final List<File> completedDexFiles = new ArrayList<File>();
 	
 	private File originalApk;
 	
@@ -156,6 +181,11 @@ public class DexPrinter {
 		//dexAnnotation = new DexAnnotation(dexFile);
 	}
 	
+	/** Returns the name of the index-th dex file of an apk. */
+	private static String dexFileName(int index) {
+		return index == 0 ? CLASSES_DEX : "classes" + (index + 1) + ".dex";
+	}
+	
 	private void printApk(String outputDir, File originalApk) throws IOException {
 		ZipOutputStream outputApk = null;
 		if(Options.v().output_jar()) {
@@ -184,33 +214,41 @@ public class DexPrinter {
 				original.close();
 		}
 		
-		// put our classes.dex into the zip archive
-		File tmpFile = File.createTempFile("toDex", null);
-		FileInputStream fis = new FileInputStream(tmpFile);
+		// put our dex files into the zip archive
 		try {
-			outputApk.putNextEntry(new ZipEntry(CLASSES_DEX));
-			writeTo(tmpFile.getAbsolutePath());
-			while (fis.available() > 0) {
-				byte[] data = new byte[fis.available()];
-				fis.read(data);
-				outputApk.write(data);
+			for (int i = 0; i < completedDexFiles.size(); i++) {
+				outputApk.putNextEntry(new ZipEntry(dexFileName(i)));
+				copy(completedDexFiles.get(i), outputApk);
+				outputApk.closeEntry();
 			}
-			outputApk.closeEntry();
 		}
 		finally {
-			fis.close();
-			tmpFile.delete();
 			if (outputApk != null)
 				outputApk.close();
 		}
 	}
 
+	private static void copy(File source, OutputStream destination) throws IOException {
+		InputStream in = new FileInputStream(source);
+		try {
+			byte[] buffer = new byte[8192];
+			int bytesRead = in.read(buffer);
+			while (bytesRead > 0) {
+				destination.write(buffer, 0, bytesRead);
+				bytesRead = in.read(buffer);
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
 	private void copyAllButClassesDexAndSigFiles(ZipFile source, ZipOutputStream destination) throws IOException {
 		Enumeration<? extends ZipEntry> sourceEntries = source.entries();
 		while (sourceEntries.hasMoreElements()) {
 			ZipEntry sourceEntry = sourceEntries.nextElement();
 			String sourceEntryName = sourceEntry.getName();
-			if (sourceEntryName.equals(CLASSES_DEX) || isSignatureFile(sourceEntryName)) {
+			if (isDexFile(sourceEntryName) || isSignatureFile(sourceEntryName)) {
 				continue;
 			}
 			// separate ZipEntry avoids compression problems due to encodings
@@ -233,6 +271,12 @@ public class DexPrinter {
 		}
 	}
 
+	/** Returns true for classes.dex, classes2.dex and so on, which are
+	 * replaced by the dex files written. */
+	private static boolean isDexFile(String fileName) {
+		return fileName.matches("classes\\d*\\.dex");
+	}
+
 	private static boolean isSignatureFile(String fileName) {
 		StringBuilder sigFileRegex = new StringBuilder();
 		// file name must start with META-INF...
@@ -246,10 +290,104 @@ public class DexPrinter {
 		return fileName.matches(sigFileRegex.toString());
 	}
 
-	private void writeTo(String fileName) throws IOException {
-		FileDataStore fds = new FileDataStore(new File(fileName));
-		dexFile.writeTo(fds);
-		fds.close();
+	/**
+	 * Writes the current dex file to a temporary file and starts a new one,
+	 * so that only a single dex file is held in memory at any time.
+	 */
+	private void completeDexFile() throws IOException {
+		File tmpFile = File.createTempFile("toDex", ".dex");
+		tmpFile.deleteOnExit();
+		FileDataStore fds = new FileDataStore(tmpFile);
+		try {
+			dexFile.writeTo(fds);
+		}
+		finally {
+			fds.close();
+		}
+		completedDexFiles.add(tmpFile);
+		dexFile = DexBuilder.makeDexBuilder();
+		methodRefs.clear();
+		fieldRefs.clear();
+		typeRefs.clear();
+		classCount = 0;
+	}
+
+	/**
+	 * Adds the signatures of the methods and fields c declares or refers to
+	 * from its bodies to the given sets, and the descriptors of the types
+	 * they and the bodies use. The types may include some that end up
+	 * without a reference in the dex file, such as those of locals.
+	 */
+	private static void collectReferences(SootClass c, Set<String> methods, Set<String> fields,
+			Set<String> types) {
+		addType(c.getType(), types);
+		if (c.hasSuperclass())
+			addType(c.getSuperclass().getType(), types);
+		for (SootClass i : c.getInterfaces())
+			addType(i.getType(), types);
+		for (SootField f : c.getFields()) {
+			fields.add(f.getSignature());
+			addType(f.getType(), types);
+		}
+		for (SootMethod m : c.getMethods()) {
+			if (m.isPhantom())
+				continue;
+			methods.add(m.getSignature());
+			addTypes(m.makeRef(), types);
+			for (SootClass e : m.getExceptions())
+				addType(e.getType(), types);
+			if (m.isAbstract() || m.isNative())
+				continue;
+			Body body = m.retrieveActiveBody();
+			for (Unit u : body.getUnits()) {
+				Stmt s = (Stmt) u;
+				if (s.containsInvokeExpr()) {
+					methods.add(s.getInvokeExpr().getMethodRef().getSignature());
+					addTypes(s.getInvokeExpr().getMethodRef(), types);
+				}
+				else if (s.containsFieldRef()) {
+					SootFieldRef ref = s.getFieldRef().getFieldRef();
+					fields.add(ref.getSignature());
+					addType(ref.declaringClass().getType(), types);
+				}
+				for (ValueBox vb : u.getUseAndDefBoxes()) {
+					Value v = vb.getValue();
+					addType(v.getType(), types);
+					if (v instanceof InstanceOfExpr)
+						addType(((InstanceOfExpr) v).getCheckType(), types);
+					else if (v instanceof ClassConstant) {
+						// Like ConstantVisitor, which leaves array classes as they are
+						String name = ((ClassConstant) v).getValue();
+						types.add(name.startsWith("[") ? name : SootToDexUtils.getDexClassName(name));
+					}
+				}
+			}
+			for (Trap t : body.getTraps())
+				addType(t.getException().getType(), types);
+		}
+	}
+
+	/** Adds the declaring class, parameter and return types of ref. */
+	private static void addTypes(SootMethodRef ref, Set<String> types) {
+		addType(ref.declaringClass().getType(), types);
+		for (Type t : ref.parameterTypes())
+			addType(t, types);
+		addType(ref.returnType(), types);
+	}
+
+	/** Adds the descriptor of t if it has one in dex. */
+	private static void addType(Type t, Set<String> types) {
+		if (t instanceof RefType || t instanceof ArrayType || t instanceof PrimType || t instanceof VoidType)
+			types.add(SootToDexUtils.getDexTypeDescriptor(t));
+	}
+
+	/** Returns the number of elements of s that are not in t. */
+	private static int countNew(Set<String> s, Set<String> t) {
+		int ret = 0;
+		for (String e : s)
+			if (!t.contains(e))
+				ret++;
+		return ret;
 	}
 	
     /**
@@ -1543,9 +1681,35 @@ public class DexPrinter {
 		}
 	}
 	
+	/**
+	 * Converts c and adds it to the current dex file. If c would take the
+	 * method, field or type references of the dex file beyond what the format
+	 * allows, the current dex file is completed first and c starts the next
+	 * one, giving classes.dex, classes2.dex and so on.
+	 */
 	public void add(SootClass c) {
 		if (c.isPhantom())
 			return;
+		
+		Set<String> classMethodRefs = new HashSet<String>();
+		Set<String> classFieldRefs = new HashSet<String>();
+		Set<String> classTypeRefs = new HashSet<String>();
+		collectReferences(c, classMethodRefs, classFieldRefs, classTypeRefs);
+		int limit = MAX_REFERENCES - RESERVED_REFERENCES;
+		if (classCount > 0
+				&& (methodRefs.size() + countNew(classMethodRefs, methodRefs) > limit
+					|| fieldRefs.size() + countNew(classFieldRefs, fieldRefs) > limit
+					|| typeRefs.size() + countNew(classTypeRefs, typeRefs) > limit)) {
+			try {
+				completeDexFile();
+			} catch (IOException e) {
+				throw new CompilationDeathException("I/O exception while printing dex", e);
+			}
+		}
+		methodRefs.addAll(classMethodRefs);
+		fieldRefs.addAll(classFieldRefs);
+		typeRefs.addAll(classTypeRefs);
+		classCount++;
 				
 		addAsClassDefItem(c);
 		// save original APK for this class, needed to copy all the other files inside
@@ -1563,19 +1727,37 @@ public class DexPrinter {
     	originalApk = sourceForClass;
 	}
 
+	/**
+	 * Writes all dex files, either into a copy of the original apk or into
+	 * the output directory.
+	 */
 	public void print() {
 		String outputDir = SourceLocator.v().getOutputDir();
 		try {
+			if (classCount > 0 || completedDexFiles.isEmpty())
+				completeDexFile();
 			if (originalApk != null
 					&& Options.v().output_format() != Options.output_format_force_dex) {
 				printApk(outputDir, originalApk);
 			} else {
-				String fileName = outputDir + File.separatorChar + CLASSES_DEX;
-				G.v().out.println("Writing dex to: " + fileName);
-				writeTo(fileName);
+				for (int i = 0; i < completedDexFiles.size(); i++) {
+					String fileName = outputDir + File.separatorChar + dexFileName(i);
+					G.v().out.println("Writing dex to: " + fileName);
+					OutputStream out = new FileOutputStream(fileName);
+					try {
+						copy(completedDexFiles.get(i), out);
+					}
+					finally {
+						out.close();
+					}
+				}
 			}
 		} catch (IOException e) {
 			throw new CompilationDeathException("I/O exception while printing dex", e);
+		} finally {
+			for (File f : completedDexFiles)
+				f.delete();
+			completedDexFiles.clear();
 		}
 	}
 
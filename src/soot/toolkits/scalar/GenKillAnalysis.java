@@ -0,0 +1,423 @@
+/* Soot - a J*va Optimization Framework
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA 02111-1307, USA.
+ */
+
+package soot.toolkits.scalar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import soot.toolkits.graph.DirectedGraph;
+
+/**
+ * A dataflow analysis for gen/kill problems, whose transfer functions all
+ * have the form <code>out = gen + (in - kill)</code>. The facts are numbered
+ * from 0, for example with an {@link ObjectIntMapper}, and all flow sets are
+ * kept as dense bit vectors in a few <code>long[]</code> arrays, so that the
+ * analysis itself allocates no flow set objects per node.
+ * <p>
+ * The nodes are first grouped into basic blocks, and the gen and kill sets
+ * of each block are composed from those of its nodes. The fixed point is then
+ * computed on the blocks only, visiting them in reverse postorder of the
+ * direction of the analysis with a worklist that holds each block at most
+ * once. The flow sets of single nodes are computed from those of their block
+ * when they are first asked for.
+ * <p>
+ * Subclasses give the gen and kill sets of each node in
+ * {@link #flowThrough(Object, long[], long[])} and call
+ * {@link #doAnalysis(int)} from their constructor.
+ */
+public abstract class GenKillAnalysis<N> {
+	protected final DirectedGraph<N> graph;
+	private final boolean isForward;
+	private final boolean isUnion;
+
+	private int numFacts;
+	private int words;
+
+	private Map<N, Integer> nodeIndex;
+	/** The block of each node and its position in the block. */
+	private int[] blockOf;
+	private int[] posInBlock;
+	/** The nodes of each block, in the direction of the analysis. */
+	private List<N>[] blockNodes;
+	/** The facts at the start and at the end of each block, in the
+	 * direction of the analysis, <code>words</code> longs per block. */
+	private long[] blockIn;
+	private long[] blockOut;
+	/** The facts at each position of a block, made when first needed. */
+	private long[][] nodeFlows;
+
+	/**
+	 * @param graph the graph to analyze
+	 * @param isForward whether facts flow along the edges of the graph or
+	 *        against them
+	 * @param isUnion whether facts that hold on some incoming path hold (a may
+	 *        analysis), or only those that hold on all of them (a must
+	 *        analysis)
+	 */
+	public GenKillAnalysis(DirectedGraph<N> graph, boolean isForward,
+			boolean isUnion) {
+		this.graph = graph;
+		this.isForward = isForward;
+		this.isUnion = isUnion;
+	}
+
+	/**
+	 * Sets the bits of the facts that node generates in gen, and those of the
+	 * facts it kills in kill. Both are clear when this is called. Facts both
+	 * generated and killed hold after the node.
+	 */
+	protected abstract void flowThrough(N node, long[] gen, long[] kill);
+
+	/** Sets the bit of fact in bits. */
+	protected static void set(long[] bits, int fact) {
+		bits[fact >>> 6] |= 1L << fact;
+	}
+
+	/** Returns whether the bit of fact is set in bits. */
+	protected static boolean get(long[] bits, int fact) {
+		return (bits[fact >>> 6] & (1L << fact)) != 0;
+	}
+
+	/**
+	 * Returns the facts that hold before node in the order of execution,
+	 * sorted in increasing order.
+	 */
+	public int[] getFactsBefore(N node) {
+		return factsAt(node, isForward ? 0 : 1);
+	}
+
+	/**
+	 * Returns the facts that hold after node in the order of execution,
+	 * sorted in increasing order.
+	 */
+	public int[] getFactsAfter(N node) {
+		return factsAt(node, isForward ? 1 : 0);
+	}
+
+	/** Returns whether fact holds before node in the order of execution. */
+	public boolean holdsBefore(N node, int fact) {
+		return holdsAt(node, isForward ? 0 : 1, fact);
+	}
+
+	/** Returns whether fact holds after node in the order of execution. */
+	public boolean holdsAfter(N node, int fact) {
+		return holdsAt(node, isForward ? 1 : 0, fact);
+	}
+
+	/** Computes the fixed point for facts numbered from 0 to numFacts-1. */
+	protected void doAnalysis(int numFacts) {
+		this.numFacts = numFacts;
+		this.words = (numFacts + 63) >>> 6;
+		int numBlocks = makeBlocks();
+
+		long[] blockGen = new long[numBlocks * words];
+		long[] blockKill = new long[numBlocks * words];
+		long[] gen = new long[words];
+		long[] kill = new long[words];
+		for (int b = 0; b < numBlocks; b++) {
+			int o = b * words;
+			for (N n : blockNodes[b]) {
+				Arrays.fill(gen, 0);
+				Arrays.fill(kill, 0);
+				flowThrough(n, gen, kill);
+				for (int w = 0; w < words; w++) {
+					blockGen[o + w] = gen[w] | (blockGen[o + w] & ~kill[w]);
+					blockKill[o + w] |= kill[w];
+				}
+			}
+		}
+
+		int[][] succs = new int[numBlocks][];
+		int[][] preds = blockPreds(succs);
+		boolean[] isEntry = new boolean[numBlocks];
+		for (N n : isForward ? graph.getHeads() : graph.getTails())
+			isEntry[blockOf[nodeIndex.get(n)]] = true;
+		int[] order = reversePostorder(succs, isEntry);
+		int[] rank = new int[numBlocks];
+		for (int i = 0; i < numBlocks; i++)
+			rank[order[i]] = i;
+
+		blockIn = new long[numBlocks * words];
+		blockOut = new long[numBlocks * words];
+		nodeFlows = new long[numBlocks][];
+		if (!isUnion) {
+			Arrays.fill(blockOut, -1L);
+			for (int b = 0; b < numBlocks; b++)
+				clearUnusedBits(blockOut, b * words);
+		}
+
+		// The worklist is a bit set over the ranks of the blocks, so the
+		// block with the lowest rank is always taken first
+		long[] worklist = new long[(numBlocks + 63) >>> 6];
+		for (int i = 0; i < numBlocks; i++)
+			set(worklist, i);
+		int first = 0;
+		while (true) {
+			while (first < worklist.length && worklist[first] == 0)
+				first++;
+			if (first == worklist.length)
+				break;
+			int r = (first << 6) + Long.numberOfTrailingZeros(worklist[first]);
+			worklist[first] &= ~(1L << r);
+			int b = order[r];
+			int o = b * words;
+
+			// Nothing holds on entry. All other blocks start from the initial
+			// value, which is the identity of the merge.
+			if (isUnion || isEntry[b]) {
+				Arrays.fill(blockIn, o, o + words, 0);
+			} else {
+				Arrays.fill(blockIn, o, o + words, -1L);
+				clearUnusedBits(blockIn, o);
+			}
+			for (int p : preds[b]) {
+				int po = p * words;
+				if (isUnion)
+					for (int w = 0; w < words; w++)
+						blockIn[o + w] |= blockOut[po + w];
+				else
+					for (int w = 0; w < words; w++)
+						blockIn[o + w] &= blockOut[po + w];
+			}
+
+			boolean changed = false;
+			for (int w = 0; w < words; w++) {
+				long out = blockGen[o + w] | (blockIn[o + w] & ~blockKill[o + w]);
+				if (out != blockOut[o + w]) {
+					blockOut[o + w] = out;
+					changed = true;
+				}
+			}
+			if (changed) {
+				for (int s : succs[b]) {
+					int sr = rank[s];
+					set(worklist, sr);
+					if ((sr >>> 6) < first)
+						first = sr >>> 6;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Groups the nodes into maximal chains in the direction of the analysis
+	 * and returns the number of blocks.
+	 */
+	private int makeBlocks() {
+		int n = graph.size();
+		List<N> nodes = new ArrayList<N>(n);
+		nodeIndex = new HashMap<N, Integer>((n + 1) * 4 / 3);
+		for (N node : graph) {
+			nodeIndex.put(node, nodes.size());
+			nodes.add(node);
+		}
+		blockOf = new int[n];
+		posInBlock = new int[n];
+		Arrays.fill(blockOf, -1);
+		boolean[] isLeader = new boolean[n];
+		for (N node : isForward ? graph.getHeads() : graph.getTails())
+			isLeader[nodeIndex.get(node)] = true;
+		for (int i = 0; i < n; i++) {
+			List<N> p = predsOf(nodes.get(i));
+			if (p.size() != 1 || p.get(0) == nodes.get(i)
+					|| succsOf(p.get(0)).size() != 1)
+				isLeader[i] = true;
+		}
+
+		List<List<N>> blocks = new ArrayList<List<N>>();
+		for (int i = 0; i < n; i++) {
+			if (isLeader[i])
+				makeBlock(nodes.get(i), isLeader, blocks);
+		}
+		// Cycles in which no node is a leader
+		for (int i = 0; i < n; i++) {
+			if (blockOf[i] < 0)
+				makeBlock(nodes.get(i), isLeader, blocks);
+		}
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		List<N>[] array = blocks.toArray(new List[blocks.size()]);
+		blockNodes = array;
+		return blockNodes.length;
+	}
+
+	private void makeBlock(N first, boolean[] isLeader, List<List<N>> blocks) {
+		List<N> block = new ArrayList<N>();
+		int b = blocks.size();
+		N cur = first;
+		int i = nodeIndex.get(cur);
+		while (true) {
+			blockOf[i] = b;
+			posInBlock[i] = block.size();
+			block.add(cur);
+			List<N> next = succsOf(cur);
+			if (next.size() != 1)
+				break;
+			cur = next.get(0);
+			i = nodeIndex.get(cur);
+			if (blockOf[i] >= 0 || isLeader[i])
+				break;
+		}
+		blocks.add(block);
+	}
+
+	private List<N> succsOf(N node) {
+		return isForward ? graph.getSuccsOf(node) : graph.getPredsOf(node);
+	}
+
+	private List<N> predsOf(N node) {
+		return isForward ? graph.getPredsOf(node) : graph.getSuccsOf(node);
+	}
+
+	/** Fills in succs and returns the predecessors of each block. */
+	private int[][] blockPreds(int[][] succs) {
+		int numBlocks = succs.length;
+		int[] numPreds = new int[numBlocks];
+		for (int b = 0; b < numBlocks; b++) {
+			List<N> nodes = blockNodes[b];
+			List<N> next = succsOf(nodes.get(nodes.size() - 1));
+			succs[b] = new int[next.size()];
+			for (int i = 0; i < next.size(); i++) {
+				int s = blockOf[nodeIndex.get(next.get(i))];
+				succs[b][i] = s;
+				numPreds[s]++;
+			}
+		}
+		int[][] preds = new int[numBlocks][];
+		for (int b = 0; b < numBlocks; b++)
+			preds[b] = new int[numPreds[b]];
+		Arrays.fill(numPreds, 0);
+		for (int b = 0; b < numBlocks; b++)
+			for (int s : succs[b])
+				preds[s][numPreds[s]++] = b;
+		return preds;
+	}
+
+	/**
+	 * Returns the blocks in reverse postorder of a depth-first search that
+	 * starts from the entry blocks, followed by those it does not reach.
+	 */
+	private static int[] reversePostorder(int[][] succs, boolean[] isEntry) {
+		int numBlocks = succs.length;
+		int[] order = new int[numBlocks];
+		int next = numBlocks;
+		boolean[] visited = new boolean[numBlocks];
+		int[] stack = new int[numBlocks];
+		int[] edge = new int[numBlocks];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int root = 0; root < numBlocks; root++) {
+				if (visited[root] || (pass == 0 && !isEntry[root]))
+					continue;
+				// Iterative, since generated methods can be very large
+				int top = 0;
+				stack[0] = root;
+				edge[0] = 0;
+				visited[root] = true;
+				while (top >= 0) {
+					int b = stack[top];
+					if (edge[top] < succs[b].length) {
+						int s = succs[b][edge[top]++];
+						if (!visited[s]) {
+							visited[s] = true;
+							stack[++top] = s;
+							edge[top] = 0;
+						}
+					} else {
+						order[--next] = b;
+						top--;
+					}
+				}
+			}
+		}
+		// Blocks found in the second pass come before those of the first one,
+		// which is fine since they cannot reach them anyway
+		return order;
+	}
+
+	/** Clears the bits beyond numFacts in the block that starts at o. */
+	private void clearUnusedBits(long[] bits, int o) {
+		if ((numFacts & 63) != 0)
+			bits[o + words - 1] &= (1L << numFacts) - 1;
+	}
+
+	private long[] flowsOf(int b) {
+		long[] ret = nodeFlows[b];
+		if (ret != null)
+			return ret;
+		List<N> nodes = blockNodes[b];
+		ret = new long[(nodes.size() + 1) * words];
+		System.arraycopy(blockIn, b * words, ret, 0, words);
+		long[] gen = new long[words];
+		long[] kill = new long[words];
+		for (int i = 0; i < nodes.size(); i++) {
+			Arrays.fill(gen, 0);
+			Arrays.fill(kill, 0);
+			flowThrough(nodes.get(i), gen, kill);
+			int o = i * words;
+			for (int w = 0; w < words; w++)
+				ret[o + words + w] = gen[w] | (ret[o + w] & ~kill[w]);
+		}
+		nodeFlows[b] = ret;
+		return ret;
+	}
+
+	private int indexOf(N node) {
+		Integer i = nodeIndex.get(node);
+		if (i == null)
+			throw new RuntimeException("Node " + node + " is not in the graph");
+		return i;
+	}
+
+	/** Returns the offset of the facts before (side 0) or after (side 1) the
+	 * node with index i, in the direction of the analysis, in the array of
+	 * its block. */
+	private int offsetOf(int i, int side) {
+		return (posInBlock[i] + side) * words;
+	}
+
+	private int[] factsAt(N node, int side) {
+		int i = indexOf(node);
+		long[] flows = flowsOf(blockOf[i]);
+		int o = offsetOf(i, side);
+		int count = 0;
+		for (int w = 0; w < words; w++)
+			count += Long.bitCount(flows[o + w]);
+		int[] ret = new int[count];
+		int k = 0;
+		for (int w = 0; w < words; w++) {
+			long bits = flows[o + w];
+			while (bits != 0) {
+				ret[k++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+			}
+		}
+		return ret;
+	}
+
+	private boolean holdsAt(N node, int side, int fact) {
+		if (fact < 0 || fact >= numFacts)
+			return false;
+		int i = indexOf(node);
+		int o = offsetOf(i, side);
+		long[] flows = flowsOf(blockOf[i]);
+		return (flows[o + (fact >>> 6)] & (1L << fact)) != 0;
+	}
+}
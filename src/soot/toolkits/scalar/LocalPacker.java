@@ -64,6 +64,13 @@ public class LocalPacker extends BodyTransformer
     public LocalPacker( Singletons.Global g ) {}
     public static LocalPacker v() { return G.v().soot_toolkits_scalar_LocalPacker(); }
 
+    // Replaces the locals of units, but keeps their flow
+    @Override
+    protected Set<BodyAnalysisCache.Key<?>> preservedAnalyses()
+    {
+        return BodyAnalysisCache.CONTROL_FLOW;
+    }
+
     protected void internalTransform(Body body, String phaseName, Map<String,String> options)
     {
         boolean isUnsplit = PhaseOptions.getBoolean(options, "unsplit-original-locals");
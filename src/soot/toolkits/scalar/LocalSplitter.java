@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.Set;
 
 import soot.Body;
+import soot.BodyAnalysisCache;
 import soot.BodyTransformer;
 import soot.G;
 import soot.Local;
@@ -90,6 +91,13 @@ public class LocalSplitter extends BodyTransformer
 	
 	public static LocalSplitter v() { return G.v().soot_toolkits_scalar_LocalSplitter(); }
     
+	// Replaces the locals of units, but keeps their flow
+	@Override
+	protected Set<BodyAnalysisCache.Key<?>> preservedAnalyses()
+	{
+		return BodyAnalysisCache.CONTROL_FLOW;
+	}
+
 	@Override
     protected void internalTransform(Body body, String phaseName, Map<String, String> options)
     {		
@@ -33,6 +33,7 @@ import soot.G;
 import soot.Value;
 import soot.ValueBox;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import soot.toolkits.graph.UnitGraph;
@@ -41,7 +42,7 @@ import soot.toolkits.graph.UnitGraph;
  * Analysis that provides an implementation of the LiveLocals interface.
  */
 public class SimpleLiveLocals implements LiveLocals {
-	final FlowAnalysis<Unit, FlowSet<Local>> analysis;
+	final Analysis analysis;
 
 	/**
 	 * Computes the analysis given a UnitGraph computed from a method body. It
@@ -60,12 +61,10 @@ public class SimpleLiveLocals implements LiveLocals {
 			G.v().out.println("[" + graph.getBody().getMethod().getName()
 					+ "]     Constructing SimpleLiveLocals...");
 
-		analysis = new Analysis(graph);
-
 		if (Options.v().time())
 			Timers.v().liveAnalysisTimer.start();
 
-		analysis.doAnalysis();
+		analysis = new Analysis(graph);
 
 		if (Options.v().time())
 			Timers.v().liveAnalysisTimer.end();
@@ -75,64 +74,51 @@ public class SimpleLiveLocals implements LiveLocals {
 	}
 
 	public List<Local> getLiveLocalsAfter(Unit s) {
-		// ArraySparseSet returns a unbacked list of elements!
-		return analysis.getFlowAfter(s).toList();
+		return analysis.toList(analysis.getFactsAfter(s));
 	}
 
 	public List<Local> getLiveLocalsBefore(Unit s) {
-		// ArraySparseSet returns a unbacked list of elements!
-		return analysis.getFlowBefore(s).toList();
+		return analysis.toList(analysis.getFactsBefore(s));
 	}
 
-	static class Analysis extends BackwardFlowAnalysis<Unit, FlowSet<Local>> {
-		Analysis(UnitGraph g) {
-			super(g);
-		}
+	/** Liveness as a backward gen/kill problem over bit vectors, with one
+	 * bit per local of the body. Locals that the units use or define but
+	 * the body does not declare get bits of their own. */
+	static class Analysis extends GenKillAnalysis<Unit> {
+		final ObjectIntMapper<Local> locals;
 
-		@Override
-		protected FlowSet<Local> newInitialFlow() {
-			return new ArraySparseSet<Local>();
+		Analysis(UnitGraph g) {
+			super(g, false, true);
+			locals = new ObjectIntMapper<Local>(g.getBody().getLocals());
+			for (Unit u : g) {
+				for (ValueBox box : u.getUseAndDefBoxes()) {
+					Value v = box.getValue();
+					if (v instanceof Local && !locals.contains(v))
+						locals.add((Local) v);
+				}
+			}
+			doAnalysis(locals.size());
 		}
 
 		@Override
-		protected void flowThrough(FlowSet<Local> in, Unit unit,
-				FlowSet<Local> out) {
-			in.copy(out);
-
-			// Perform kill
+		protected void flowThrough(Unit unit, long[] gen, long[] kill) {
 			for (ValueBox box : unit.getDefBoxes()) {
 				Value v = box.getValue();
-				if (v instanceof Local) {
-					Local l = (Local) v;
-					out.remove(l);
-				}
+				if (v instanceof Local)
+					set(kill, locals.getInt((Local) v));
 			}
-
-			// Perform generation
 			for (ValueBox box : unit.getUseBoxes()) {
 				Value v = box.getValue();
-				if (v instanceof Local) {
-					Local l = (Local) v;
-					out.add(l);
-				}
+				if (v instanceof Local)
+					set(gen, locals.getInt((Local) v));
 			}
 		}
 
-		@Override
-		protected void mergeInto(Unit succNode, FlowSet<Local> inout,
-				FlowSet<Local> in) {
-			inout.union(in);
-		}
-
-		@Override
-		protected void merge(FlowSet<Local> in1, FlowSet<Local> in2,
-				FlowSet<Local> out) {
-			in1.union(in2, out);
-		}
-
-		@Override
-		protected void copy(FlowSet<Local> source, FlowSet<Local> dest) {
-			source.copy(dest);
+		List<Local> toList(int[] facts) {
+			List<Local> ret = new ArrayList<Local>(facts.length);
+			for (int f : facts)
+				ret.add(locals.getObject(f));
+			return ret;
 		}
 	}
 }
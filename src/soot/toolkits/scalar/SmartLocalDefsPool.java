@@ -21,6 +21,7 @@ package soot.toolkits.scalar;
 import java.util.Map;
 
 import soot.Body;
+import soot.BodyAnalysisCache;
 import soot.G;
 import soot.Singletons;
 import soot.toolkits.graph.ExceptionalUnitGraph;
@@ -33,8 +34,11 @@ import com.google.common.collect.Maps;
  * A {@link SmartLocalDefs} instance requires a {@link UnitGraph} (usually a {@link ExceptionalUnitGraph}), and creating these repeatedly,
  * and applying the {@link SmartLocalDefs} analysis repeatedly costs time.
  * Therefore in this class we pool these instances in cases in which the respective body is still the same. 
+ * The instances are shared with the {@link BodyAnalysisCache} of each body.
  * @author Eric Bodden
+ * @deprecated use {@link BodyAnalysisCache#SMART_LOCAL_DEFS} instead
  */
+@Deprecated
 public class SmartLocalDefsPool {
 
 	protected Map<Body,Pair<Long,SmartLocalDefs>> pool = Maps.newHashMap();
@@ -51,14 +55,17 @@ public class SmartLocalDefsPool {
 		if(modCountAndSLD!=null && modCountAndSLD.o1.longValue() == b.getModificationCount()) {
 			return modCountAndSLD.o2;
 		} else {
-			ExceptionalUnitGraph g = new ExceptionalUnitGraph(b);
-			SmartLocalDefs newSLD = new SmartLocalDefs(g, new SimpleLiveLocals( g ));
+			// Transformers that do not preserve it drop it from the cache, but
+			// it is still reused here as long as the body is unchanged
+			SmartLocalDefs newSLD = b.getAnalysisCache().get(BodyAnalysisCache.SMART_LOCAL_DEFS);
 			pool.put(b, new Pair<Long, SmartLocalDefs>(b.getModificationCount(), newSLD));
 			return newSLD;
 		}
 	}	
 	
 	public void clear() {
+		for (Body b : pool.keySet())
+			b.getAnalysisCache().invalidate(BodyAnalysisCache.SMART_LOCAL_DEFS);
 		pool.clear();
 	}
 	
@@ -71,6 +78,7 @@ public class SmartLocalDefsPool {
     
     public void invalidate(Body b) {
     	pool.remove(b);
+    	b.getAnalysisCache().invalidate(BodyAnalysisCache.SMART_LOCAL_DEFS);
     }
 
 }
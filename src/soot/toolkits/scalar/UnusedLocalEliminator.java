@@ -45,6 +45,12 @@ public class UnusedLocalEliminator extends BodyTransformer {
 		return G.v().soot_toolkits_scalar_UnusedLocalEliminator();
 	}
 
+	// The cached analyses do not depend on unused locals
+	@Override
+	protected boolean preservesAll() {
+		return true;
+	}
+
 	protected void internalTransform(Body body, String phaseName, Map<String,String> options) {
 		if (Options.v().verbose())
 			G.v().out.println("[" + body.getMethod().getName()
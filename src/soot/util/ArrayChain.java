@@ -0,0 +1,538 @@
+/* Soot - a J*va Optimization Framework
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place - Suite 330,
+ * Boston, MA 02111-1307, USA.
+ */
+
+package soot.util;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation of the Chain interface that keeps its elements in arrays
+ * instead of a HashMap of linked Link objects. Each element has a slot; the
+ * slot holds the element and the slots of its predecessor and successor,
+ * and an open-addressing table maps the elements to their slots. This takes
+ * about a third of the memory of a {@link HashChain} and allocates no
+ * objects per element, which matters for the unit chains of bodies.
+ * Insertions and removals are O(1), amortized over the growing of the
+ * arrays. Slots of removed elements are reused.
+ * <p>
+ * Elements are compared with equals() and hashCode(), like in HashChain.
+ * Unlike HashChain, {@link #getElementsUnsorted()} returns a copy.
+ */
+@SuppressWarnings("serial")
+public class ArrayChain<E> extends AbstractCollection<E> implements Chain<E> {
+	private static final int NONE = -1;
+
+	/** The element of each slot, null for free slots. */
+	private Object[] elements;
+	/** The slot of the successor and the predecessor of each slot. For free
+	 * slots, next links the free slots together. */
+	private int[] next, prev;
+	/** The slots of the elements plus one, by hash of the element, with
+	 * linear probing. 0 marks an empty entry. */
+	private int[] table;
+
+	private int first = NONE, last = NONE;
+	/** The first free slot below used; all slots from used on are free. */
+	private int free = NONE;
+	private int used = 0;
+	private int size = 0;
+	private long stateCount = 0;
+
+	/** Constructs an empty ArrayChain. */
+	public ArrayChain() {
+		this(8);
+	}
+
+	/** Constructs an empty ArrayChain with room for capacity elements. */
+	public ArrayChain(int capacity) {
+		if (capacity < 1)
+			capacity = 1;
+		elements = new Object[capacity];
+		next = new int[capacity];
+		prev = new int[capacity];
+		int tableSize = 4;
+		while (tableSize < capacity * 2)
+			tableSize <<= 1;
+		table = new int[tableSize];
+	}
+
+	/** Constructs an ArrayChain filled with the contents of the src Chain. */
+	public ArrayChain(Chain<E> src) {
+		this(src.size());
+		addAll(src);
+	}
+
+	/* Slot management */
+
+	private static int hash(Object o) {
+		int h = o.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/** Returns the slot of o, or NONE. */
+	private int slotOf(Object o) {
+		int mask = table.length - 1;
+		for (int i = hash(o) & mask;; i = (i + 1) & mask) {
+			int s = table[i] - 1;
+			if (s == NONE)
+				return NONE;
+			Object e = elements[s];
+			if (e == o || e.equals(o))
+				return s;
+		}
+	}
+
+	private int slotOfPoint(E point) {
+		int s = slotOf(point);
+		if (s == NONE)
+			throw new RuntimeException("Insertion point not found in chain!");
+		return s;
+	}
+
+	/** Puts item into a free slot and into the table, and returns the
+	 * slot. */
+	private int newSlot(E item) {
+		if (item == null)
+			throw new RuntimeException("Bad idea! You tried to insert "
+					+ " a null object into a Chain!");
+		if (slotOf(item) != NONE)
+			throw new RuntimeException("Chain already contains object: " + item);
+		int s;
+		if (free != NONE) {
+			s = free;
+			free = next[s];
+		} else {
+			if (used == elements.length)
+				grow();
+			s = used++;
+		}
+		elements[s] = item;
+		size++;
+		if (size * 2 > table.length)
+			rehash(table.length * 2);
+		else
+			putInTable(s);
+		stateCount++;
+		return s;
+	}
+
+	private void grow() {
+		int capacity = elements.length * 2;
+		elements = Arrays.copyOf(elements, capacity);
+		next = Arrays.copyOf(next, capacity);
+		prev = Arrays.copyOf(prev, capacity);
+	}
+
+	private void putInTable(int s) {
+		int mask = table.length - 1;
+		int i = hash(elements[s]) & mask;
+		while (table[i] != 0)
+			i = (i + 1) & mask;
+		table[i] = s + 1;
+	}
+
+	private void rehash(int tableSize) {
+		table = new int[tableSize];
+		for (int s = 0; s < used; s++) {
+			if (elements[s] != null)
+				putInTable(s);
+		}
+	}
+
+	/** Unlinks slot s, removes its element from the table and frees it. */
+	private void freeSlot(int s) {
+		int p = prev[s], n = next[s];
+		if (p == NONE)
+			first = n;
+		else
+			next[p] = n;
+		if (n == NONE)
+			last = p;
+		else
+			prev[n] = p;
+		removeFromTable(s);
+		elements[s] = null;
+		next[s] = free;
+		free = s;
+		size--;
+		stateCount++;
+	}
+
+	private void removeFromTable(int s) {
+		int mask = table.length - 1;
+		int i = hash(elements[s]) & mask;
+		while (table[i] != s + 1)
+			i = (i + 1) & mask;
+		// Shift back the entries of the probe sequence behind i
+		for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+			int h = hash(elements[table[j] - 1]) & mask;
+			if (((j - h) & mask) >= ((j - i) & mask)) {
+				table[i] = table[j];
+				i = j;
+			}
+		}
+		table[i] = 0;
+	}
+
+	/** Links slot s in between slots p and n, either of which may be NONE
+	 * for the ends of the chain. */
+	private void link(int s, int p, int n) {
+		prev[s] = p;
+		next[s] = n;
+		if (p == NONE)
+			first = s;
+		else
+			next[p] = s;
+		if (n == NONE)
+			last = s;
+		else
+			prev[n] = s;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E elementAt(int s) {
+		return (E) elements[s];
+	}
+
+	/* Chain */
+
+	/** Erases the contents of the current ArrayChain. */
+	public void clear() {
+		stateCount++;
+		Arrays.fill(elements, 0, used, null);
+		Arrays.fill(table, 0);
+		first = last = free = NONE;
+		used = size = 0;
+	}
+
+	public void swapWith(E out, E in) {
+		insertBefore(in, out);
+		remove(out);
+	}
+
+	/** Adds the given object to this ArrayChain. */
+	public boolean add(E item) {
+		addLast(item);
+		return true;
+	}
+
+	/**
+	 * Gets all elements in the chain. There is no guarantee on sorting.
+	 * @return A copy of the elements in the chain
+	 */
+	public Collection<E> getElementsUnsorted() {
+		return new ArrayList<E>(this);
+	}
+
+	public boolean follows(E someObject, E someReferenceObject) {
+		Iterator<E> it = iterator(someObject);
+		while (it.hasNext()) {
+			if (it.next() == someReferenceObject)
+				return false;
+		}
+		return true;
+	}
+
+	public boolean contains(Object o) {
+		return slotOf(o) != NONE;
+	}
+
+	public void insertAfter(E toInsert, E point) {
+		int p = slotOfPoint(point);
+		link(newSlot(toInsert), p, next[p]);
+	}
+
+	public void insertAfter(Collection<? extends E> toInsert, E point) {
+		// if the list is null, treat it as an empty list
+		if (toInsert == null)
+			throw new RuntimeException("Warning! You tried to insert "
+					+ "a null list into a Chain!");
+
+		E previousPoint = point;
+		for (E o : toInsert) {
+			insertAfter(o, previousPoint);
+			previousPoint = o;
+		}
+	}
+
+	public void insertAfter(List<E> toInsert, E point) {
+		insertAfter((Collection<? extends E>) toInsert, point);
+	}
+
+	public void insertAfter(Chain<E> toInsert, E point) {
+		insertAfter((Collection<? extends E>) toInsert, point);
+	}
+
+	public void insertBefore(E toInsert, E point) {
+		int n = slotOfPoint(point);
+		link(newSlot(toInsert), prev[n], n);
+	}
+
+	public void insertBefore(Collection<? extends E> toInsert, E point) {
+		// if the list is null, treat it as an empty list
+		if (toInsert == null)
+			throw new RuntimeException("Warning! You tried to insert "
+					+ "a null list into a Chain!");
+
+		for (E o : toInsert) {
+			insertBefore(o, point);
+		}
+	}
+
+	public void insertBefore(List<E> toInsert, E point) {
+		insertBefore((Collection<? extends E>) toInsert, point);
+	}
+
+	public void insertBefore(Chain<E> toInsert, E point) {
+		insertBefore((Collection<? extends E>) toInsert, point);
+	}
+
+	public void insertOnEdge(E toInsert, E point_src, E point_tgt) {
+		List<E> o = new ArrayList<E>();
+		o.add(toInsert);
+		insertOnEdge(o, point_src, point_tgt);
+	}
+
+	public void insertOnEdge(List<E> toInsert, E point_src, E point_tgt) {
+		HashChain.insertOnEdge(this, toInsert, point_src, point_tgt);
+	}
+
+	public void insertOnEdge(Chain<E> toInsert, E point_src, E point_tgt) {
+		HashChain.insertOnEdge(this, toInsert, point_src, point_tgt);
+	}
+
+	public boolean remove(Object item) {
+		if (item == null)
+			throw new RuntimeException("Bad idea! You tried to remove "
+					+ " a null object from a Chain!");
+
+		int s = slotOf(item);
+		if (s == NONE) {
+			stateCount++;
+			return false;
+		}
+		freeSlot(s);
+		return true;
+	}
+
+	public void addFirst(E item) {
+		link(newSlot(item), NONE, first);
+	}
+
+	public void addLast(E item) {
+		link(newSlot(item), last, NONE);
+	}
+
+	public void removeFirst() {
+		if (first == NONE)
+			throw new NoSuchElementException();
+		freeSlot(first);
+	}
+
+	public void removeLast() {
+		if (last == NONE)
+			throw new NoSuchElementException();
+		freeSlot(last);
+	}
+
+	public E getFirst() {
+		if (first == NONE)
+			throw new NoSuchElementException();
+		return elementAt(first);
+	}
+
+	public E getLast() {
+		if (last == NONE)
+			throw new NoSuchElementException();
+		return elementAt(last);
+	}
+
+	public E getSuccOf(E point) throws NoSuchElementException {
+		int s = slotOf(point);
+		if (s == NONE)
+			throw new NoSuchElementException();
+		s = next[s];
+		return s == NONE ? null : elementAt(s);
+	}
+
+	public E getPredOf(E point) throws NoSuchElementException {
+		if (point == null)
+			throw new RuntimeException("trying to hash null value.");
+		int s = slotOf(point);
+		if (s == NONE)
+			throw new NoSuchElementException();
+		s = prev[s];
+		return s == NONE ? null : elementAt(s);
+	}
+
+	public Iterator<E> snapshotIterator() {
+		return (new ArrayList<E>(this)).iterator();
+	}
+
+	public Iterator<E> snapshotIterator(E item) {
+		List<E> l = new ArrayList<E>(size);
+
+		Iterator<E> it = new SlotIterator(item, null);
+		while (it.hasNext())
+			l.add(it.next());
+
+		return l.iterator();
+	}
+
+	public Iterator<E> iterator() {
+		if (first == NONE)
+			return new SlotIterator(NONE, null);
+		return new SlotIterator(first, null);
+	}
+
+	public Iterator<E> iterator(E item) {
+		if (first == NONE)
+			return new SlotIterator(NONE, null);
+		return new SlotIterator(item, null);
+	}
+
+	/**
+	 * <p>
+	 * Returns an iterator ranging from <code>head</code> to <code>tail</code>,
+	 * inclusive.
+	 * </p>
+	 *
+	 * <p>
+	 * If <code>tail</code> is the element immediately preceding
+	 * <code>head</code> in this <code>ArrayChain</code>, the returned
+	 * iterator will iterate 0 times (a special case to allow the specification
+	 * of an empty range of elements). Otherwise if <code>tail</code> is not one
+	 * of the elements following <code>head</code>, the returned iterator will
+	 * iterate past the end of the <code>ArrayChain</code>, provoking a
+	 * {@link NoSuchElementException}.
+	 * </p>
+	 *
+	 * @throws NoSuchElementException
+	 *             if <code>head</code> is not an element of the chain.
+	 */
+	public Iterator<E> iterator(E head, E tail) {
+		if (first == NONE)
+			return new SlotIterator(NONE, null);
+		if (head != null && this.getPredOf(head) == tail) {
+			return new SlotIterator(NONE, null);
+		}
+		return new SlotIterator(head, tail);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Returns a textual representation of the contents of this Chain. */
+	public String toString() {
+		StringBuilder strBuf = new StringBuilder();
+
+		Iterator<E> it = iterator();
+		boolean b = false;
+
+		strBuf.append("[");
+		while (it.hasNext()) {
+			if (!b)
+				b = true;
+			else
+				strBuf.append(", ");
+			strBuf.append(it.next().toString());
+		}
+		strBuf.append("]");
+		return strBuf.toString();
+	}
+
+	/** Returns the number of times this chain has been modified. */
+	public long getModificationCount() {
+		return stateCount;
+	}
+
+	class SlotIterator implements Iterator<E> {
+		/** The slot and the element last returned, NONE and null before the
+		 * first call to next(). */
+		private int current = NONE;
+		private E currentItem = null;
+		private int nextSlot;
+		private boolean state; // only when this is true can remove() be called
+		private final E destination;
+		private long iteratorStateCount;
+
+		SlotIterator(int from, E to) {
+			nextSlot = from;
+			destination = to;
+			iteratorStateCount = stateCount;
+		}
+
+		SlotIterator(E item, E to) {
+			this(slotOf(item), to);
+			if (nextSlot == NONE && item != null)
+				throw new NoSuchElementException(
+						"ArrayChain.SlotIterator(obj) with obj that is not in the chain: "
+								+ item.toString());
+		}
+
+		public boolean hasNext() {
+			if (stateCount != iteratorStateCount)
+				throw new ConcurrentModificationException();
+
+			if (destination == null)
+				return nextSlot != NONE;
+			else
+				// Ignore whether there is a next slot, so next() will produce
+				// a NoSuchElementException if destination is not in the chain.
+				return destination != currentItem;
+		}
+
+		public E next() throws NoSuchElementException {
+			if (stateCount != iteratorStateCount)
+				throw new ConcurrentModificationException();
+
+			if (nextSlot == NONE) {
+				String exceptionMsg;
+				if (destination != null && destination != currentItem)
+					exceptionMsg = "ArrayChain.SlotIterator.next() reached end of chain without reaching specified tail unit";
+				else
+					exceptionMsg = "ArrayChain.SlotIterator.next() called past the end of the Chain";
+				throw new NoSuchElementException(exceptionMsg);
+			}
+			current = nextSlot;
+			currentItem = elementAt(current);
+			nextSlot = next[current];
+			state = true;
+			return currentItem;
+		}
+
+		public void remove() throws IllegalStateException {
+			if (stateCount != iteratorStateCount)
+				throw new ConcurrentModificationException();
+
+			if (!state)
+				throw new IllegalStateException();
+			freeSlot(current);
+			iteratorStateCount = stateCount;
+			state = false;
+		}
+	}
+}
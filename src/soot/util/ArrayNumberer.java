@@ -27,7 +27,7 @@ import java.util.*;
  */
 
 public class ArrayNumberer<E extends Numberable> implements IterableNumberer<E> {
-    protected E[] numberToObj;
+    protected volatile E[] numberToObj;
     protected int lastNumber;
     
     @SuppressWarnings("unchecked")
@@ -108,6 +108,12 @@ public class BitVector
         if( indexOf(bit) >= bits.length ) return false;
         return ( bits[indexOf(bit)] & mask(bit) ) != 0L;
     }
+    /** Returns the bits from 64*index to 64*index+63 as a word, zero if
+     * they are beyond the end of this vector. */
+    public long getWord( int index ) {
+        if( index >= bits.length ) return 0L;
+        return bits[index];
+    }
     public int hashCode() {
         long ret = 0;
         for (long element : bits) {
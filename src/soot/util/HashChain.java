@@ -243,6 +243,13 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 	 * @param point_tgt the target point of an edge
 	 */
 	public void insertOnEdge(Collection<? extends E> toInsert, E point_src, E point_tgt) {
+		insertOnEdge(this, toInsert, point_src, point_tgt);
+	}
+
+	/** Implements {@link Chain#insertOnEdge(Object, Object, Object)} on top
+	 * of the other methods of chain, for the chains in this package. */
+	@SuppressWarnings("unchecked")
+	static <E> void insertOnEdge(Chain<E> chain, Collection<? extends E> toInsert, E point_src, E point_tgt) {
 
 		if (toInsert == null)
 			throw new RuntimeException("Bad idea! You tried to insert " + "a null object into a Chain!");
@@ -250,13 +257,13 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 		// Insert 'toInsert' before 'target' point in chain if the source point is null
 		if (point_src == null && point_tgt != null) {
 			((Unit) point_tgt).redirectJumpsToThisTo((Unit) toInsert.toArray()[0]);
-			insertBefore(toInsert, point_tgt);
+			chain.insertBefore(new ArrayList<E>(toInsert), point_tgt);
 			return;
 		}
 
 		// Insert 'toInsert' after 'source' point in chain if the target point is null
 		if (point_src != null && point_tgt == null) {
-			insertAfter(toInsert, point_src);
+			chain.insertAfter(new ArrayList<E>(toInsert), point_src);
 			return;
 		}
 
@@ -269,14 +276,14 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 		// 1- Redirect all jumps (if any) from 'source' to 'target', to 'toInsert[0]'
 		//    (source->target) ==>  (source->toInsert[0])
 		// 2- Insert 'toInsert' after 'source' in Chain
-		if (getSuccOf(point_src) == point_tgt) {
+		if (chain.getSuccOf(point_src) == point_tgt) {
 			List<UnitBox> boxes = ((Unit) point_src).getUnitBoxes();
 			for (UnitBox box : boxes) {
 				if (box.getUnit() == point_tgt) {
 					box.setUnit((Unit) toInsert.toArray()[0]);
 				}
 			}
-			insertAfter(toInsert, point_src);
+			chain.insertAfter(new ArrayList<E>(toInsert), point_src);
 			return;
 		}
 		
@@ -288,7 +295,7 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 		// 2- Insert 'toInsert' before 'target' in Chain
 		// 3- If required, add a 'goto target' statement so that no other edge executes 'toInsert'
 		boolean validEdgeFound = false;
-		E originalPred = getPredOf(point_tgt);
+		E originalPred = chain.getPredOf(point_tgt);
 		
 		List<UnitBox> boxes = ((Unit) point_src).getUnitBoxes();
 		for (UnitBox box : boxes) {
@@ -297,10 +304,10 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 				if (point_src instanceof GotoStmt) {
 
 					box.setUnit((Unit) toInsert.toArray()[0]);
-					insertAfter(toInsert, point_src);
+					chain.insertAfter(new ArrayList<E>(toInsert), point_src);
 
 					E goto_unit = (E) new JGotoStmt((Unit) point_tgt);
-					insertAfter(goto_unit, (E) toInsert.toArray()[toInsert.size() - 1]);
+					chain.insertAfter(goto_unit, (E) toInsert.toArray()[toInsert.size() - 1]);
 					return;
 				}
 
@@ -310,14 +317,14 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 			}
 		}
 		if (validEdgeFound) {
-			insertBefore(toInsert, point_tgt);
+			chain.insertBefore(new ArrayList<E>(toInsert), point_tgt);
 
 			if (originalPred != point_src) {
 				if (originalPred instanceof GotoStmt)
 					return;
 
 				E goto_unit = (E) new JGotoStmt((Unit) point_tgt);
-				insertBefore(goto_unit, (E) toInsert.toArray()[0]);
+				chain.insertBefore(goto_unit, (E) toInsert.toArray()[0]);
 			}
 			return;
 		}
@@ -326,11 +333,11 @@ public class HashChain<E> extends AbstractCollection<E> implements Chain<E> {
 		// So, an edge [src --> tgt] becomes [src -> goto tgt -> tgt].
 		// When this happens, the original edge [src -> tgt] ceases to exist.
 		// The following code handles such scenarios. 
-		if (getSuccOf(point_src) instanceof GotoStmt) {
-			if (((Unit) getSuccOf(point_src)).getUnitBoxes().get(0).getUnit() == point_tgt) {
+		if (chain.getSuccOf(point_src) instanceof GotoStmt) {
+			if (((Unit) chain.getSuccOf(point_src)).getUnitBoxes().get(0).getUnit() == point_tgt) {
 
-				((Unit) getSuccOf(point_src)).redirectJumpsToThisTo((Unit) toInsert.toArray()[0]);
-				insertBefore(toInsert, getSuccOf(point_src));
+				((Unit) chain.getSuccOf(point_src)).redirectJumpsToThisTo((Unit) toInsert.toArray()[0]);
+				chain.insertBefore(new ArrayList<E>(toInsert), chain.getSuccOf(point_src));
 
 				return;
 			}
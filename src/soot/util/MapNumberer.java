@@ -43,4 +43,14 @@ public class MapNumberer<T> implements Numberer<T> {
     public int size() { return nextIndex-1; /*subtract 1 for null*/ }
     public MapNumberer() { al.add(null); }
     public boolean contains(Object o) { return map.containsKey(o); }
+    /** Gives number, which must already be in use, to o instead of the
+     * object it was given to before. */
+    public void replace( long number, T o ) {
+        T old = al.get((int) number);
+        if( old == o ) return;
+        if( map.containsKey(o) ) throw new RuntimeException( "already numbered: "+o );
+        map.remove(old);
+        map.put( o, new Integer((int) number) );
+        al.set( (int) number, o );
+    }
 }
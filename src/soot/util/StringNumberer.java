@@ -34,11 +34,18 @@ public class StringNumberer extends ArrayNumberer<NumberedString> {
     		new ConcurrentHashMap<String, NumberedString>(1024);
     
     public NumberedString findOrAdd( String s ) {
-    	NumberedString numStr = new NumberedString(s);
-        NumberedString ret = stringToNumbered.putIfAbsent(s, numStr);
+        NumberedString ret = stringToNumbered.get(s);
         if( ret == null ) {
-            add(numStr);
-            return numStr;
+            synchronized( this ) {
+                ret = stringToNumbered.get(s);
+                if( ret == null ) {
+                    // Number the string before publishing it, other threads
+                    // must never see it unnumbered
+                    ret = new NumberedString(s);
+                    add(ret);
+                    stringToNumbered.put(s, ret);
+                }
+            }
         }
         return ret;
     }
@@ -0,0 +1,193 @@
+package soot;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.toolkits.scalar.ConditionalBranchFolder;
+import soot.jimple.toolkits.scalar.DeadAssignmentEliminator;
+import soot.jimple.toolkits.scalar.LocalNameStandardizer;
+import soot.jimple.toolkits.scalar.NopEliminator;
+import soot.jimple.toolkits.scalar.UnreachableCodeEliminator;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.scalar.LocalSplitter;
+import soot.toolkits.scalar.SmartLocalDefs;
+import soot.toolkits.scalar.SmartLocalDefsPool;
+import soot.toolkits.scalar.UnusedLocalEliminator;
+
+public class BodyAnalysisCacheTest {
+
+	/** The number of units, computed from the brief unit graph. */
+	static final BodyAnalysisCache.Key<Integer> SIZE = new BodyAnalysisCache.Key<Integer>("Size") {
+		protected Integer compute(Body b, BodyAnalysisCache cache) {
+			return new Integer(cache.get(BodyAnalysisCache.BRIEF_UNIT_GRAPH).size());
+		}
+	};
+
+	static class TestTransformer extends BodyTransformer {
+		final Set<BodyAnalysisCache.Key<?>> preserved;
+		final boolean all;
+
+		TestTransformer(Set<BodyAnalysisCache.Key<?>> preserved) {
+			this.preserved = preserved;
+			this.all = false;
+		}
+
+		/** Makes a transformer that preserves all analyses. */
+		TestTransformer() {
+			this.preserved = Collections.emptySet();
+			this.all = true;
+		}
+
+		protected void internalTransform(Body b, String phaseName, Map<String, String> options) {
+		}
+
+		@Override
+		protected Set<BodyAnalysisCache.Key<?>> preservedAnalyses() {
+			return preserved;
+		}
+
+		@Override
+		protected boolean preservesAll() {
+			return all;
+		}
+	}
+
+	private JimpleBody body;
+	private Local a;
+
+	@Before
+	public void setUp() {
+		G.reset();
+		SootMethod m = new SootMethod("m", Collections.<Type> emptyList(), IntType.v(), Modifier.STATIC);
+		body = Jimple.v().newBody(m);
+		a = Jimple.v().newLocal("a", IntType.v());
+		body.getLocals().add(a);
+		body.getUnits().add(Jimple.v().newAssignStmt(a, IntConstant.v(1)));
+		body.getUnits().add(Jimple.v().newReturnStmt(a));
+	}
+
+	@Test
+	public void testCached() {
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		BriefUnitGraph g = cache.get(BodyAnalysisCache.BRIEF_UNIT_GRAPH);
+		Assert.assertSame(g, cache.get(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+		Assert.assertFalse(cache.isCached(SIZE));
+	}
+
+	@Test
+	public void testChangedBody() {
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		BriefUnitGraph g = cache.get(BodyAnalysisCache.BRIEF_UNIT_GRAPH);
+		Assert.assertEquals(2, cache.get(SIZE).intValue());
+		body.getUnits().addFirst(Jimple.v().newNopStmt());
+		Assert.assertFalse(cache.isCached(SIZE));
+		Assert.assertNotSame(g, cache.get(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+		Assert.assertEquals(3, cache.get(SIZE).intValue());
+	}
+
+	@Test
+	public void testDependents() {
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		cache.get(SIZE);
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+		cache.invalidate(BodyAnalysisCache.BRIEF_UNIT_GRAPH);
+		Assert.assertFalse(cache.isCached(SIZE));
+	}
+
+	@Test
+	public void testTransformers() {
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		cache.get(SIZE);
+		new TestTransformer().transform(body);
+		Assert.assertTrue(cache.isCached(SIZE));
+
+		Set<BodyAnalysisCache.Key<?>> graphOnly = Collections
+				.<BodyAnalysisCache.Key<?>> singleton(BodyAnalysisCache.BRIEF_UNIT_GRAPH);
+		new TestTransformer(graphOnly).transform(body);
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+		Assert.assertFalse(cache.isCached(SIZE));
+
+		// Analyses computed from preserved ones are dropped with them
+		cache.get(SIZE);
+		Set<BodyAnalysisCache.Key<?>> sizeOnly = Collections.<BodyAnalysisCache.Key<?>> singleton(SIZE);
+		new TestTransformer(sizeOnly).transform(body);
+		Assert.assertFalse(cache.isCached(SIZE));
+
+		cache.get(SIZE);
+		new TestTransformer(Collections.<BodyAnalysisCache.Key<?>> emptySet()).transform(body);
+		Assert.assertFalse(cache.isCached(BodyAnalysisCache.BRIEF_UNIT_GRAPH));
+	}
+
+	@Test
+	public void testReleased() {
+		PackManager.v().getPack("jtp").add(new Transform("jtp.test", new TestTransformer()));
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		cache.get(SIZE);
+		PackManager.v().getPack("jtp").apply(body);
+		// Kept for the next packs
+		Assert.assertSame(cache, body.getAnalysisCache());
+		Assert.assertTrue(cache.isCached(SIZE));
+
+		body.getMethod().setActiveBody(body);
+		body.getMethod().releaseActiveBody();
+		Assert.assertFalse(body.getAnalysisCache().isCached(SIZE));
+	}
+
+	@Test
+	public void testChangedLocals() {
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		cache.get(SIZE);
+		Local b = Jimple.v().newLocal("b", IntType.v());
+		body.getLocals().add(b);
+		a.setName("c");
+		body.getLocals().remove(b);
+		Assert.assertTrue(cache.isCached(SIZE));
+	}
+
+	@Test
+	public void testJimpleTransformers() {
+		// The exceptional unit graph needs the exception classes
+		Scene.v().loadBasicClasses();
+		BodyAnalysisCache cache = body.getAnalysisCache();
+		body.getLocals().add(Jimple.v().newLocal("unused", IntType.v()));
+		cache.get(BodyAnalysisCache.LOCAL_USES);
+		cache.get(BodyAnalysisCache.DOMINATORS);
+		UnusedLocalEliminator.v().transform(body);
+		Assert.assertEquals(1, body.getLocalCount());
+		LocalNameStandardizer.v().transform(body);
+		DeadAssignmentEliminator.v().transform(body);
+		ConditionalBranchFolder.v().transform(body);
+		NopEliminator.v().transform(body);
+		UnreachableCodeEliminator.v().transform(body);
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.LOCAL_USES));
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.DOMINATORS));
+
+		// Splitting locals changes the uses, but not the flow
+		LocalSplitter.v().transform(body);
+		Assert.assertFalse(cache.isCached(BodyAnalysisCache.LOCAL_USES));
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.DOMINATORS));
+		Assert.assertTrue(cache.isCached(BodyAnalysisCache.EXCEPTIONAL_UNIT_GRAPH));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testSmartLocalDefsPool() {
+		Scene.v().loadBasicClasses();
+		SmartLocalDefs defs = SmartLocalDefsPool.v().getSmartLocalDefsFor(body);
+		Assert.assertSame(defs, body.getAnalysisCache().get(BodyAnalysisCache.SMART_LOCAL_DEFS));
+		// Still reused for the unchanged body after the cache dropped it
+		new TestTransformer(Collections.<BodyAnalysisCache.Key<?>> emptySet()).transform(body);
+		Assert.assertSame(defs, SmartLocalDefsPool.v().getSmartLocalDefsFor(body));
+		body.getUnits().addFirst(Jimple.v().newNopStmt());
+		Assert.assertNotSame(defs, SmartLocalDefsPool.v().getSmartLocalDefsFor(body));
+	}
+}
@@ -0,0 +1,135 @@
+package soot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.options.Options;
+
+public class BodyCacheTest {
+
+	private static final String APP =
+			"public class App {\n"
+			+ "  int useLib(int x) { return Lib.f(x); }\n"
+			+ "  int plain(int x) { return x + 1; }\n"
+			+ "}\n";
+
+	private File dir;
+	private File classes;
+	private File cache;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("bodycache", "");
+		dir.delete();
+		classes = new File(dir, "classes");
+		classes.mkdirs();
+		cache = new File(dir, "cache");
+		write("App.java", APP);
+		compile("App.java", "class Lib { static int f(int x) { return x; } }",
+				"class Other { int g() { return 1; } }");
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children)
+				delete(c);
+		}
+		f.delete();
+	}
+
+	private void write(String name, String content) throws IOException {
+		Writer w = new FileWriter(new File(dir, name));
+		try {
+			w.write(content);
+		} finally {
+			w.close();
+		}
+	}
+
+	/** Compiles App with the given versions of Lib and Other. */
+	private void compile(String app, String lib, String other) throws IOException {
+		write("Lib.java", lib);
+		write("Other.java", other);
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+				new File(dir, app).getPath(), new File(dir, "Lib.java").getPath(),
+				new File(dir, "Other.java").getPath());
+		Assert.assertEquals(0, result);
+	}
+
+	/**
+	 * Creates the bodies of App and Other with the body cache, and returns
+	 * the methods whose bodies came from the cache.
+	 */
+	private Set<String> run() {
+		G.reset();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		G.v().out = new PrintStream(bytes, true);
+		String rtJar = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+		Options.v().set_soot_classpath(classes.getPath() + File.pathSeparator + rtJar);
+		Options.v().set_body_cache_dir(cache.getPath());
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_verbose(true);
+		Scene.v().loadBasicClasses();
+		for (String name : new String[] { "App", "Other" }) {
+			SootClass c = Scene.v().loadClassAndSupport(name);
+			for (SootMethod m : c.getMethods())
+				m.retrieveActiveBody();
+		}
+		Set<String> ret = new TreeSet<String>();
+		for (String line : bytes.toString().split("\\r?\\n")) {
+			if (line.startsWith("[Body cache] hit for "))
+				ret.add(line.substring("[Body cache] hit for ".length()));
+		}
+		return ret;
+	}
+
+	@Test
+	public void testHit() {
+		Assert.assertTrue(run().isEmpty());
+		Set<String> hits = run();
+		Assert.assertTrue(hits.contains("<App: int useLib(int)>"));
+		Assert.assertTrue(hits.contains("<App: int plain(int)>"));
+		Assert.assertTrue(hits.contains("<Other: int g()>"));
+	}
+
+	@Test
+	public void testUnrelatedChange() throws IOException {
+		run();
+		compile("App.java", "class Lib { static int f(int x) { return x; } }",
+				"class Other { int g() { return 2; } }");
+		Set<String> hits = run();
+		Assert.assertTrue(hits.contains("<App: int useLib(int)>"));
+		Assert.assertTrue(hits.contains("<App: int plain(int)>"));
+		Assert.assertFalse(hits.contains("<Other: int g()>"));
+	}
+
+	@Test
+	public void testChangedDependency() throws IOException {
+		run();
+		compile("App.java", "class Lib { static int f(int x) { return x * 2; } }",
+				"class Other { int g() { return 1; } }");
+		Set<String> hits = run();
+		Assert.assertFalse(hits.contains("<App: int useLib(int)>"));
+		Assert.assertTrue(hits.contains("<App: int plain(int)>"));
+		Assert.assertTrue(hits.contains("<Other: int g()>"));
+	}
+}
@@ -0,0 +1,156 @@
+package soot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.options.Options;
+
+public class BodyStoreTest {
+
+	private SootClass c;
+
+	@Before
+	public void setUp() {
+		G.reset();
+		Options.v().set_body_budget(10);
+		Scene.v().loadBasicClasses();
+		c = new SootClass("BodyStoreTestClass", Modifier.PUBLIC);
+		c.setSuperclass(Scene.v().getSootClass("java.lang.Object"));
+		Scene.v().addClass(c);
+		c.setApplicationClass();
+	}
+
+	/** Adds a static method returning the sum of n ones. Its body has n + 2
+	 * units, and is not handed out. */
+	private SootMethod addMethod(String name, int n) {
+		BodyStore.v().enterScope();
+		try {
+			return addMethodInScope(name, n);
+		} finally {
+			BodyStore.v().exitScope();
+		}
+	}
+
+	private SootMethod addMethodInScope(String name, int n) {
+		SootMethod m = new SootMethod(name, Collections.<Type> emptyList(), IntType.v(), Modifier.STATIC);
+		c.addMethod(m);
+		JimpleBody b = Jimple.v().newBody(m);
+		Local a = Jimple.v().newLocal("a", IntType.v());
+		b.getLocals().add(a);
+		b.getUnits().add(Jimple.v().newAssignStmt(a, IntConstant.v(0)));
+		for (int i = 0; i < n; i++)
+			b.getUnits().add(Jimple.v().newAssignStmt(a, Jimple.v().newAddExpr(a, IntConstant.v(1))));
+		b.getUnits().add(Jimple.v().newReturnStmt(a));
+		m.setActiveBody(b);
+		return m;
+	}
+
+	private static List<String> units(Body b) {
+		List<String> ret = new ArrayList<String>();
+		for (Unit u : b.getUnits())
+			ret.add(u.toString());
+		return ret;
+	}
+
+	@Test
+	public void testReleaseAndParse() {
+		SootMethod m1 = addMethod("m1", 4);
+		BodyStore.v().enterScope();
+		List<String> expected = units(m1.getActiveBody());
+		Unit first = m1.getActiveBody().getUnits().getFirst();
+		Scene.v().getUnitNumberer().add(first);
+		long unitNumber = Scene.v().getUnitNumberer().get(first);
+		BodyStore.v().exitScope();
+
+		addMethod("m2", 4);
+		Assert.assertEquals(1, BodyStore.v().getReleaseCount());
+		addMethod("m3", 4);
+		Assert.assertEquals(2, BodyStore.v().getReleaseCount());
+		Assert.assertTrue(BodyStore.v().getResidentUnits() <= 10);
+		Assert.assertTrue(m1.hasActiveBody());
+
+		Assert.assertNull(m1.getResidentBody());
+		Body b = m1.getActiveBody();
+		Assert.assertEquals(1, BodyStore.v().getParseCount());
+		Assert.assertNotSame(first, b.getUnits().getFirst());
+		Assert.assertEquals(expected, units(b));
+		Assert.assertSame(m1, b.getMethod());
+		Assert.assertSame(b, m1.getActiveBody());
+		Assert.assertSame(b.getUnits().getFirst(),
+				Scene.v().getUnitNumberer().get(unitNumber));
+	}
+
+	@Test
+	public void testHandedOutBodyIsKept() {
+		SootMethod m1 = addMethod("m1", 4);
+		// Handed out outside of any scope
+		Body b = m1.getActiveBody();
+		addMethod("m2", 4);
+		b.getUnits().addFirst(Jimple.v().newNopStmt());
+		addMethod("m3", 4);
+		Assert.assertTrue(BodyStore.v().getReleaseCount() > 0);
+		Assert.assertSame(b, m1.getResidentBody());
+		Assert.assertSame(b, m1.getActiveBody());
+		Assert.assertEquals(0, BodyStore.v().getParseCount());
+	}
+
+	@Test
+	public void testScope() {
+		SootMethod m1 = addMethod("m1", 4);
+		BodyStore.v().enterScope();
+		Body b = m1.getActiveBody();
+		addMethod("m2", 4);
+		addMethod("m3", 4);
+		Assert.assertSame(b, m1.getResidentBody());
+		BodyStore.v().exitScope();
+		addMethod("m4", 4);
+		Assert.assertNull(m1.getResidentBody());
+		Assert.assertTrue(m1.hasActiveBody());
+	}
+
+	@Test
+	public void testSceneTransformer() {
+		final SootMethod m1 = addMethod("m1", 4);
+		new SceneTransformer() {
+			protected void internalTransform(String phaseName, Map<String, String> options) {
+				Body b = m1.getActiveBody();
+				addMethod("m2", 4);
+				addMethod("m3", 4);
+				Assert.assertSame(b, m1.getResidentBody());
+			}
+		}.transform();
+		addMethod("m4", 4);
+		Assert.assertNull(m1.getResidentBody());
+	}
+
+	@Test
+	public void testPinned() {
+		SootMethod m1 = addMethod("m1", 4);
+		BodyStore.v().enterScope();
+		Body b = m1.getActiveBody();
+		BodyStore.v().exitScope();
+		BodyStore.v().pin(b);
+		addMethod("m2", 4);
+		addMethod("m3", 4);
+		Assert.assertSame(b, m1.getResidentBody());
+		BodyStore.v().unpin(b);
+	}
+
+	@Test
+	public void testReleaseActiveBody() {
+		SootMethod m1 = addMethod("m1", 4);
+		addMethod("m2", 4);
+		addMethod("m3", 4);
+		m1.releaseActiveBody();
+		Assert.assertFalse(m1.hasActiveBody());
+	}
+}
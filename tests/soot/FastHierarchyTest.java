@@ -0,0 +1,73 @@
+package soot;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FastHierarchyTest {
+
+	private SootClass object, i, j, k, a, b, c;
+
+	private SootClass makeClass(String name, int modifiers, SootClass superclass, SootClass... interfaces) {
+		SootClass ret = new SootClass(name, modifiers);
+		if (superclass != null)
+			ret.setSuperclass(superclass);
+		for (SootClass iface : interfaces)
+			ret.addInterface(iface);
+		Scene.v().addClass(ret);
+		ret.setResolvingLevel(SootClass.HIERARCHY);
+		return ret;
+	}
+
+	/** Interfaces I, J extends I and K, classes A implements J, B extends A
+	 * and C extends B implements K. */
+	@Before
+	public void setUp() {
+		G.reset();
+		object = makeClass("java.lang.Object", Modifier.PUBLIC, null);
+		makeClass("java.io.Serializable", Modifier.PUBLIC | Modifier.INTERFACE, object);
+		makeClass("java.lang.Cloneable", Modifier.PUBLIC | Modifier.INTERFACE, object);
+		i = makeClass("I", Modifier.PUBLIC | Modifier.INTERFACE, object);
+		j = makeClass("J", Modifier.PUBLIC | Modifier.INTERFACE, object, i);
+		k = makeClass("K", Modifier.PUBLIC | Modifier.INTERFACE, object);
+		a = makeClass("A", Modifier.PUBLIC, object, j);
+		b = makeClass("B", Modifier.PUBLIC, a);
+		c = makeClass("C", Modifier.PUBLIC, b, k);
+	}
+
+	@Test
+	public void testInterfaces() {
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		Assert.assertTrue(fh.canStoreType(c.getType(), i.getType()));
+		Assert.assertTrue(fh.canStoreType(b.getType(), j.getType()));
+		Assert.assertTrue(fh.canStoreType(c.getType(), k.getType()));
+		Assert.assertFalse(fh.canStoreType(b.getType(), k.getType()));
+		Assert.assertTrue(fh.canStoreType(j.getType(), i.getType()));
+		Assert.assertFalse(fh.canStoreType(i.getType(), j.getType()));
+		Assert.assertTrue(fh.canStoreType(k.getType(), object.getType()));
+		Assert.assertTrue(fh.canStoreType(c.getType(), a.getType()));
+		Assert.assertFalse(fh.canStoreType(a.getType(), c.getType()));
+	}
+
+	@Test
+	public void testAddedClass() {
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		// Not in the hierarchy when it was built, so looked up the slow way
+		SootClass d = makeClass("D", Modifier.PUBLIC, object, k);
+		Assert.assertFalse(fh.canStoreType(d.getType(), i.getType()));
+		Assert.assertTrue(fh.canStoreType(c.getType(), i.getType()));
+	}
+
+	@Test
+	public void testArrays() {
+		FastHierarchy fh = Scene.v().getOrMakeFastHierarchy();
+		Type cArray = ArrayType.v(c.getType(), 1);
+		Assert.assertTrue(fh.canStoreType(cArray, object.getType()));
+		Assert.assertTrue(fh.canStoreType(cArray, RefType.v("java.lang.Cloneable")));
+		Assert.assertTrue(fh.canStoreType(cArray, ArrayType.v(i.getType(), 1)));
+		Assert.assertFalse(fh.canStoreType(cArray, ArrayType.v(i.getType(), 2)));
+		Assert.assertTrue(fh.canStoreType(ArrayType.v(c.getType(), 2),
+				ArrayType.v(RefType.v("java.io.Serializable"), 1)));
+		Assert.assertFalse(fh.canStoreType(cArray, i.getType()));
+	}
+}
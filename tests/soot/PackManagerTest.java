@@ -0,0 +1,147 @@
+package soot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.jimple.Jimple;
+import soot.jimple.NopStmt;
+import soot.options.Options;
+
+public class PackManagerTest {
+
+	private static final String[] CLASSES = { "A", "B", "C", "D" };
+
+	private File dir;
+	private File classes;
+
+	/** Compiles classes with a few methods each. */
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("packs", "");
+		dir.delete();
+		classes = new File(dir, "classes");
+		classes.mkdirs();
+		List<String> args = new ArrayList<String>();
+		args.add("-d");
+		args.add(classes.getPath());
+		for (String name : CLASSES) {
+			StringBuilder sb = new StringBuilder("public class " + name + " {\n");
+			for (int i = 0; i < 5; i++)
+				sb.append("  int m" + i + "(int x) { return x * " + i + " + " + name.length() + "; }\n");
+			sb.append("}\n");
+			File source = new File(dir, name + ".java");
+			Writer w = new FileWriter(source);
+			try {
+				w.write(sb.toString());
+			} finally {
+				w.close();
+			}
+			args.add(source.getPath());
+		}
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(new String[0]));
+		Assert.assertEquals(0, result);
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : classes.listFiles())
+			f.delete();
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	/**
+	 * Runs the body packs on the compiled classes with a transformer that
+	 * prints each body it sees and adds a nop before its last unit, and
+	 * returns the output. Records the threads the bodies of each class were
+	 * transformed on.
+	 */
+	private String runBodyPacks(int threads, int budget, final Map<String, Set<Thread>> threadsByClass) {
+		G.reset();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final PrintStream out = new PrintStream(bytes, true);
+		G.v().out = out;
+		Options.v().set_soot_classpath(classes.getPath());
+		Options.v().set_prepend_classpath(true);
+		Options.v().set_process_dir(Collections.singletonList(classes.getPath()));
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_output_format(Options.output_format_none);
+		Options.v().set_num_threads(threads);
+		Options.v().set_body_budget(budget);
+		Scene.v().loadNecessaryClasses();
+		PackManager.v().getPack("jtp").add(new Transform("jtp.record", new BodyTransformer() {
+			protected void internalTransform(Body b, String phaseName, Map<String, String> options) {
+				String c = b.getMethod().getDeclaringClass().getName();
+				synchronized (threadsByClass) {
+					Set<Thread> s = threadsByClass.get(c);
+					if (s == null)
+						threadsByClass.put(c, s = new HashSet<Thread>());
+					s.add(Thread.currentThread());
+				}
+				out.println("Body " + c);
+				b.getUnits().insertBefore(Jimple.v().newNopStmt(), b.getUnits().getLast());
+			}
+		}));
+		PackManager.v().runBodyPacks();
+		return bytes.toString();
+	}
+
+	@Test
+	public void testClassInOneTask() {
+		Map<String, Set<Thread>> threadsByClass = new HashMap<String, Set<Thread>>();
+		runBodyPacks(4, 0, threadsByClass);
+		Assert.assertEquals(CLASSES.length, threadsByClass.size());
+		for (Set<Thread> s : threadsByClass.values())
+			Assert.assertEquals(1, s.size());
+	}
+
+	@Test
+	public void testProgressPrintedWhenRun() {
+		String output = runBodyPacks(1, 0, new HashMap<String, Set<Thread>>());
+		List<String> lines = new ArrayList<String>();
+		for (String line : output.split("\\r?\\n")) {
+			if (line.startsWith("Transforming ") || line.startsWith("Body "))
+				lines.add(line.trim());
+		}
+		// Each class is announced right before its own bodies
+		Assert.assertEquals(CLASSES.length * 7, lines.size());
+		for (int i = 0; i < lines.size(); i += 7) {
+			String name = lines.get(i).substring("Transforming ".length(), lines.get(i).length() - "...".length());
+			for (int j = 1; j < 7; j++)
+				Assert.assertEquals("Body " + name, lines.get(i + j));
+		}
+	}
+
+	@Test
+	public void testBodyBudget() {
+		runBodyPacks(4, 10, new HashMap<String, Set<Thread>>());
+		Assert.assertTrue(BodyStore.v().getReleaseCount() > 0);
+		// No change is lost when bodies are released in between
+		for (String name : CLASSES) {
+			for (SootMethod m : Scene.v().getSootClass(name).getMethods()) {
+				Body b = m.getActiveBody();
+				Assert.assertTrue(b.getUnits().getPredOf(b.getUnits().getLast()) instanceof NopStmt);
+			}
+		}
+		Assert.assertTrue(BodyStore.v().getParseCount() > 0);
+	}
+}
@@ -0,0 +1,60 @@
+package soot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.options.Options;
+
+public class SootResolverTest {
+
+	/**
+	 * Resolves a class with its supporting classes from rt.jar, and
+	 * describes every class in the Scene by its resolving level, its
+	 * hierarchy and the signatures of its fields and methods.
+	 */
+	private static Map<String, String> resolve(boolean parallel) {
+		G.reset();
+		String rtJar = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+		Options.v().set_soot_classpath(rtJar);
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_parallel_resolver(parallel);
+		Options.v().set_num_threads(4);
+		Scene.v().loadClassAndSupport("java.util.concurrent.ConcurrentHashMap");
+
+		Map<String, String> ret = new TreeMap<String, String>();
+		for (SootClass sc : new ArrayList<SootClass>(Scene.v().getClasses())) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(sc.resolvingLevel()).append(' ').append(sc.isPhantom());
+			if (sc.resolvingLevel() >= SootClass.HIERARCHY) {
+				sb.append(' ').append(sc.getModifiers());
+				if (sc.hasSuperclass())
+					sb.append(" extends ").append(sc.getSuperclass().getName());
+				for (SootClass i : sc.getInterfaces())
+					sb.append(" implements ").append(i.getName());
+			}
+			if (sc.resolvingLevel() >= SootClass.SIGNATURES) {
+				for (SootField f : sc.getFields())
+					sb.append('\n').append(f.getSignature());
+				for (SootMethod m : sc.getMethods())
+					sb.append('\n').append(m.getSignature());
+			}
+			ret.put(sc.getName(), sb.toString());
+		}
+		return ret;
+	}
+
+	@Test
+	public void testParallelResolverResolvesSameClasses() {
+		Map<String, String> sequential = resolve(false);
+		Map<String, String> parallel = resolve(true);
+		Assert.assertTrue(sequential.size() > 100);
+		Assert.assertEquals(sequential.keySet(), parallel.keySet());
+		for (String name : sequential.keySet())
+			Assert.assertEquals(name, sequential.get(name), parallel.get(name));
+	}
+}
@@ -0,0 +1,136 @@
+package soot.dexpler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jf.dexlib2.AccessFlags;
+import org.jf.dexlib2.iface.ClassDef;
+import org.jf.dexlib2.iface.Field;
+import org.jf.dexlib2.iface.Method;
+import org.jf.dexlib2.immutable.ImmutableClassDef;
+import org.jf.dexlib2.immutable.ImmutableDexFile;
+import org.jf.dexlib2.writer.pool.DexPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Scene;
+import soot.SootClass;
+import soot.options.Options;
+
+public class DexResolverTest {
+
+	private File apk;
+
+	private static File writeDex(String className) throws IOException {
+		ClassDef c = new ImmutableClassDef("L" + className.replace('.', '/') + ";", AccessFlags.PUBLIC.getValue(),
+				"Ljava/lang/Object;", null, null, null, Collections.<Field> emptyList(),
+				Collections.<Method> emptyList());
+		File dex = File.createTempFile("classes", ".dex");
+		DexPool.writeTo(dex.getPath(), new ImmutableDexFile(Collections.singleton(c)));
+		return dex;
+	}
+
+	private static void addEntry(ZipOutputStream out, String name, File content) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		InputStream in = new FileInputStream(content);
+		try {
+			byte[] buf = new byte[4096];
+			for (int n; (n = in.read(buf)) > 0;)
+				out.write(buf, 0, n);
+		} finally {
+			in.close();
+		}
+		out.closeEntry();
+		content.delete();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		G.reset();
+		apk = File.createTempFile("multidex", ".apk");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk));
+		try {
+			addEntry(out, "classes.dex", writeDex("a.A"));
+			addEntry(out, "classes2.dex", writeDex("b.B"));
+			addEntry(out, "classes3.dex", writeDex("c.C"));
+		} finally {
+			out.close();
+		}
+		Options.v().set_src_prec(Options.src_prec_apk);
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_soot_classpath(apk.getPath());
+		Options.v().set_num_threads(3);
+	}
+
+	@After
+	public void tearDown() {
+		apk.delete();
+	}
+
+	@Test
+	public void testMultidex() throws IOException {
+		Options.v().set_process_multiple_dex(true);
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("a.A", "b.B", "c.C")),
+				DexResolver.v().classesOf(apk));
+
+		// The class of the last dex file is resolved from that file
+		SootClass c = Scene.v().loadClassAndSupport("c.C");
+		Assert.assertFalse(c.isPhantom());
+		Assert.assertEquals("java.lang.Object", c.getSuperclass().getName());
+	}
+
+	@Test
+	public void testSingleDex() throws IOException {
+		Assert.assertEquals(Collections.singleton("a.A"), DexResolver.v().classesOf(apk));
+		Assert.assertTrue(Scene.v().loadClassAndSupport("b.B").isPhantom());
+	}
+
+	@Test
+	public void testUnreadable() throws IOException {
+		File broken = File.createTempFile("broken", ".dex");
+		try {
+			IOException[] failures = DexResolver.v().read(Arrays.asList(broken, apk));
+			Assert.assertNotNull(failures[0]);
+			Assert.assertNull(failures[1]);
+		} finally {
+			broken.delete();
+		}
+	}
+
+	@Test
+	public void testConcurrentInitialize() throws InterruptedException {
+		Options.v().set_process_multiple_dex(true);
+		final DexlibWrapper wrapper = new DexlibWrapper(apk);
+		final List<Set<String>> classNames = Collections.synchronizedList(new ArrayList<Set<String>>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					wrapper.initialize();
+					classNames.add(new HashSet<String>(wrapper.getClassNames()));
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		// No thread goes on before the classes are indexed
+		Assert.assertEquals(threads.length, classNames.size());
+		for (Set<String> names : classNames)
+			Assert.assertEquals(new HashSet<String>(Arrays.asList("a.A", "b.B", "c.C")), names);
+	}
+}
@@ -0,0 +1,41 @@
+package soot.jimple;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.dava.internal.javaRep.DIntConstant;
+import soot.BooleanType;
+
+public class ConstantTest {
+
+	@Test
+	public void testInterned() {
+		Assert.assertSame(IntConstant.v(0), IntConstant.v(0));
+		Assert.assertSame(IntConstant.v(-128), IntConstant.v(-128));
+		Assert.assertSame(IntConstant.v(1 << 20), IntConstant.v(1 << 20));
+		Assert.assertSame(IntConstant.v(Integer.MIN_VALUE), IntConstant.v(Integer.MIN_VALUE));
+		Assert.assertSame(LongConstant.v(42L), LongConstant.v(42L));
+		Assert.assertSame(StringConstant.v("foo"), StringConstant.v(new String("foo")));
+		Assert.assertSame(ClassConstant.v("java/lang/Object"), ClassConstant.v("java/lang/Object"));
+		Assert.assertNotSame(StringConstant.v("foo"), StringConstant.v("bar"));
+	}
+
+	@Test
+	public void testArithmetic() {
+		Assert.assertSame(IntConstant.v(5), IntConstant.v(2).add(IntConstant.v(3)));
+		Assert.assertEquals(1 << 20, ((IntConstant) IntConstant.v(1 << 19).multiply(IntConstant.v(2))).value);
+	}
+
+	@Test
+	public void testEquivTo() {
+		Assert.assertTrue(IntConstant.v(7).equivTo(IntConstant.v(7)));
+		Assert.assertFalse(IntConstant.v(7).equivTo(IntConstant.v(8)));
+		Assert.assertFalse(IntConstant.v(7).equivTo(LongConstant.v(7)));
+		Assert.assertTrue(StringConstant.v("a").equivTo(StringConstant.v("a")));
+
+		// Typed constants of Dava are not interned
+		DIntConstant d = DIntConstant.v(1, BooleanType.v());
+		Assert.assertNotSame(d, DIntConstant.v(1, BooleanType.v()));
+		Assert.assertNotSame(d, IntConstant.v(1));
+	}
+}
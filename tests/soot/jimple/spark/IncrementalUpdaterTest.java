@@ -0,0 +1,195 @@
+package soot.jimple.spark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.MethodOrMethodContext;
+import soot.PackManager;
+import soot.Scene;
+import soot.SootMethod;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.LocalVarNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.jimple.toolkits.callgraph.Edge;
+import soot.options.Options;
+
+public class IncrementalUpdaterTest {
+
+	private static final String CLASSES =
+			"class Base { Object get() { return new Object(); } }\n"
+			+ "class A extends Base { Object get() { return new StringBuilder(); } }\n"
+			+ "class B extends Base { Object get() { return this; } }\n";
+
+	/** Calls A.get() only. */
+	private static final String APP_A =
+			"public class App {\n"
+			+ "  Object f;\n"
+			+ "  static Object g;\n"
+			+ "  public static void main(String[] args) {\n"
+			+ "    App app = new App();\n"
+			+ "    Base b = new A();\n"
+			+ "    app.f = b.get();\n"
+			+ "    use(app.f);\n"
+			+ "  }\n"
+			+ "  static void use(Object o) { }\n"
+			+ "}\n";
+
+	/** Calls B.get() as well, and stores into a static field. */
+	private static final String APP_AB =
+			"public class App {\n"
+			+ "  Object f;\n"
+			+ "  static Object g;\n"
+			+ "  public static void main(String[] args) {\n"
+			+ "    App app = new App();\n"
+			+ "    Base b = args.length > 0 ? new A() : new B();\n"
+			+ "    app.f = b.get();\n"
+			+ "    use(app.f);\n"
+			+ "  }\n"
+			+ "  static void use(Object o) { g = o; }\n"
+			+ "}\n";
+
+	/** Holds the sources, and the classes that are analyzed in a
+	 * subdirectory. */
+	private File dir;
+	private File classes;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("incremental", "");
+		dir.delete();
+		classes = new File(dir, "classes");
+		classes.mkdirs();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : classes.listFiles())
+			f.delete();
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	/** Compiles the classes and the given version of App. */
+	private void compile(String app) throws IOException {
+		write("Classes.java", CLASSES);
+		write("App.java", app);
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		int result = javac.run(null, null, null, "-d", classes.getPath(),
+				new File(dir, "Classes.java").getPath(), new File(dir, "App.java").getPath());
+		Assert.assertEquals(0, result);
+	}
+
+	private void write(String name, String content) throws IOException {
+		Writer w = new FileWriter(new File(dir, name));
+		try {
+			w.write(content);
+		} finally {
+			w.close();
+		}
+	}
+
+	/** Runs Spark with an on-the-fly call graph on App, without the bodies
+	 * of the library. */
+	private void runSpark() {
+		G.reset();
+		String rtJar = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+		Options.v().set_soot_classpath(classes.getPath() + File.pathSeparator + rtJar);
+		Options.v().set_whole_program(true);
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_no_bodies_for_excluded(true);
+		Options.v().set_exclude(Arrays.asList("java.", "sun.", "javax."));
+		Options.v().set_process_dir(Collections.singletonList(classes.getPath()));
+		Options.v().set_main_class("App");
+		Options.v().setPhaseOption("cg.spark", "on");
+		Scene.v().loadNecessaryClasses();
+		PackManager.v().getPack("cg").apply();
+	}
+
+	/**
+	 * Describes the call graph, the reachable methods and the non-empty
+	 * points-to sets of the locals of the application classes.
+	 */
+	private static Set<String> describe() {
+		Set<String> ret = new TreeSet<String>();
+		for (Edge e : Scene.v().getCallGraph()) {
+			if (e.src() != null && e.src().getDeclaringClass().isApplicationClass())
+				ret.add("E " + e.src() + " " + e.srcUnit() + " " + e.tgt() + " " + e.kind());
+		}
+		for (Iterator<MethodOrMethodContext> it = Scene.v().getReachableMethods().listener(); it.hasNext();)
+			ret.add("R " + it.next());
+		PAG pag = (PAG) Scene.v().getPointsToAnalysis();
+		for (VarNode vn : pag.getVarNodeNumberer()) {
+			if (!(vn instanceof LocalVarNode) || !(vn.getVariable() instanceof Local))
+				continue;
+			SootMethod m = ((LocalVarNode) vn).getMethod();
+			// The nodes of the old bodies are still numbered, without edges
+			// and points-to sets
+			if (!m.getDeclaringClass().isApplicationClass() || vn.getP2Set().isEmpty())
+				continue;
+			final Set<String> allocs = new TreeSet<String>();
+			vn.getP2Set().forall(new P2SetVisitor() {
+				public void visit(Node n) {
+					allocs.add(n.getType() + "@" + ((AllocNode) n).getMethod());
+				}
+			});
+			ret.add("P " + m + " " + vn.getVariable() + " " + allocs);
+		}
+		return ret;
+	}
+
+	/** Analyzes the old version of App, updates to the new one and checks
+	 * the result against a full run on the new one, returning both. */
+	private Set<String>[] update(String oldApp, String newApp) throws IOException {
+		compile(oldApp);
+		runSpark();
+		Set<String> before = describe();
+		compile(newApp);
+		Set<SootMethod> changed = new IncrementalUpdater((PAG) Scene.v().getPointsToAnalysis())
+				.update(Collections.singleton(Scene.v().getSootClass("App")));
+		Assert.assertTrue(changed.contains(Scene.v().getMethod("<App: void main(java.lang.String[])>")));
+		Set<String> incremental = describe();
+		Assert.assertFalse(before.equals(incremental));
+
+		runSpark();
+		Set<String> full = describe();
+		@SuppressWarnings("unchecked")
+		Set<String>[] ret = new Set[] { incremental, full };
+		return ret;
+	}
+
+	@Test
+	public void testAddedCall() throws IOException {
+		Set<String>[] result = update(APP_A, APP_AB);
+		Assert.assertTrue(result[1].contains("R <B: java.lang.Object get()>"));
+		Assert.assertEquals(result[1], result[0]);
+	}
+
+	@Test
+	public void testRemovedCall() throws IOException {
+		Set<String>[] result = update(APP_AB, APP_A);
+		// Call edges and points-to facts that are no longer there may be
+		// kept, but nothing may be missing
+		Assert.assertTrue(result[0].containsAll(result[1]));
+	}
+}
@@ -0,0 +1,281 @@
+package soot.jimple.spark.ondemand;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+import javax.tools.ToolProvider;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Local;
+import soot.PackManager;
+import soot.PointsToSet;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.options.Options;
+
+public class DemandCSPointsToTest {
+
+	private static final String APP =
+			"class Box {\n"
+			+ "  Object f;\n"
+			+ "  void set(Object o) { f = o; }\n"
+			+ "  Object get() { return f; }\n"
+			+ "}\n"
+			+ "public class App {\n"
+			+ "  static Object id(Object o) { return o; }\n"
+			+ "  static Box wrap(Object o) { Box b = new Box(); b.set(id(o)); return b; }\n"
+			+ "  public static void main(String[] args) {\n"
+			+ "    Box b1 = wrap(new Object());\n"
+			+ "    Box b2 = wrap(new StringBuilder());\n"
+			+ "    Box b3 = args.length > 0 ? b1 : wrap(args);\n"
+			+ "    Object o1 = b1.get();\n"
+			+ "    Object o2 = id(b2.get());\n"
+			+ "    Object o3 = b3.get();\n"
+			+ "    Object[] all = new Object[] { o1, o2, o3 };\n"
+			+ "    System.out.println(all[args.length]);\n"
+			+ "  }\n"
+			+ "}\n";
+
+	private File dir;
+	private List<Local> locals;
+
+	/** Runs Spark on App, and collects the locals of its methods. */
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("demand", "");
+		dir.delete();
+		File classes = new File(dir, "classes");
+		classes.mkdirs();
+		File source = new File(dir, "App.java");
+		Writer w = new FileWriter(source);
+		try {
+			w.write(APP);
+		} finally {
+			w.close();
+		}
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+				source.getPath());
+		Assert.assertEquals(0, result);
+
+		G.reset();
+		String rtJar = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+		Options.v().set_soot_classpath(classes.getPath() + File.pathSeparator + rtJar);
+		Options.v().set_process_dir(Collections.singletonList(classes.getPath()));
+		Options.v().set_whole_program(true);
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_no_bodies_for_excluded(true);
+		Options.v().set_exclude(Arrays.asList("java.*", "sun.*", "javax.*", "jdk.*"));
+		Options.v().set_main_class("App");
+		Options.v().set_num_threads(4);
+		Options.v().setPhaseOption("cg.spark", "on");
+		Scene.v().loadNecessaryClasses();
+		PackManager.v().getPack("cg").apply();
+
+		locals = new ArrayList<Local>();
+		for (SootClass c : Scene.v().getApplicationClasses()) {
+			for (SootMethod m : c.getMethods()) {
+				if (m.hasActiveBody())
+					locals.addAll(m.getActiveBody().getLocals());
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : new File(dir, "classes").listFiles())
+			f.delete();
+		new File(dir, "classes").delete();
+		new File(dir, "App.java").delete();
+		dir.delete();
+	}
+
+	/** Describes the allocation sites and contexts of a refined set, or the
+	 * types of any other set. */
+	private static String describe(PointsToSet s) {
+		TreeSet<String> ret = new TreeSet<String>();
+		if (s instanceof AllocAndContextSet) {
+			for (AllocAndContext ac : (AllocAndContextSet) s)
+				ret.add(ac.toString());
+		} else {
+			for (Type t : s.possibleTypes())
+				ret.add(t.toString());
+		}
+		return s.getClass().getSimpleName() + " " + ret;
+	}
+
+	/** Answers the queries one after the other on a new analysis. */
+	private Map<Local, String> sequential() {
+		DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		Map<Local, String> ret = new HashMap<Local, String>();
+		for (Local l : locals)
+			ret.put(l, describe(pts.doReachingObjects(l)));
+		return ret;
+	}
+
+	private static Map<Local, String> describe(Map<Local, PointsToSet> results) {
+		Map<Local, String> ret = new HashMap<Local, String>();
+		for (Map.Entry<Local, PointsToSet> e : results.entrySet())
+			ret.put(e.getKey(), describe(e.getValue()));
+		return ret;
+	}
+
+	@Test
+	public void testBatch() {
+		Map<Local, String> expected = sequential();
+		Assert.assertTrue(expected.size() > 10);
+		DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		Assert.assertEquals(expected, describe(pts.doReachingObjects(locals)));
+		// Answered again, from the cache and on the same threads
+		Assert.assertEquals(expected, describe(pts.doReachingObjects(locals)));
+		pts.clearCache();
+		Assert.assertEquals(expected, describe(pts.doReachingObjects(locals)));
+	}
+
+	@Test
+	public void testConcurrentQueries() throws InterruptedException {
+		Map<Local, String> expected = sequential();
+		final DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		pts.disableCache();
+		final List<Map<Local, String>> results = Collections.synchronizedList(new ArrayList<Map<Local, String>>());
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			// Each thread asks in its own order
+			final List<Local> order = new ArrayList<Local>(locals);
+			Collections.shuffle(order, new Random(i));
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						Map<Local, String> ret = new HashMap<Local, String>();
+						for (Local l : order)
+							ret.put(l, describe(pts.doReachingObjects(l)));
+						results.add(ret);
+					} catch (Throwable t) {
+						failures.add(t);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		Assert.assertEquals(Collections.emptyList(), failures);
+		Assert.assertEquals(threads.length, results.size());
+		for (Map<Local, String> result : results)
+			Assert.assertEquals(expected, result);
+	}
+
+	@Test
+	public void testBatchKeepsOtherWorkers() throws InterruptedException {
+		final DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		pts.disableCache();
+		final CountDownLatch queried = new CountDownLatch(1);
+		final CountDownLatch batchDone = new CountDownLatch(1);
+		Thread other = new Thread() {
+			public void run() {
+				pts.doReachingObjects(locals.get(0));
+				queried.countDown();
+				try {
+					batchDone.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		other.start();
+		queried.await();
+		try {
+			pts.doReachingObjects(locals);
+			// Only the workers of the pool threads are dropped
+			Assert.assertEquals(Collections.singleton(other), pts.getWorkerThreads());
+		} finally {
+			batchDone.countDown();
+			other.join();
+		}
+	}
+
+	/** Asks for the reaching objects of all locals, one after the other. */
+	private Map<Local, String> query(DemandCSPointsTo pts) {
+		Map<Local, String> ret = new HashMap<Local, String>();
+		for (Local l : locals)
+			ret.put(l, describe(pts.doReachingObjects(l)));
+		return ret;
+	}
+
+	/** Returns the total weight of the entries of a cache bounded by weight. */
+	private static long weight(Cache<Local, PointsToSet> cache) {
+		long ret = 0;
+		for (PointsToSet s : cache.asMap().values())
+			ret += s instanceof AllocAndContextSet ? Math.max(1, ((AllocAndContextSet) s).size()) : 1;
+		return ret;
+	}
+
+	@Test
+	public void testCacheStats() {
+		DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		query(pts);
+		CacheStats stats = pts.getCacheStats();
+		Assert.assertEquals(0, stats.hitCount());
+		Assert.assertEquals(locals.size(), stats.missCount());
+		query(pts);
+		stats = pts.getCacheStats();
+		Assert.assertEquals(locals.size(), stats.hitCount());
+		Assert.assertEquals(locals.size(), stats.missCount());
+		Assert.assertEquals(0, stats.evictionCount());
+
+		// Bounding the cache starts over
+		pts.setCacheMaximumSize(1);
+		Assert.assertEquals(0, pts.getCacheStats().requestCount());
+		query(pts);
+		stats = pts.getCacheStats();
+		Assert.assertEquals(locals.size(), stats.missCount());
+		Assert.assertEquals(locals.size() - 1, stats.evictionCount());
+	}
+
+	@Test
+	public void testCacheMaximumSize() {
+		Map<Local, String> expected = sequential();
+		DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		pts.setCacheMaximumSize(2);
+		Assert.assertEquals(expected, query(pts));
+		Assert.assertTrue(pts.reachingObjectsCache.size() <= 2);
+		Assert.assertTrue(pts.reachingObjectsCacheNoCGRefinement.size() <= 2);
+		Assert.assertEquals(locals.size() - 2, pts.getCacheStats().evictionCount());
+		// Answered the same way after the evictions
+		Assert.assertEquals(expected, query(pts));
+		Assert.assertEquals(expected, describe(pts.doReachingObjects(locals)));
+	}
+
+	@Test
+	public void testCacheMaximumWeight() {
+		Map<Local, String> expected = sequential();
+		DemandCSPointsTo pts = DemandCSPointsTo.makeDefault();
+		pts.setCacheMaximumWeight(3);
+		Assert.assertEquals(expected, query(pts));
+		Assert.assertTrue(weight(pts.reachingObjectsCache) <= 3);
+		Assert.assertTrue(weight(pts.reachingObjectsCacheNoCGRefinement) <= 3);
+		Assert.assertTrue(pts.getCacheStats().evictionCount() > 0);
+		Assert.assertEquals(expected, query(pts));
+		Assert.assertEquals(expected, describe(pts.doReachingObjects(locals)));
+	}
+}
@@ -0,0 +1,112 @@
+package soot.jimple.spark.pag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.RefType;
+import soot.Scene;
+import soot.options.SparkOptions;
+
+public class EdgeMapTest {
+
+	private PAG pag;
+	private List<VarNode> vars;
+
+	@Before
+	public void setUp() {
+		G.reset();
+		Scene.v().loadBasicClasses();
+		pag = newPAG();
+		vars = new ArrayList<VarNode>();
+		for (int i = 0; i < 100; i++)
+			vars.add(pag.makeGlobalVarNode("var" + i, RefType.v("java.lang.Object")));
+	}
+
+	private static PAG newPAG() {
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("set-impl", "hash");
+		return new PAG(new SparkOptions(options));
+	}
+
+	@Test
+	public void testAddAndLookup() {
+		EdgeMap<VarNode> m = new EdgeMap<VarNode>(pag.getVarNodeNumberer());
+		VarNode key = vars.get(3);
+		// Crosses the number of targets from which they are indexed
+		for (int i = 10; i < 60; i++)
+			Assert.assertTrue(m.add(key, vars.get(i)));
+		for (int i = 10; i < 60; i++)
+			Assert.assertFalse(m.add(key, vars.get(i)));
+		Node[] targets = m.lookup(key);
+		Assert.assertEquals(50, targets.length);
+		Assert.assertEquals(new HashSet<Node>(vars.subList(10, 60)), new HashSet<Node>(Arrays.asList(targets)));
+		Assert.assertSame(targets, m.lookup(key));
+		Assert.assertEquals(0, m.lookup(vars.get(4)).length);
+		Assert.assertEquals(50, m.countEdges());
+	}
+
+	@Test
+	public void testRemove() {
+		EdgeMap<VarNode> m = new EdgeMap<VarNode>(pag.getVarNodeNumberer());
+		for (int i = 0; i < 20; i++)
+			m.add(vars.get(1), vars.get(i + 50));
+		m.add(vars.get(2), vars.get(50));
+		Assert.assertTrue(m.remove(vars.get(1), vars.get(55)));
+		Assert.assertFalse(m.remove(vars.get(1), vars.get(55)));
+		Assert.assertTrue(m.add(vars.get(1), vars.get(55)));
+		Assert.assertFalse(m.add(vars.get(1), vars.get(56)));
+		Assert.assertEquals(20, m.remove(vars.get(1)).length);
+		Assert.assertFalse(m.containsKey(vars.get(1)));
+		Assert.assertTrue(m.containsKey(vars.get(2)));
+	}
+
+	@Test
+	public void testRemoveKeepsLookedUpArray() {
+		EdgeMap<VarNode> m = new EdgeMap<VarNode>(pag.getVarNodeNumberer());
+		for (int i = 0; i < 5; i++)
+			m.add(vars.get(1), vars.get(i + 50));
+		Node[] targets = m.lookup(vars.get(1));
+		Node[] copy = targets.clone();
+		Assert.assertTrue(m.remove(vars.get(1), vars.get(51)));
+		Assert.assertArrayEquals(copy, targets);
+		Assert.assertEquals(4, m.lookup(vars.get(1)).length);
+		Assert.assertFalse(Arrays.asList(m.lookup(vars.get(1))).contains(vars.get(51)));
+	}
+
+	@Test
+	public void testKeySet() {
+		EdgeMap<VarNode> m = new EdgeMap<VarNode>(pag.getVarNodeNumberer());
+		m.add(vars.get(7), vars.get(1));
+		m.add(vars.get(2), vars.get(1));
+		m.add(vars.get(7), vars.get(2));
+		Assert.assertEquals(Arrays.asList(vars.get(2), vars.get(7)), new ArrayList<VarNode>(m.keySet()));
+		Assert.assertTrue(m.keySet().contains(vars.get(7)));
+		Assert.assertFalse(m.keySet().contains(vars.get(1)));
+		m.clear();
+		Assert.assertTrue(m.keySet().isEmpty());
+	}
+
+	@Test
+	public void testPAGEdges() {
+		pag = newPAG();
+		VarNode a = pag.makeGlobalVarNode("a", RefType.v("java.lang.Object"));
+		VarNode b = pag.makeGlobalVarNode("b", RefType.v("java.lang.Object"));
+		Assert.assertTrue(pag.doAddSimpleEdge(a, b));
+		Assert.assertFalse(pag.doAddSimpleEdge(a, b));
+		Assert.assertArrayEquals(new Node[] { b }, pag.simpleLookup(a));
+		Assert.assertArrayEquals(new Node[] { a }, pag.simpleInvLookup(b));
+		Assert.assertEquals(1, pag.getNumSimpleEdges());
+		pag.removeEdgesOf(b);
+		Assert.assertEquals(0, pag.simpleLookup(a).length);
+		Assert.assertTrue(pag.simpleSources().isEmpty());
+	}
+}
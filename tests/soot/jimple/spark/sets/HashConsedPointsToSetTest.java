@@ -0,0 +1,102 @@
+package soot.jimple.spark.sets;
+
+import static soot.jimple.spark.sets.PointsToSetFixture.numbers;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.Type;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.PAG;
+
+public class HashConsedPointsToSetTest {
+
+	private static final int NODES = 300;
+
+	private PAG pag;
+	private AllocNode[] nodes;
+	private Type objectType;
+	private Type stringType;
+
+	@Before
+	public void setUp() {
+		PointsToSetFixture f = new PointsToSetFixture("hashcons", NODES);
+		pag = f.pag;
+		nodes = f.nodes;
+		objectType = f.objectType;
+		stringType = f.stringType;
+	}
+
+	private HashConsedPointsToSet newSet(int... indices) {
+		HashConsedPointsToSet s = new HashConsedPointsToSet(objectType, pag);
+		for (int i : indices)
+			s.add(nodes[i]);
+		return s;
+	}
+
+	@Test
+	public void testShared() {
+		HashConsedPointsToSet s1 = newSet(1, 5, 9);
+		HashConsedPointsToSet s2 = newSet(9, 1, 5);
+		Assert.assertTrue(s1.pointsToSetEquals(s2));
+		Assert.assertFalse(s1.pointsToSetEquals(newSet(1, 5)));
+		Assert.assertFalse(s1.add(nodes[5]));
+		Assert.assertTrue(s1.add(nodes[7]));
+		Assert.assertFalse(s1.pointsToSetEquals(s2));
+		Assert.assertEquals(3, s2.size());
+		Assert.assertTrue(newSet().isEmpty());
+	}
+
+	@Test
+	public void testAddAll() {
+		Random r = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			HashConsedPointsToSet s = newSet();
+			HashConsedPointsToSet other = newSet();
+			HashConsedPointsToSet exclude = newSet();
+			HashPointsToSet expected = new HashPointsToSet(objectType, pag);
+			for (int i = 0; i < 40; i++) {
+				AllocNode n = nodes[r.nextInt(NODES)];
+				s.add(n);
+				expected.add(n);
+				other.add(nodes[r.nextInt(NODES)]);
+				exclude.add(nodes[r.nextInt(NODES)]);
+			}
+			if (r.nextBoolean()) {
+				s.setType(stringType);
+				expected.setType(stringType);
+			}
+			boolean useExclude = r.nextBoolean();
+			boolean changed = expected.addAll(other, useExclude ? exclude : null);
+			Assert.assertEquals(changed, s.addAll(other, useExclude ? exclude : null));
+			Assert.assertEquals(numbers(expected), numbers(s));
+			Assert.assertEquals(expected.size(), s.size());
+			Assert.assertFalse(s.addAll(other, useExclude ? exclude : null));
+		}
+	}
+
+	@Test
+	public void testMemoizedUnion() {
+		HashConsedPointsToSet a1 = newSet(1, 2);
+		HashConsedPointsToSet a2 = newSet(1, 2);
+		HashConsedPointsToSet b = newSet(3, 4);
+		Assert.assertTrue(a1.addAll(b, null));
+		Assert.assertTrue(a2.addAll(b, null));
+		Assert.assertTrue(a1.pointsToSetEquals(a2));
+		Assert.assertEquals(numbers(newSet(1, 2, 3, 4)), numbers(a2));
+	}
+
+	@Test
+	public void testHasNonEmptyIntersection() {
+		Assert.assertTrue(newSet(1, 5, 9).hasNonEmptyIntersection(newSet(2, 9)));
+		Assert.assertFalse(newSet(1, 5, 9).hasNonEmptyIntersection(newSet(2, 8)));
+		Assert.assertFalse(newSet().hasNonEmptyIntersection(newSet()));
+		HashPointsToSet h = new HashPointsToSet(objectType, pag);
+		h.add(nodes[5]);
+		Assert.assertTrue(newSet(5).hasNonEmptyIntersection(h));
+	}
+}
@@ -0,0 +1,52 @@
+package soot.jimple.spark.sets;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import soot.G;
+import soot.RefType;
+import soot.Scene;
+import soot.Type;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.options.SparkOptions;
+
+/**
+ * A fresh PAG for testing a points-to set implementation, with allocation
+ * nodes of which every third is a String and the others are Integers.
+ */
+class PointsToSetFixture {
+
+	final PAG pag;
+	final AllocNode[] nodes;
+	final Type objectType;
+	final Type stringType;
+
+	PointsToSetFixture(String setImpl, int nodeCount) {
+		G.reset();
+		Scene.v().loadBasicClasses();
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("set-impl", setImpl);
+		pag = new PAG(new SparkOptions(options));
+		objectType = RefType.v("java.lang.Object");
+		stringType = RefType.v("java.lang.String");
+		Type integerType = RefType.v("java.lang.Integer");
+		nodes = new AllocNode[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			nodes[i] = pag.makeAllocNode("site" + i, i % 3 == 0 ? stringType : integerType, null);
+		pag.getTypeManager().makeTypeMask();
+	}
+
+	/** Returns the numbers of the nodes in s. */
+	static TreeSet<Integer> numbers(PointsToSetInternal s) {
+		final TreeSet<Integer> ret = new TreeSet<Integer>();
+		s.forall(new P2SetVisitor() {
+			public void visit(Node n) {
+				ret.add(n.getNumber());
+			}
+		});
+		return ret;
+	}
+}
@@ -0,0 +1,127 @@
+package soot.jimple.spark.sets;
+
+import static soot.jimple.spark.sets.PointsToSetFixture.numbers;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.Type;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.PAG;
+
+public class RoaringPointsToSetTest {
+
+	/** Spans several chunks of 65536 nodes. */
+	private static final int NODES = 3 * 65536 + 100;
+
+	private PAG pag;
+	private AllocNode[] nodes;
+	private Type objectType;
+	private Type stringType;
+
+	@Before
+	public void setUp() {
+		PointsToSetFixture f = new PointsToSetFixture("roaring", NODES);
+		pag = f.pag;
+		nodes = f.nodes;
+		objectType = f.objectType;
+		stringType = f.stringType;
+	}
+
+	private AllocNode node(int num) {
+		return pag.getAllocNodeNumberer().get(num);
+	}
+
+	/** Fills a set with a density that differs between chunks, so that it
+	 * has both array and bitmap containers. */
+	private RoaringPointsToSet randomSet(Random r) {
+		RoaringPointsToSet s = new RoaringPointsToSet(objectType, pag);
+		for (int chunk = 0; chunk * 65536 < NODES; chunk++) {
+			int adds = r.nextInt(4) == 0 ? 0 : r.nextInt(3) == 0 ? 20000 : r.nextInt(200);
+			for (int i = 0; i < adds; i++) {
+				int num = chunk * 65536 + r.nextInt(65536);
+				if (num >= 1 && num <= NODES)
+					s.add(node(num));
+			}
+		}
+		return s;
+	}
+
+	private void assertSame(TreeSet<Integer> expected, RoaringPointsToSet s) {
+		Assert.assertEquals(expected, numbers(s));
+		Assert.assertEquals(expected.size(), s.size());
+		Assert.assertEquals(expected.isEmpty(), s.isEmpty());
+	}
+
+	@Test
+	public void testAdd() {
+		RoaringPointsToSet s = new RoaringPointsToSet(objectType, pag);
+		Assert.assertTrue(s.isEmpty());
+		// Crosses the limit of an array container
+		for (int i = 0; i < 5000; i++)
+			Assert.assertTrue(s.add(nodes[i * 13]));
+		for (int i = 0; i < 5000; i++) {
+			Assert.assertFalse(s.add(nodes[i * 13]));
+			Assert.assertTrue(s.contains(nodes[i * 13]));
+			Assert.assertFalse(s.contains(nodes[i * 13 + 1]));
+		}
+		Assert.assertEquals(5000, s.size());
+
+		RoaringPointsToSet strings = new RoaringPointsToSet(stringType, pag);
+		Assert.assertTrue(strings.add(nodes[0]));
+		Assert.assertFalse(strings.add(nodes[1]));
+		Assert.assertEquals(1, strings.size());
+	}
+
+	@Test
+	public void testAddAll() {
+		Random r = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			RoaringPointsToSet s = randomSet(r);
+			RoaringPointsToSet other = randomSet(r);
+			RoaringPointsToSet exclude = r.nextBoolean() ? randomSet(r) : null;
+			if (r.nextBoolean())
+				s.setType(stringType);
+
+			TreeSet<Integer> expected = numbers(s);
+			for (Integer num : numbers(other)) {
+				if (exclude != null && exclude.contains(node(num)))
+					continue;
+				if (s.getType() == stringType && node(num).getType() != stringType)
+					continue;
+				expected.add(num);
+			}
+			boolean changed = expected.size() != s.size();
+			Assert.assertEquals(changed, s.addAll(other, exclude));
+			assertSame(expected, s);
+			Assert.assertFalse(s.addAll(other, exclude));
+		}
+	}
+
+	@Test
+	public void testHasNonEmptyIntersection() {
+		Random r = new Random(7);
+		for (int round = 0; round < 50; round++) {
+			RoaringPointsToSet s1 = randomSet(r);
+			RoaringPointsToSet s2 = randomSet(r);
+			TreeSet<Integer> common = numbers(s1);
+			common.retainAll(numbers(s2));
+			Assert.assertEquals(!common.isEmpty(), s1.hasNonEmptyIntersection(s2));
+			Assert.assertEquals(!common.isEmpty(), s2.hasNonEmptyIntersection(s1));
+		}
+		RoaringPointsToSet s = new RoaringPointsToSet(objectType, pag);
+		s.add(nodes[5]);
+		HashPointsToSet h = new HashPointsToSet(objectType, pag);
+		h.add(nodes[5]);
+		Assert.assertTrue(s.hasNonEmptyIntersection(h));
+	}
+
+	@Test
+	public void testFactory() {
+		Assert.assertTrue(pag.getSetFactory().newSet(objectType, pag) instanceof RoaringPointsToSet);
+	}
+}
@@ -0,0 +1,105 @@
+package soot.jimple.spark.solver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.G;
+import soot.RefType;
+import soot.Scene;
+import soot.jimple.spark.pag.AllocNode;
+import soot.jimple.spark.pag.ArrayElement;
+import soot.jimple.spark.pag.Node;
+import soot.jimple.spark.pag.PAG;
+import soot.jimple.spark.pag.VarNode;
+import soot.jimple.spark.sets.P2SetVisitor;
+import soot.options.Options;
+import soot.options.SparkOptions;
+
+public class PropParallelTest {
+
+	/**
+	 * Builds a random program of assignments, loads and stores over array
+	 * elements, and returns the names of the allocation sites each variable
+	 * points to after propagation.
+	 */
+	private static Map<String, Set<String>> propagate(String setImpl, boolean parallel) {
+		G.reset();
+		Options.v().set_num_threads(4);
+		Scene.v().loadBasicClasses();
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("set-impl", setImpl);
+		options.put("ignore-types", "true");
+		PAG pag = new PAG(new SparkOptions(options));
+
+		RefType object = RefType.v("java.lang.Object");
+		Random r = new Random(42);
+		List<VarNode> vars = new ArrayList<VarNode>();
+		for (int i = 0; i < 300; i++)
+			vars.add(pag.makeGlobalVarNode("var" + i, object));
+		for (int i = 0; i < 60; i++) {
+			AllocNode alloc = pag.makeAllocNode("new" + i, object, null);
+			pag.addEdge(alloc, vars.get(r.nextInt(vars.size())));
+		}
+		for (int i = 0; i < 400; i++)
+			pag.addEdge(vars.get(r.nextInt(vars.size())), vars.get(r.nextInt(vars.size())));
+		for (int i = 0; i < 60; i++) {
+			VarNode base = vars.get(r.nextInt(vars.size()));
+			pag.addEdge(vars.get(r.nextInt(vars.size())), pag.makeFieldRefNode(base, ArrayElement.v()));
+			base = vars.get(r.nextInt(vars.size()));
+			pag.addEdge(pag.makeFieldRefNode(base, ArrayElement.v()), vars.get(r.nextInt(vars.size())));
+		}
+
+		pag.getTypeManager().makeTypeMask();
+		if (parallel)
+			new PropParallel(pag).propagate();
+		else
+			new PropWorklist(pag).propagate();
+
+		Map<String, Set<String>> ret = new TreeMap<String, Set<String>>();
+		for (VarNode v : vars) {
+			final Set<String> allocs = new TreeSet<String>();
+			v.getP2Set().forall(new P2SetVisitor() {
+				public void visit(Node n) {
+					allocs.add((String) ((AllocNode) n).getNewExpr());
+				}
+			});
+			ret.put((String) v.getVariable(), allocs);
+		}
+		return ret;
+	}
+
+	private static void assertSameSets(String setImpl) {
+		Map<String, Set<String>> expected = propagate(setImpl, false);
+		Map<String, Set<String>> actual = propagate(setImpl, true);
+		int total = 0;
+		for (Set<String> allocs : expected.values())
+			total += allocs.size();
+		// The program is connected enough for loads and stores to matter
+		Assert.assertTrue(total > 1000);
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testHybrid() {
+		assertSameSets("hybrid");
+	}
+
+	@Test
+	public void testBit() {
+		assertSameSets("bit");
+	}
+
+	@Test
+	public void testShared() {
+		assertSameSets("sharedlist");
+	}
+}
@@ -0,0 +1,108 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.PackManager;
+import soot.Scene;
+import soot.jimple.Stmt;
+import soot.options.Options;
+
+public class CallGraphBuilderTest {
+
+	private static final String APP =
+			"import java.util.*;\n"
+			+ "public class App {\n"
+			+ "  public static void main(String[] args) {\n"
+			+ "    List<String> l = new ArrayList<String>(Arrays.asList(args));\n"
+			+ "    Map<String, Integer> m = new HashMap<String, Integer>();\n"
+			+ "    for (String s : l) m.put(s, s.length());\n"
+			+ "    Collections.sort(l);\n"
+			+ "    System.out.println(new TreeMap<String, Integer>(m));\n"
+			+ "  }\n"
+			+ "}\n";
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("cha", "");
+		dir.delete();
+		File classes = new File(dir, "classes");
+		classes.mkdirs();
+		File source = new File(dir, "App.java");
+		Writer w = new FileWriter(source);
+		try {
+			w.write(APP);
+		} finally {
+			w.close();
+		}
+		int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(),
+				source.getPath());
+		Assert.assertEquals(0, result);
+	}
+
+	@After
+	public void tearDown() {
+		new File(dir, "classes/App.class").delete();
+		new File(dir, "classes").delete();
+		new File(dir, "App.java").delete();
+		dir.delete();
+	}
+
+	/**
+	 * Builds the CHA call graph of App and java.util with the given number
+	 * of threads and returns its edges. The call sites are
+	 * described by the methods they invoke, since local names may differ
+	 * between runs.
+	 */
+	private List<String> buildCHA(int threads) {
+		G.reset();
+		String classes = new File(dir, "classes").getPath();
+		String rtJar = System.getProperty("java.home") + File.separator + "lib" + File.separator + "rt.jar";
+		Options.v().set_soot_classpath(classes + File.pathSeparator + rtJar);
+		Options.v().set_process_dir(Collections.singletonList(classes));
+		Options.v().set_whole_program(true);
+		Options.v().set_allow_phantom_refs(true);
+		Options.v().set_no_bodies_for_excluded(true);
+		Options.v().set_exclude(Arrays.asList("java.*", "sun.*", "javax.*", "jdk.*"));
+		Options.v().set_include(Arrays.asList("java.util.*"));
+		Options.v().set_main_class("App");
+		Options.v().set_num_threads(threads);
+		Options.v().setPhaseOption("cg.cha", "on");
+		Scene.v().loadNecessaryClasses();
+		PackManager.v().getPack("cg").apply();
+
+		List<String> ret = new ArrayList<String>();
+		for (Edge e : Scene.v().getCallGraph()) {
+			Stmt s = e.srcStmt();
+			String site = s == null ? "" : s.containsInvokeExpr() ? s.getInvokeExpr().getMethodRef().getSignature()
+					: s.getClass().getSimpleName();
+			ret.add(e.src() + " " + site + " " + e.tgt() + " " + e.kind());
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	@Test
+	public void testWavesGiveSameEdges() {
+		List<String> sequential = buildCHA(1);
+		List<String> waves = buildCHA(4);
+		Assert.assertTrue(sequential.size() > 1000);
+		Assert.assertEquals(sequential, waves);
+	}
+}
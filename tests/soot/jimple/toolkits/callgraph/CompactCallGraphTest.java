@@ -0,0 +1,112 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.util.queue.QueueReader;
+
+public class CompactCallGraphTest {
+
+	private static final Kind[] KINDS = { Kind.VIRTUAL, Kind.STATIC, Kind.SPECIAL, Kind.CLINIT };
+
+	private List<SootMethod> methods;
+	private List<Unit> units;
+	private CallGraph cg;
+
+	/** A random call graph over 30 methods and 60 call sites. */
+	@Before
+	public void setUp() {
+		G.reset();
+		SootClass cls = new SootClass("A", Modifier.PUBLIC);
+		Scene.v().addClass(cls);
+		methods = new ArrayList<SootMethod>();
+		for (int i = 0; i < 30; i++) {
+			SootMethod m = new SootMethod("m" + i, Collections.<Type> emptyList(), VoidType.v(), Modifier.PUBLIC);
+			cls.addMethod(m);
+			methods.add(m);
+		}
+		units = new ArrayList<Unit>();
+		for (int i = 0; i < 60; i++)
+			units.add(Jimple.v().newNopStmt());
+		cg = new CallGraph();
+		Random r = new Random(7);
+		for (int i = 0; i < 300; i++) {
+			Unit u = units.get(r.nextInt(units.size()));
+			// Each unit belongs to one method
+			SootMethod src = methods.get(units.indexOf(u) % 20);
+			cg.addEdge(new Edge(src, u, methods.get(r.nextInt(methods.size())), KINDS[r.nextInt(KINDS.length)]));
+		}
+		cg.addEdge(new Edge(null, null, methods.get(0), Kind.CLINIT));
+	}
+
+	private static Set<Edge> edges(Iterator<Edge> it) {
+		Set<Edge> ret = new HashSet<Edge>();
+		while (it.hasNext())
+			Assert.assertTrue(ret.add(it.next()));
+		return ret;
+	}
+
+	@Test
+	public void testSameEdges() {
+		CompactCallGraph compact = new CompactCallGraph(cg);
+		Assert.assertEquals(cg.size(), compact.size());
+		Assert.assertEquals(edges(cg.iterator()), edges(compact.iterator()));
+		Assert.assertEquals(edges(cg.listener()), edges(compact.listener()));
+		for (Unit u : units)
+			Assert.assertEquals(edges(cg.edgesOutOf(u)), edges(compact.edgesOutOf(u)));
+		for (SootMethod m : methods) {
+			Assert.assertEquals(edges(cg.edgesOutOf(m)), edges(compact.edgesOutOf(m)));
+			Assert.assertEquals(edges(cg.edgesInto(m)), edges(compact.edgesInto(m)));
+			Assert.assertEquals(cg.isEntryMethod(m), compact.isEntryMethod(m));
+		}
+		Set<MethodOrMethodContext> sources = new HashSet<MethodOrMethodContext>();
+		for (Iterator<MethodOrMethodContext> it = cg.sourceMethods(); it.hasNext();)
+			sources.add(it.next());
+		Set<MethodOrMethodContext> compactSources = new HashSet<MethodOrMethodContext>();
+		for (Iterator<MethodOrMethodContext> it = compact.sourceMethods(); it.hasNext();)
+			compactSources.add(it.next());
+		Assert.assertEquals(sources, compactSources);
+	}
+
+	@Test
+	public void testLookups() {
+		CompactCallGraph compact = new CompactCallGraph(cg);
+		for (Edge e : edges(cg.iterator())) {
+			Assert.assertTrue(compact.containsEdge(e));
+			if (e.srcUnit() != null)
+				Assert.assertNotNull(compact.findEdge(e.srcUnit(), e.tgt()));
+		}
+		Unit other = Jimple.v().newNopStmt();
+		Assert.assertFalse(compact.edgesOutOf(other).hasNext());
+		Assert.assertNull(compact.findEdge(other, methods.get(0)));
+		Edge e = cg.iterator().next();
+		Assert.assertFalse(compact.containsEdge(new Edge(e.getSrc(), other, e.getTgt(), e.kind())));
+		QueueReader<Edge> newEdges = compact.newListener();
+		Assert.assertFalse(newEdges.hasNext());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() {
+		new CompactCallGraph(cg).addEdge(new Edge(methods.get(1), units.get(0), methods.get(2), Kind.VIRTUAL));
+	}
+}
@@ -0,0 +1,138 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Kind;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.VoidType;
+import soot.jimple.Jimple;
+
+public class ConcurrentCallGraphTest {
+
+	private static final int THREADS = 4;
+	private static final int EDGES_PER_THREAD = 2000;
+
+	private List<SootMethod> methods;
+
+	@Before
+	public void setUp() {
+		G.reset();
+		SootClass cls = new SootClass("A", Modifier.PUBLIC);
+		Scene.v().addClass(cls);
+		methods = new ArrayList<SootMethod>();
+		for (int i = 0; i < 16; i++) {
+			SootMethod m = new SootMethod("m" + i, Collections.<Type> emptyList(), VoidType.v(), Modifier.PUBLIC);
+			cls.addMethod(m);
+			methods.add(m);
+		}
+	}
+
+	private static int count(Iterator<Edge> it) {
+		int ret = 0;
+		while (it.hasNext()) {
+			it.next();
+			ret++;
+		}
+		return ret;
+	}
+
+	@Test
+	public void testRemoveEqualEdge() {
+		ConcurrentCallGraph cg = new ConcurrentCallGraph();
+		Unit u = Jimple.v().newNopStmt();
+		SootMethod src = methods.get(0);
+		SootMethod tgt = methods.get(1);
+		Edge e = new Edge(src, u, tgt, Kind.VIRTUAL);
+		Assert.assertTrue(cg.addEdge(e));
+		Assert.assertTrue(cg.containsEdge(new Edge(src, u, tgt, Kind.VIRTUAL)));
+		// An equal edge that is not the one that was added
+		Assert.assertTrue(cg.removeEdge(new Edge(src, u, tgt, Kind.VIRTUAL)));
+		Assert.assertFalse(cg.containsEdge(e));
+		Assert.assertEquals(0, cg.size());
+		Assert.assertFalse(cg.edgesOutOf(u).hasNext());
+		Assert.assertFalse(cg.edgesOutOf(src).hasNext());
+		Assert.assertFalse(cg.edgesInto(tgt).hasNext());
+		Assert.assertTrue(cg.isEntryMethod(tgt));
+		Assert.assertNull(cg.findEdge(u, tgt));
+	}
+
+	@Test
+	public void testConcurrentAddRemove() throws InterruptedException {
+		final ConcurrentCallGraph cg = new ConcurrentCallGraph();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final List<List<Edge>> kept = new ArrayList<List<Edge>>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final int offset = t;
+			final List<Edge> mine = new ArrayList<Edge>();
+			kept.add(mine);
+			final Unit[] units = new Unit[EDGES_PER_THREAD];
+			for (int i = 0; i < units.length; i++)
+				units[i] = Jimple.v().newNopStmt();
+			threads.add(new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < EDGES_PER_THREAD; i++) {
+							Unit u = units[i];
+							SootMethod src = methods.get((i + offset) % methods.size());
+							SootMethod tgt = methods.get((i * 7 + offset) % methods.size());
+							Edge e = new Edge(src, u, tgt, Kind.VIRTUAL);
+							Assert.assertTrue(cg.addEdge(e));
+							// Reading while the other threads write
+							count(cg.edgesOutOf(src));
+							count(cg.edgesInto(tgt));
+							if (i % 2 == 0) {
+								Assert.assertTrue(cg.removeEdge(new Edge(src, u, tgt, Kind.VIRTUAL)));
+							} else {
+								mine.add(e);
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+
+		Set<Edge> expected = new HashSet<Edge>();
+		for (List<Edge> mine : kept)
+			expected.addAll(mine);
+		Assert.assertEquals(expected.size(), cg.size());
+		Set<Edge> bySrc = new HashSet<Edge>();
+		Set<Edge> byTgt = new HashSet<Edge>();
+		for (SootMethod m : methods) {
+			for (Iterator<Edge> it = cg.edgesOutOf(m); it.hasNext();)
+				Assert.assertTrue(bySrc.add(it.next()));
+			for (Iterator<Edge> it = cg.edgesInto(m); it.hasNext();)
+				Assert.assertTrue(byTgt.add(it.next()));
+		}
+		Assert.assertEquals(expected, bySrc);
+		Assert.assertEquals(expected, byTgt);
+		for (Edge e : expected) {
+			Assert.assertTrue(cg.containsEdge(e));
+			Assert.assertEquals(1, count(cg.edgesOutOf(e.srcUnit())));
+		}
+	}
+}
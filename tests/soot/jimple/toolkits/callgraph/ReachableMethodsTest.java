@@ -0,0 +1,144 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Kind;
+import soot.MethodOrMethodContext;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.Jimple;
+
+public class ReachableMethodsTest {
+
+	private List<SootMethod> methods;
+	private List<Edge> edges;
+	private List<Edge> removed;
+	private List<Edge> later;
+
+	/**
+	 * Random edges over 30 of 40 methods, some that are only added after the
+	 * reachable methods were first computed, and edges from the entry point
+	 * to the other 10 methods that are removed again.
+	 */
+	@Before
+	public void setUp() {
+		G.reset();
+		SootClass cls = new SootClass("A", Modifier.PUBLIC);
+		Scene.v().addClass(cls);
+		methods = new ArrayList<SootMethod>();
+		for (int i = 0; i < 40; i++) {
+			SootMethod m = new SootMethod("m" + i, Collections.<Type> emptyList(), VoidType.v(), Modifier.PUBLIC);
+			cls.addMethod(m);
+			methods.add(m);
+		}
+		Random r = new Random(3);
+		edges = new ArrayList<Edge>();
+		later = new ArrayList<Edge>();
+		for (int i = 0; i < 60; i++) {
+			Edge e = new Edge(methods.get(r.nextInt(30)), Jimple.v().newNopStmt(), methods.get(r.nextInt(30)),
+					Kind.VIRTUAL);
+			if (i % 4 == 0)
+				later.add(e);
+			else
+				edges.add(e);
+		}
+		removed = new ArrayList<Edge>();
+		for (int i = 30; i < 40; i++)
+			removed.add(new Edge(methods.get(0), Jimple.v().newNopStmt(), methods.get(i), Kind.VIRTUAL));
+	}
+
+	/** Returns the methods reachable from m0 through the given edges. */
+	private Set<MethodOrMethodContext> expected(List<Edge> edges) {
+		Set<MethodOrMethodContext> ret = new HashSet<MethodOrMethodContext>();
+		LinkedList<MethodOrMethodContext> worklist = new LinkedList<MethodOrMethodContext>();
+		ret.add(methods.get(0));
+		worklist.add(methods.get(0));
+		while (!worklist.isEmpty()) {
+			MethodOrMethodContext m = worklist.removeFirst();
+			for (Edge e : edges) {
+				if (e.getSrc() == m && ret.add(e.getTgt()))
+					worklist.add(e.getTgt());
+			}
+		}
+		return ret;
+	}
+
+	private static Set<MethodOrMethodContext> reachable(ReachableMethods rm) {
+		Set<MethodOrMethodContext> ret = new HashSet<MethodOrMethodContext>();
+		for (Iterator<MethodOrMethodContext> it = rm.listener(); it.hasNext();)
+			Assert.assertTrue(ret.add(it.next()));
+		Assert.assertEquals(rm.size(), ret.size());
+		return ret;
+	}
+
+	private ReachableMethods newReachableMethods(CallGraph cg) {
+		return new ReachableMethods(cg, Collections.<MethodOrMethodContext> singletonList(methods.get(0)));
+	}
+
+	/** Adds all edges, removes some again, computes the reachable methods,
+	 * then adds the later edges and updates them. */
+	private void check(CallGraph cg) {
+		for (Edge e : edges)
+			cg.addEdge(e);
+		for (Edge e : removed) {
+			cg.addEdge(e);
+			// An equal edge, not the one that was added
+			Assert.assertTrue(cg.removeEdge(new Edge(e.getSrc(), e.srcUnit(), e.getTgt(), e.kind())));
+		}
+		ReachableMethods rm = newReachableMethods(cg);
+		rm.update();
+		Assert.assertEquals(expected(edges), reachable(rm));
+
+		List<Edge> all = new ArrayList<Edge>(edges);
+		all.addAll(later);
+		for (Edge e : later)
+			cg.addEdge(e);
+		rm.update();
+		Assert.assertEquals(expected(all), reachable(rm));
+	}
+
+	@Test
+	public void testCallGraph() {
+		check(new CallGraph());
+	}
+
+	@Test
+	public void testConcurrentCallGraph() {
+		check(new ConcurrentCallGraph());
+	}
+
+	@Test
+	public void testSlowCallGraph() {
+		check(new SlowCallGraph());
+	}
+
+	@Test
+	public void testCompactCallGraph() {
+		CallGraph cg = new CallGraph();
+		for (Edge e : edges)
+			cg.addEdge(e);
+		for (Edge e : removed) {
+			cg.addEdge(e);
+			cg.removeEdge(e);
+		}
+		ReachableMethods rm = newReachableMethods(new CompactCallGraph(cg));
+		rm.update();
+		Assert.assertEquals(expected(edges), reachable(rm));
+	}
+}
@@ -0,0 +1,110 @@
+package soot.jimple.toolkits.callgraph;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.AnySubType;
+import soot.G;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.util.NumberedString;
+import soot.util.queue.ChunkedQueue;
+import soot.util.queue.QueueReader;
+
+public class VirtualCallsTest {
+
+	private SootClass a, b, c;
+	private SootMethod aFoo, bBar, cFoo;
+	private NumberedString foo, bar, baz;
+
+	private SootClass makeClass(String name, int modifiers, SootClass superclass) {
+		SootClass ret = new SootClass(name, modifiers);
+		if (superclass != null)
+			ret.setSuperclass(superclass);
+		Scene.v().addClass(ret);
+		ret.setResolvingLevel(SootClass.BODIES);
+		return ret;
+	}
+
+	private SootMethod makeMethod(SootClass cls, String name, int modifiers) {
+		SootMethod ret = new SootMethod(name, Collections.<Type> emptyList(), VoidType.v(), modifiers);
+		cls.addMethod(ret);
+		return ret;
+	}
+
+	/** A.foo(), abstract B extends A with abstract bar() and C extends B
+	 * overriding foo(). */
+	@Before
+	public void setUp() {
+		G.reset();
+		SootClass object = makeClass("java.lang.Object", Modifier.PUBLIC, null);
+		a = makeClass("A", Modifier.PUBLIC, object);
+		b = makeClass("B", Modifier.PUBLIC | Modifier.ABSTRACT, a);
+		c = makeClass("C", Modifier.PUBLIC, b);
+		aFoo = makeMethod(a, "foo", Modifier.PUBLIC);
+		bBar = makeMethod(b, "bar", Modifier.PUBLIC | Modifier.ABSTRACT);
+		cFoo = makeMethod(c, "foo", Modifier.PUBLIC);
+		foo = aFoo.getNumberedSubSignature();
+		bar = bBar.getNumberedSubSignature();
+		baz = Scene.v().getSubSigNumberer().findOrAdd("void baz()");
+	}
+
+	@Test
+	public void testResolve() {
+		VirtualCalls vc = VirtualCalls.v();
+		Assert.assertSame(aFoo, vc.resolveNonSpecial(a.getType(), foo));
+		Assert.assertSame(aFoo, vc.resolveNonSpecial(b.getType(), foo));
+		Assert.assertSame(cFoo, vc.resolveNonSpecial(c.getType(), foo));
+		Assert.assertNull(vc.resolveNonSpecial(b.getType(), bar));
+		Assert.assertNull(vc.resolveNonSpecial(c.getType(), bar));
+		Assert.assertNull(vc.resolveNonSpecial(c.getType(), baz));
+	}
+
+	@Test
+	public void testAddedMethods() {
+		VirtualCalls vc = VirtualCalls.v();
+		Assert.assertNull(vc.resolveNonSpecial(c.getType(), baz));
+		// Added to the class itself and to a superclass after the tables
+		// were built
+		SootMethod cBar = makeMethod(c, "bar", Modifier.PUBLIC);
+		SootMethod aBaz = makeMethod(a, "baz", Modifier.PUBLIC);
+		Assert.assertSame(cBar, vc.resolveNonSpecial(c.getType(), bar));
+		Assert.assertSame(aBaz, vc.resolveNonSpecial(c.getType(), baz));
+		Assert.assertSame(aBaz, vc.resolveNonSpecial(b.getType(), baz));
+	}
+
+	@Test
+	public void testAppOnly() {
+		VirtualCalls vc = VirtualCalls.v();
+		a.setLibraryClass();
+		c.setApplicationClass();
+		Assert.assertNull(vc.resolveNonSpecial(a.getType(), foo, true));
+		Assert.assertSame(aFoo, vc.resolveNonSpecial(a.getType(), foo, false));
+		Assert.assertSame(cFoo, vc.resolveNonSpecial(c.getType(), foo, true));
+	}
+
+	@Test
+	public void testAnySubTypeOfAbstractClass() {
+		VirtualCalls vc = VirtualCalls.v();
+		// The second resolution replays the cached subtypes of B, which
+		// must not dispatch on the abstract B itself
+		for (int i = 0; i < 2; i++) {
+			ChunkedQueue<SootMethod> targets = new ChunkedQueue<SootMethod>();
+			QueueReader<SootMethod> reader = targets.reader();
+			vc.resolve(AnySubType.v(b.getType()), b.getType(), foo, null, targets);
+			Set<SootMethod> found = new HashSet<SootMethod>();
+			while (reader.hasNext())
+				found.add(reader.next());
+			Assert.assertEquals(Collections.singleton(cFoo), found);
+		}
+	}
+}
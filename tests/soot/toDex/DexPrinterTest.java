@@ -0,0 +1,110 @@
+package soot.toDex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jf.dexlib2.DexFileFactory;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import soot.G;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.options.Options;
+
+public class DexPrinterTest {
+
+	private File outputDir;
+
+	@Before
+	public void setUp() throws IOException {
+		G.reset();
+		outputDir = File.createTempFile("dexout", "");
+		outputDir.delete();
+		outputDir.mkdir();
+		Options.v().set_output_dir(outputDir.getPath());
+		Options.v().set_output_format(Options.output_format_dex);
+		Options.v().set_allow_phantom_refs(true);
+		Scene.v().loadBasicClasses();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : outputDir.listFiles())
+			f.delete();
+		outputDir.delete();
+	}
+
+	/** Adds an abstract class with the given number of abstract methods. */
+	private static SootClass addClass(String name, int methods) {
+		SootClass c = new SootClass(name, Modifier.PUBLIC | Modifier.ABSTRACT);
+		c.setSuperclass(Scene.v().getSootClass("java.lang.Object"));
+		for (int i = 0; i < methods; i++)
+			c.addMethod(new SootMethod("m" + i, Collections.<Type> emptyList(), VoidType.v(),
+					Modifier.PUBLIC | Modifier.ABSTRACT));
+		Scene.v().addClass(c);
+		return c;
+	}
+
+	/** Adds an abstract class whose methods each take 200 parameters of
+	 * types no other class uses. */
+	private static SootClass addClassWithTypes(String name, int methods) {
+		SootClass c = new SootClass(name, Modifier.PUBLIC | Modifier.ABSTRACT);
+		c.setSuperclass(Scene.v().getSootClass("java.lang.Object"));
+		for (int i = 0; i < methods; i++) {
+			List<Type> parameters = new ArrayList<Type>();
+			for (int j = 0; j < 200; j++)
+				parameters.add(RefType.v(name + "$T" + i + "_" + j));
+			c.addMethod(new SootMethod("m" + i, parameters, VoidType.v(), Modifier.PUBLIC | Modifier.ABSTRACT));
+		}
+		Scene.v().addClass(c);
+		return c;
+	}
+
+	private int classCount(String dexName) throws IOException {
+		DexBackedDexFile d = DexFileFactory.loadDexFile(new File(outputDir, dexName), 1, false);
+		return d.getClasses().size();
+	}
+
+	@Test
+	public void testSingleDex() throws IOException {
+		DexPrinter printer = new DexPrinter();
+		printer.add(addClass("a.A", 10));
+		printer.add(addClass("b.B", 10));
+		printer.print();
+		Assert.assertEquals(2, classCount("classes.dex"));
+		Assert.assertFalse(new File(outputDir, "classes2.dex").exists());
+	}
+
+	@Test
+	public void testSplit() throws IOException {
+		DexPrinter printer = new DexPrinter();
+		printer.add(addClass("a.A", 40000));
+		printer.add(addClass("b.B", 40000));
+		printer.add(addClass("c.C", 10));
+		printer.print();
+		Assert.assertEquals(1, classCount("classes.dex"));
+		Assert.assertEquals(2, classCount("classes2.dex"));
+	}
+
+	@Test
+	public void testSplitByTypes() throws IOException {
+		DexPrinter printer = new DexPrinter();
+		printer.add(addClassWithTypes("a.A", 200));
+		printer.add(addClassWithTypes("b.B", 200));
+		printer.print();
+		Assert.assertEquals(1, classCount("classes.dex"));
+		Assert.assertEquals(1, classCount("classes2.dex"));
+	}
+}
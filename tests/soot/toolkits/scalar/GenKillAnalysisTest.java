@@ -0,0 +1,103 @@
+package soot.toolkits.scalar;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.toolkits.graph.DirectedGraph;
+import soot.toolkits.graph.HashMutableDirectedGraph;
+
+public class GenKillAnalysisTest {
+
+	static class TestAnalysis extends GenKillAnalysis<String> {
+		final Map<String, int[]> gens = new HashMap<String, int[]>();
+		final Map<String, int[]> kills = new HashMap<String, int[]>();
+
+		TestAnalysis(DirectedGraph<String> g, boolean isForward, boolean isUnion) {
+			super(g, isForward, isUnion);
+			gens.put("a", new int[] { 0 });
+			gens.put("b", new int[] { 1 });
+			gens.put("c", new int[] { 2 });
+			kills.put("c", new int[] { 0 });
+			gens.put("e", new int[] { 3 });
+			doAnalysis(4);
+		}
+
+		@Override
+		protected void flowThrough(String node, long[] gen, long[] kill) {
+			if (gens.containsKey(node))
+				for (int f : gens.get(node))
+					set(gen, f);
+			if (kills.containsKey(node))
+				for (int f : kills.get(node))
+					set(kill, f);
+		}
+	}
+
+	/** a -> b -> c -> d with a loop from c back to b, and an unreachable
+	 * node e with an edge to itself. */
+	private static DirectedGraph<String> graph() {
+		HashMutableDirectedGraph<String> g = new HashMutableDirectedGraph<String>();
+		for (String n : new String[] { "a", "b", "c", "d", "e" })
+			g.addNode(n);
+		g.addEdge("a", "b");
+		g.addEdge("b", "c");
+		g.addEdge("c", "d");
+		g.addEdge("c", "b");
+		g.addEdge("e", "e");
+		return g;
+	}
+
+	@Test
+	public void testForwardUnion() {
+		TestAnalysis a = new TestAnalysis(graph(), true, true);
+		Assert.assertArrayEquals(new int[] {}, a.getFactsBefore("a"));
+		Assert.assertArrayEquals(new int[] { 0 }, a.getFactsAfter("a"));
+		Assert.assertArrayEquals(new int[] { 0, 1, 2 }, a.getFactsBefore("b"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsAfter("c"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsBefore("d"));
+		Assert.assertArrayEquals(new int[] { 3 }, a.getFactsBefore("e"));
+		Assert.assertTrue(a.holdsBefore("b", 2));
+		Assert.assertFalse(a.holdsAfter("c", 0));
+	}
+
+	@Test
+	public void testForwardIntersection() {
+		TestAnalysis a = new TestAnalysis(graph(), true, false);
+		Assert.assertArrayEquals(new int[] {}, a.getFactsBefore("b"));
+		Assert.assertArrayEquals(new int[] { 1 }, a.getFactsAfter("b"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsBefore("d"));
+		// Nothing reaches e, so everything holds there
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 3 }, a.getFactsBefore("e"));
+	}
+
+	@Test
+	public void testBackwardUnion() {
+		TestAnalysis a = new TestAnalysis(graph(), false, true);
+		Assert.assertArrayEquals(new int[] {}, a.getFactsBefore("d"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsBefore("c"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsAfter("c"));
+		Assert.assertArrayEquals(new int[] { 1, 2 }, a.getFactsBefore("b"));
+		Assert.assertArrayEquals(new int[] { 0, 1, 2 }, a.getFactsBefore("a"));
+	}
+
+	@Test
+	public void testUnknownNode() {
+		TestAnalysis a = new TestAnalysis(graph(), true, true);
+		try {
+			a.getFactsBefore("x");
+			Assert.fail();
+		} catch (RuntimeException e) {
+			Assert.assertEquals("Node x is not in the graph", e.getMessage());
+		}
+		try {
+			a.holdsAfter("x", 0);
+			Assert.fail();
+		} catch (RuntimeException e) {
+			Assert.assertEquals("Node x is not in the graph", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+package soot.toolkits.scalar;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.G;
+import soot.IntType;
+import soot.Local;
+import soot.Modifier;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.toolkits.graph.BriefUnitGraph;
+
+public class SimpleLiveLocalsTest {
+
+	@Test
+	public void testUndeclaredLocal() {
+		G.reset();
+		SootMethod m = new SootMethod("m", Collections.<Type> emptyList(), IntType.v(), Modifier.STATIC);
+		JimpleBody body = Jimple.v().newBody(m);
+		Local a = Jimple.v().newLocal("a", IntType.v());
+		body.getLocals().add(a);
+		// b is used and defined, but not declared in the body
+		Local b = Jimple.v().newLocal("b", IntType.v());
+		body.getUnits().add(Jimple.v().newAssignStmt(a, IntConstant.v(1)));
+		body.getUnits().add(Jimple.v().newAssignStmt(b, Jimple.v().newAddExpr(a, IntConstant.v(2))));
+		Unit ret = Jimple.v().newReturnStmt(b);
+		body.getUnits().add(ret);
+
+		SimpleLiveLocals live = new SimpleLiveLocals(new BriefUnitGraph(body));
+		Assert.assertEquals(Collections.singletonList(b), live.getLiveLocalsBefore(ret));
+		Unit second = body.getUnits().getSuccOf(body.getUnits().getFirst());
+		Assert.assertEquals(Collections.singletonList(a), live.getLiveLocalsBefore(second));
+		Assert.assertEquals(Collections.singletonList(b), live.getLiveLocalsAfter(second));
+	}
+}
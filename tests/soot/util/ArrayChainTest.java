@@ -0,0 +1,126 @@
+package soot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArrayChainTest {
+
+	private static List<String> contents(Chain<String> c) {
+		return new ArrayList<String>(c);
+	}
+
+	@Test
+	public void testInsertAndRemove() {
+		ArrayChain<String> c = new ArrayChain<String>();
+		c.add("b");
+		c.addFirst("a");
+		c.addLast("d");
+		c.insertBefore("c", "d");
+		c.insertAfter("e", "d");
+		Assert.assertEquals(Arrays.asList("a", "b", "c", "d", "e"), contents(c));
+		Assert.assertEquals("a", c.getFirst());
+		Assert.assertEquals("e", c.getLast());
+		Assert.assertEquals("c", c.getSuccOf("b"));
+		Assert.assertEquals("b", c.getPredOf("c"));
+		Assert.assertNull(c.getSuccOf("e"));
+		Assert.assertNull(c.getPredOf("a"));
+
+		Assert.assertTrue(c.remove("c"));
+		Assert.assertFalse(c.remove("c"));
+		c.removeFirst();
+		c.removeLast();
+		Assert.assertEquals(Arrays.asList("b", "d"), contents(c));
+		Assert.assertEquals(2, c.size());
+		Assert.assertFalse(c.contains("a"));
+		Assert.assertTrue(c.follows("d", "b"));
+		Assert.assertFalse(c.follows("b", "d"));
+	}
+
+	@Test
+	public void testIterators() {
+		ArrayChain<String> c = new ArrayChain<String>();
+		c.addAll(Arrays.asList("a", "b", "c", "d"));
+		List<String> l = new ArrayList<String>();
+		for (Iterator<String> it = c.iterator("b", "c"); it.hasNext();)
+			l.add(it.next());
+		Assert.assertEquals(Arrays.asList("b", "c"), l);
+		Assert.assertFalse(c.iterator("b", "a").hasNext());
+
+		// Removing through the iterator, including the tail
+		for (Iterator<String> it = c.iterator("b", "c"); it.hasNext();) {
+			it.next();
+			it.remove();
+		}
+		Assert.assertEquals(Arrays.asList("a", "d"), contents(c));
+
+		Iterator<String> it = c.iterator();
+		c.add("e");
+		try {
+			it.next();
+			Assert.fail();
+		} catch (ConcurrentModificationException e) {
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testDuplicate() {
+		ArrayChain<String> c = new ArrayChain<String>();
+		c.add("a");
+		c.add("a");
+	}
+
+	/** Applies the same random operations to an ArrayChain and a
+	 * HashChain. */
+	@Test
+	public void testAgainstHashChain() {
+		Random r = new Random(42);
+		ArrayChain<Integer> a = new ArrayChain<Integer>();
+		HashChain<Integer> h = new HashChain<Integer>();
+		int nextElement = 0;
+		for (int i = 0; i < 20000; i++) {
+			int op = r.nextInt(6);
+			if (h.isEmpty() || op < 2) {
+				Integer e = nextElement++;
+				if (r.nextBoolean()) {
+					a.addLast(e);
+					h.addLast(e);
+				} else {
+					a.addFirst(e);
+					h.addFirst(e);
+				}
+			} else {
+				List<Integer> l = new ArrayList<Integer>(h);
+				Integer point = l.get(r.nextInt(l.size()));
+				if (op == 2) {
+					Integer e = nextElement++;
+					a.insertBefore(e, point);
+					h.insertBefore(e, point);
+				} else if (op == 3) {
+					Integer e = nextElement++;
+					a.insertAfter(e, point);
+					h.insertAfter(e, point);
+				} else if (op == 4) {
+					a.remove(point);
+					h.remove(point);
+				} else {
+					Assert.assertEquals(h.getSuccOf(point), a.getSuccOf(point));
+					Assert.assertEquals(h.getPredOf(point), a.getPredOf(point));
+				}
+			}
+			Assert.assertEquals(h.size(), a.size());
+		}
+		Assert.assertEquals(new ArrayList<Integer>(h), new ArrayList<Integer>(a));
+		for (Integer e : h)
+			Assert.assertTrue(a.contains(e));
+		a.clear();
+		Assert.assertTrue(a.isEmpty());
+		Assert.assertFalse(a.iterator().hasNext());
+	}
+}